@@ -16,11 +16,12 @@
 package io.netty.handler.codec;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
-import io.netty.util.internal.RecyclableArrayList;
 import io.netty.util.internal.StringUtil;
 
 import java.util.List;
@@ -44,11 +45,86 @@ import java.util.List;
  *
  * Be aware that sub-classes of {@link ByteToMessageDecoder} <strong>MUST NOT</strong>
  * annotated with {@link @Sharable}.
+ *
+ * The received {@link ByteBuf}s are cumulated by a {@link Cumulator} until the decoder can decode a message, see
+ * {@link #setCumulator(Cumulator)}.
  */
 public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
 
+    /**
+     * Cumulate {@link ByteBuf}s by merging them into one {@link ByteBuf}, using memory copies.
+     */
+    public static final Cumulator MERGE_CUMULATOR = new Cumulator() {
+        @Override
+        public ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+            ByteBuf buffer;
+            if (cumulation.writerIndex() > cumulation.maxCapacity() - in.readableBytes()
+                    || cumulation.refCnt() > 1) {
+                // Expand cumulation (by replace it) when either there is not more room in the buffer
+                // or if the refCnt is greater then 1 which may happen when the user use slice().retain() or
+                // duplicate().retain().
+                //
+                // See:
+                // - https://github.com/netty/netty/issues/2327
+                // - https://github.com/netty/netty/issues/1764
+                buffer = expandCumulation(alloc, cumulation, in.readableBytes());
+            } else {
+                buffer = cumulation;
+            }
+            buffer.writeBytes(in);
+            in.release();
+            return buffer;
+        }
+    };
+
+    /**
+     * Cumulate {@link ByteBuf}s by adding them to a {@link CompositeByteBuf} and so do no memory copy whenever
+     * possible. A received {@link ByteBuf} is only copied if it fits into the remaining capacity of the cumulation,
+     * which is the case for small reads, or if the cumulation is shared.
+     *
+     * Be aware that {@link CompositeByteBuf} uses a more complex indexing implementation so depending on your
+     * use-case and the decoder implementation this may be slower then just use the {@link #MERGE_CUMULATOR}.
+     */
+    public static final Cumulator COMPOSITE_CUMULATOR = new Cumulator() {
+        @Override
+        public ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in) {
+            int readable = in.readableBytes();
+            if (readable == 0) {
+                // An empty buffer would not be added as component and so not be released by the composite.
+                in.release();
+                return cumulation;
+            }
+            if (cumulation.refCnt() > 1) {
+                // See MERGE_CUMULATOR.
+                ByteBuf buffer = expandCumulation(alloc, cumulation, readable);
+                buffer.writeBytes(in);
+                in.release();
+                return buffer;
+            }
+
+            CompositeByteBuf composite;
+            if (cumulation instanceof CompositeByteBuf) {
+                composite = (CompositeByteBuf) cumulation;
+            } else {
+                if (readable <= cumulation.writableBytes()) {
+                    // Copying a small read is cheaper than adding another component.
+                    cumulation.writeBytes(in);
+                    in.release();
+                    return cumulation;
+                }
+                // Do not limit the number of components as consolidating them would copy all the cumulated bytes.
+                composite = alloc.compositeBuffer(Integer.MAX_VALUE);
+                composite.addComponent(cumulation).writerIndex(cumulation.readableBytes());
+            }
+            composite.addComponent(in).writerIndex(composite.writerIndex() + readable);
+            return composite;
+        }
+    };
+
     ByteBuf cumulation;
+    private Cumulator cumulator = MERGE_CUMULATOR;
     private boolean singleDecode;
+    private boolean fireBatch;
     private boolean decodeWasNull;
     private boolean first;
 
@@ -78,6 +154,39 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
         return singleDecode;
     }
 
+    /**
+     * If set then the messages which were decoded from one {@link #channelRead(ChannelHandlerContext, Object)} call
+     * are passed to the next handler as a single {@link List} instead of one by one, so the pipeline is traversed
+     * only once for all of them. The next handler then receives a {@link List} of decoded messages and is
+     * responsible for releasing them.
+     *
+     * Default is {@code false}, so every decoded message is passed on its own.
+     */
+    public void setFireBatch(boolean fireBatch) {
+        this.fireBatch = fireBatch;
+    }
+
+    /**
+     * If {@code true} then the messages which were decoded from one
+     * {@link #channelRead(ChannelHandlerContext, Object)} call are passed to the next handler as a single
+     * {@link List}.
+     *
+     * Default is {@code false}.
+     */
+    public boolean isFireBatch() {
+        return fireBatch;
+    }
+
+    /**
+     * Set the {@link Cumulator} to use for cumulate the received {@link ByteBuf}s.
+     */
+    public void setCumulator(Cumulator cumulator) {
+        if (cumulator == null) {
+            throw new NullPointerException("cumulator");
+        }
+        this.cumulator = cumulator;
+    }
+
     /**
      * Returns the actual number of readable bytes in the internal cumulative
      * buffer of this decoder. You usually do not need to rely on this value
@@ -126,26 +235,14 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
     @Override
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         if (msg instanceof ByteBuf) {
-            RecyclableArrayList out = RecyclableArrayList.newInstance();
+            CodecOutputList out = CodecOutputList.newInstance();
             try {
                 ByteBuf data = (ByteBuf) msg;
                 first = cumulation == null;
                 if (first) {
                     cumulation = data;
                 } else {
-                    if (cumulation.writerIndex() > cumulation.maxCapacity() - data.readableBytes()
-                            || cumulation.refCnt() > 1) {
-                        // Expand cumulation (by replace it) when either there is not more room in the buffer
-                        // or if the refCnt is greater then 1 which may happen when the user use slice().retain() or
-                        // duplicate().retain().
-                        //
-                        // See:
-                        // - https://github.com/netty/netty/issues/2327
-                        // - https://github.com/netty/netty/issues/1764
-                        expandCumulation(ctx, data.readableBytes());
-                    }
-                    cumulation.writeBytes(data);
-                    data.release();
+                    cumulation = cumulator.cumulate(ctx.alloc(), cumulation, data);
                 }
                 callDecode(ctx, cumulation, out);
             } catch (DecoderException e) {
@@ -159,10 +256,7 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
                 }
                 int size = out.size();
                 decodeWasNull = size == 0;
-
-                for (int i = 0; i < size; i ++) {
-                    ctx.fireChannelRead(out.get(i));
-                }
+                fireDecoded(ctx, out, size);
                 out.recycle();
             }
         } else {
@@ -170,11 +264,12 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
         }
     }
 
-    private void expandCumulation(ChannelHandlerContext ctx, int readable) {
+    private static ByteBuf expandCumulation(ByteBufAllocator alloc, ByteBuf cumulation, int readable) {
         ByteBuf oldCumulation = cumulation;
-        cumulation = ctx.alloc().buffer(oldCumulation.readableBytes() + readable);
+        cumulation = alloc.buffer(oldCumulation.readableBytes() + readable);
         cumulation.writeBytes(oldCumulation);
         oldCumulation.release();
+        return cumulation;
     }
 
     @Override
@@ -200,7 +295,7 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
 
     @Override
     public void channelInactive(ChannelHandlerContext ctx) throws Exception {
-        RecyclableArrayList out = RecyclableArrayList.newInstance();
+        CodecOutputList out = CodecOutputList.newInstance();
         try {
             if (cumulation != null) {
                 callDecode(ctx, cumulation, out);
@@ -217,15 +312,37 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
                 cumulation.release();
                 cumulation = null;
             }
-            int size = out.size();
-            for (int i = 0; i < size; i ++) {
-                ctx.fireChannelRead(out.get(i));
-            }
+            fireDecoded(ctx, out, out.size());
             ctx.fireChannelInactive();
             out.recycle();
         }
     }
 
+    /**
+     * Fire the first {@code numElements} decoded messages of the given {@link CodecOutputList}, in a single
+     * {@link List} if {@link #isFireBatch()} is set.
+     */
+    final void fireDecoded(ChannelHandlerContext ctx, CodecOutputList msgs, int numElements) {
+        if (fireBatch) {
+            if (numElements != 0) {
+                // The CodecOutputList is recycled once this method returns, so the next handler gets a copy.
+                ctx.fireChannelRead(msgs.copy(numElements));
+            }
+        } else {
+            fireChannelRead(ctx, msgs, numElements);
+        }
+    }
+
+    /**
+     * Fire the first {@code numElements} messages of the given {@link CodecOutputList} through the
+     * {@link io.netty.channel.ChannelPipeline}.
+     */
+    static void fireChannelRead(ChannelHandlerContext ctx, CodecOutputList msgs, int numElements) {
+        for (int i = 0; i < numElements; i ++) {
+            ctx.fireChannelRead(msgs.getUnsafe(i));
+        }
+    }
+
     /**
      * Called once data should be decoded from the given {@link ByteBuf}. This method will call
      * {@link #decode(ChannelHandlerContext, ByteBuf, List)} as long as decoding should take place.
@@ -297,4 +414,16 @@ public abstract class ByteToMessageDecoder extends ChannelHandlerAdapter {
     protected void decodeLast(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
         decode(ctx, in, out);
     }
+
+    /**
+     * Cumulate {@link ByteBuf}s.
+     */
+    public interface Cumulator {
+        /**
+         * Cumulate the given {@link ByteBuf}s and return the {@link ByteBuf} that holds the cumulated bytes.
+         * The implementation is responsible to correctly handle the life-cycle of the given {@link ByteBuf}s and so
+         * call {@link ByteBuf#release()} if a {@link ByteBuf} is fully consumed.
+         */
+        ByteBuf cumulate(ByteBufAllocator alloc, ByteBuf cumulation, ByteBuf in);
+    }
 }
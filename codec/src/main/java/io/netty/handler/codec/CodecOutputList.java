@@ -0,0 +1,233 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.util.concurrent.FastThreadLocal;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Special {@link AbstractList} implementation which is used within our codec base classes to collect the decoded
+ * or encoded messages. The lists are cached per thread and keep their capacity, up to a limit, once they are
+ * recycled, so in steady state no allocation takes place. This implementation does not allow {@code null} elements
+ * to be added.
+ */
+final class CodecOutputList extends AbstractList<Object> implements RandomAccess {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(CodecOutputList.class);
+
+    private static final int DEFAULT_INITIAL_CAPACITY = 16;
+
+    // The capacity a cached list keeps once it is recycled, so a burst of messages does not pin a large array to
+    // every thread forever.
+    private static final int MAX_RETAINED_CAPACITY;
+
+    static {
+        MAX_RETAINED_CAPACITY = Math.max(DEFAULT_INITIAL_CAPACITY,
+                SystemPropertyUtil.getInt("io.netty.codec.outputList.maxRetainedCapacity", 1024));
+        if (logger.isDebugEnabled()) {
+            logger.debug("-Dio.netty.codec.outputList.maxRetainedCapacity: {}", MAX_RETAINED_CAPACITY);
+        }
+    }
+
+    // The number of lists which are cached per thread, which is the number of nested codecs that can use a cached
+    // list at the same time.
+    private static final int MAX_CACHED_LISTS = 16;
+
+    private static final FastThreadLocal<CodecOutputLists> CODEC_OUTPUT_LISTS =
+            new FastThreadLocal<CodecOutputLists>() {
+                @Override
+                protected CodecOutputLists initialValue() {
+                    return new CodecOutputLists();
+                }
+            };
+
+    /**
+     * Return an empty {@link CodecOutputList} which must be given back via {@link #recycle()} once it is not used
+     * anymore.
+     */
+    static CodecOutputList newInstance() {
+        return CODEC_OUTPUT_LISTS.get().get();
+    }
+
+    private final CodecOutputLists owner;
+    private Object[] array;
+    private int size;
+
+    private CodecOutputList(CodecOutputLists owner) {
+        this.owner = owner;
+        array = new Object[DEFAULT_INITIAL_CAPACITY];
+    }
+
+    @Override
+    public Object get(int index) {
+        checkIndex(index);
+        return array[index];
+    }
+
+    /**
+     * Returns the element on the given index. This operation will not do any range-checks and so is considered
+     * unsafe.
+     */
+    Object getUnsafe(int index) {
+        return array[index];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean add(Object element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        if (size == array.length) {
+            expandArray();
+        }
+        array[size ++] = element;
+        return true;
+    }
+
+    @Override
+    public Object set(int index, Object element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        checkIndex(index);
+
+        Object old = array[index];
+        array[index] = element;
+        return old;
+    }
+
+    @Override
+    public void add(int index, Object element) {
+        if (element == null) {
+            throw new NullPointerException("element");
+        }
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 0-" + size + ')');
+        }
+        if (size == array.length) {
+            expandArray();
+        }
+        if (index != size) {
+            System.arraycopy(array, index, array, index + 1, size - index);
+        }
+        array[index] = element;
+        size ++;
+    }
+
+    @Override
+    public Object remove(int index) {
+        checkIndex(index);
+        Object old = array[index];
+
+        int len = size - index - 1;
+        if (len > 0) {
+            System.arraycopy(array, index + 1, array, index, len);
+        }
+        array[-- size] = null;
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i ++) {
+            array[i] = null;
+        }
+        size = 0;
+    }
+
+    /**
+     * Return a new {@link List} which contains the first {@code numElements} elements of this instance.
+     */
+    List<Object> copy(int numElements) {
+        List<Object> copy = new ArrayList<Object>(numElements);
+        for (int i = 0; i < numElements; i ++) {
+            copy.add(array[i]);
+        }
+        return copy;
+    }
+
+    /**
+     * Clear and recycle this instance.
+     */
+    void recycle() {
+        clear();
+        if (owner != null) {
+            if (array.length > MAX_RETAINED_CAPACITY) {
+                array = new Object[MAX_RETAINED_CAPACITY];
+            }
+            owner.recycle(this);
+        }
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index: " + index + " (expected: 0-" + (size - 1) + ')');
+        }
+    }
+
+    private void expandArray() {
+        // double capacity
+        int newCapacity = array.length << 1;
+        if (newCapacity < 0) {
+            throw new OutOfMemoryError();
+        }
+
+        Object[] newArray = new Object[newCapacity];
+        System.arraycopy(array, 0, newArray, 0, array.length);
+        array = newArray;
+    }
+
+    /**
+     * The {@link CodecOutputList}s which are cached for a thread.
+     */
+    private static final class CodecOutputLists {
+        private final CodecOutputList[] lists = new CodecOutputList[MAX_CACHED_LISTS];
+        // The number of lists which were created and are not in use, from the start of lists.
+        private int available;
+        // The number of lists which were created by this instance.
+        private int created;
+
+        CodecOutputList get() {
+            if (available == 0) {
+                if (created == MAX_CACHED_LISTS) {
+                    // Too many nested codecs, so use a list which is not cached.
+                    return new CodecOutputList(null);
+                }
+                created ++;
+                return new CodecOutputList(this);
+            }
+            CodecOutputList list = lists[-- available];
+            lists[available] = null;
+            return list;
+        }
+
+        void recycle(CodecOutputList list) {
+            lists[available ++] = list;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.util.internal.StringUtil;
+
+import java.util.List;
+
+/**
+ * A specialized variation of {@link ByteToMessageDecoder} which decodes a message as a sequence of steps, each of
+ * them being a checkpoint from which decoding is resumed once more data was received.
+ * <p>
+ * Unlike {@link ReplayingDecoder}, the {@link ByteBuf} passed to the decoder is the cumulation itself and running
+ * out of data is not signaled by throwing an {@link Error}. Instead
+ * {@link #decode(ChannelHandlerContext, Object, ByteBuf, List)} returns {@code false} if the current step could not
+ * be completed, in which case the {@code readerIndex} is reset to where the step started and the step is retried
+ * once more data was received. All steps which were completed before are never decoded again, so large messages
+ * which are received in many small pieces are decoded in linear time as long as the steps are small.
+ * <p>
+ * For example the {@code IntegerHeaderFrameDecoder} which is shown in the documentation of {@link ReplayingDecoder}
+ * looks like the following:
+ * <pre>
+ * public enum MyDecoderState {
+ *   READ_LENGTH,
+ *   READ_CONTENT;
+ * }
+ *
+ * public class IntegerHeaderFrameDecoder
+ *      extends {@link IncrementalDecoder}&lt;MyDecoderState&gt; {
+ *
+ *   private int length;
+ *
+ *   public IntegerHeaderFrameDecoder() {
+ *     // Set the initial state.
+ *     super(MyDecoderState.READ_LENGTH);
+ *   }
+ *
+ *   {@code @Override}
+ *   protected boolean decode({@link ChannelHandlerContext} ctx, MyDecoderState state,
+ *                            {@link ByteBuf} buf, List&lt;Object&gt; out) throws Exception {
+ *     switch (state) {
+ *     case READ_LENGTH:
+ *       if (buf.readableBytes() &lt; 4) {
+ *         return false;
+ *       }
+ *       length = buf.readInt();
+ *       state(MyDecoderState.READ_CONTENT);
+ *       return true;
+ *     case READ_CONTENT:
+ *       if (buf.readableBytes() &lt; length) {
+ *         return false;
+ *       }
+ *       out.add(buf.readSlice(length).retain());
+ *       state(MyDecoderState.READ_LENGTH);
+ *       return true;
+ *     default:
+ *       throw new Error("Shouldn't reach here.");
+ *     }
+ *   }
+ * }
+ * </pre>
+ *
+ * @param <S>
+ *        the state type which is usually an {@link Enum}; use {@link Void} if state management is
+ *        unused
+ */
+public abstract class IncrementalDecoder<S> extends ByteToMessageDecoder {
+
+    private S state;
+
+    /**
+     * Creates a new instance with no initial state (i.e: {@code null}).
+     */
+    protected IncrementalDecoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new instance with the specified initial state.
+     */
+    protected IncrementalDecoder(S initialState) {
+        state = initialState;
+    }
+
+    /**
+     * Returns the current state of this decoder.
+     * @return the current state of this decoder
+     */
+    protected S state() {
+        return state;
+    }
+
+    /**
+     * Sets the current state of this decoder. The state change only takes effect as checkpoint once the current
+     * step completes.
+     * @return the old state of this decoder
+     */
+    protected S state(S newState) {
+        S oldState = state;
+        state = newState;
+        return oldState;
+    }
+
+    @Override
+    protected final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        for (;;) {
+            S oldState = state;
+            int checkpoint = in.readerIndex();
+            int outSize = out.size();
+            if (!decode(ctx, oldState, in, out)) {
+                if (outSize != out.size()) {
+                    throw new DecoderException(
+                            StringUtil.simpleClassName(getClass()) +
+                            ".decode() must not produce a message if the step did not complete.");
+                }
+                // Rewind to the checkpoint and resume from there once more data was received.
+                in.readerIndex(checkpoint);
+                state = oldState;
+                return;
+            }
+
+            // Check if this handler was removed before continuing the loop.
+            // If it was removed, it is not safe to continue to operate on the buffer.
+            //
+            // See https://github.com/netty/netty/issues/1664
+            if (ctx.isRemoved() || outSize != out.size()) {
+                // Let callDecode() take care of single decode.
+                return;
+            }
+            if (checkpoint == in.readerIndex() && oldState == state) {
+                throw new DecoderException(
+                        StringUtil.simpleClassName(getClass()) +
+                        ".decode() must consume the inbound data or change its state if it completed a step.");
+            }
+        }
+    }
+
+    /**
+     * Decode the next step of a message from the given {@link ByteBuf}. This method is called until it returns
+     * {@code false}.
+     *
+     * @param ctx           the {@link ChannelHandlerContext} which this {@link IncrementalDecoder} belongs to
+     * @param state         the current state of this decoder
+     * @param in            the {@link ByteBuf} from which to read data
+     * @param out           the {@link List} to which decoded messages should be added
+     * @return              {@code true} if the step was completed, {@code false} if more data is needed to complete
+     *                      it. In the later case the {@code readerIndex} and the state are reset to their values
+     *                      from before the call and nothing must have been added to {@code out}.
+     * @throws Exception    is thrown if an error accour
+     */
+    protected abstract boolean decode(ChannelHandlerContext ctx, S state, ByteBuf in, List<Object> out)
+            throws Exception;
+}
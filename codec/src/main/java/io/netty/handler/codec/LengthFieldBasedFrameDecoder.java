@@ -194,6 +194,7 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
     private boolean discardingTooLongFrame;
     private long tooLongFrameLength;
     private long bytesToDiscard;
+    private boolean sliceFrames;
 
     /**
      * Creates a new instance.
@@ -338,11 +339,43 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
         this.failFast = failFast;
     }
 
+    /**
+     * If set then the decoded frames are retained slices of the cumulative buffer instead of copies, so no memory
+     * copy takes place when a frame is extracted.  Each frame must be released, and the cumulative buffer is
+     * neither reused nor compacted while a frame of it is still referenced.  Therefore this is most useful when
+     * the frames are released shortly after they were handled.
+     *
+     * Default is {@code false}.  Subclasses which override {@link #extractFrame(ChannelHandlerContext, ByteBuf,
+     * int, int)} are not affected by this setting.
+     */
+    public void setSliceFrames(boolean sliceFrames) {
+        this.sliceFrames = sliceFrames;
+    }
+
+    /**
+     * If {@code true} then the decoded frames are retained slices of the cumulative buffer instead of copies.
+     *
+     * Default is {@code false}.
+     */
+    public boolean isSliceFrames() {
+        return sliceFrames;
+    }
+
     @Override
     protected final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
-        Object decoded = decode(ctx, in);
-        if (decoded != null) {
+        // Extract all complete frames at once instead of one frame per callDecode() iteration.
+        for (;;) {
+            int oldReaderIndex = in.readerIndex();
+            Object decoded = decode(ctx, in);
+            if (decoded == null) {
+                break;
+            }
             out.add(decoded);
+
+            if (in.readerIndex() == oldReaderIndex || in.readableBytes() < lengthFieldEndOffset ||
+                    isSingleDecode() || ctx.isRemoved()) {
+                break;
+            }
         }
     }
 
@@ -480,7 +513,8 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
     }
 
     /**
-     * Extract the sub-region of the specified buffer.
+     * Extract the sub-region of the specified buffer.  The default implementation
+     * returns a copy, or a retained slice if {@link #isSliceFrames()} is {@code true}.
      * <p>
      * If you are sure that the frame and its content are not accessed after
      * the current {@link #decode(ChannelHandlerContext, ByteBuf)}
@@ -491,6 +525,9 @@ public class LengthFieldBasedFrameDecoder extends ByteToMessageDecoder {
      * is overridden to avoid memory copy.
      */
     protected ByteBuf extractFrame(ChannelHandlerContext ctx, ByteBuf buffer, int index, int length) {
+        if (sliceFrames) {
+            return buffer.slice(index, length).retain();
+        }
         ByteBuf frame = ctx.alloc().buffer(length);
         frame.writeBytes(buffer, index, length);
         return frame;
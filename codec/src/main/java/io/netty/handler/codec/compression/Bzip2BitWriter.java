@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+
+/**
+ * A bit writer that allows the writing of single bit booleans, unary numbers, bit strings
+ * of arbitrary length (up to 32 bits), and bit aligned 32-bit integers. A single byte at a
+ * time is never written; whole integers are written once 32 bits have been collected.
+ */
+final class Bzip2BitWriter {
+    /**
+     * A buffer of bits waiting to be written to the output stream, aligned to the highest bit.
+     */
+    private long bitBuffer;
+
+    /**
+     * The number of bits currently buffered in {@link #bitBuffer}.
+     */
+    private int bitCount;
+
+    /**
+     * Writes up to 32 bits to the output {@link ByteBuf}.
+     * @param count The number of bits to write (maximum {@code 32} as a size of {@code int})
+     * @param value The bits to write
+     */
+    void writeBits(ByteBuf out, final int count, final long value) {
+        int bitCount = this.bitCount;
+        long bitBuffer = this.bitBuffer | (value & (1L << count) - 1) << 64 - bitCount - count;
+        bitCount += count;
+
+        if (bitCount >= 32) {
+            out.writeInt((int) (bitBuffer >>> 32));
+            bitBuffer <<= 32;
+            bitCount -= 32;
+        }
+        this.bitBuffer = bitBuffer;
+        this.bitCount = bitCount;
+    }
+
+    /**
+     * Writes a single bit to the output {@link ByteBuf}.
+     * @param value The bit to write
+     */
+    void writeBoolean(ByteBuf out, final boolean value) {
+        writeBits(out, 1, value ? 1 : 0);
+    }
+
+    /**
+     * Writes a zero-terminated unary number to the output {@link ByteBuf}.
+     * Example of the output for value = 6: {@code 1111110}
+     * @param value The number of {@code 1} to write
+     */
+    void writeUnary(ByteBuf out, int value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("value: " + value + " (expected 0 or more)");
+        }
+        while (value >= 32) {
+            writeBits(out, 32, 0xFFFFFFFFL);
+            value -= 32;
+        }
+        // The ones are followed by a zero.
+        writeBits(out, value + 1, (1L << value + 1) - 2);
+    }
+
+    /**
+     * Writes an integer as 32 bits to the output {@link ByteBuf}.
+     * @param value The integer to write
+     */
+    void writeInt(ByteBuf out, final int value) {
+        writeBits(out, 32, value);
+    }
+
+    /**
+     * Writes any remaining bits to the output {@link ByteBuf},
+     * zero padding to a whole byte as required.
+     */
+    void flush(ByteBuf out) {
+        final int bitCount = this.bitCount;
+        long bitBuffer = this.bitBuffer;
+
+        for (int i = 0; i < bitCount; i += 8) {
+            out.writeByte((int) (bitBuffer >>> 56));
+            bitBuffer <<= 8;
+        }
+        this.bitBuffer = 0;
+        this.bitCount = 0;
+    }
+}
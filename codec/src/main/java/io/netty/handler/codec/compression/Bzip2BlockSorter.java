@@ -0,0 +1,317 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+/**
+ * Performs the Burrows-Wheeler Transform of a block by sorting all of its rotations.
+ *
+ * The rotations are sorted with the prefix doubling algorithm of Larsson and Sadakane ("Faster Suffix Sorting",
+ * 1999), which runs in {@code O(n log n)} time even for highly repetitive blocks. The rotations are first bucket
+ * sorted by their first two bytes. Each following pass sorts the rotations which are still in the same group by the
+ * group of the rotation {@code h} bytes later, which doubles the number of sorted bytes. Groups of a single rotation
+ * are skipped in later passes.
+ */
+final class Bzip2BlockSorter {
+    /**
+     * The rotations in sorted order. A sorted group of rotations is marked by the negated number of the following
+     * rotations which are sorted as well.
+     */
+    private final int[] rotations;
+
+    /**
+     * The group of each rotation, which is the position of the last rotation of its group in {@link #rotations}.
+     */
+    private final int[] groups;
+
+    /**
+     * The start of each bucket of the initial sort by the first two bytes.
+     */
+    private final int[] buckets = new int[65536 + 1];
+
+    /**
+     * The length of the current block.
+     */
+    private int length;
+
+    /**
+     * The number of bytes by which the rotations are sorted in the current pass.
+     */
+    private int depth;
+
+    /**
+     * @param blockSize The largest size of a block
+     */
+    Bzip2BlockSorter(int blockSize) {
+        rotations = new int[blockSize];
+        groups = new int[blockSize];
+    }
+
+    /**
+     * Performs the Burrows-Wheeler Transform of a block.
+     * @param block The block
+     * @param length The length of the block
+     * @param bwtBlock The array which receives the last byte of each sorted rotation
+     * @return The position of the unrotated block among the sorted rotations
+     */
+    int bwt(byte[] block, int length, byte[] bwtBlock) {
+        final int[] rotations = this.rotations;
+        this.length = length;
+
+        sortRotations(block, length);
+
+        int origin = -1;
+        for (int i = 0; i < length; i++) {
+            int rotation = rotations[i];
+            if (rotation == 0) {
+                origin = i;
+                rotation = length;
+            }
+            bwtBlock[i] = block[rotation - 1];
+        }
+        return origin;
+    }
+
+    private void sortRotations(byte[] block, int length) {
+        final int[] rotations = this.rotations;
+        final int[] groups = this.groups;
+        final int[] buckets = this.buckets;
+
+        // Bucket sort by the first two bytes of each rotation.
+        Arrays.fill(buckets, 0);
+        int next = block[0] & 0xff;
+        for (int i = length - 1; i >= 0; i--) {
+            final int current = block[i] & 0xff;
+            buckets[(current << 8 | next) + 1]++;
+            next = current;
+        }
+        for (int i = 1; i <= 65536; i++) {
+            buckets[i] += buckets[i - 1];
+        }
+        for (int i = 0; i < length; i++) {
+            final int key = (block[i] & 0xff) << 8 | block[i + 1 < length ? i + 1 : 0] & 0xff;
+            rotations[buckets[key]++] = i;
+        }
+        // Now each bucket start is the end of the bucket.
+        for (int i = 0; i < length; i++) {
+            final int key = (block[i] & 0xff) << 8 | block[i + 1 < length ? i + 1 : 0] & 0xff;
+            groups[i] = buckets[key] - 1;
+        }
+        for (int i = 0, start = 0; i < 65536; i++) {
+            final int end = buckets[i];
+            if (end - start == 1) {
+                rotations[start] = -1;
+            }
+            start = end;
+        }
+
+        for (int depth = 2; depth < length && rotations[0] != -length; depth <<= 1) {
+            this.depth = depth;
+            int i = 0;
+            int sorted = 0;
+            do {
+                final int rotation = rotations[i];
+                if (rotation < 0) {
+                    // Skip and combine the sorted groups.
+                    i -= rotation;
+                    sorted -= rotation;
+                } else {
+                    if (sorted != 0) {
+                        rotations[i - sorted] = -sorted;
+                        sorted = 0;
+                    }
+                    final int end = groups[rotation] + 1;
+                    sortSplit(i, end - i);
+                    i = end;
+                }
+            } while (i < length);
+            if (sorted != 0) {
+                rotations[i - sorted] = -sorted;
+            }
+        }
+
+        // Restore the sorted rotations from their groups. Groups which are still unsorted consist of equal
+        // rotations of a periodic block, which keep their order.
+        for (int i = 0; i < length;) {
+            final int rotation = rotations[i];
+            if (rotation < 0) {
+                final int end = i - rotation;
+                while (i < end) {
+                    rotations[i++] = -1;
+                }
+            } else {
+                i++;
+            }
+        }
+        for (int i = 0; i < length; i++) {
+            final int group = groups[i];
+            if (rotations[group] < 0) {
+                rotations[group] = i;
+            }
+        }
+    }
+
+    /**
+     * Returns the sort key of the rotation at the given position, which is the group of the rotation
+     * {@link #depth} bytes later.
+     */
+    private int key(int position) {
+        int rotation = rotations[position] + depth;
+        if (rotation >= length) {
+            rotation -= length;
+        }
+        return groups[rotation];
+    }
+
+    private void swap(int a, int b) {
+        final int[] rotations = this.rotations;
+        final int temp = rotations[a];
+        rotations[a] = rotations[b];
+        rotations[b] = temp;
+    }
+
+    /**
+     * Sorts the rotations of an unsorted group with a ternary quicksort and assigns the new groups.
+     */
+    private void sortSplit(int start, int count) {
+        while (count >= 7) {
+            final int pivot = choosePivot(start, count);
+
+            // Split-end partitioning: keys equal to the pivot are collected at both ends first.
+            int a = start;
+            int b = start;
+            int c = start + count - 1;
+            int d = c;
+            for (;;) {
+                int key;
+                while (b <= c && (key = key(b)) <= pivot) {
+                    if (key == pivot) {
+                        swap(a++, b);
+                    }
+                    b++;
+                }
+                while (c >= b && (key = key(c)) >= pivot) {
+                    if (key == pivot) {
+                        swap(c, d--);
+                    }
+                    c--;
+                }
+                if (b > c) {
+                    break;
+                }
+                swap(b++, c--);
+            }
+
+            // Move the keys equal to the pivot to the middle.
+            final int end = start + count;
+            int s = Math.min(a - start, b - a);
+            for (int l = start, m = b - s; s > 0; s--) {
+                swap(l++, m++);
+            }
+            s = Math.min(d - c, end - d - 1);
+            for (int l = b, m = end - s; s > 0; s--) {
+                swap(l++, m++);
+            }
+
+            final int smaller = b - a;
+            final int larger = d - c;
+            if (smaller > 0) {
+                sortSplit(start, smaller);
+            }
+            updateGroup(start + smaller, end - larger - 1);
+            start = end - larger;
+            count = larger;
+        }
+        if (count > 0) {
+            selectSortSplit(start, count);
+        }
+    }
+
+    /**
+     * Sorts a small number of rotations by repeatedly selecting those with the smallest key.
+     */
+    private void selectSortSplit(int start, int count) {
+        final int last = start + count - 1;
+        int a = start;
+        while (a < last) {
+            int smallest = key(a);
+            int b = a + 1;
+            for (int i = a + 1; i <= last; i++) {
+                final int key = key(i);
+                if (key < smallest) {
+                    smallest = key;
+                    swap(i, a);
+                    b = a + 1;
+                } else if (key == smallest) {
+                    swap(i, b++);
+                }
+            }
+            updateGroup(a, b - 1);
+            a = b;
+        }
+        if (a == last) {
+            groups[rotations[a]] = a;
+            rotations[a] = -1;
+        }
+    }
+
+    /**
+     * Assigns the rotations between {@code first} and {@code last} to a new group, which is sorted if it
+     * consists of a single rotation.
+     */
+    private void updateGroup(int first, int last) {
+        final int[] rotations = this.rotations;
+        final int[] groups = this.groups;
+        if (first == last) {
+            groups[rotations[first]] = first;
+            rotations[first] = -1;
+        } else {
+            for (int i = first; i <= last; i++) {
+                groups[rotations[i]] = last;
+            }
+        }
+    }
+
+    /**
+     * Returns the median key of three or, for larger groups, the pseudo-median of nine rotations.
+     */
+    private int choosePivot(int start, int count) {
+        int middle = start + (count >>> 1);
+        if (count > 7) {
+            int low = start;
+            int high = start + count - 1;
+            if (count > 40) {
+                final int step = count >>> 3;
+                low = median(low, low + step, low + 2 * step);
+                middle = median(middle - step, middle, middle + step);
+                high = median(high - 2 * step, high - step, high);
+            }
+            middle = median(low, middle, high);
+        }
+        return key(middle);
+    }
+
+    private int median(int a, int b, int c) {
+        final int keyA = key(a);
+        final int keyB = key(b);
+        final int keyC = key(c);
+        if (keyA < keyB) {
+            return keyB < keyC ? b : keyA < keyC ? c : a;
+        }
+        return keyB > keyC ? b : keyA > keyC ? c : a;
+    }
+}
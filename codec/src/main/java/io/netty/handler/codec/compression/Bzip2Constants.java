@@ -16,7 +16,7 @@
 package io.netty.handler.codec.compression;
 
 /**
- * Constants for {@link Bzip2Decoder}.
+ * Constants for both the {@link Bzip2Encoder} and the {@link Bzip2Decoder}.
  */
 final class Bzip2Constants {
 
@@ -47,6 +47,12 @@ final class Bzip2Constants {
     static final int MIN_BLOCK_SIZE = 1;
     static final int MAX_BLOCK_SIZE = 9;
 
+    /**
+     * The number of bytes by which the run-length encoded data of a block may exceed its limit while the
+     * {@link Bzip2Encoder} checks if a block is full. Up to two runs of five bytes each may be written afterwards.
+     */
+    static final int BLOCK_SIZE_MARGIN = 19;
+
     /**
      * Maximum possible Huffman alphabet size.
      */
@@ -88,5 +94,17 @@ final class Bzip2Constants {
      */
     static final int HUFFMAN_MAXIMUM_TABLES = 6;
 
+    /**
+     * The code length which the {@link Bzip2Encoder} assigns to the symbols outside of the initial range of a table,
+     * so the first iteration of the table optimisation gives these symbols to other tables.
+     */
+    static final int HUFFMAN_HIGH_SYMBOL_COST = 15;
+
+    /**
+     * Number of iterations of the {@link Bzip2Encoder} which assign the groups of symbols to the Huffman tables and
+     * recalculate the tables.
+     */
+    static final int HUFFMAN_ENCODE_ITERATIONS = 4;
+
     private Bzip2Constants() { }
 }
@@ -0,0 +1,227 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.compression.Bzip2Constants.*;
+
+/**
+ * Compresses a {@link ByteBuf} using the Bzip2 algorithm.
+ *
+ * See <a href="http://en.wikipedia.org/wiki/Bzip2">Bzip2</a>.
+ *
+ * The written data is buffered until a block is full, as a block is compressed at once and the Bzip2 format has no
+ * way to end a block before the stream is finished. Only {@link #close()} writes the remaining data.
+ */
+public class Bzip2Encoder extends MessageToByteEncoder<ByteBuf> {
+
+    /**
+     * The declared maximum block size of the stream (before final run-length decoding).
+     */
+    private final int streamBlockSize;
+
+    /**
+     * The merged CRC of all blocks compressed so far.
+     */
+    private int streamCRC;
+
+    /**
+     * The compressor for the current block, which is created when the stream is started.
+     */
+    private Bzip2BlockCompressor blockCompressor;
+
+    /**
+     * A writer that provides bit-level writes.
+     */
+    private final Bzip2BitWriter writer = new Bzip2BitWriter();
+
+    /**
+     * Indicates if the compressed stream has been finished.
+     */
+    private volatile boolean finished;
+
+    /**
+     * Used to interact with its {@link io.netty.channel.ChannelPipeline} and other handlers.
+     */
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new bzip2 encoder with the maximum (900,000 byte) block size.
+     */
+    public Bzip2Encoder() {
+        this(MAX_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new bzip2 encoder with the specified {@code blockSizeMultiplier}.
+     *
+     * @param blockSizeMultiplier
+     *        The Bzip2 block size as a multiple of 100,000 bytes (minimum {@code 1}, maximum {@code 9}).
+     *        Larger block sizes require more memory for both compression and decompression,
+     *        but give better compression ratios. {@code 9} will usually be the best value to use.
+     */
+    public Bzip2Encoder(final int blockSizeMultiplier) {
+        if (blockSizeMultiplier < MIN_BLOCK_SIZE || blockSizeMultiplier > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "blockSizeMultiplier: %d (expected: %d-%d)", blockSizeMultiplier, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE));
+        }
+        streamBlockSize = blockSizeMultiplier * BASE_BLOCK_SIZE;
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        Bzip2BlockCompressor blockCompressor = this.blockCompressor;
+        if (blockCompressor == null) {
+            writeStreamHeader(out);
+            this.blockCompressor = blockCompressor = new Bzip2BlockCompressor(writer, streamBlockSize);
+        }
+        while (in.isReadable()) {
+            if (blockCompressor.isFull()) {
+                closeBlock(out);
+            }
+            in.skipBytes(blockCompressor.write(in, in.readerIndex(), in.readableBytes()));
+        }
+    }
+
+    private void writeStreamHeader(ByteBuf out) {
+        out.writeMedium(MAGIC_NUMBER);
+        out.writeByte('0' + streamBlockSize / BASE_BLOCK_SIZE);
+    }
+
+    /**
+     * Compresses the current block, writes it and merges its CRC into the stream CRC.
+     */
+    private void closeBlock(ByteBuf out) {
+        final Bzip2BlockCompressor blockCompressor = this.blockCompressor;
+        if (!blockCompressor.isEmpty()) {
+            blockCompressor.close(out);
+            final int blockCRC = blockCompressor.crc();
+            streamCRC = (streamCRC << 1 | streamCRC >>> 31) ^ blockCRC;
+            blockCompressor.reset();
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream has been reached.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this {@link Bzip2Encoder} and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this {@link Bzip2Encoder} and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            final ChannelPromise p = ctx.newPromise();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), p);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return p;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS); // FIXME: Magic number
+        }
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        final ByteBuf footer = ctx.alloc().buffer();
+        if (blockCompressor == null) {
+            writeStreamHeader(footer);
+        } else {
+            closeBlock(footer);
+            blockCompressor = null;
+        }
+
+        final Bzip2BitWriter writer = this.writer;
+        writer.writeBits(footer, 24, END_OF_STREAM_MAGIC >>> 24);
+        writer.writeBits(footer, 24, END_OF_STREAM_MAGIC & 0xFFFFFF);
+        writer.writeInt(footer, streamCRC);
+        writer.flush(footer);
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.compression.Bzip2Constants.*;
+
+/**
+ * An encoder for the Bzip2 Move To Front Transform and Run-Length Encoding[2] stages.
+ * Although conceptually these two stages are separate, it is computationally efficient to perform them in one pass.
+ */
+final class Bzip2MTFAndRLE2StageEncoder {
+    /**
+     * The encoded output of the Move To Front Transform and Run-Length Encoding[2] stages.
+     */
+    private final char[] mtfBlock;
+
+    /**
+     * The actual number of values contained in the {@link #mtfBlock} array.
+     */
+    private int mtfLength;
+
+    /**
+     * The global frequencies of values within the {@link #mtfBlock} array.
+     */
+    private final int[] mtfSymbolFrequencies = new int[HUFFMAN_MAX_ALPHABET_SIZE];
+
+    /**
+     * The encoded alphabet size.
+     */
+    private int alphabetSize;
+
+    /**
+     * @param blockSize The largest size of a block
+     */
+    Bzip2MTFAndRLE2StageEncoder(int blockSize) {
+        mtfBlock = new char[blockSize + 1];
+    }
+
+    /**
+     * Performs the Move To Front transform and Run Length Encoding[2] stages.
+     * @param bwtBlock The output of the Burrow-Wheeler Transform stage
+     * @param bwtLength The length of the Burrow-Wheeler Transform output
+     * @param bwtValuesPresent Indicates which values are present in the Burrow-Wheeler Transform output
+     */
+    void encode(final byte[] bwtBlock, final int bwtLength, final boolean[] bwtValuesPresent) {
+        final char[] mtfBlock = this.mtfBlock;
+        final int[] mtfSymbolFrequencies = this.mtfSymbolFrequencies;
+        final byte[] huffmanSymbolMap = new byte[256];
+        final Bzip2MoveToFrontTable symbolMTF = new Bzip2MoveToFrontTable();
+
+        int totalUniqueValues = 0;
+        for (int i = 0; i < huffmanSymbolMap.length; i++) {
+            if (bwtValuesPresent[i]) {
+                huffmanSymbolMap[i] = (byte) totalUniqueValues++;
+            }
+        }
+        final int endOfBlockSymbol = totalUniqueValues + 1;
+        Arrays.fill(mtfSymbolFrequencies, 0);
+
+        int mtfIndex = 0;
+        int repeatCount = 0;
+        for (int i = 0; i < bwtLength; i++) {
+            // Move To Front
+            final int mtfPosition = symbolMTF.valueToFront(huffmanSymbolMap[bwtBlock[i] & 0xff]);
+            // Run Length Encode
+            if (mtfPosition == 0) {
+                repeatCount++;
+            } else {
+                if (repeatCount > 0) {
+                    mtfIndex = writeRun(mtfIndex, repeatCount);
+                    repeatCount = 0;
+                }
+                mtfBlock[mtfIndex++] = (char) (mtfPosition + 1);
+                mtfSymbolFrequencies[mtfPosition + 1]++;
+            }
+        }
+        if (repeatCount > 0) {
+            mtfIndex = writeRun(mtfIndex, repeatCount);
+        }
+
+        mtfBlock[mtfIndex] = (char) endOfBlockSymbol;
+        mtfSymbolFrequencies[endOfBlockSymbol]++;
+
+        mtfLength = mtfIndex + 1;
+        alphabetSize = endOfBlockSymbol + 1;
+    }
+
+    /**
+     * Writes the length of a run of zeros as a bijective base 2 number of {@link Bzip2Constants#HUFFMAN_SYMBOL_RUNA}
+     * and {@link Bzip2Constants#HUFFMAN_SYMBOL_RUNB} symbols, least significant digit first.
+     * @return The position after the last written symbol
+     */
+    private int writeRun(int mtfIndex, int repeatCount) {
+        final char[] mtfBlock = this.mtfBlock;
+        final int[] mtfSymbolFrequencies = this.mtfSymbolFrequencies;
+
+        repeatCount--;
+        for (;;) {
+            if ((repeatCount & 1) == 0) {
+                mtfBlock[mtfIndex++] = HUFFMAN_SYMBOL_RUNA;
+                mtfSymbolFrequencies[HUFFMAN_SYMBOL_RUNA]++;
+            } else {
+                mtfBlock[mtfIndex++] = HUFFMAN_SYMBOL_RUNB;
+                mtfSymbolFrequencies[HUFFMAN_SYMBOL_RUNB]++;
+            }
+            if (repeatCount < 2) {
+                return mtfIndex;
+            }
+            repeatCount = repeatCount - 2 >>> 1;
+        }
+    }
+
+    /**
+     * @return The encoded MTF block
+     */
+    char[] mtfBlock() {
+        return mtfBlock;
+    }
+
+    /**
+     * @return The actual length of the MTF block
+     */
+    int mtfLength() {
+        return mtfLength;
+    }
+
+    /**
+     * @return The size of the MTF block's alphabet
+     */
+    int mtfAlphabetSize() {
+        return alphabetSize;
+    }
+
+    /**
+     * @return The frequencies of the MTF block's symbols
+     */
+    int[] mtfSymbolFrequencies() {
+        return mtfSymbolFrequencies;
+    }
+}
@@ -101,6 +101,13 @@ final class Crc32 {
         return ~crc;
     }
 
+    /**
+     * Resets the CRC to its initial value.
+     */
+    public void reset() {
+        crc = 0xffffffff;
+    }
+
     /**
      * Update the CRC with a single byte.
      * @param value The value to update the CRC with
@@ -15,6 +15,9 @@
  */
 package io.netty.handler.codec.compression;
 
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteOrder;
 import java.util.zip.Checksum;
 
 /**
@@ -24,6 +27,10 @@ import java.util.zip.Checksum;
  *
  * The implementation of this class has been sourced from the Appendix of RFC 3309,
  * but with masking due to Java not being able to support unsigned types.
+ *
+ * Longer inputs are processed 8 bytes at a time with the "slicing-by-8" algorithm, which
+ * replaces the 8 dependent lookups of the byte-wise loop with 8 independent lookups into
+ * 8 derived tables.
  */
 class Crc32c implements Checksum {
     private static final int[] CRC_TABLE = {
@@ -93,6 +100,22 @@ class Crc32c implements Checksum {
             0xBE2DA0A5, 0x4C4623A6, 0x5F16D052, 0xAD7D5351,
     };
 
+    /**
+     * The 8 tables of the slicing-by-8 algorithm, one after another. The entry {@code i} of
+     * table {@code k} is the CRC of byte {@code i} followed by {@code k} zero bytes.
+     */
+    private static final int[] SLICING_TABLE = new int[8 * 256];
+
+    static {
+        System.arraycopy(CRC_TABLE, 0, SLICING_TABLE, 0, 256);
+        for (int i = 256; i < SLICING_TABLE.length; i++) {
+            int crc = SLICING_TABLE[i - 256];
+            SLICING_TABLE[i] = crc >>> 8 ^ CRC_TABLE[crc & 0xFF];
+        }
+    }
+
+    private static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
     private static final long LONG_MASK = 0xFFFFFFFFL;
     private static final int BYTE_MASK = 0xFF;
 
@@ -105,9 +128,41 @@ class Crc32c implements Checksum {
 
     @Override
     public void update(byte[] buffer, int offset, int length) {
-        for (int i = offset; i < offset + length; i++) {
-            crc = crc32c(crc, buffer[i]);
+        int crc = this.crc;
+        final int end = offset + length;
+        for (; offset <= end - 8; offset += 8) {
+            int low = buffer[offset] & 0xFF | (buffer[offset + 1] & 0xFF) << 8 |
+                    (buffer[offset + 2] & 0xFF) << 16 | buffer[offset + 3] << 24;
+            int high = buffer[offset + 4] & 0xFF | (buffer[offset + 5] & 0xFF) << 8 |
+                    (buffer[offset + 6] & 0xFF) << 16 | buffer[offset + 7] << 24;
+            crc = crc32c8(crc ^ low, high);
         }
+        for (; offset < end; offset++) {
+            crc = crc32c(crc, buffer[offset]);
+        }
+        this.crc = crc;
+    }
+
+    /**
+     * Updates the checksum with the bytes at the given memory address.
+     *
+     * @param address The memory address of the first byte
+     * @param length The number of bytes to use for the update
+     */
+    public void update(long address, int length) {
+        int crc = this.crc;
+        final long end = address + length;
+        for (; address <= end - 8; address += 8) {
+            long value = PlatformDependent.getLong(address);
+            if (BIG_ENDIAN_NATIVE_ORDER) {
+                value = Long.reverseBytes(value);
+            }
+            crc = crc32c8(crc ^ (int) value, (int) (value >>> 32));
+        }
+        for (; address < end; address++) {
+            crc = crc32c(crc, PlatformDependent.getByte(address));
+        }
+        this.crc = crc;
     }
 
     @Override
@@ -123,4 +178,16 @@ class Crc32c implements Checksum {
     private static int crc32c(int crc, int b) {
         return crc >>> 8 ^ CRC_TABLE[(crc ^ b & BYTE_MASK) & BYTE_MASK];
     }
+
+    /**
+     * Processes 8 bytes at once, given as two little endian ints of which the first one
+     * has already been combined with the current CRC.
+     */
+    private static int crc32c8(int low, int high) {
+        final int[] t = SLICING_TABLE;
+        return t[7 * 256 + (low & BYTE_MASK)] ^ t[6 * 256 + (low >>> 8 & BYTE_MASK)] ^
+                t[5 * 256 + (low >>> 16 & BYTE_MASK)] ^ t[4 * 256 + (low >>> 24)] ^
+                t[3 * 256 + (high & BYTE_MASK)] ^ t[2 * 256 + (high >>> 8 & BYTE_MASK)] ^
+                t[256 + (high >>> 16 & BYTE_MASK)] ^ t[high >>> 24];
+    }
 }
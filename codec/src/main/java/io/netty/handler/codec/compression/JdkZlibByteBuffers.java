@@ -0,0 +1,162 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Gives the {@link JdkZlibEncoder} and the {@link JdkZlibDecoder} access to the {@link ByteBuffer} methods of
+ * {@link Deflater}, {@link Inflater} and {@link CRC32}, which were added in Java 11. With them, the content of
+ * direct {@link ByteBuf}s is passed to zlib without copying it into a {@code byte[]} first.
+ *
+ * The methods are looked up by reflection, as Netty is still compiled against Java 6. If they are not available,
+ * or {@code -Dio.netty.noJdkZlibByteBuffer=true} is given, {@link #isAvailable()} returns {@code false} and the
+ * codecs only use heap buffers, as before.
+ */
+final class JdkZlibByteBuffers {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(JdkZlibByteBuffers.class);
+
+    private static final Method DEFLATER_SET_INPUT;
+    private static final Method DEFLATER_DEFLATE;
+    private static final Method INFLATER_SET_INPUT;
+    private static final Method INFLATER_INFLATE;
+    private static final Method CRC32_UPDATE;
+
+    static {
+        Method deflaterSetInput = null;
+        Method deflaterDeflate = null;
+        Method inflaterSetInput = null;
+        Method inflaterInflate = null;
+        Method crc32Update = null;
+        boolean noJdkZlibByteBuffer = SystemPropertyUtil.getBoolean("io.netty.noJdkZlibByteBuffer", false);
+        logger.debug("-Dio.netty.noJdkZlibByteBuffer: {}", noJdkZlibByteBuffer);
+        if (!noJdkZlibByteBuffer) {
+            try {
+                deflaterSetInput = Deflater.class.getMethod("setInput", ByteBuffer.class);
+                deflaterDeflate = Deflater.class.getMethod("deflate", ByteBuffer.class, int.class);
+                inflaterSetInput = Inflater.class.getMethod("setInput", ByteBuffer.class);
+                inflaterInflate = Inflater.class.getMethod("inflate", ByteBuffer.class);
+                crc32Update = CRC32.class.getMethod("update", ByteBuffer.class);
+                logger.debug("java.util.zip.Deflater.setInput(ByteBuffer): available");
+            } catch (Throwable t) {
+                // Java 10 or older.
+                deflaterSetInput = null;
+                logger.debug("java.util.zip.Deflater.setInput(ByteBuffer): unavailable");
+            }
+        }
+        DEFLATER_SET_INPUT = deflaterSetInput;
+        DEFLATER_DEFLATE = deflaterDeflate;
+        INFLATER_SET_INPUT = inflaterSetInput;
+        INFLATER_INFLATE = inflaterInflate;
+        CRC32_UPDATE = crc32Update;
+    }
+
+    /**
+     * Returns {@code true} if and only if {@link Deflater}, {@link Inflater} and {@link CRC32} accept
+     * {@link ByteBuffer}s.
+     */
+    static boolean isAvailable() {
+        return DEFLATER_SET_INPUT != null;
+    }
+
+    /**
+     * Returns {@code true} if the readable or writable region of the given buffer can be passed to zlib
+     * as a single {@link ByteBuffer} instead of through its backing array.
+     */
+    static boolean canUse(ByteBuf buf) {
+        return DEFLATER_SET_INPUT != null && !buf.hasArray() && buf.nioBufferCount() == 1;
+    }
+
+    /**
+     * @see Deflater#setInput(byte[])
+     */
+    static void setInput(Deflater deflater, ByteBuffer input) {
+        invoke(DEFLATER_SET_INPUT, deflater, input);
+    }
+
+    /**
+     * @see Deflater#deflate(byte[], int, int, int)
+     */
+    static int deflate(Deflater deflater, ByteBuffer output, int flush) {
+        return (Integer) invoke(DEFLATER_DEFLATE, deflater, output, flush);
+    }
+
+    /**
+     * @see Inflater#setInput(byte[])
+     */
+    static void setInput(Inflater inflater, ByteBuffer input) {
+        invoke(INFLATER_SET_INPUT, inflater, input);
+    }
+
+    /**
+     * @see Inflater#inflate(byte[], int, int)
+     */
+    static int inflate(Inflater inflater, ByteBuffer output) throws DataFormatException {
+        try {
+            return (Integer) INFLATER_INFLATE.invoke(inflater, output);
+        } catch (InvocationTargetException e) {
+            if (e.getCause() instanceof DataFormatException) {
+                throw (DataFormatException) e.getCause();
+            }
+            throw rethrow(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Updates the given {@link CRC32} with the remaining bytes of the given {@link ByteBuffer}.
+     */
+    static void update(CRC32 crc, ByteBuffer buffer) {
+        invoke(CRC32_UPDATE, crc, buffer);
+    }
+
+    private static Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw rethrow(e);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static RuntimeException rethrow(InvocationTargetException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException) {
+            return (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IllegalStateException(cause);
+    }
+
+    private JdkZlibByteBuffers() {
+        // Unused
+    }
+}
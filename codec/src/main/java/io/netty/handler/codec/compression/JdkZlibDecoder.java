@@ -18,6 +18,7 @@ package io.netty.handler.codec.compression;
 import io.netty.buffer.ByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 
+import java.nio.ByteBuffer;
 import java.util.List;
 import java.util.zip.CRC32;
 import java.util.zip.DataFormatException;
@@ -27,6 +28,9 @@ import java.util.zip.Inflater;
 
 /**
  * Decompress a {@link ByteBuf} using the inflate algorithm.
+ *
+ * On Java 11 and later, direct {@link ByteBuf}s are decompressed without copying them into a {@code byte[]}, and
+ * the output is written into buffers of the default type of the {@link io.netty.buffer.ByteBufAllocator}.
  */
 public class JdkZlibDecoder extends ZlibDecoder {
     private static final int FHCRC = 0x02;
@@ -160,6 +164,8 @@ public class JdkZlibDecoder extends ZlibDecoder {
         int readableBytes = in.readableBytes();
         if (in.hasArray()) {
             inflater.setInput(in.array(), in.arrayOffset() + in.readerIndex(), in.readableBytes());
+        } else if (JdkZlibByteBuffers.canUse(in)) {
+            JdkZlibByteBuffers.setInput(inflater, in.nioBuffer(in.readerIndex(), readableBytes));
         } else {
             byte[] array = new byte[in.readableBytes()];
             in.getBytes(in.readerIndex(), array);
@@ -167,29 +173,23 @@ public class JdkZlibDecoder extends ZlibDecoder {
         }
 
         int maxOutputLength = inflater.getRemaining() << 1;
-        ByteBuf decompressed = ctx.alloc().heapBuffer(maxOutputLength);
+        ByteBuf decompressed = allocateBuffer(ctx, maxOutputLength);
         try {
             boolean readFooter = false;
-            byte[] outArray = decompressed.array();
             while (!inflater.needsInput()) {
                 int writerIndex = decompressed.writerIndex();
-                int outIndex = decompressed.arrayOffset() + writerIndex;
                 int length = decompressed.writableBytes();
 
                 if (length == 0) {
                     // completely filled the buffer allocate a new one and start to fill it
                     out.add(decompressed);
-                    decompressed = ctx.alloc().heapBuffer(maxOutputLength);
-                    outArray = decompressed.array();
+                    decompressed = allocateBuffer(ctx, maxOutputLength);
                     continue;
                 }
 
-                int outputLength = inflater.inflate(outArray, outIndex, length);
+                int outputLength = inflate(decompressed, writerIndex, length);
                 if (outputLength > 0) {
                     decompressed.writerIndex(writerIndex + outputLength);
-                    if (crc != null) {
-                        crc.update(outArray, outIndex, outputLength);
-                    }
                 } else {
                     if (inflater.needsDictionary()) {
                         if (dictionary == null) {
@@ -230,6 +230,36 @@ public class JdkZlibDecoder extends ZlibDecoder {
         }
     }
 
+    private static ByteBuf allocateBuffer(ChannelHandlerContext ctx, int initialCapacity) {
+        if (JdkZlibByteBuffers.isAvailable()) {
+            return ctx.alloc().buffer(initialCapacity);
+        }
+        return ctx.alloc().heapBuffer(initialCapacity);
+    }
+
+    /**
+     * Inflates into the given region of the buffer and updates the CRC if needed.
+     *
+     * @return the number of bytes written into the buffer
+     */
+    private int inflate(ByteBuf decompressed, int index, int length) throws DataFormatException {
+        if (decompressed.hasArray()) {
+            byte[] outArray = decompressed.array();
+            int outIndex = decompressed.arrayOffset() + index;
+            int outputLength = inflater.inflate(outArray, outIndex, length);
+            if (crc != null) {
+                crc.update(outArray, outIndex, outputLength);
+            }
+            return outputLength;
+        }
+
+        int outputLength = JdkZlibByteBuffers.inflate(inflater, decompressed.internalNioBuffer(index, length));
+        if (crc != null && outputLength > 0) {
+            JdkZlibByteBuffers.update(crc, decompressed.internalNioBuffer(index, outputLength));
+        }
+        return outputLength;
+    }
+
     @Override
     protected void handlerRemoved0(ChannelHandlerContext ctx) throws Exception {
         super.handlerRemoved0(ctx);
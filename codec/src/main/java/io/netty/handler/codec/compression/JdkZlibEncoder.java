@@ -22,7 +22,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.ChannelPromiseNotifier;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.EmptyArrays;
 
+import java.nio.ByteBuffer;
 import java.util.concurrent.TimeUnit;
 import java.util.zip.CRC32;
 import java.util.zip.Deflater;
@@ -30,10 +32,15 @@ import java.util.zip.Deflater;
 
 /**
  * Compresses a {@link ByteBuf} using the deflate algorithm.
+ *
+ * On Java 11 and later, direct {@link ByteBuf}s are compressed without copying them into a {@code byte[]}, and
+ * the output is written into direct buffers as well. The {@link Deflater} is taken from a pool and returned to it
+ * when the encoder is closed.
  */
 public class JdkZlibEncoder extends ZlibEncoder {
 
     private final ZlibWrapper wrapper;
+    private final RecyclableDeflater recyclableDeflater;
     private final Deflater deflater;
     private volatile boolean finished;
     private volatile ChannelHandlerContext ctx;
@@ -92,6 +99,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
      * @throws CompressionException if failed to initialize zlib
      */
     public JdkZlibEncoder(ZlibWrapper wrapper, int compressionLevel) {
+        super(JdkZlibByteBuffers.isAvailable());
         if (compressionLevel < 0 || compressionLevel > 9) {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel + " (expected: 0-9)");
@@ -106,7 +114,8 @@ public class JdkZlibEncoder extends ZlibEncoder {
         }
 
         this.wrapper = wrapper;
-        deflater = new Deflater(compressionLevel, wrapper != ZlibWrapper.ZLIB);
+        recyclableDeflater = RecyclableDeflater.newInstance(compressionLevel, wrapper != ZlibWrapper.ZLIB);
+        deflater = recyclableDeflater.deflater();
     }
 
     /**
@@ -138,6 +147,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
      * @throws CompressionException if failed to initialize zlib
      */
     public JdkZlibEncoder(int compressionLevel, byte[] dictionary) {
+        super(JdkZlibByteBuffers.isAvailable());
         if (compressionLevel < 0 || compressionLevel > 9) {
             throw new IllegalArgumentException(
                     "compressionLevel: " + compressionLevel + " (expected: 0-9)");
@@ -147,7 +157,8 @@ public class JdkZlibEncoder extends ZlibEncoder {
         }
 
         wrapper = ZlibWrapper.ZLIB;
-        deflater = new Deflater(compressionLevel);
+        recyclableDeflater = RecyclableDeflater.newInstance(compressionLevel, false);
+        deflater = recyclableDeflater.deflater();
         deflater.setDictionary(dictionary);
     }
 
@@ -195,7 +206,30 @@ public class JdkZlibEncoder extends ZlibEncoder {
             return;
         }
 
+        if (writeHeader) {
+            writeHeader = false;
+            if (wrapper == ZlibWrapper.GZIP) {
+                out.writeBytes(gzipHeader);
+            }
+        }
+
         int len = uncompressed.readableBytes();
+        if (JdkZlibByteBuffers.canUse(uncompressed)) {
+            // Pass the memory of the direct buffer to zlib as is.
+            ByteBuffer nioBuffer = uncompressed.nioBuffer(uncompressed.readerIndex(), len);
+            if (wrapper == ZlibWrapper.GZIP) {
+                JdkZlibByteBuffers.update(crc, nioBuffer.duplicate());
+            }
+            JdkZlibByteBuffers.setInput(deflater, nioBuffer);
+            while (!deflater.needsInput()) {
+                deflate(out);
+            }
+            uncompressed.skipBytes(len);
+            // Do not keep a reference to the buffer, which is released after encode(...) returns.
+            deflater.setInput(EmptyArrays.EMPTY_BYTES);
+            return;
+        }
+
         int offset;
         byte[] inAry;
         if (uncompressed.hasArray()) {
@@ -210,13 +244,6 @@ public class JdkZlibEncoder extends ZlibEncoder {
             offset = 0;
         }
 
-        if (writeHeader) {
-            writeHeader = false;
-            if (wrapper == ZlibWrapper.GZIP) {
-                out.writeBytes(gzipHeader);
-            }
-        }
-
         if (wrapper == ZlibWrapper.GZIP) {
             crc.update(inAry, offset, len);
         }
@@ -241,7 +268,12 @@ public class JdkZlibEncoder extends ZlibEncoder {
                     break;
             }
         }
-        return ctx.alloc().heapBuffer(sizeEstimate);
+        // Only prefer direct buffers if the Deflater can write into them.
+        return preferDirect ? ctx.alloc().directBuffer(sizeEstimate) : ctx.alloc().heapBuffer(sizeEstimate);
+    }
+
+    private static ByteBuf allocateFooter(ChannelHandlerContext ctx) {
+        return JdkZlibByteBuffers.isAvailable() ? ctx.alloc().directBuffer() : ctx.alloc().heapBuffer();
     }
 
     @Override
@@ -272,7 +304,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
         }
 
         finished = true;
-        ByteBuf footer = ctx.alloc().heapBuffer();
+        ByteBuf footer = allocateFooter(ctx);
         if (writeHeader && wrapper == ZlibWrapper.GZIP) {
             // Write the GZIP header first if not written yet. (i.e. user wrote nothing.)
             writeHeader = false;
@@ -286,7 +318,7 @@ public class JdkZlibEncoder extends ZlibEncoder {
             if (!footer.isWritable()) {
                 // no more space so write it to the channel and continue
                 ctx.write(footer);
-                footer = ctx.alloc().heapBuffer();
+                footer = allocateFooter(ctx);
             }
         }
         if (wrapper == ZlibWrapper.GZIP) {
@@ -301,12 +333,21 @@ public class JdkZlibEncoder extends ZlibEncoder {
             footer.writeByte(uncBytes >>> 16);
             footer.writeByte(uncBytes >>> 24);
         }
-        deflater.end();
+        recyclableDeflater.recycle();
         return ctx.writeAndFlush(footer, promise);
     }
 
     private void deflate(ByteBuf out) {
         int numBytes;
+        if (!out.hasArray()) {
+            do {
+                int writerIndex = out.writerIndex();
+                ByteBuffer nioBuffer = out.internalNioBuffer(writerIndex, out.writableBytes());
+                numBytes = JdkZlibByteBuffers.deflate(deflater, nioBuffer, Deflater.SYNC_FLUSH);
+                out.writerIndex(writerIndex + numBytes);
+            } while (numBytes > 0);
+            return;
+        }
         do {
             int writerIndex = out.writerIndex();
             numBytes = deflater.deflate(
@@ -0,0 +1,357 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.compression.Lz4Constants.*;
+
+/**
+ * Compresses and decompresses blocks in the LZ4 block format. All operations work on the content of the given
+ * {@link ByteBuf}s directly, so no copy into an intermediate {@code byte[]} is needed for direct buffers.
+ *
+ * See <a href="https://code.google.com/p/lz4/">LZ4</a>.
+ */
+final class Lz4 {
+
+    /**
+     * Returns the maximum length of the compressed form of {@code length} bytes.
+     */
+    static int maxCompressedLength(int length) {
+        return length + length / 255 + 16;
+    }
+
+    /**
+     * Compresses {@code srcLength} bytes of {@code src} starting at {@code srcIndex} into {@code dst} starting at
+     * {@code dstIndex}. The capacity of {@code dst} must be big enough to hold
+     * {@link #maxCompressedLength(int)} bytes.
+     *
+     * @param hashTable a table of {@link Lz4Constants#HASH_TABLE_SIZE} entries which is used to find matches
+     * @return the length of the compressed data
+     */
+    static int compress(ByteBuf src, int srcIndex, int srcLength, ByteBuf dst, int dstIndex, int[] hashTable) {
+        final int srcEnd = srcIndex + srcLength;
+        int anchor = srcIndex;
+        int op = dstIndex;
+
+        if (srcLength >= MIN_LENGTH) {
+            // The positions are stored relative to srcIndex, so each entry points to a valid position at first.
+            Arrays.fill(hashTable, 0);
+            final int mfLimit = srcEnd - MF_LIMIT;
+            final int matchLimit = srcEnd - LAST_LITERALS;
+            int ip = srcIndex + 1;
+
+            encode:
+            for (;;) {
+                // Find a match, the step is increased while no match was found to skip over incompressible data.
+                int ref;
+                int searchMatchNb = 1 << SKIP_STRENGTH;
+                for (;;) {
+                    if (ip > mfLimit) {
+                        break encode;
+                    }
+                    int sequence = src.getInt(ip);
+                    int h = hash(sequence);
+                    ref = srcIndex + hashTable[h];
+                    hashTable[h] = ip - srcIndex;
+                    if (ip - ref <= MAX_DISTANCE && src.getInt(ref) == sequence) {
+                        break;
+                    }
+                    ip += searchMatchNb ++ >>> SKIP_STRENGTH;
+                }
+
+                // Extend the match backwards.
+                while (ip > anchor && ref > srcIndex && src.getByte(ip - 1) == src.getByte(ref - 1)) {
+                    ip --;
+                    ref --;
+                }
+
+                int literalLength = ip - anchor;
+                int tokenIndex = op ++;
+                int token;
+                if (literalLength >= RUN_MASK) {
+                    token = RUN_MASK << ML_BITS;
+                    op = writeLength(dst, op, literalLength - RUN_MASK);
+                } else {
+                    token = literalLength << ML_BITS;
+                }
+                dst.setBytes(op, src, anchor, literalLength);
+                op += literalLength;
+
+                for (;;) {
+                    int offset = ip - ref;
+                    dst.setByte(op ++, offset);
+                    dst.setByte(op ++, offset >>> 8);
+
+                    ip += MIN_MATCH;
+                    int matchLength = commonBytes(src, ref + MIN_MATCH, ip, matchLimit);
+                    ip += matchLength;
+                    if (matchLength >= ML_MASK) {
+                        token |= ML_MASK;
+                        op = writeLength(dst, op, matchLength - ML_MASK);
+                    } else {
+                        token |= matchLength;
+                    }
+                    dst.setByte(tokenIndex, token);
+                    anchor = ip;
+
+                    if (ip > mfLimit) {
+                        break encode;
+                    }
+
+                    hashTable[hash(src.getInt(ip - 2))] = ip - 2 - srcIndex;
+
+                    // Test if the next position is a match as well, which can be encoded without literals.
+                    int sequence = src.getInt(ip);
+                    int h = hash(sequence);
+                    ref = srcIndex + hashTable[h];
+                    hashTable[h] = ip - srcIndex;
+                    if (ip - ref > MAX_DISTANCE || src.getInt(ref) != sequence) {
+                        break;
+                    }
+                    tokenIndex = op ++;
+                    token = 0;
+                }
+                ip ++;
+            }
+        }
+
+        // Encode the last literals.
+        int literalLength = srcEnd - anchor;
+        if (literalLength >= RUN_MASK) {
+            dst.setByte(op ++, RUN_MASK << ML_BITS);
+            op = writeLength(dst, op, literalLength - RUN_MASK);
+        } else {
+            dst.setByte(op ++, literalLength << ML_BITS);
+        }
+        dst.setBytes(op, src, anchor, literalLength);
+        op += literalLength;
+        return op - dstIndex;
+    }
+
+    /**
+     * Decompresses {@code srcLength} bytes of {@code src} starting at {@code srcIndex} into {@code dst} starting at
+     * {@code dstIndex}. The compressed data must decompress to exactly {@code dstLength} bytes.
+     *
+     * @throws DecompressionException if the compressed data is corrupted
+     */
+    static void decompress(ByteBuf src, int srcIndex, int srcLength, ByteBuf dst, int dstIndex, int dstLength) {
+        if (src.hasArray() && dst.hasArray()) {
+            // Most sequences are short, so access the arrays directly to not pay the cost of a call for each of them.
+            decompress(src.array(), src.arrayOffset() + srcIndex, srcLength,
+                       dst.array(), dst.arrayOffset() + dstIndex, dstLength);
+            return;
+        }
+
+        final int srcEnd = srcIndex + srcLength;
+        final int dstEnd = dstIndex + dstLength;
+        int ip = srcIndex;
+        int op = dstIndex;
+
+        for (;;) {
+            if (ip >= srcEnd) {
+                throw new DecompressionException("unexpected end of compressed data");
+            }
+            final int token = src.getUnsignedByte(ip ++);
+
+            int literalLength = token >>> ML_BITS;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= srcEnd || literalLength > dstEnd - op) {
+                        throw new DecompressionException("invalid literal length");
+                    }
+                    b = src.getUnsignedByte(ip ++);
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - ip || literalLength > dstEnd - op) {
+                throw new DecompressionException("invalid literal length: " + literalLength);
+            }
+            dst.setBytes(op, src, ip, literalLength);
+            ip += literalLength;
+            op += literalLength;
+
+            if (ip == srcEnd) {
+                // The last sequence only contains literals.
+                if (op != dstEnd) {
+                    throw new DecompressionException(
+                            "decompressed length mismatch: " + (op - dstIndex) + " (expected: " + dstLength + ')');
+                }
+                return;
+            }
+
+            if (srcEnd - ip < 2) {
+                throw new DecompressionException("unexpected end of compressed data");
+            }
+            final int offset = src.getUnsignedByte(ip) | src.getUnsignedByte(ip + 1) << 8;
+            ip += 2;
+            final int ref = op - offset;
+            if (offset == 0 || ref < dstIndex) {
+                throw new DecompressionException("invalid offset: " + offset);
+            }
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (ip >= srcEnd || matchLength > dstEnd - op) {
+                        throw new DecompressionException("invalid match length");
+                    }
+                    b = src.getUnsignedByte(ip ++);
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - op) {
+                throw new DecompressionException("invalid match length: " + matchLength);
+            }
+
+            // The match may overlap with the bytes it produces, in which case its content repeats every offset bytes.
+            // So copy it in chunks which double in size and never overlap with their source.
+            while (matchLength > 0) {
+                int length = Math.min(matchLength, op - ref);
+                dst.setBytes(op, dst, ref, length);
+                op += length;
+                matchLength -= length;
+            }
+        }
+    }
+
+    private static void decompress(byte[] src, int srcIndex, int srcLength, byte[] dst, int dstIndex, int dstLength) {
+        final int srcEnd = srcIndex + srcLength;
+        final int dstEnd = dstIndex + dstLength;
+        int ip = srcIndex;
+        int op = dstIndex;
+
+        for (;;) {
+            if (ip >= srcEnd) {
+                throw new DecompressionException("unexpected end of compressed data");
+            }
+            final int token = src[ip ++] & 0xFF;
+
+            int literalLength = token >>> ML_BITS;
+            if (literalLength == RUN_MASK) {
+                int b;
+                do {
+                    if (ip >= srcEnd || literalLength > dstEnd - op) {
+                        throw new DecompressionException("invalid literal length");
+                    }
+                    b = src[ip ++] & 0xFF;
+                    literalLength += b;
+                } while (b == 255);
+            }
+            if (literalLength > srcEnd - ip || literalLength > dstEnd - op) {
+                throw new DecompressionException("invalid literal length: " + literalLength);
+            }
+            copy(src, ip, dst, op, literalLength);
+            ip += literalLength;
+            op += literalLength;
+
+            if (ip == srcEnd) {
+                if (op != dstEnd) {
+                    throw new DecompressionException(
+                            "decompressed length mismatch: " + (op - dstIndex) + " (expected: " + dstLength + ')');
+                }
+                return;
+            }
+
+            if (srcEnd - ip < 2) {
+                throw new DecompressionException("unexpected end of compressed data");
+            }
+            final int offset = src[ip] & 0xFF | (src[ip + 1] & 0xFF) << 8;
+            ip += 2;
+            int ref = op - offset;
+            if (offset == 0 || ref < dstIndex) {
+                throw new DecompressionException("invalid offset: " + offset);
+            }
+
+            int matchLength = token & ML_MASK;
+            if (matchLength == ML_MASK) {
+                int b;
+                do {
+                    if (ip >= srcEnd || matchLength > dstEnd - op) {
+                        throw new DecompressionException("invalid match length");
+                    }
+                    b = src[ip ++] & 0xFF;
+                    matchLength += b;
+                } while (b == 255);
+            }
+            matchLength += MIN_MATCH;
+            if (matchLength > dstEnd - op) {
+                throw new DecompressionException("invalid match length: " + matchLength);
+            }
+
+            if (offset >= matchLength) {
+                copy(dst, ref, dst, op, matchLength);
+                op += matchLength;
+            } else {
+                // The match overlaps with the bytes it produces, so it must be copied byte by byte.
+                final int matchEnd = op + matchLength;
+                while (op < matchEnd) {
+                    dst[op ++] = dst[ref ++];
+                }
+            }
+        }
+    }
+
+    private static void copy(byte[] src, int srcIndex, byte[] dst, int dstIndex, int length) {
+        if (length > 16) {
+            System.arraycopy(src, srcIndex, dst, dstIndex, length);
+        } else {
+            for (int i = 0; i < length; i ++) {
+                dst[dstIndex + i] = src[srcIndex + i];
+            }
+        }
+    }
+
+    private static int hash(int sequence) {
+        return sequence * 0x9E3779B1 >>> 32 - HASH_LOG;
+    }
+
+    /**
+     * Returns the number of equal bytes at {@code ref} and {@code ip}, reading up to {@code limit}.
+     */
+    private static int commonBytes(ByteBuf src, int ref, int ip, int limit) {
+        final int start = ip;
+        while (ip <= limit - 8) {
+            long diff = src.getLong(ref) ^ src.getLong(ip);
+            if (diff != 0) {
+                return ip - start + (Long.numberOfLeadingZeros(diff) >>> 3);
+            }
+            ip += 8;
+            ref += 8;
+        }
+        while (ip < limit && src.getByte(ref) == src.getByte(ip)) {
+            ip ++;
+            ref ++;
+        }
+        return ip - start;
+    }
+
+    private static int writeLength(ByteBuf dst, int op, int length) {
+        while (length >= 255) {
+            dst.setByte(op ++, 255);
+            length -= 255;
+        }
+        dst.setByte(op ++, length);
+        return op;
+    }
+
+    private Lz4() { }
+}
@@ -0,0 +1,212 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.util.List;
+
+import static io.netty.handler.codec.compression.Lz4Constants.*;
+
+/**
+ * Uncompresses a {@link ByteBuf} encoded with the LZ4 format by {@link Lz4FrameEncoder}.
+ *
+ * See <a href="http://code.google.com/p/lz4/">LZ4</a>.
+ *
+ * Blocks which were not compressed are passed on as slice of the received data, compressed blocks are decompressed
+ * straight from the received data into a new {@link ByteBuf}.
+ */
+public class Lz4FrameDecoder extends ByteToMessageDecoder {
+    /**
+     * Current state of stream.
+     */
+    private enum State {
+        INIT_BLOCK,
+        DECOMPRESS_DATA,
+        FINISHED,
+        CORRUPTED
+    }
+
+    private State currentState = State.INIT_BLOCK;
+
+    /**
+     * Indicates if the checksum of each block is validated.
+     */
+    private final boolean validateChecksums;
+
+    /**
+     * Type of current block.
+     */
+    private int blockType;
+
+    /**
+     * Compressed length of current incoming block.
+     */
+    private int compressedLength;
+
+    /**
+     * Decompressed length of current incoming block.
+     */
+    private int decompressedLength;
+
+    /**
+     * Checksum value of current incoming block.
+     */
+    private int currentChecksum;
+
+    /**
+     * Creates a new LZ4 decoder which validates the checksum of each block.
+     */
+    public Lz4FrameDecoder() {
+        this(true);
+    }
+
+    /**
+     * Creates a new LZ4 decoder with validation of checksums as specified.
+     *
+     * @param validateChecksums
+     *        If true, the checksum field will be validated against the actual
+     *        uncompressed data, and if the checksums do not match, a suitable
+     *        {@link DecompressionException} will be thrown
+     */
+    public Lz4FrameDecoder(boolean validateChecksums) {
+        this.validateChecksums = validateChecksums;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        try {
+            switch (currentState) {
+            case INIT_BLOCK:
+                if (in.readableBytes() < HEADER_LENGTH) {
+                    break;
+                }
+                final long magic = in.readLong();
+                if (magic != MAGIC_NUMBER) {
+                    throw new DecompressionException("unexpected block identifier");
+                }
+
+                final int token = in.readByte();
+                final int compressionLevel = (token & 0x0F) + COMPRESSION_LEVEL_BASE;
+                int blockType = token & 0xF0;
+
+                int compressedLength = ByteBufUtil.swapInt(in.readInt());
+                if (compressedLength < 0 || compressedLength > MAX_BLOCK_SIZE) {
+                    throw new DecompressionException(String.format(
+                            "invalid compressedLength: %d (expected: 0-%d)",
+                            compressedLength, MAX_BLOCK_SIZE));
+                }
+
+                int decompressedLength = ByteBufUtil.swapInt(in.readInt());
+                final int maxDecompressedLength = 1 << compressionLevel;
+                if (decompressedLength < 0 || decompressedLength > maxDecompressedLength) {
+                    throw new DecompressionException(String.format(
+                            "invalid decompressedLength: %d (expected: 0-%d)",
+                            decompressedLength, maxDecompressedLength));
+                }
+                if (decompressedLength == 0 && compressedLength != 0
+                        || decompressedLength != 0 && compressedLength == 0
+                        || blockType == BLOCK_TYPE_NON_COMPRESSED && decompressedLength != compressedLength) {
+                    throw new DecompressionException(String.format(
+                            "stream corrupted: compressedLength(%d) and decompressedLength(%d) mismatch",
+                            compressedLength, decompressedLength));
+                }
+
+                int currentChecksum = ByteBufUtil.swapInt(in.readInt());
+                if (decompressedLength == 0 && compressedLength == 0) {
+                    if (currentChecksum != 0) {
+                        throw new DecompressionException("stream corrupted: checksum error");
+                    }
+                    currentState = State.FINISHED;
+                    break;
+                }
+                if (blockType != BLOCK_TYPE_NON_COMPRESSED && blockType != BLOCK_TYPE_COMPRESSED) {
+                    throw new DecompressionException(String.format(
+                            "unexpected blockType: %d (expected: %d or %d)",
+                            blockType, BLOCK_TYPE_NON_COMPRESSED, BLOCK_TYPE_COMPRESSED));
+                }
+
+                this.blockType = blockType;
+                this.compressedLength = compressedLength;
+                this.decompressedLength = decompressedLength;
+                this.currentChecksum = currentChecksum;
+
+                currentState = State.DECOMPRESS_DATA;
+            case DECOMPRESS_DATA:
+                compressedLength = this.compressedLength;
+                if (in.readableBytes() < compressedLength) {
+                    break;
+                }
+
+                decompressedLength = this.decompressedLength;
+                final int idx = in.readerIndex();
+                ByteBuf uncompressed;
+                if (this.blockType == BLOCK_TYPE_NON_COMPRESSED) {
+                    uncompressed = in.slice(idx, decompressedLength).retain();
+                } else {
+                    uncompressed = ctx.alloc().buffer(decompressedLength, decompressedLength);
+                    boolean success = false;
+                    try {
+                        Lz4.decompress(in, idx, compressedLength, uncompressed, uncompressed.writerIndex(),
+                                decompressedLength);
+                        uncompressed.writerIndex(uncompressed.writerIndex() + decompressedLength);
+                        success = true;
+                    } finally {
+                        if (!success) {
+                            uncompressed.release();
+                        }
+                    }
+                }
+
+                if (validateChecksums) {
+                    final int checksum = XxHash32.hash(uncompressed, uncompressed.readerIndex(), decompressedLength,
+                            DEFAULT_SEED) & CHECKSUM_MASK;
+                    if (checksum != this.currentChecksum) {
+                        uncompressed.release();
+                        throw new DecompressionException(String.format(
+                                "stream corrupted: mismatching checksum: %d (expected: %d)",
+                                checksum, this.currentChecksum));
+                    }
+                }
+
+                in.skipBytes(compressedLength);
+                out.add(uncompressed);
+                currentState = State.INIT_BLOCK;
+                break;
+            case FINISHED:
+            case CORRUPTED:
+                in.skipBytes(in.readableBytes());
+                break;
+            default:
+                throw new IllegalStateException();
+            }
+        } catch (Exception e) {
+            currentState = State.CORRUPTED;
+            throw e;
+        }
+    }
+
+    /**
+     * Returns {@code true} if and only if the end of the compressed stream
+     * has been reached.
+     */
+    public boolean isClosed() {
+        return currentState == State.FINISHED;
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.compression.Lz4Constants.*;
+
+/**
+ * Compresses a {@link ByteBuf} using the LZ4 format.
+ *
+ * See <a href="http://code.google.com/p/lz4/">LZ4</a>.
+ *
+ * The LZ4 block format does not contain the length of the compressed block and of the original data, so the blocks
+ * are framed like it is done by the <a href="https://github.com/jpountz/lz4-java">LZ4 Java</a> library:
+ * <pre>
+ * +-------+-------+------------+--------------+----------+----------------------+
+ * | Magic | Token | Compressed | Decompressed | Checksum | LZ4 compressed block |
+ * |       |       |   length   |    length    |          |                      |
+ * +-------+-------+------------+--------------+----------+----------------------+
+ * </pre>
+ * The written data is a continuous stream which is split into blocks of the configured block size, independent of
+ * the boundaries of the written {@link ByteBuf}s. Whatever is buffered is written as a smaller block once the channel
+ * is flushed, so no data is held back.
+ */
+public class Lz4FrameEncoder extends MessageToByteEncoder<ByteBuf> {
+    /**
+     * Compression level of current LZ4 encoder (depends on {@link #blockSize}).
+     */
+    private final int compressionLevel;
+
+    /**
+     * Maximum size of a block which is written.
+     */
+    private final int blockSize;
+
+    /**
+     * The hash table which is used by the compressor to find matches.
+     */
+    private final int[] hashTable = new int[HASH_TABLE_SIZE];
+
+    /**
+     * Inner byte buffer for outgoing data which did not make up a whole block yet.
+     */
+    private ByteBuf buffer;
+
+    /**
+     * Indicates if the compressed stream has been finished.
+     */
+    private volatile boolean finished;
+
+    /**
+     * Used to interact with its {@link io.netty.channel.ChannelPipeline} and other handlers.
+     */
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new LZ4 encoder with a block size of 64 KB.
+     */
+    public Lz4FrameEncoder() {
+        this(DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates a new LZ4 encoder with the specified block size.
+     *
+     * @param blockSize
+     *        the maximum number of bytes which are compressed as one block,
+     *        must be in the range {@value Lz4Constants#MIN_BLOCK_SIZE} - {@value Lz4Constants#MAX_BLOCK_SIZE}
+     */
+    public Lz4FrameEncoder(int blockSize) {
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            throw new IllegalArgumentException(String.format(
+                    "blockSize: %d (expected: %d-%d)", blockSize, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE));
+        }
+        this.blockSize = blockSize;
+        compressionLevel = compressionLevel(blockSize);
+    }
+
+    /**
+     * Calculates compression level on the basis of block size.
+     */
+    private static int compressionLevel(int blockSize) {
+        return Math.max(0, 32 - Integer.numberOfLeadingZeros(blockSize - 1) - COMPRESSION_LEVEL_BASE);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        final ByteBuf buffer = this.buffer;
+        int length;
+        while ((length = in.readableBytes()) > 0) {
+            if (!buffer.isReadable() && length >= blockSize) {
+                // Compress a whole block straight from the input.
+                compressBlock(in, in.readerIndex(), blockSize, out);
+                in.skipBytes(blockSize);
+            } else {
+                in.readBytes(buffer, Math.min(length, buffer.writableBytes()));
+                if (!buffer.isWritable()) {
+                    flushBufferedData(out);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        int size;
+        if (finished) {
+            size = msg.readableBytes();
+        } else {
+            int blocks = (buffer.readableBytes() + msg.readableBytes()) / blockSize;
+            size = blocks * (HEADER_LENGTH + Lz4.maxCompressedLength(blockSize));
+        }
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(size);
+        } else {
+            return ctx.alloc().heapBuffer(size);
+        }
+    }
+
+    private void compressBlock(ByteBuf src, int srcIndex, int length, ByteBuf out) {
+        out.ensureWritable(HEADER_LENGTH + Lz4.maxCompressedLength(length));
+        final int idx = out.writerIndex();
+        final int checksum = XxHash32.hash(src, srcIndex, length, DEFAULT_SEED) & CHECKSUM_MASK;
+        int compressedLength = Lz4.compress(src, srcIndex, length, out, idx + HEADER_LENGTH, hashTable);
+        final int blockType;
+        if (compressedLength >= length) {
+            blockType = BLOCK_TYPE_NON_COMPRESSED;
+            compressedLength = length;
+            out.setBytes(idx + HEADER_LENGTH, src, srcIndex, length);
+        } else {
+            blockType = BLOCK_TYPE_COMPRESSED;
+        }
+
+        out.setLong(idx, MAGIC_NUMBER);
+        out.setByte(idx + TOKEN_OFFSET, (byte) (blockType | compressionLevel));
+        out.setInt(idx + COMPRESSED_LENGTH_OFFSET, ByteBufUtil.swapInt(compressedLength));
+        out.setInt(idx + DECOMPRESSED_LENGTH_OFFSET, ByteBufUtil.swapInt(length));
+        out.setInt(idx + CHECKSUM_OFFSET, ByteBufUtil.swapInt(checksum));
+        out.writerIndex(idx + HEADER_LENGTH + compressedLength);
+    }
+
+    private void flushBufferedData(ByteBuf out) {
+        final ByteBuf buffer = this.buffer;
+        if (buffer.isReadable()) {
+            compressBlock(buffer, buffer.readerIndex(), buffer.readableBytes(), out);
+            buffer.clear();
+        }
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        ByteBuf buffer = this.buffer;
+        if (buffer != null && buffer.isReadable()) {
+            ByteBuf out = ctx.alloc().buffer(HEADER_LENGTH + Lz4.maxCompressedLength(buffer.readableBytes()));
+            flushBufferedData(out);
+            ctx.write(out);
+        }
+        ctx.flush();
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        final ByteBuf footer = ctx.alloc().heapBuffer(
+                HEADER_LENGTH + Lz4.maxCompressedLength(buffer.readableBytes()) + HEADER_LENGTH);
+        flushBufferedData(footer);
+
+        final int idx = footer.writerIndex();
+        footer.setLong(idx, MAGIC_NUMBER);
+        footer.setByte(idx + TOKEN_OFFSET, (byte) (BLOCK_TYPE_NON_COMPRESSED | compressionLevel));
+        footer.setInt(idx + COMPRESSED_LENGTH_OFFSET, 0);
+        footer.setInt(idx + DECOMPRESSED_LENGTH_OFFSET, 0);
+        footer.setInt(idx + CHECKSUM_OFFSET, 0);
+        footer.writerIndex(idx + HEADER_LENGTH);
+
+        buffer.release();
+        buffer = null;
+
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this {@link Lz4FrameEncoder} and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this {@link Lz4FrameEncoder} and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            final ChannelPromise p = ctx.newPromise();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), p);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return p;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS); // FIXME: Magic number
+        }
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+        buffer = ctx.alloc().buffer(blockSize, blockSize);
+    }
+
+    @Override
+    public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+        if (buffer != null) {
+            buffer.release();
+            buffer = null;
+        }
+    }
+}
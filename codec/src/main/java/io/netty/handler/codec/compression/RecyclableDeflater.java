@@ -0,0 +1,97 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.util.Recycler;
+import io.netty.util.internal.SystemPropertyUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.util.zip.Deflater;
+
+/**
+ * A {@link Deflater} which is pooled per compression level and wrapper, so that short-lived encoders like the ones
+ * created for every HTTP response do not have to allocate and free the native memory of zlib every time.
+ *
+ * The pool is a {@link Recycler}, so a {@link Deflater} is reused by the thread which created it. At most
+ * {@code -Dio.netty.deflater.maxCapacity} (default {@code 16}) {@link Deflater}s are kept per thread, compression
+ * level and wrapper. {@code 0} disables the pooling.
+ */
+final class RecyclableDeflater {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(RecyclableDeflater.class);
+
+    private static final int MAX_CAPACITY;
+    private static final Recycler<RecyclableDeflater>[] RECYCLERS;
+
+    static {
+        MAX_CAPACITY = Math.max(0, SystemPropertyUtil.getInt("io.netty.deflater.maxCapacity", 16));
+        logger.debug("-Dio.netty.deflater.maxCapacity: {}", MAX_CAPACITY);
+
+        @SuppressWarnings("unchecked")
+        Recycler<RecyclableDeflater>[] recyclers = new Recycler[20];
+        for (int i = 0; i < recyclers.length; i ++) {
+            final int compressionLevel = i >> 1;
+            final boolean nowrap = (i & 1) != 0;
+            recyclers[i] = new Recycler<RecyclableDeflater>(MAX_CAPACITY) {
+                @Override
+                protected RecyclableDeflater newObject(Handle<RecyclableDeflater> handle) {
+                    return new RecyclableDeflater(this, handle, new Deflater(compressionLevel, nowrap));
+                }
+            };
+        }
+        RECYCLERS = recyclers;
+    }
+
+    /**
+     * Returns a {@link Deflater} of the given compression level, which is reset.
+     *
+     * @param compressionLevel the compression level, from {@code 0} to {@code 9}
+     * @param nowrap {@code true} for a {@link Deflater} without the ZLIB header and checksum
+     */
+    static RecyclableDeflater newInstance(int compressionLevel, boolean nowrap) {
+        return RECYCLERS[compressionLevel << 1 | (nowrap ? 1 : 0)].get();
+    }
+
+    private final Recycler<RecyclableDeflater> recycler;
+    private final Recycler.Handle<RecyclableDeflater> handle;
+    private final Deflater deflater;
+
+    private RecyclableDeflater(
+            Recycler<RecyclableDeflater> recycler, Recycler.Handle<RecyclableDeflater> handle, Deflater deflater) {
+        this.recycler = recycler;
+        this.handle = handle;
+        this.deflater = deflater;
+    }
+
+    /**
+     * Returns the pooled {@link Deflater}, which must not be used anymore after {@link #recycle()}.
+     */
+    Deflater deflater() {
+        return deflater;
+    }
+
+    /**
+     * Resets the {@link Deflater} and returns it to the pool, or frees it if pooling is disabled.
+     */
+    void recycle() {
+        if (MAX_CAPACITY == 0) {
+            deflater.end();
+            return;
+        }
+        deflater.reset();
+        recycler.recycle(this, handle);
+    }
+}
@@ -17,6 +17,10 @@ package io.netty.handler.codec.compression;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufUtil;
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.ByteOrder;
+import java.util.Arrays;
 
 /**
  * Uncompresses an input {@link ByteBuf} encoded with Snappy compression into an
@@ -39,6 +43,14 @@ public class Snappy {
     private static final int COPY_2_BYTE_OFFSET = 2;
     private static final int COPY_4_BYTE_OFFSET = 3;
 
+    private static final boolean BIG_ENDIAN_NATIVE_ORDER = ByteOrder.nativeOrder() == ByteOrder.BIG_ENDIAN;
+
+    /**
+     * The hash table of the encoder, which is reused by every call to
+     * {@link #encode(ByteBuf, ByteBuf, int)}.
+     */
+    private short[] hashTable;
+
     private State state = State.READY;
     private byte tag;
     private int written;
@@ -72,13 +84,17 @@ public class Snappy {
         int inIndex = in.readerIndex();
         final int baseIndex = inIndex;
 
-        final short[] table = getHashTable(length);
-        final int shift = 32 - (int) Math.floor(Math.log(table.length) / Math.log(2));
+        // Read the input straight from memory if possible, which skips the bounds checks of the ByteBuf.
+        final long address = in.hasMemoryAddress() ? in.memoryAddress() : 0;
+
+        final int htSize = hashTableSize(length);
+        final short[] table = getHashTable(htSize);
+        final int shift = Integer.numberOfLeadingZeros(htSize) + 1;
 
         int nextEmit = inIndex;
 
         if (length - inIndex >= MIN_COMPRESSIBLE_BYTES) {
-            int nextHash = hash(in, ++inIndex, shift);
+            int nextHash = hash(in, address, ++inIndex, shift);
             outer: while (true) {
                 int skip = 32;
 
@@ -95,20 +111,20 @@ public class Snappy {
                         break outer;
                     }
 
-                    nextHash = hash(in, nextIndex, shift);
+                    nextHash = hash(in, address, nextIndex, shift);
 
                     candidate = baseIndex + table[hash];
 
                     table[hash] = (short) (inIndex - baseIndex);
                 }
-                while (in.getInt(inIndex) != in.getInt(candidate));
+                while (getInt(in, address, inIndex) != getInt(in, address, candidate));
 
                 encodeLiteral(in, out, inIndex - nextEmit);
 
                 int insertTail;
                 do {
                     int base = inIndex;
-                    int matched = 4 + findMatchingLength(in, candidate + 4, inIndex + 4, length);
+                    int matched = 4 + findMatchingLength(in, address, candidate + 4, inIndex + 4, length);
                     inIndex += matched;
                     int offset = base - candidate;
                     encodeCopy(out, offset, matched);
@@ -119,15 +135,15 @@ public class Snappy {
                         break outer;
                     }
 
-                    int prevHash = hash(in, insertTail, shift);
+                    int prevHash = hash(in, address, insertTail, shift);
                     table[prevHash] = (short) (inIndex - baseIndex - 1);
-                    int currentHash = hash(in, insertTail + 1, shift);
+                    int currentHash = hash(in, address, insertTail + 1, shift);
                     candidate = baseIndex + table[currentHash];
                     table[currentHash] = (short) (inIndex - baseIndex);
                 }
-                while (in.getInt(insertTail + 1) == in.getInt(candidate));
+                while (getInt(in, address, insertTail + 1) == getInt(in, address, candidate));
 
-                nextHash = hash(in, insertTail + 2, shift);
+                nextHash = hash(in, address, insertTail + 2, shift);
                 ++inIndex;
             }
         }
@@ -143,55 +159,95 @@ public class Snappy {
      * the appropriate range for our hash table.
      *
      * @param in The input buffer to read 4 bytes from
+     * @param address The memory address of the input buffer, or {@code 0} if it has none
      * @param index The index to read at
      * @param shift The shift value, for ensuring that the resulting value is
      *     withing the range of our hash table size
      * @return A 32-bit hash of 4 bytes located at index
      */
-    private static int hash(ByteBuf in, int index, int shift) {
-        return in.getInt(index) + 0x1e35a7bd >>> shift;
+    private static int hash(ByteBuf in, long address, int index, int shift) {
+        return getInt(in, address, index) + 0x1e35a7bd >>> shift;
+    }
+
+    /**
+     * Reads the 4 bytes located at index in big endian order, either directly from the
+     * memory address of the input buffer or through the buffer itself.
+     */
+    private static int getInt(ByteBuf in, long address, int index) {
+        if (address == 0) {
+            return in.getInt(index);
+        }
+        int value = PlatformDependent.getInt(address + index);
+        return BIG_ENDIAN_NATIVE_ORDER ? value : Integer.reverseBytes(value);
+    }
+
+    /**
+     * Reads the 8 bytes located at index in big endian order, either directly from the
+     * memory address of the input buffer or through the buffer itself.
+     */
+    private static long getLong(ByteBuf in, long address, int index) {
+        if (address == 0) {
+            return in.getLong(index);
+        }
+        long value = PlatformDependent.getLong(address + index);
+        return BIG_ENDIAN_NATIVE_ORDER ? value : Long.reverseBytes(value);
     }
 
     /**
-     * Creates an appropriately sized hashtable for the given input size
+     * Calculates an appropriate hash table size for the given input size
      *
      * @param inputSize The size of our input, ie. the number of bytes we need to encode
-     * @return An appropriately sized empty hashtable
+     * @return A power of two between 256 and {@link #MAX_HT_SIZE}
      */
-    private static short[] getHashTable(int inputSize) {
+    private static int hashTableSize(int inputSize) {
         int htSize = 256;
         while (htSize < MAX_HT_SIZE && htSize < inputSize) {
             htSize <<= 1;
         }
+        return htSize;
+    }
 
-        short[] table;
-        if (htSize <= 256) {
-            table = new short[256];
+    /**
+     * Returns the hash table of this instance, cleared for the given number of entries.
+     * The table is allocated on first use and then reused, as each framed chunk
+     * needs an empty table.
+     *
+     * @param htSize The number of entries used by the next encoding
+     * @return An empty hashtable of at least the given size
+     */
+    private short[] getHashTable(int htSize) {
+        short[] table = hashTable;
+        if (table == null || table.length < htSize) {
+            table = hashTable = new short[htSize];
         } else {
-            table = new short[MAX_HT_SIZE];
+            Arrays.fill(table, 0, htSize, (short) 0);
         }
-
         return table;
     }
 
     /**
      * Iterates over the supplied input buffer between the supplied minIndex and
      * maxIndex to find how long our matched copy overlaps with an already-written
-     * literal value.
+     * literal value. Compares 8 bytes at a time, with the first mismatching byte
+     * found from the leading zeros of the difference.
      *
      * @param in The input buffer to scan over
+     * @param address The memory address of the input buffer, or {@code 0} if it has none
      * @param minIndex The index in the input buffer to start scanning from
      * @param inIndex The index of the start of our copy
      * @param maxIndex The length of our input buffer
      * @return The number of bytes for which our candidate copy is a repeat of
      */
-    private static int findMatchingLength(ByteBuf in, int minIndex, int inIndex, int maxIndex) {
+    private static int findMatchingLength(ByteBuf in, long address, int minIndex, int inIndex, int maxIndex) {
         int matched = 0;
 
-        while (inIndex <= maxIndex - 4 &&
-                in.getInt(inIndex) == in.getInt(minIndex + matched)) {
-            inIndex += 4;
-            matched += 4;
+        while (inIndex <= maxIndex - 8) {
+            long diff = getLong(in, address, inIndex) ^ getLong(in, address, minIndex + matched);
+            if (diff != 0) {
+                return matched + (Long.numberOfLeadingZeros(diff) >>> 3);
+            }
+            inIndex += 8;
+            matched += 8;
         }
 
         while (inIndex < maxIndex && in.getByte(minIndex + matched) == in.getByte(inIndex)) {
@@ -614,6 +670,8 @@ public class Snappy {
         try {
             if (data.hasArray()) {
                 crc32.update(data.array(), data.arrayOffset() + offset, length);
+            } else if (data.hasMemoryAddress()) {
+                crc32.update(data.memoryAddress() + offset, length);
             } else {
                 byte[] array = new byte[length];
                 data.getBytes(offset, array);
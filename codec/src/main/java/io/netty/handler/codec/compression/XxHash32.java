@@ -0,0 +1,139 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+
+/**
+ * Calculates the 32 bit xxhash of the content of a {@link ByteBuf} without copying it.
+ *
+ * See <a href="https://code.google.com/p/xxhash/">xxhash</a>.
+ */
+final class XxHash32 {
+
+    private static final int PRIME1 = 0x9E3779B1;
+    private static final int PRIME2 = 0x85EBCA77;
+    private static final int PRIME3 = 0xC2B2AE3D;
+    private static final int PRIME4 = 0x27D4EB2F;
+    private static final int PRIME5 = 0x165667B1;
+
+    /**
+     * Returns the xxhash32 of the {@code length} bytes of the given {@link ByteBuf} starting at {@code offset}.
+     */
+    static int hash(ByteBuf buf, int offset, int length, int seed) {
+        if (buf.hasArray()) {
+            return hash(buf.array(), buf.arrayOffset() + offset, length, seed);
+        }
+
+        final int end = offset + length;
+        int i = offset;
+        int h;
+        if (length >= 16) {
+            final int limit = end - 16;
+            int v1 = seed + PRIME1 + PRIME2;
+            int v2 = seed + PRIME2;
+            int v3 = seed;
+            int v4 = seed - PRIME1;
+            do {
+                v1 = round(v1, getIntLE(buf, i));
+                v2 = round(v2, getIntLE(buf, i + 4));
+                v3 = round(v3, getIntLE(buf, i + 8));
+                v4 = round(v4, getIntLE(buf, i + 12));
+                i += 16;
+            } while (i <= limit);
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) +
+                Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+
+        while (i <= end - 4) {
+            h = Integer.rotateLeft(h + getIntLE(buf, i) * PRIME3, 17) * PRIME4;
+            i += 4;
+        }
+        while (i < end) {
+            h = Integer.rotateLeft(h + (buf.getByte(i) & 0xFF) * PRIME5, 11) * PRIME1;
+            i ++;
+        }
+
+        return avalanche(h);
+    }
+
+    private static int hash(byte[] array, int offset, int length, int seed) {
+        final int end = offset + length;
+        int i = offset;
+        int h;
+        if (length >= 16) {
+            final int limit = end - 16;
+            int v1 = seed + PRIME1 + PRIME2;
+            int v2 = seed + PRIME2;
+            int v3 = seed;
+            int v4 = seed - PRIME1;
+            do {
+                v1 = round(v1, getIntLE(array, i));
+                v2 = round(v2, getIntLE(array, i + 4));
+                v3 = round(v3, getIntLE(array, i + 8));
+                v4 = round(v4, getIntLE(array, i + 12));
+                i += 16;
+            } while (i <= limit);
+            h = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) +
+                Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+
+        while (i <= end - 4) {
+            h = Integer.rotateLeft(h + getIntLE(array, i) * PRIME3, 17) * PRIME4;
+            i += 4;
+        }
+        while (i < end) {
+            h = Integer.rotateLeft(h + (array[i] & 0xFF) * PRIME5, 11) * PRIME1;
+            i ++;
+        }
+        return avalanche(h);
+    }
+
+    private static int avalanche(int h) {
+        h ^= h >>> 15;
+        h *= PRIME2;
+        h ^= h >>> 13;
+        h *= PRIME3;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private static int round(int v, int lane) {
+        return Integer.rotateLeft(v + lane * PRIME2, 13) * PRIME1;
+    }
+
+    private static int getIntLE(ByteBuf buf, int index) {
+        return ByteBufUtil.swapInt(buf.getInt(index));
+    }
+
+    private static int getIntLE(byte[] array, int index) {
+        return array[index] & 0xFF |
+               (array[index + 1] & 0xFF) << 8 |
+               (array[index + 2] & 0xFF) << 16 |
+               array[index + 3] << 24;
+    }
+
+    private XxHash32() { }
+}
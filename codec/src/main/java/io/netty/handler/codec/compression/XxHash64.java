@@ -0,0 +1,157 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+/**
+ * Calculates the 64 bit xxhash of a stream of bytes which is passed in pieces.
+ *
+ * See <a href="https://code.google.com/p/xxhash/">xxhash</a>.
+ */
+final class XxHash64 {
+
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+
+    private final long seed;
+    private final byte[] buffer = new byte[32];
+    private int bufferSize;
+    private long length;
+    private long v1;
+    private long v2;
+    private long v3;
+    private long v4;
+
+    XxHash64(long seed) {
+        this.seed = seed;
+        reset();
+    }
+
+    /**
+     * Resets the state to start a new hash.
+     */
+    void reset() {
+        v1 = seed + PRIME1 + PRIME2;
+        v2 = seed + PRIME2;
+        v3 = seed;
+        v4 = seed - PRIME1;
+        length = 0;
+        bufferSize = 0;
+    }
+
+    /**
+     * Adds the {@code length} bytes of the given array starting at {@code offset} to the hash.
+     */
+    void update(byte[] array, int offset, int length) {
+        this.length += length;
+        final int end = offset + length;
+
+        if (bufferSize > 0) {
+            int n = Math.min(32 - bufferSize, length);
+            System.arraycopy(array, offset, buffer, bufferSize, n);
+            bufferSize += n;
+            offset += n;
+            if (bufferSize < 32) {
+                return;
+            }
+            processStripe(buffer, 0);
+            bufferSize = 0;
+        }
+
+        while (offset <= end - 32) {
+            processStripe(array, offset);
+            offset += 32;
+        }
+
+        if (offset < end) {
+            bufferSize = end - offset;
+            System.arraycopy(array, offset, buffer, 0, bufferSize);
+        }
+    }
+
+    private void processStripe(byte[] array, int offset) {
+        v1 = round(v1, getLongLE(array, offset));
+        v2 = round(v2, getLongLE(array, offset + 8));
+        v3 = round(v3, getLongLE(array, offset + 16));
+        v4 = round(v4, getLongLE(array, offset + 24));
+    }
+
+    /**
+     * Returns the hash of all bytes which were added since the last {@link #reset()}.
+     */
+    long value() {
+        long h;
+        if (length >= 32) {
+            h = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            h = mergeRound(h, v1);
+            h = mergeRound(h, v2);
+            h = mergeRound(h, v3);
+            h = mergeRound(h, v4);
+        } else {
+            h = seed + PRIME5;
+        }
+
+        h += length;
+
+        final byte[] buffer = this.buffer;
+        final int end = bufferSize;
+        int i = 0;
+        while (i <= end - 8) {
+            h ^= round(0, getLongLE(buffer, i));
+            h = Long.rotateLeft(h, 27) * PRIME1 + PRIME4;
+            i += 8;
+        }
+        if (i <= end - 4) {
+            h ^= (getIntLE(buffer, i) & 0xFFFFFFFFL) * PRIME1;
+            h = Long.rotateLeft(h, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        while (i < end) {
+            h ^= (buffer[i] & 0xFF) * PRIME5;
+            h = Long.rotateLeft(h, 11) * PRIME1;
+            i ++;
+        }
+
+        h ^= h >>> 33;
+        h *= PRIME2;
+        h ^= h >>> 29;
+        h *= PRIME3;
+        h ^= h >>> 32;
+        return h;
+    }
+
+    private static long round(long acc, long lane) {
+        return Long.rotateLeft(acc + lane * PRIME2, 31) * PRIME1;
+    }
+
+    private static long mergeRound(long acc, long v) {
+        acc ^= round(0, v);
+        return acc * PRIME1 + PRIME4;
+    }
+
+    private static int getIntLE(byte[] array, int index) {
+        return array[index] & 0xFF |
+               (array[index + 1] & 0xFF) << 8 |
+               (array[index + 2] & 0xFF) << 16 |
+               array[index + 3] << 24;
+    }
+
+    private static long getLongLE(byte[] array, int index) {
+        return getIntLE(array, index) & 0xFFFFFFFFL | (long) getIntLE(array, index + 4) << 32;
+    }
+}
@@ -29,6 +29,13 @@ public abstract class ZlibEncoder extends MessageToByteEncoder<ByteBuf> {
         super(false);
     }
 
+    /**
+     * @param preferDirect {@code true} if the compressed data should be written into direct {@link ByteBuf}s
+     */
+    protected ZlibEncoder(boolean preferDirect) {
+        super(preferDirect);
+    }
+
     /**
      * Returns {@code true} if and only if the end of the compressed stream
      * has been reached.
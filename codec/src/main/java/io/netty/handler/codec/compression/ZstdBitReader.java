@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Reads a bit stream of the Zstandard format backwards, starting at the highest bit of its last byte which marks the
+ * end of the stream.
+ *
+ * Bits are read from a 64 bit container which is refilled by {@link #reload()}, so up to 56 bits can be read
+ * between two reloads. Reading beyond the beginning of the stream returns undefined bits, which is detected by
+ * {@link #isOverflow()}.
+ */
+final class ZstdBitReader {
+
+    private byte[] array;
+    private ByteBuffer buffer;
+    private int start;
+    private int current;
+    private long bits;
+    private int bitsConsumed;
+
+    /**
+     * Starts reading the stream which is stored in {@code array} from {@code start} to {@code end}.
+     */
+    void init(byte[] array, int start, int end) {
+        if (end <= start) {
+            throw new DecompressionException("bit stream is empty");
+        }
+        final int lastByte = array[end - 1] & 0xFF;
+        if (lastByte == 0) {
+            throw new DecompressionException("bit stream has no end mark");
+        }
+
+        if (this.array != array) {
+            this.array = array;
+            buffer = ByteBuffer.wrap(array).order(ByteOrder.LITTLE_ENDIAN);
+        }
+        this.start = start;
+        bitsConsumed = 8 - highestBit(lastByte);
+        if (end - start >= 8) {
+            current = end - 8;
+            bits = buffer.getLong(current);
+        } else {
+            current = start;
+            bits = 0;
+            for (int i = start; i < end; i ++) {
+                bits |= (array[i] & 0xFFL) << (i - start << 3);
+            }
+            bitsConsumed += 8 - (end - start) << 3;
+        }
+    }
+
+    /**
+     * Returns the next {@code n} bits without consuming them.
+     */
+    int peekBits(int n) {
+        return (int) (bits << bitsConsumed >>> 1 >>> 63 - n);
+    }
+
+    /**
+     * Consumes {@code n} bits.
+     */
+    void skipBits(int n) {
+        bitsConsumed += n;
+    }
+
+    /**
+     * Returns and consumes the next {@code n} bits.
+     */
+    int readBits(int n) {
+        final int value = peekBits(n);
+        bitsConsumed += n;
+        return value;
+    }
+
+    /**
+     * Refills the container, so at least 56 bits can be read unless the beginning of the stream is reached.
+     */
+    void reload() {
+        if (current > start && bitsConsumed <= 64) {
+            int bytes = Math.min(bitsConsumed >>> 3, current - start);
+            current -= bytes;
+            bitsConsumed -= bytes << 3;
+            bits = buffer.getLong(current);
+        }
+    }
+
+    /**
+     * Returns {@code true} if more bits were read than the stream contains.
+     */
+    boolean isOverflow() {
+        return bitsConsumed > 64;
+    }
+
+    /**
+     * Returns {@code true} if all bits of the stream were read.
+     */
+    boolean isFinished() {
+        return current == start && bitsConsumed == 64;
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+/**
+ * Writes a bit stream of the Zstandard format, starting at the lowest bit of the first byte.
+ *
+ * Bits are collected in a 64 bit container, so {@link #flush()} must be called before it holds more than 56 bits.
+ * Writing does not fail if the limit of the target array is reached, the caller checks {@link #isOverflow()}
+ * instead and discards the output.
+ */
+final class ZstdBitWriter {
+
+    private byte[] array;
+    private int limit;
+    private int position;
+    private long container;
+    private int bitCount;
+
+    /**
+     * Starts writing to {@code array} at {@code offset}, without exceeding {@code limit}.
+     */
+    void init(byte[] array, int offset, int limit) {
+        this.array = array;
+        this.limit = limit;
+        position = offset;
+        container = 0;
+        bitCount = 0;
+    }
+
+    /**
+     * Adds the lower {@code n} bits of the given value.
+     */
+    void addBits(long value, int n) {
+        container |= (value & (1L << n) - 1) << bitCount;
+        bitCount += n;
+    }
+
+    /**
+     * Writes all complete bytes of the container.
+     */
+    void flush() {
+        while (bitCount >= 8) {
+            if (position < limit) {
+                array[position] = (byte) container;
+            }
+            position ++;
+            container >>>= 8;
+            bitCount -= 8;
+        }
+    }
+
+    /**
+     * Writes the remaining bits, padded with zeros to a whole byte, and returns the position after the last byte.
+     */
+    int finish() {
+        flush();
+        if (bitCount > 0) {
+            addBits(0, 8 - bitCount);
+            flush();
+        }
+        return position;
+    }
+
+    /**
+     * Writes the end mark of the bit stream and the remaining bits, and returns the position after the last byte.
+     */
+    int close() {
+        addBits(1, 1);
+        return finish();
+    }
+
+    /**
+     * Returns {@code true} if the bit stream did not fit into the target array.
+     */
+    boolean isOverflow() {
+        return position > limit;
+    }
+}
@@ -0,0 +1,743 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Compresses blocks of a Zstandard frame.
+ *
+ * Matches are found with hash chains and a lazy evaluation which looks for a better match at the following one or
+ * two positions, depending on the compression level. The literals are Huffman coded and the sequences are FSE coded,
+ * choosing between the predefined, the previous and a new table by their estimated cost.
+ *
+ * The compressed data is the last window of an input buffer which is owned by {@link ZstdEncoder}. Positions in the
+ * tables are indexes of this buffer, so {@link #slide(int)} must be called when its content is moved.
+ */
+final class ZstdBlockCompressor {
+
+    private static final int HASH_PRIME = 0x9E3779B1;
+
+    /**
+     * Positions without a match are skipped faster and faster, by one more byte every {@code 1 << SEARCH_STRENGTH}
+     * bytes since the last match.
+     */
+    private static final int SEARCH_STRENGTH = 8;
+
+    /**
+     * Minimum number of literals which are Huffman coded.
+     */
+    private static final int MIN_HUFFMAN_LITERALS = 64;
+
+    private static final int MAX_SEQUENCES = MAX_BLOCK_SIZE / MIN_MATCH + 1;
+
+    private static final int[] LITERALS_LENGTH_CODES = codes(LITERALS_LENGTH_BASE, LITERALS_LENGTH_BITS, 64);
+    private static final int[] MATCH_LENGTH_CODES = codes(MATCH_LENGTH_BASE, MATCH_LENGTH_BITS, 128 + MIN_MATCH);
+
+    private static final ZstdFse.Distribution DEFAULT_LITERALS_LENGTH_DISTRIBUTION = defaultDistribution(
+            LITERALS_LENGTH_DEFAULT_DISTRIBUTION, LITERALS_LENGTH_DEFAULT_TABLE_LOG);
+    private static final ZstdFse.Distribution DEFAULT_OFFSET_DISTRIBUTION = defaultDistribution(
+            OFFSET_DEFAULT_DISTRIBUTION, OFFSET_DEFAULT_TABLE_LOG);
+    private static final ZstdFse.Distribution DEFAULT_MATCH_LENGTH_DISTRIBUTION = defaultDistribution(
+            MATCH_LENGTH_DEFAULT_DISTRIBUTION, MATCH_LENGTH_DEFAULT_TABLE_LOG);
+
+    private static int[] codes(int[] base, int[] bits, int size) {
+        final int[] codes = new int[size];
+        for (int code = 0; code < base.length; code ++) {
+            for (int value = base[code]; value < base[code] + (1 << bits[code]) && value < size; value ++) {
+                codes[value] = code;
+            }
+        }
+        return codes;
+    }
+
+    private static ZstdFse.Distribution defaultDistribution(short[] counts, int tableLog) {
+        final ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+        distribution.set(counts, tableLog);
+        return distribution;
+    }
+
+    private static int literalsLengthCode(int literalsLength) {
+        return literalsLength < 64 ? LITERALS_LENGTH_CODES[literalsLength] : highestBit(literalsLength) + 19;
+    }
+
+    private static int matchLengthCode(int matchLength) {
+        return matchLength < 128 + MIN_MATCH ? MATCH_LENGTH_CODES[matchLength]
+                                             : highestBit(matchLength - MIN_MATCH) + 36;
+    }
+
+    private final int windowSize;
+    private final int hashShift;
+    private final int chainMask;
+    private final int searchDepth;
+    private final int lazyDepth;
+    private final int targetLength;
+
+    /**
+     * The last position of each hash and, for every position, the previous position with the same hash.
+     */
+    private final int[] hashTable;
+    private final int[] chainTable;
+    private int chainBase;
+    private int nextToUpdate;
+    private int matchOffset;
+
+    /**
+     * The sequences and literals of the current block.
+     */
+    private final int[] literalsLengths = new int[MAX_SEQUENCES];
+    private final int[] offsetValues = new int[MAX_SEQUENCES];
+    private final int[] matchLengths = new int[MAX_SEQUENCES];
+    private final byte[] literals = new byte[MAX_BLOCK_SIZE];
+    private int sequenceCount;
+    private int literalsCount;
+
+    private final int[] repeatOffsets = new int[3];
+    private final int[] savedRepeatOffsets = new int[3];
+
+    private ZstdHuffman.EncodingTable huffmanTable = new ZstdHuffman.EncodingTable();
+    private ZstdHuffman.EncodingTable newHuffmanTable = new ZstdHuffman.EncodingTable();
+    private boolean hasHuffmanTable;
+    private boolean usesNewHuffmanTable;
+    private final int[] histogram = new int[MAX_HUFFMAN_SYMBOL + 1];
+
+    private final SymbolEncoder literalsLengthEncoder = new SymbolEncoder(
+            MAX_LITERALS_LENGTH_SYMBOL, LITERALS_LENGTH_TABLE_LOG, DEFAULT_LITERALS_LENGTH_DISTRIBUTION);
+    private final SymbolEncoder offsetEncoder = new SymbolEncoder(
+            MAX_OFFSET_SYMBOL, OFFSET_TABLE_LOG, DEFAULT_OFFSET_DISTRIBUTION);
+    private final SymbolEncoder matchLengthEncoder = new SymbolEncoder(
+            MAX_MATCH_LENGTH_SYMBOL, MATCH_LENGTH_TABLE_LOG, DEFAULT_MATCH_LENGTH_DISTRIBUTION);
+    private final byte[] literalsLengthCodes = new byte[MAX_SEQUENCES];
+    private final byte[] offsetCodes = new byte[MAX_SEQUENCES];
+    private final byte[] matchLengthCodes = new byte[MAX_SEQUENCES];
+    private final ZstdBitWriter writer = new ZstdBitWriter();
+
+    /**
+     * Creates a compressor for the given compression level and the dictionary, which may be {@code null}.
+     */
+    ZstdBlockCompressor(int compressionLevel, ZstdDictionary dictionary) {
+        final int[] parameters = COMPRESSION_PARAMETERS[compressionLevel];
+        windowSize = 1 << parameters[0];
+        hashShift = 32 - parameters[1];
+        chainMask = (1 << parameters[2]) - 1;
+        searchDepth = parameters[3];
+        lazyDepth = parameters[4];
+        targetLength = parameters[5];
+        hashTable = new int[1 << parameters[1]];
+        chainTable = new int[1 << parameters[2]];
+        Arrays.fill(hashTable, -1);
+        Arrays.fill(chainTable, -1);
+
+        if (dictionary != null && dictionary.hasEntropyTables()) {
+            huffmanTable.set(dictionary.huffmanWeights, dictionary.huffmanSymbols);
+            hasHuffmanTable = true;
+            literalsLengthEncoder.reset(dictionary.literalsLengths);
+            offsetEncoder.reset(dictionary.offsets);
+            matchLengthEncoder.reset(dictionary.matchLengths);
+        }
+        System.arraycopy(dictionary != null ? dictionary.repeatOffsets : INITIAL_REPEAT_OFFSETS, 0,
+                repeatOffsets, 0, 3);
+    }
+
+    /**
+     * Returns the size of the window, the largest offset of a match.
+     */
+    int windowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Adjusts the positions after the content of the input buffer was moved {@code shift} bytes towards its start.
+     */
+    void slide(int shift) {
+        slide(hashTable, shift);
+        slide(chainTable, shift);
+        nextToUpdate = Math.max(0, nextToUpdate - shift);
+        chainBase += shift;
+    }
+
+    private static void slide(int[] table, int shift) {
+        for (int i = 0; i < table.length; i ++) {
+            final int position = table[i];
+            table[i] = position < shift ? -1 : position - shift;
+        }
+    }
+
+    /**
+     * Compresses the block between {@code start} and {@code end} of {@code src}, which may refer to the data before
+     * {@code start}. Returns the position after the compressed block in {@code dst}, or {@code -1} if it does not fit
+     * before {@code dstLimit}, in which case the block must be stored uncompressed.
+     */
+    int compress(byte[] src, int start, int end, byte[] dst, int dstIndex, int dstLimit) {
+        final int[] repeatOffsets = this.repeatOffsets;
+        System.arraycopy(repeatOffsets, 0, savedRepeatOffsets, 0, 3);
+        sequenceCount = 0;
+        literalsCount = 0;
+
+        final int anchor = findSequences(src, start, end);
+        final int length = end - anchor;
+        System.arraycopy(src, anchor, literals, literalsCount, length);
+        literalsCount += length;
+
+        int pos = compressLiterals(dst, dstIndex, dstLimit);
+        if (pos >= 0) {
+            pos = compressSequences(dst, pos, dstLimit);
+        }
+        if (pos < 0) {
+            // The decoder will not see this block, so the state must not change.
+            System.arraycopy(savedRepeatOffsets, 0, repeatOffsets, 0, 3);
+            return -1;
+        }
+
+        if (usesNewHuffmanTable) {
+            final ZstdHuffman.EncodingTable table = huffmanTable;
+            huffmanTable = newHuffmanTable;
+            newHuffmanTable = table;
+            hasHuffmanTable = true;
+        }
+        if (sequenceCount > 0) {
+            literalsLengthEncoder.commit();
+            offsetEncoder.commit();
+            matchLengthEncoder.commit();
+        }
+        return pos;
+    }
+
+    /**
+     * Finds the sequences of the block and returns the position after the last match.
+     */
+    private int findSequences(byte[] src, int start, int end) {
+        final int limit = end - 8;
+        final int lazyDepth = this.lazyDepth;
+        final int[] repeatOffsets = this.repeatOffsets;
+        int anchor = start;
+        int ip = start == 0 ? 1 : start;
+
+        while (ip < limit) {
+            int matchLength = 0;
+            int offset = 0;
+            int matchStart = ip + 1;
+
+            // Check the most recent offset at the next position first, it is the cheapest to encode.
+            int repeatOffset = repeatOffsets[0];
+            if (isValidOffset(ip + 1, repeatOffset) && getIntLE(src, ip + 1) == getIntLE(src, ip + 1 - repeatOffset)) {
+                matchLength = 4 + count(src, ip + 5, ip + 5 - repeatOffset, end);
+                offset = repeatOffset;
+            }
+
+            if (matchLength == 0 || lazyDepth > 0) {
+                final int length = findMatch(src, ip, end);
+                if (length > matchLength) {
+                    matchLength = length;
+                    offset = matchOffset;
+                    matchStart = ip;
+                }
+                if (matchLength == 0) {
+                    ip += (ip - anchor >> SEARCH_STRENGTH) + 1;
+                    continue;
+                }
+
+                // Look for a better match at the following positions.
+                int depth = 0;
+                while (depth < lazyDepth && ip < limit) {
+                    ip ++;
+                    depth ++;
+                    final int offsetCost = offsetCost(offset);
+                    repeatOffset = repeatOffsets[0];
+                    if (isValidOffset(ip, repeatOffset) && getIntLE(src, ip) == getIntLE(src, ip - repeatOffset)) {
+                        final int repeatLength = 4 + count(src, ip + 4, ip + 4 - repeatOffset, end);
+                        final int weight = depth == 1 ? 3 : 4;
+                        if (repeatLength * weight > matchLength * weight - offsetCost + 1) {
+                            matchLength = repeatLength;
+                            offset = repeatOffset;
+                            matchStart = ip;
+                        }
+                    }
+                    final int nextLength = findMatch(src, ip, end);
+                    if (nextLength > 0 && nextLength * 4 - offsetCost(matchOffset) >
+                            matchLength * 4 - offsetCost(offset) + (depth == 1 ? 4 : 7)) {
+                        matchLength = nextLength;
+                        offset = matchOffset;
+                        matchStart = ip;
+                        depth = 0;
+                    }
+                }
+            }
+
+            // Extend the match backwards.
+            while (matchStart > anchor && matchStart > offset && src[matchStart - 1] == src[matchStart - 1 - offset]) {
+                matchStart --;
+                matchLength ++;
+            }
+            store(src, anchor, matchStart - anchor, offset, matchLength);
+            ip = anchor = matchStart + matchLength;
+
+            // Immediately repeat the second most recent offset if possible.
+            while (ip <= limit) {
+                repeatOffset = repeatOffsets[1];
+                if (!isValidOffset(ip, repeatOffset) || getIntLE(src, ip) != getIntLE(src, ip - repeatOffset)) {
+                    break;
+                }
+                matchLength = 4 + count(src, ip + 4, ip + 4 - repeatOffset, end);
+                store(src, anchor, 0, repeatOffset, matchLength);
+                ip = anchor = ip + matchLength;
+            }
+        }
+        return anchor;
+    }
+
+    private boolean isValidOffset(int position, int offset) {
+        return offset <= position && offset <= windowSize;
+    }
+
+    private int offsetCost(int offset) {
+        return offset == repeatOffsets[0] ? 0 : highestBit(offset + 3);
+    }
+
+    /**
+     * Returns the length of the longest match at {@code ip} in the hash chain, or {@code 0} if there is none. The
+     * offset of the match is stored in {@link #matchOffset}.
+     */
+    private int findMatch(byte[] src, int ip, int end) {
+        final int[] hashTable = this.hashTable;
+        final int[] chainTable = this.chainTable;
+        final int chainMask = this.chainMask;
+        final int chainBase = this.chainBase;
+        final int hashShift = this.hashShift;
+        for (int position = nextToUpdate; position < ip; position ++) {
+            final int hash = getIntLE(src, position) * HASH_PRIME >>> hashShift;
+            chainTable[position + chainBase & chainMask] = hashTable[hash];
+            hashTable[hash] = position;
+        }
+        nextToUpdate = Math.max(nextToUpdate, ip);
+
+        final int low = Math.max(0, ip - windowSize);
+        final int minChain = ip - chainMask - 1;
+        int candidate = hashTable[getIntLE(src, ip) * HASH_PRIME >>> hashShift];
+        int bestLength = MIN_MATCH;
+        int bestOffset = 0;
+        for (int attempts = searchDepth; candidate >= low && attempts > 0; attempts --) {
+            if (src[candidate + bestLength] == src[ip + bestLength]) {
+                final int length = count(src, ip, candidate, end);
+                if (length > bestLength) {
+                    bestLength = length;
+                    bestOffset = ip - candidate;
+                    if (length >= targetLength || ip + length == end) {
+                        break;
+                    }
+                }
+            }
+            if (candidate <= minChain) {
+                break;
+            }
+            candidate = chainTable[candidate + chainBase & chainMask];
+        }
+        matchOffset = bestOffset;
+        return bestOffset == 0 ? 0 : bestLength;
+    }
+
+    /**
+     * Returns the number of equal bytes at {@code ip} and {@code match}, up to {@code end}.
+     */
+    private static int count(byte[] src, int ip, int match, int end) {
+        final int start = ip;
+        while (ip <= end - 8) {
+            final long diff = getLongLE(src, ip) ^ getLongLE(src, match);
+            if (diff != 0) {
+                return ip - start + (Long.numberOfTrailingZeros(diff) >>> 3);
+            }
+            ip += 8;
+            match += 8;
+        }
+        while (ip < end && src[ip] == src[match]) {
+            ip ++;
+            match ++;
+        }
+        return ip - start;
+    }
+
+    /**
+     * Adds a sequence and updates the repeat offsets the same way the decoder does.
+     */
+    private void store(byte[] src, int anchor, int literalsLength, int offset, int matchLength) {
+        System.arraycopy(src, anchor, literals, literalsCount, literalsLength);
+        literalsCount += literalsLength;
+
+        // Without literals, the repeat offsets are shifted by one and the most recent one minus one is added.
+        final int[] repeatOffsets = this.repeatOffsets;
+        int offsetValue;
+        if (literalsLength != 0 && offset == repeatOffsets[0]) {
+            offsetValue = 1;
+        } else if (offset == repeatOffsets[1]) {
+            offsetValue = literalsLength != 0 ? 2 : 1;
+            repeatOffsets[1] = repeatOffsets[0];
+            repeatOffsets[0] = offset;
+        } else {
+            if (offset == repeatOffsets[2]) {
+                offsetValue = literalsLength != 0 ? 3 : 2;
+            } else if (literalsLength == 0 && offset == repeatOffsets[0] - 1) {
+                offsetValue = 3;
+            } else {
+                offsetValue = offset + 3;
+            }
+            repeatOffsets[2] = repeatOffsets[1];
+            repeatOffsets[1] = repeatOffsets[0];
+            repeatOffsets[0] = offset;
+        }
+
+        final int index = sequenceCount ++;
+        literalsLengths[index] = literalsLength;
+        offsetValues[index] = offsetValue;
+        matchLengths[index] = matchLength;
+    }
+
+    /**
+     * Writes the literals section and returns the position after it, or {@code -1} if it does not fit.
+     */
+    private int compressLiterals(byte[] dst, int dstIndex, int dstLimit) {
+        final byte[] literals = this.literals;
+        final int length = literalsCount;
+        usesNewHuffmanTable = false;
+
+        if (length >= MIN_HUFFMAN_LITERALS) {
+            final int[] histogram = this.histogram;
+            Arrays.fill(histogram, 0);
+            for (int i = 0; i < length; i ++) {
+                histogram[literals[i] & 0xFF] ++;
+            }
+            int maxSymbol = MAX_HUFFMAN_SYMBOL;
+            while (histogram[maxSymbol] == 0) {
+                maxSymbol --;
+            }
+            if (histogram[maxSymbol] == length) {
+                final int headerLength = writeLiteralsHeader(dst, dstIndex, dstLimit, LITERALS_TYPE_RLE, length);
+                if (headerLength < 0 || dstIndex + headerLength >= dstLimit) {
+                    return -1;
+                }
+                dst[dstIndex + headerLength] = (byte) maxSymbol;
+                return dstIndex + headerLength + 1;
+            }
+
+            final int end = compressHuffmanLiterals(dst, dstIndex, dstLimit, maxSymbol);
+            if (end >= 0) {
+                return end;
+            }
+        }
+
+        final int headerLength = writeLiteralsHeader(dst, dstIndex, dstLimit, LITERALS_TYPE_RAW, length);
+        if (headerLength < 0 || dstIndex + headerLength + length > dstLimit) {
+            return -1;
+        }
+        System.arraycopy(literals, 0, dst, dstIndex + headerLength, length);
+        return dstIndex + headerLength + length;
+    }
+
+    private int compressHuffmanLiterals(byte[] dst, int dstIndex, int dstLimit, int maxSymbol) {
+        final int length = literalsCount;
+        final int[] histogram = this.histogram;
+        final int headerLength = length < 1024 ? 3 : length < 16384 ? 4 : 5;
+        final boolean fourStreams = length >= 256;
+        final int start = dstIndex + headerLength;
+        // The literals must save a little more than the header, or they are not worth decoding.
+        final int limit = Math.min(dstLimit, start + length - (length >>> 6) - 2);
+        if (start >= limit) {
+            return -1;
+        }
+
+        final int repeatCost = hasHuffmanTable ? huffmanTable.cost(histogram, maxSymbol) : -1;
+        final ZstdHuffman.EncodingTable newTable = newHuffmanTable;
+        newTable.build(histogram, maxSymbol);
+        final int descriptionLength = newTable.writeDescription(dst, start, limit);
+        final int newCost = descriptionLength < 0 ? -1 : descriptionLength * 8 + newTable.cost(histogram, maxSymbol);
+
+        final ZstdHuffman.EncodingTable table;
+        final int type;
+        final int streamsStart;
+        if (repeatCost >= 0 && (newCost < 0 || repeatCost <= newCost)) {
+            table = huffmanTable;
+            type = LITERALS_TYPE_TREELESS;
+            streamsStart = start;
+        } else if (newCost >= 0) {
+            table = newTable;
+            type = LITERALS_TYPE_COMPRESSED;
+            streamsStart = start + descriptionLength;
+        } else {
+            return -1;
+        }
+
+        final int end = table.compress(literals, 0, length, dst, streamsStart, limit, fourStreams);
+        if (end < 0) {
+            return -1;
+        }
+        final int compressedLength = end - start;
+        final int sizeFormat = headerLength == 3 ? fourStreams ? 1 : 0 : headerLength - 2;
+        final long header = type | sizeFormat << 2 | (long) length << 4 |
+                (long) compressedLength << 4 + (headerLength == 3 ? 10 : headerLength == 4 ? 14 : 18);
+        for (int i = 0; i < headerLength; i ++) {
+            dst[dstIndex + i] = (byte) (header >>> (i << 3));
+        }
+        usesNewHuffmanTable = type == LITERALS_TYPE_COMPRESSED;
+        return end;
+    }
+
+    /**
+     * Writes the header of raw or RLE literals and returns its length, or {@code -1} if it does not fit.
+     */
+    private static int writeLiteralsHeader(byte[] dst, int dstIndex, int dstLimit, int type, int length) {
+        if (length < 32) {
+            if (dstIndex >= dstLimit) {
+                return -1;
+            }
+            dst[dstIndex] = (byte) (type | length << 3);
+            return 1;
+        }
+        if (length < 4096) {
+            if (dstIndex + 2 > dstLimit) {
+                return -1;
+            }
+            setShortLE(dst, dstIndex, type | 1 << 2 | length << 4);
+            return 2;
+        }
+        if (dstIndex + 3 > dstLimit) {
+            return -1;
+        }
+        setMediumLE(dst, dstIndex, type | 3 << 2 | length << 4);
+        return 3;
+    }
+
+    /**
+     * Writes the sequences section and returns the position after it, or {@code -1} if it does not fit.
+     */
+    private int compressSequences(byte[] dst, int pos, int dstLimit) {
+        final int count = sequenceCount;
+        if (pos + 4 > dstLimit) {
+            return -1;
+        }
+        if (count < 128) {
+            dst[pos ++] = (byte) count;
+        } else if (count < LONG_SEQUENCE_COUNT) {
+            dst[pos ++] = (byte) ((count >>> 8) + 128);
+            dst[pos ++] = (byte) count;
+        } else {
+            dst[pos ++] = (byte) 255;
+            setShortLE(dst, pos, count - LONG_SEQUENCE_COUNT);
+            pos += 2;
+        }
+        if (count == 0) {
+            return pos;
+        }
+
+        final int[] literalsLengths = this.literalsLengths;
+        final int[] offsetValues = this.offsetValues;
+        final int[] matchLengths = this.matchLengths;
+        final byte[] literalsLengthCodes = this.literalsLengthCodes;
+        final byte[] offsetCodes = this.offsetCodes;
+        final byte[] matchLengthCodes = this.matchLengthCodes;
+        for (int i = 0; i < count; i ++) {
+            literalsLengthCodes[i] = (byte) literalsLengthCode(literalsLengths[i]);
+            offsetCodes[i] = (byte) highestBit(offsetValues[i]);
+            matchLengthCodes[i] = (byte) matchLengthCode(matchLengths[i]);
+        }
+
+        final int modesIndex = pos ++;
+        pos = literalsLengthEncoder.select(literalsLengthCodes, count, dst, pos, dstLimit);
+        if (pos >= 0) {
+            pos = offsetEncoder.select(offsetCodes, count, dst, pos, dstLimit);
+        }
+        if (pos >= 0) {
+            pos = matchLengthEncoder.select(matchLengthCodes, count, dst, pos, dstLimit);
+        }
+        if (pos < 0) {
+            return -1;
+        }
+        dst[modesIndex] = (byte) (literalsLengthEncoder.mode << 6 | offsetEncoder.mode << 4 |
+                matchLengthEncoder.mode << 2);
+
+        // The decoder reads the bit stream backwards, so the last sequence is written first.
+        final ZstdFse.EncodingTable literalsLengthTable = literalsLengthEncoder.table();
+        final ZstdFse.EncodingTable offsetTable = offsetEncoder.table();
+        final ZstdFse.EncodingTable matchLengthTable = matchLengthEncoder.table();
+        final ZstdBitWriter writer = this.writer;
+        writer.init(dst, pos, dstLimit);
+
+        final int last = count - 1;
+        int literalsLengthCode = literalsLengthCodes[last];
+        int offsetCode = offsetCodes[last];
+        int matchLengthCode = matchLengthCodes[last];
+        int matchLengthState = matchLengthTable.init(matchLengthCode);
+        int offsetState = offsetTable.init(offsetCode);
+        int literalsLengthState = literalsLengthTable.init(literalsLengthCode);
+        writer.addBits(literalsLengths[last] - LITERALS_LENGTH_BASE[literalsLengthCode],
+                LITERALS_LENGTH_BITS[literalsLengthCode]);
+        writer.addBits(matchLengths[last] - MATCH_LENGTH_BASE[matchLengthCode], MATCH_LENGTH_BITS[matchLengthCode]);
+        writer.flush();
+        writer.addBits(offsetValues[last], offsetCode);
+        writer.flush();
+
+        for (int i = last - 1; i >= 0; i --) {
+            literalsLengthCode = literalsLengthCodes[i];
+            offsetCode = offsetCodes[i];
+            matchLengthCode = matchLengthCodes[i];
+            offsetState = offsetTable.encode(writer, offsetState, offsetCode);
+            matchLengthState = matchLengthTable.encode(writer, matchLengthState, matchLengthCode);
+            literalsLengthState = literalsLengthTable.encode(writer, literalsLengthState, literalsLengthCode);
+            writer.flush();
+
+            final int literalsLengthBits = LITERALS_LENGTH_BITS[literalsLengthCode];
+            final int matchLengthBits = MATCH_LENGTH_BITS[matchLengthCode];
+            writer.addBits(literalsLengths[i] - LITERALS_LENGTH_BASE[literalsLengthCode], literalsLengthBits);
+            writer.addBits(matchLengths[i] - MATCH_LENGTH_BASE[matchLengthCode], matchLengthBits);
+            if (literalsLengthBits + matchLengthBits + offsetCode > 56) {
+                writer.flush();
+            }
+            writer.addBits(offsetValues[i], offsetCode);
+            writer.flush();
+        }
+
+        matchLengthTable.flush(writer, matchLengthState);
+        offsetTable.flush(writer, offsetState);
+        literalsLengthTable.flush(writer, literalsLengthState);
+        final int end = writer.close();
+        return writer.isOverflow() ? -1 : end;
+    }
+
+    /**
+     * Chooses the table of one kind of sequence codes for each block and keeps the one of the previous block.
+     */
+    private static final class SymbolEncoder {
+        private static final int NONE = -1;
+        private static final int DEFAULT = 2;
+
+        private final int maxSymbol;
+        private final int maxTableLog;
+        private final ZstdFse.Distribution defaultDistribution;
+        private final ZstdFse.EncodingTable defaultTable;
+
+        /**
+         * Two tables, one of which may be the previous table while the other one is built for the current block.
+         */
+        private final ZstdFse.Distribution[] distributions = { new ZstdFse.Distribution(), new ZstdFse.Distribution() };
+        private final ZstdFse.EncodingTable[] tables;
+        private final int[] histogram;
+        private final ZstdBitWriter writer = new ZstdBitWriter();
+
+        private int previous = NONE;
+        private int selected;
+        int mode;
+
+        SymbolEncoder(int maxSymbol, int maxTableLog, ZstdFse.Distribution defaultDistribution) {
+            this.maxSymbol = maxSymbol;
+            this.maxTableLog = maxTableLog;
+            this.defaultDistribution = defaultDistribution;
+            defaultTable = new ZstdFse.EncodingTable(defaultDistribution.tableLog);
+            defaultTable.build(defaultDistribution);
+            tables = new ZstdFse.EncodingTable[] {
+                    new ZstdFse.EncodingTable(maxTableLog), new ZstdFse.EncodingTable(maxTableLog) };
+            histogram = new int[maxSymbol + 1];
+        }
+
+        /**
+         * Starts with the table of a dictionary as previous table.
+         */
+        void reset(ZstdFse.Distribution distribution) {
+            distributions[0].set(distribution);
+            tables[0].build(distributions[0]);
+            previous = 0;
+        }
+
+        private ZstdFse.Distribution distribution(int index) {
+            return index == DEFAULT ? defaultDistribution : distributions[index];
+        }
+
+        ZstdFse.EncodingTable table() {
+            return selected == DEFAULT ? defaultTable : tables[selected];
+        }
+
+        /**
+         * Selects the cheapest table for the given codes, writes its description and returns the position after it,
+         * or {@code -1} if it does not fit.
+         */
+        int select(byte[] codes, int count, byte[] dst, int pos, int limit) {
+            final int[] histogram = this.histogram;
+            Arrays.fill(histogram, 0);
+            int maxSymbol = 0;
+            for (int i = 0; i < count; i ++) {
+                final int code = codes[i];
+                histogram[code] ++;
+                if (code > maxSymbol) {
+                    maxSymbol = code;
+                }
+            }
+
+            final int spare = previous == 0 ? 1 : 0;
+            final ZstdFse.Distribution distribution = distributions[spare];
+            if (histogram[maxSymbol] == count) {
+                // A single symbol is encoded without any bits.
+                if (pos >= limit) {
+                    return -1;
+                }
+                dst[pos] = (byte) maxSymbol;
+                Arrays.fill(distribution.counts, 0, maxSymbol, (short) 0);
+                distribution.counts[maxSymbol] = 1;
+                distribution.maxSymbol = maxSymbol;
+                distribution.tableLog = 0;
+                tables[spare].build(distribution);
+                mode = MODE_RLE;
+                selected = spare;
+                return pos + 1;
+            }
+
+            final int defaultCost = defaultDistribution.cost(histogram, maxSymbol);
+            final int repeatCost = previous == NONE ? -1 : distribution(previous).cost(histogram, maxSymbol);
+
+            final int tableLog = ZstdFse.optimalTableLog(maxTableLog, count, maxSymbol);
+            distribution.normalize(histogram, maxSymbol, count, tableLog);
+            final ZstdBitWriter writer = this.writer;
+            writer.init(dst, pos, limit);
+            final int end = distribution.write(writer);
+            final int newCost = writer.isOverflow() ? -1 : (end - pos) * 8 + distribution.cost(histogram, maxSymbol);
+
+            if (repeatCost >= 0 && (defaultCost < 0 || repeatCost <= defaultCost) &&
+                    (newCost < 0 || repeatCost <= newCost)) {
+                mode = MODE_REPEAT;
+                selected = previous;
+                return pos;
+            }
+            if (defaultCost >= 0 && (newCost < 0 || defaultCost <= newCost)) {
+                mode = MODE_PREDEFINED;
+                selected = DEFAULT;
+                return pos;
+            }
+            if (newCost < 0) {
+                return -1;
+            }
+            tables[spare].build(distribution);
+            mode = MODE_COMPRESSED;
+            selected = spare;
+            return end;
+        }
+
+        /**
+         * Makes the selected table the previous table, after the block was written.
+         */
+        void commit() {
+            previous = selected;
+        }
+    }
+}
@@ -0,0 +1,429 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Decompresses the compressed blocks of a Zstandard frame. A compressed block consists of the literals, which are
+ * optionally Huffman coded, and of sequences which each copy a number of literals followed by a match from the
+ * previously decompressed data.
+ *
+ * The entropy tables and the repeat offsets are kept from one block to the next, until {@link #reset} is called at
+ * the beginning of the next frame.
+ */
+final class ZstdBlockDecompressor {
+
+    private static final ZstdFse.DecodingTable DEFAULT_LITERALS_LENGTH_TABLE = defaultTable(
+            LITERALS_LENGTH_DEFAULT_DISTRIBUTION, LITERALS_LENGTH_DEFAULT_TABLE_LOG);
+    private static final ZstdFse.DecodingTable DEFAULT_OFFSET_TABLE = defaultTable(
+            OFFSET_DEFAULT_DISTRIBUTION, OFFSET_DEFAULT_TABLE_LOG);
+    private static final ZstdFse.DecodingTable DEFAULT_MATCH_LENGTH_TABLE = defaultTable(
+            MATCH_LENGTH_DEFAULT_DISTRIBUTION, MATCH_LENGTH_DEFAULT_TABLE_LOG);
+
+    private static ZstdFse.DecodingTable defaultTable(short[] counts, int tableLog) {
+        ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+        distribution.set(counts, tableLog);
+        ZstdFse.DecodingTable table = new ZstdFse.DecodingTable(tableLog);
+        table.build(distribution);
+        return table;
+    }
+
+    /**
+     * Decoded literals of the current block, unless they are stored uncompressed in the source.
+     */
+    private final byte[] literals = new byte[MAX_BLOCK_SIZE];
+
+    private final ZstdHuffman.DecodingTable huffmanTable = new ZstdHuffman.DecodingTable();
+    private boolean hasHuffmanTable;
+
+    private final ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+    private final ZstdFse.DecodingTable literalsLengthTable = new ZstdFse.DecodingTable(LITERALS_LENGTH_TABLE_LOG);
+    private final ZstdFse.DecodingTable offsetTable = new ZstdFse.DecodingTable(OFFSET_TABLE_LOG);
+    private final ZstdFse.DecodingTable matchLengthTable = new ZstdFse.DecodingTable(MATCH_LENGTH_TABLE_LOG);
+
+    /**
+     * The tables used by the previous block, which are used again in {@link ZstdConstants#MODE_REPEAT}.
+     */
+    private ZstdFse.DecodingTable currentLiteralsLengthTable;
+    private ZstdFse.DecodingTable currentOffsetTable;
+    private ZstdFse.DecodingTable currentMatchLengthTable;
+
+    private final int[] repeatOffsets = new int[3];
+    private final ZstdBitReader reader = new ZstdBitReader();
+
+    /**
+     * Prepares the decompression of a new frame, with the entropy tables and repeat offsets of the given
+     * dictionary, if any.
+     */
+    void reset(ZstdDictionary dictionary) {
+        if (dictionary != null && dictionary.hasEntropyTables()) {
+            huffmanTable.build(dictionary.huffmanWeights, dictionary.huffmanSymbols);
+            hasHuffmanTable = true;
+            literalsLengthTable.build(dictionary.literalsLengths);
+            offsetTable.build(dictionary.offsets);
+            matchLengthTable.build(dictionary.matchLengths);
+            currentLiteralsLengthTable = literalsLengthTable;
+            currentOffsetTable = offsetTable;
+            currentMatchLengthTable = matchLengthTable;
+            System.arraycopy(dictionary.repeatOffsets, 0, repeatOffsets, 0, 3);
+        } else {
+            hasHuffmanTable = false;
+            currentLiteralsLengthTable = null;
+            currentOffsetTable = null;
+            currentMatchLengthTable = null;
+            System.arraycopy(INITIAL_REPEAT_OFFSETS, 0, repeatOffsets, 0, 3);
+        }
+    }
+
+    /**
+     * Decompresses the block of {@code srcLength} bytes at {@code srcIndex} to {@code dst} at {@code dstIndex} and
+     * returns the number of decompressed bytes. Matches may refer to the previous data in {@code dst} down to
+     * {@code historyStart}, but the decompressed data must not go beyond {@code dstLimit}.
+     */
+    int decompress(byte[] src, int srcIndex, int srcLength, byte[] dst, int dstIndex, int dstLimit,
+                   int historyStart) {
+        final int srcEnd = srcIndex + srcLength;
+        if (srcLength < 1) {
+            throw new DecompressionException("empty compressed block");
+        }
+
+        // Literals section
+        int pos = srcIndex;
+        final int header = src[pos] & 0xFF;
+        final int literalsType = header & 3;
+        final int sizeFormat = header >>> 2 & 3;
+        byte[] literalsArray = literals;
+        int literalsIndex = 0;
+        int literalsLength;
+        switch (literalsType) {
+        case LITERALS_TYPE_RAW:
+        case LITERALS_TYPE_RLE:
+            switch (sizeFormat) {
+            case 0:
+            case 2:
+                literalsLength = header >>> 3;
+                pos ++;
+                break;
+            case 1:
+                checkAvailable(pos, 2, srcEnd);
+                literalsLength = getShortLE(src, pos) >>> 4;
+                pos += 2;
+                break;
+            default:
+                checkAvailable(pos, 3, srcEnd);
+                literalsLength = getMediumLE(src, pos) >>> 4;
+                pos += 3;
+                break;
+            }
+            if (literalsLength > MAX_BLOCK_SIZE) {
+                throw new DecompressionException("too many literals: " + literalsLength);
+            }
+            if (literalsType == LITERALS_TYPE_RAW) {
+                checkAvailable(pos, literalsLength, srcEnd);
+                literalsArray = src;
+                literalsIndex = pos;
+                pos += literalsLength;
+            } else {
+                checkAvailable(pos, 1, srcEnd);
+                Arrays.fill(literals, 0, literalsLength, src[pos ++]);
+            }
+            break;
+        default:
+            int compressedLength;
+            switch (sizeFormat) {
+            case 0:
+            case 1:
+                checkAvailable(pos, 3, srcEnd);
+                int value = getMediumLE(src, pos);
+                literalsLength = value >>> 4 & 0x3FF;
+                compressedLength = value >>> 14;
+                pos += 3;
+                break;
+            case 2:
+                checkAvailable(pos, 4, srcEnd);
+                value = getIntLE(src, pos);
+                literalsLength = value >>> 4 & 0x3FFF;
+                compressedLength = value >>> 18;
+                pos += 4;
+                break;
+            default:
+                checkAvailable(pos, 5, srcEnd);
+                long longValue = getIntLE(src, pos) & 0xFFFFFFFFL | (src[pos + 4] & 0xFFL) << 32;
+                literalsLength = (int) (longValue >>> 4 & 0x3FFFF);
+                compressedLength = (int) (longValue >>> 22);
+                pos += 5;
+                break;
+            }
+            if (literalsLength > MAX_BLOCK_SIZE) {
+                throw new DecompressionException("too many literals: " + literalsLength);
+            }
+            checkAvailable(pos, compressedLength, srcEnd);
+
+            int streamsIndex = pos;
+            if (literalsType == LITERALS_TYPE_COMPRESSED) {
+                streamsIndex += huffmanTable.read(src, pos, pos + compressedLength);
+                hasHuffmanTable = true;
+            } else if (!hasHuffmanTable) {
+                throw new DecompressionException("treeless literals without previous Huffman table");
+            }
+            huffmanTable.decompress(src, streamsIndex, pos + compressedLength - streamsIndex,
+                    literals, 0, literalsLength, sizeFormat != 0);
+            pos += compressedLength;
+            break;
+        }
+
+        // Sequences section
+        checkAvailable(pos, 1, srcEnd);
+        int sequences = src[pos ++] & 0xFF;
+        if (sequences >= 128) {
+            if (sequences < 255) {
+                checkAvailable(pos, 1, srcEnd);
+                sequences = (sequences - 128 << 8) + (src[pos ++] & 0xFF);
+            } else {
+                checkAvailable(pos, 2, srcEnd);
+                sequences = getShortLE(src, pos) + LONG_SEQUENCE_COUNT;
+                pos += 2;
+            }
+        }
+
+        int op = dstIndex;
+        if (sequences > 0) {
+            checkAvailable(pos, 1, srcEnd);
+            final int modes = src[pos ++] & 0xFF;
+            if ((modes & 3) != 0) {
+                throw new DecompressionException("reserved bits of compression modes are set");
+            }
+            pos = readTables(modes, src, pos, srcEnd);
+
+            op = decodeSequences(src, pos, srcEnd, sequences, literalsArray, literalsIndex, literalsLength,
+                    dst, dstIndex, dstLimit, historyStart);
+        } else {
+            if (pos != srcEnd) {
+                throw new DecompressionException("unexpected data after block without sequences");
+            }
+            if (literalsLength > dstLimit - op) {
+                throw new DecompressionException("decompressed block too large");
+            }
+            System.arraycopy(literalsArray, literalsIndex, dst, op, literalsLength);
+            op += literalsLength;
+        }
+        return op - dstIndex;
+    }
+
+    private int readTables(int modes, byte[] src, int pos, int srcEnd) {
+        final int literalsLengthMode = modes >>> 6;
+        final int offsetMode = modes >>> 4 & 3;
+        final int matchLengthMode = modes >>> 2 & 3;
+
+        switch (literalsLengthMode) {
+        case MODE_PREDEFINED:
+            currentLiteralsLengthTable = DEFAULT_LITERALS_LENGTH_TABLE;
+            break;
+        case MODE_REPEAT:
+            if (currentLiteralsLengthTable == null) {
+                throw new DecompressionException("repeated literals length table without previous table");
+            }
+            break;
+        default:
+            pos = readTable(literalsLengthMode, src, pos, srcEnd, literalsLengthTable,
+                    MAX_LITERALS_LENGTH_SYMBOL, LITERALS_LENGTH_TABLE_LOG);
+            currentLiteralsLengthTable = literalsLengthTable;
+            break;
+        }
+
+        switch (offsetMode) {
+        case MODE_PREDEFINED:
+            currentOffsetTable = DEFAULT_OFFSET_TABLE;
+            break;
+        case MODE_REPEAT:
+            if (currentOffsetTable == null) {
+                throw new DecompressionException("repeated offset table without previous table");
+            }
+            break;
+        default:
+            pos = readTable(offsetMode, src, pos, srcEnd, offsetTable, MAX_OFFSET_SYMBOL, OFFSET_TABLE_LOG);
+            currentOffsetTable = offsetTable;
+            break;
+        }
+
+        switch (matchLengthMode) {
+        case MODE_PREDEFINED:
+            currentMatchLengthTable = DEFAULT_MATCH_LENGTH_TABLE;
+            break;
+        case MODE_REPEAT:
+            if (currentMatchLengthTable == null) {
+                throw new DecompressionException("repeated match length table without previous table");
+            }
+            break;
+        default:
+            pos = readTable(matchLengthMode, src, pos, srcEnd, matchLengthTable,
+                    MAX_MATCH_LENGTH_SYMBOL, MATCH_LENGTH_TABLE_LOG);
+            currentMatchLengthTable = matchLengthTable;
+            break;
+        }
+        return pos;
+    }
+
+    private int readTable(int mode, byte[] src, int pos, int srcEnd, ZstdFse.DecodingTable table,
+                          int maxSymbol, int maxTableLog) {
+        if (mode == MODE_RLE) {
+            checkAvailable(pos, 1, srcEnd);
+            final int symbol = src[pos] & 0xFF;
+            if (symbol > maxSymbol) {
+                throw new DecompressionException("invalid symbol: " + symbol);
+            }
+            table.setRle(symbol);
+            return pos + 1;
+        }
+        pos += distribution.read(src, pos, srcEnd, maxSymbol, maxTableLog);
+        table.build(distribution);
+        return pos;
+    }
+
+    private int decodeSequences(byte[] src, int pos, int srcEnd, int sequences,
+                                byte[] literalsArray, int literalsIndex, int literalsLength,
+                                byte[] dst, int dstIndex, int dstLimit, int historyStart) {
+        final ZstdFse.DecodingTable literalsLengthTable = currentLiteralsLengthTable;
+        final ZstdFse.DecodingTable offsetTable = currentOffsetTable;
+        final ZstdFse.DecodingTable matchLengthTable = currentMatchLengthTable;
+        final int[] literalsLengthSymbols = literalsLengthTable.symbols;
+        final int[] literalsLengthBits = literalsLengthTable.nbBits;
+        final int[] literalsLengthStates = literalsLengthTable.newStates;
+        final int[] offsetSymbols = offsetTable.symbols;
+        final int[] offsetBits = offsetTable.nbBits;
+        final int[] offsetStates = offsetTable.newStates;
+        final int[] matchLengthSymbols = matchLengthTable.symbols;
+        final int[] matchLengthBits = matchLengthTable.nbBits;
+        final int[] matchLengthStates = matchLengthTable.newStates;
+
+        final ZstdBitReader reader = this.reader;
+        reader.init(src, pos, srcEnd);
+        int literalsLengthState = reader.readBits(literalsLengthTable.tableLog);
+        int offsetState = reader.readBits(offsetTable.tableLog);
+        int matchLengthState = reader.readBits(matchLengthTable.tableLog);
+        reader.reload();
+
+        final int[] repeatOffsets = this.repeatOffsets;
+        int repeatOffset1 = repeatOffsets[0];
+        int repeatOffset2 = repeatOffsets[1];
+        int repeatOffset3 = repeatOffsets[2];
+
+        final int literalsEnd = literalsIndex + literalsLength;
+        int op = dstIndex;
+        for (int i = sequences; i > 0; i --) {
+            final int offsetCode = offsetSymbols[offsetState];
+            if (offsetCode > 30) {
+                throw new DecompressionException("offset code too large: " + offsetCode);
+            }
+            final int offsetValue = (1 << offsetCode) + reader.readBits(offsetCode);
+            final int matchLengthCode = matchLengthSymbols[matchLengthState];
+            final int matchLengthExtraBits = MATCH_LENGTH_BITS[matchLengthCode];
+            final int matchLength = MATCH_LENGTH_BASE[matchLengthCode] + reader.readBits(matchLengthExtraBits);
+            final int literalsLengthCode = literalsLengthSymbols[literalsLengthState];
+            final int literalsLengthExtraBits = LITERALS_LENGTH_BITS[literalsLengthCode];
+            // A reload leaves at least 57 bits, enough for the three states and up to 31 extra bits.
+            if (offsetCode + matchLengthExtraBits + literalsLengthExtraBits > 31) {
+                reader.reload();
+            }
+            final int literalsCount = LITERALS_LENGTH_BASE[literalsLengthCode] +
+                    reader.readBits(literalsLengthExtraBits);
+
+            int offset;
+            if (offsetValue > 3) {
+                offset = offsetValue - 3;
+                repeatOffset3 = repeatOffset2;
+                repeatOffset2 = repeatOffset1;
+                repeatOffset1 = offset;
+            } else {
+                // Without literals the repeat offsets are shifted by one.
+                final int index = literalsCount == 0 ? offsetValue : offsetValue - 1;
+                if (index == 0) {
+                    offset = repeatOffset1;
+                } else {
+                    if (index == 1) {
+                        offset = repeatOffset2;
+                    } else if (index == 2) {
+                        offset = repeatOffset3;
+                    } else {
+                        offset = repeatOffset1 - 1;
+                    }
+                    if (index != 1) {
+                        repeatOffset3 = repeatOffset2;
+                    }
+                    repeatOffset2 = repeatOffset1;
+                    repeatOffset1 = offset;
+                }
+            }
+
+            if (i > 1) {
+                literalsLengthState = literalsLengthStates[literalsLengthState] +
+                        reader.readBits(literalsLengthBits[literalsLengthState]);
+                matchLengthState = matchLengthStates[matchLengthState] +
+                        reader.readBits(matchLengthBits[matchLengthState]);
+                offsetState = offsetStates[offsetState] + reader.readBits(offsetBits[offsetState]);
+            }
+            reader.reload();
+
+            // Copy the literals and the match.
+            if (literalsCount > literalsEnd - literalsIndex) {
+                throw new DecompressionException("not enough literals");
+            }
+            if (literalsCount + matchLength > dstLimit - op) {
+                throw new DecompressionException("decompressed block too large");
+            }
+            System.arraycopy(literalsArray, literalsIndex, dst, op, literalsCount);
+            literalsIndex += literalsCount;
+            op += literalsCount;
+
+            final int matchStart = op - offset;
+            if (offset <= 0 || matchStart < historyStart) {
+                throw new DecompressionException("invalid offset: " + offset);
+            }
+            if (offset >= matchLength) {
+                System.arraycopy(dst, matchStart, dst, op, matchLength);
+            } else {
+                for (int j = 0; j < matchLength; j ++) {
+                    dst[op + j] = dst[matchStart + j];
+                }
+            }
+            op += matchLength;
+        }
+        if (!reader.isFinished()) {
+            throw new DecompressionException("corrupted sequences");
+        }
+
+        repeatOffsets[0] = repeatOffset1;
+        repeatOffsets[1] = repeatOffset2;
+        repeatOffsets[2] = repeatOffset3;
+
+        final int remaining = literalsEnd - literalsIndex;
+        if (remaining > dstLimit - op) {
+            throw new DecompressionException("decompressed block too large");
+        }
+        System.arraycopy(literalsArray, literalsIndex, dst, op, remaining);
+        return op + remaining;
+    }
+
+    private static void checkAvailable(int pos, int length, int end) {
+        if (length > end - pos) {
+            throw new DecompressionException("truncated compressed block");
+        }
+    }
+}
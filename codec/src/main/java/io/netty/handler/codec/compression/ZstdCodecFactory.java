@@ -0,0 +1,46 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+/**
+ * Creates a new {@link ZstdEncoder} and a new {@link ZstdDecoder}.
+ */
+public final class ZstdCodecFactory {
+
+    public static ZstdEncoder newZstdEncoder() {
+        return new ZstdEncoder();
+    }
+
+    public static ZstdEncoder newZstdEncoder(int compressionLevel) {
+        return new ZstdEncoder(compressionLevel);
+    }
+
+    public static ZstdEncoder newZstdEncoder(int compressionLevel, byte[] dictionary) {
+        return new ZstdEncoder(compressionLevel, dictionary);
+    }
+
+    public static ZstdDecoder newZstdDecoder() {
+        return new ZstdDecoder();
+    }
+
+    public static ZstdDecoder newZstdDecoder(byte[] dictionary) {
+        return new ZstdDecoder(dictionary);
+    }
+
+    private ZstdCodecFactory() {
+        // Unused
+    }
+}
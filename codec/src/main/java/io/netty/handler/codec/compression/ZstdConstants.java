@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+/**
+ * Constants for {@link ZstdEncoder} and {@link ZstdDecoder}.
+ */
+final class ZstdConstants {
+
+    /**
+     * Magic number of a Zstandard frame.
+     */
+    static final int MAGIC_NUMBER = 0xFD2FB528;
+
+    /**
+     * Magic numbers of skippable frames are in the range {@code 0x184D2A50 - 0x184D2A5F}.
+     */
+    static final int SKIPPABLE_MAGIC_NUMBER = 0x184D2A50;
+    static final int SKIPPABLE_MAGIC_MASK = 0xFFFFFFF0;
+
+    /**
+     * Magic number of a dictionary which contains entropy tables.
+     */
+    static final int DICTIONARY_MAGIC_NUMBER = 0xEC30A437;
+
+    /**
+     * Lengths of the parts of a frame.
+     */
+    static final int MIN_FRAME_HEADER_LENGTH = 4 + 1;
+    static final int MAX_FRAME_HEADER_LENGTH = 4 + 1 + 1 + 4 + 8;
+    static final int SKIPPABLE_HEADER_LENGTH = 4 + 4;
+    static final int BLOCK_HEADER_LENGTH = 3;
+    static final int CHECKSUM_LENGTH = 4;
+
+    /**
+     * Block types.
+     */
+    static final int BLOCK_TYPE_RAW = 0;
+    static final int BLOCK_TYPE_RLE = 1;
+    static final int BLOCK_TYPE_COMPRESSED = 2;
+
+    /**
+     * Maximum number of bytes which are decompressed from one block.
+     */
+    static final int MAX_BLOCK_SIZE = 1 << 17;   // 128 KB
+
+    /**
+     * Window sizes. The format allows windows of up to 2 GB which cannot be held in a Java array together with the
+     * block which is decompressed, so the window is limited to 1 GB.
+     */
+    static final int MIN_WINDOW_LOG = 10;
+    static final int MAX_WINDOW_LOG = 30;
+    static final int DEFAULT_MAX_WINDOW_LOG = 23;   // 8 MB
+
+    /**
+     * Literals section types.
+     */
+    static final int LITERALS_TYPE_RAW = 0;
+    static final int LITERALS_TYPE_RLE = 1;
+    static final int LITERALS_TYPE_COMPRESSED = 2;
+    static final int LITERALS_TYPE_TREELESS = 3;
+
+    /**
+     * Compression modes of the symbols of a sequences section.
+     */
+    static final int MODE_PREDEFINED = 0;
+    static final int MODE_RLE = 1;
+    static final int MODE_COMPRESSED = 2;
+    static final int MODE_REPEAT = 3;
+
+    /**
+     * Limits of the sequences section.
+     */
+    static final int LONG_SEQUENCE_COUNT = 0x7F00;
+    static final int MIN_MATCH = 3;
+
+    /**
+     * Limits of the Huffman coding of literals.
+     */
+    static final int MAX_HUFFMAN_BITS = 11;
+    static final int MAX_HUFFMAN_SYMBOL = 255;
+    static final int MAX_WEIGHTS_TABLE_LOG = 6;
+
+    /**
+     * Limits of the FSE coding.
+     */
+    static final int MIN_TABLE_LOG = 5;
+    static final int MAX_TABLE_LOG = 9;
+
+    /**
+     * Repeat offsets at the beginning of a frame.
+     */
+    static final int[] INITIAL_REPEAT_OFFSETS = { 1, 4, 8 };
+
+    /**
+     * Literals length codes.
+     */
+    static final int MAX_LITERALS_LENGTH_SYMBOL = 35;
+    static final int LITERALS_LENGTH_TABLE_LOG = 9;
+    static final int LITERALS_LENGTH_DEFAULT_TABLE_LOG = 6;
+
+    static final int[] LITERALS_LENGTH_BASE = {
+            0, 1, 2, 3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15,
+            16, 18, 20, 22, 24, 28, 32, 40, 48, 64, 128, 256, 512, 1024, 2048, 4096,
+            8192, 16384, 32768, 65536 };
+
+    static final int[] LITERALS_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 6, 7, 8, 9, 10, 11, 12,
+            13, 14, 15, 16 };
+
+    static final short[] LITERALS_LENGTH_DEFAULT_DISTRIBUTION = {
+            4, 3, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 2, 1, 1, 1,
+            2, 2, 2, 2, 2, 2, 2, 2, 2, 3, 2, 1, 1, 1, 1, 1,
+            -1, -1, -1, -1 };
+
+    /**
+     * Match length codes.
+     */
+    static final int MAX_MATCH_LENGTH_SYMBOL = 52;
+    static final int MATCH_LENGTH_TABLE_LOG = 9;
+    static final int MATCH_LENGTH_DEFAULT_TABLE_LOG = 6;
+
+    static final int[] MATCH_LENGTH_BASE = {
+            3, 4, 5, 6, 7, 8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18,
+            19, 20, 21, 22, 23, 24, 25, 26, 27, 28, 29, 30, 31, 32, 33, 34,
+            35, 37, 39, 41, 43, 47, 51, 59, 67, 83, 99, 131, 259, 515, 1027, 2051,
+            4099, 8195, 16387, 32771, 65539 };
+
+    static final int[] MATCH_LENGTH_BITS = {
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0,
+            1, 1, 1, 1, 2, 2, 3, 3, 4, 4, 5, 7, 8, 9, 10, 11,
+            12, 13, 14, 15, 16 };
+
+    static final short[] MATCH_LENGTH_DEFAULT_DISTRIBUTION = {
+            1, 4, 3, 2, 2, 2, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, 1, -1, -1,
+            -1, -1, -1, -1, -1 };
+
+    /**
+     * Offset codes.
+     */
+    static final int MAX_OFFSET_SYMBOL = 31;
+    static final int OFFSET_TABLE_LOG = 8;
+    static final int OFFSET_DEFAULT_TABLE_LOG = 5;
+
+    static final short[] OFFSET_DEFAULT_DISTRIBUTION = {
+            1, 1, 1, 1, 1, 1, 2, 2, 2, 1, 1, 1, 1, 1, 1, 1,
+            1, 1, 1, 1, 1, 1, 1, 1, -1, -1, -1, -1, -1 };
+
+    /**
+     * Parameters of the compression levels, indexed by level: window log, hash log, chain log, number of
+     * candidates which are searched, lazy matching depth and the match length at which the search stops.
+     */
+    static final int MIN_COMPRESSION_LEVEL = 1;
+    static final int MAX_COMPRESSION_LEVEL = 9;
+    static final int DEFAULT_COMPRESSION_LEVEL = 3;
+
+    static final int[][] COMPRESSION_PARAMETERS = {
+            null,
+            { 19, 15, 15, 2, 0, 16 },
+            { 20, 16, 16, 4, 0, 24 },
+            { 20, 16, 17, 6, 1, 32 },
+            { 21, 17, 18, 8, 1, 32 },
+            { 21, 17, 18, 16, 2, 48 },
+            { 22, 18, 19, 32, 2, 64 },
+            { 22, 18, 19, 64, 2, 96 },
+            { 22, 19, 20, 128, 2, 128 },
+            { 22, 19, 20, 256, 2, 256 } };
+
+    private ZstdConstants() { }
+}
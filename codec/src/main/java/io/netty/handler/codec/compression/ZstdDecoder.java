@@ -0,0 +1,406 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+
+import java.util.List;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+
+/**
+ * Uncompresses a {@link ByteBuf} encoded with the Zstandard format, for example by {@link ZstdEncoder}.
+ *
+ * See <a href="https://github.com/facebook/zstd">Zstandard</a>.
+ *
+ * Each decompressed block is passed on as soon as it was received. Concatenated and skippable frames are supported,
+ * as well as frames which were compressed with the dictionary given to the constructor. The decoder keeps the last
+ * window of decompressed data, so the maximum window size it accepts bounds the memory used per channel.
+ */
+public class ZstdDecoder extends ByteToMessageDecoder {
+    /**
+     * Current state of stream.
+     */
+    private enum State {
+        FRAME_HEADER,
+        SKIPPABLE_FRAME,
+        BLOCK_HEADER,
+        BLOCK,
+        CHECKSUM,
+        CORRUPTED
+    }
+
+    private State currentState = State.FRAME_HEADER;
+
+    /**
+     * The dictionary which is used if a frame asks for it, or {@code null}.
+     */
+    private final ZstdDictionary dictionary;
+
+    /**
+     * The largest window size which is accepted.
+     */
+    private final int maxWindowSize;
+
+    private final ZstdBlockDecompressor decompressor = new ZstdBlockDecompressor();
+    private final XxHash64 checksum = new XxHash64(0);
+
+    /**
+     * The decompressed data which may be referenced by the following blocks, preceded by the content of the
+     * dictionary at the beginning of a frame. The current block is decompressed at {@link #windowPosition}.
+     */
+    private byte[] window = EMPTY;
+    private int windowPosition;
+    private int retention;
+
+    /**
+     * Properties of the current frame.
+     */
+    private int maxBlockSize;
+    private boolean hasChecksum;
+    private long contentSize;
+    private long decompressedSize;
+
+    /**
+     * Properties of the current block.
+     */
+    private boolean lastBlock;
+    private int blockType;
+    private int blockSize;
+
+    /**
+     * Remaining length of the current skippable frame.
+     */
+    private long skipLength;
+
+    /**
+     * Copy of a compressed block if the received buffer has no accessible array.
+     */
+    private byte[] compressed;
+
+    private static final byte[] EMPTY = new byte[0];
+
+    /**
+     * Creates a new Zstandard decoder without dictionary.
+     */
+    public ZstdDecoder() {
+        this(null);
+    }
+
+    /**
+     * Creates a new Zstandard decoder with the specified dictionary.
+     *
+     * @param dictionary
+     *        the dictionary which was used to compress the data, either a dictionary trained by the reference
+     *        implementation or any raw data. {@code null} if no dictionary is used
+     */
+    public ZstdDecoder(byte[] dictionary) {
+        this(dictionary, DEFAULT_MAX_WINDOW_LOG);
+    }
+
+    /**
+     * Creates a new Zstandard decoder with the specified dictionary and window size limit.
+     *
+     * @param dictionary
+     *        the dictionary which was used to compress the data, either a dictionary trained by the reference
+     *        implementation or any raw data. {@code null} if no dictionary is used
+     * @param maxWindowLog
+     *        the base two logarithm of the largest window size which is accepted, 23 (8 MB) by default.
+     *        It must be between 10 and 30. Frames which need a larger window are rejected
+     */
+    public ZstdDecoder(byte[] dictionary, int maxWindowLog) {
+        if (maxWindowLog < MIN_WINDOW_LOG || maxWindowLog > MAX_WINDOW_LOG) {
+            throw new IllegalArgumentException(String.format(
+                    "maxWindowLog: %d (expected: %d-%d)", maxWindowLog, MIN_WINDOW_LOG, MAX_WINDOW_LOG));
+        }
+        this.dictionary = dictionary == null ? null : new ZstdDictionary(dictionary);
+        maxWindowSize = 1 << maxWindowLog;
+    }
+
+    @Override
+    protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        try {
+            switch (currentState) {
+            case FRAME_HEADER:
+                if (in.readableBytes() < MIN_FRAME_HEADER_LENGTH) {
+                    break;
+                }
+                final int idx = in.readerIndex();
+                final int magic = ByteBufUtil.swapInt(in.getInt(idx));
+                if ((magic & SKIPPABLE_MAGIC_MASK) == SKIPPABLE_MAGIC_NUMBER) {
+                    if (in.readableBytes() < SKIPPABLE_HEADER_LENGTH) {
+                        break;
+                    }
+                    skipLength = ByteBufUtil.swapInt(in.getInt(idx + 4)) & 0xFFFFFFFFL;
+                    in.skipBytes(SKIPPABLE_HEADER_LENGTH);
+                    currentState = State.SKIPPABLE_FRAME;
+                    break;
+                }
+                if (magic != MAGIC_NUMBER) {
+                    throw new DecompressionException("unexpected frame identifier");
+                }
+                if (!readFrameHeader(in, idx)) {
+                    break;
+                }
+                currentState = State.BLOCK_HEADER;
+            case BLOCK_HEADER:
+                if (in.readableBytes() < BLOCK_HEADER_LENGTH) {
+                    break;
+                }
+                final int blockHeader = ByteBufUtil.swapMedium(in.readUnsignedMedium()) & 0xFFFFFF;
+                lastBlock = (blockHeader & 1) != 0;
+                blockType = blockHeader >>> 1 & 3;
+                blockSize = blockHeader >>> 3;
+                if (blockType > BLOCK_TYPE_COMPRESSED) {
+                    throw new DecompressionException("reserved block type");
+                }
+                if (blockSize > maxBlockSize) {
+                    throw new DecompressionException(String.format(
+                            "invalid blockSize: %d (expected: 0-%d)", blockSize, maxBlockSize));
+                }
+                currentState = State.BLOCK;
+            case BLOCK:
+                final int length = blockType == BLOCK_TYPE_RLE ? 1 : blockSize;
+                if (in.readableBytes() < length) {
+                    break;
+                }
+                decodeBlock(ctx, in, out);
+                if (!lastBlock) {
+                    currentState = State.BLOCK_HEADER;
+                    break;
+                }
+                if (contentSize >= 0 && decompressedSize != contentSize) {
+                    throw new DecompressionException(String.format(
+                            "stream corrupted: frame content size %d but %d bytes decompressed",
+                            contentSize, decompressedSize));
+                }
+                if (!hasChecksum) {
+                    currentState = State.FRAME_HEADER;
+                    break;
+                }
+                currentState = State.CHECKSUM;
+            case CHECKSUM:
+                if (in.readableBytes() < CHECKSUM_LENGTH) {
+                    break;
+                }
+                final int expected = ByteBufUtil.swapInt(in.readInt());
+                final int actual = (int) checksum.value();
+                if (actual != expected) {
+                    throw new DecompressionException(String.format(
+                            "stream corrupted: mismatching checksum: %d (expected: %d)", actual, expected));
+                }
+                currentState = State.FRAME_HEADER;
+                break;
+            case SKIPPABLE_FRAME:
+                final int skip = (int) Math.min(skipLength, in.readableBytes());
+                in.skipBytes(skip);
+                skipLength -= skip;
+                if (skipLength == 0) {
+                    currentState = State.FRAME_HEADER;
+                }
+                break;
+            case CORRUPTED:
+                in.skipBytes(in.readableBytes());
+                break;
+            default:
+                throw new IllegalStateException();
+            }
+        } catch (Exception e) {
+            currentState = State.CORRUPTED;
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the frame header at {@code idx} and prepares the decompression of the frame. Returns {@code false} if
+     * the header was not received completely.
+     */
+    private boolean readFrameHeader(ByteBuf in, int idx) {
+        final int descriptor = in.getUnsignedByte(idx + 4);
+        final int contentSizeFlag = descriptor >>> 6;
+        final boolean singleSegment = (descriptor & 0x20) != 0;
+        final int dictionaryIdFlag = descriptor & 3;
+        if ((descriptor & 0x08) != 0) {
+            throw new DecompressionException("reserved bit of frame header is set");
+        }
+
+        final int dictionaryIdLength = dictionaryIdFlag == 3 ? 4 : dictionaryIdFlag;
+        final int contentSizeLength = contentSizeFlag == 0 ? singleSegment ? 1 : 0 : 1 << contentSizeFlag;
+        final int headerLength = MIN_FRAME_HEADER_LENGTH + (singleSegment ? 0 : 1) +
+                dictionaryIdLength + contentSizeLength;
+        if (in.readableBytes() < headerLength) {
+            return false;
+        }
+
+        int pos = idx + MIN_FRAME_HEADER_LENGTH;
+        long windowSize = 0;
+        if (!singleSegment) {
+            final int windowDescriptor = in.getUnsignedByte(pos ++);
+            final long windowBase = 1L << MIN_WINDOW_LOG + (windowDescriptor >>> 3);
+            windowSize = windowBase + (windowBase >>> 3) * (windowDescriptor & 7);
+        }
+
+        int dictionaryId = 0;
+        switch (dictionaryIdLength) {
+        case 1:
+            dictionaryId = in.getUnsignedByte(pos);
+            break;
+        case 2:
+            dictionaryId = in.getUnsignedByte(pos) | in.getUnsignedByte(pos + 1) << 8;
+            break;
+        case 4:
+            dictionaryId = ByteBufUtil.swapInt(in.getInt(pos));
+            break;
+        }
+        pos += dictionaryIdLength;
+
+        switch (contentSizeLength) {
+        case 0:
+            contentSize = -1;
+            break;
+        case 1:
+            contentSize = in.getUnsignedByte(pos);
+            break;
+        case 2:
+            contentSize = (in.getUnsignedByte(pos) | in.getUnsignedByte(pos + 1) << 8) + 256;
+            break;
+        case 4:
+            contentSize = ByteBufUtil.swapInt(in.getInt(pos)) & 0xFFFFFFFFL;
+            break;
+        default:
+            contentSize = ByteBufUtil.swapLong(in.getLong(pos));
+            if (contentSize < 0) {
+                throw new DecompressionException("frame content size too large");
+            }
+            break;
+        }
+        if (singleSegment) {
+            windowSize = contentSize;
+        }
+
+        if (windowSize > maxWindowSize) {
+            throw new DecompressionException(String.format(
+                    "window size too large: %d (expected: 0-%d)", windowSize, maxWindowSize));
+        }
+        final ZstdDictionary dictionary = this.dictionary;
+        if (dictionaryId != 0 && (dictionary == null || dictionary.id != dictionaryId)) {
+            throw new DecompressionException("unknown dictionary: " + dictionaryId);
+        }
+        in.skipBytes(headerLength);
+
+        // Start the history with the content of the dictionary.
+        maxBlockSize = (int) Math.min(windowSize, MAX_BLOCK_SIZE);
+        hasChecksum = (descriptor & 0x04) != 0;
+        decompressedSize = 0;
+        checksum.reset();
+        decompressor.reset(dictionary);
+        windowPosition = 0;
+        retention = (int) windowSize;
+        if (dictionary != null) {
+            final byte[] content = dictionary.content;
+            retention += content.length;
+            ensureWindowCapacity(content.length);
+            System.arraycopy(content, 0, window, 0, content.length);
+            windowPosition = content.length;
+        }
+        return true;
+    }
+
+    private void decodeBlock(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+        final int blockSize = this.blockSize;
+        ensureWindowCapacity(blockType == BLOCK_TYPE_COMPRESSED ? maxBlockSize : blockSize);
+        final byte[] window = this.window;
+        final int start = windowPosition;
+        final ByteBuf uncompressed;
+        switch (blockType) {
+        case BLOCK_TYPE_RAW:
+            final int idx = in.readerIndex();
+            in.getBytes(idx, window, start, blockSize);
+            uncompressed = in.slice(idx, blockSize).retain();
+            in.skipBytes(blockSize);
+            break;
+        case BLOCK_TYPE_RLE:
+            final byte value = in.readByte();
+            for (int i = 0; i < blockSize; i ++) {
+                window[start + i] = value;
+            }
+            uncompressed = ctx.alloc().buffer(blockSize).writeBytes(window, start, blockSize);
+            break;
+        default:
+            byte[] src;
+            int srcIndex;
+            if (in.hasArray()) {
+                src = in.array();
+                srcIndex = in.arrayOffset() + in.readerIndex();
+            } else {
+                src = compressed;
+                if (src == null) {
+                    src = compressed = new byte[MAX_BLOCK_SIZE];
+                }
+                srcIndex = 0;
+                in.getBytes(in.readerIndex(), src, 0, blockSize);
+            }
+            final int length = decompressor.decompress(src, srcIndex, blockSize,
+                    window, start, start + maxBlockSize, 0);
+            in.skipBytes(blockSize);
+            uncompressed = ctx.alloc().buffer(length).writeBytes(window, start, length);
+            break;
+        }
+
+        final int length = uncompressed.readableBytes();
+        windowPosition = start + length;
+        decompressedSize += length;
+        if (hasChecksum) {
+            checksum.update(window, start, length);
+        }
+        if (length > 0) {
+            out.add(uncompressed);
+        } else {
+            uncompressed.release();
+        }
+    }
+
+    /**
+     * Makes room for at least {@code length} bytes after {@link #windowPosition}, discarding the data which is not
+     * needed anymore.
+     */
+    private void ensureWindowCapacity(int length) {
+        final byte[] window = this.window;
+        if (windowPosition + length <= window.length) {
+            return;
+        }
+
+        final int retention = this.retention;
+        if (windowPosition > retention) {
+            final int shift = windowPosition - retention;
+            System.arraycopy(window, shift, window, 0, retention);
+            windowPosition = retention;
+            if (windowPosition + length <= window.length) {
+                return;
+            }
+        }
+
+        // Grow in steps, but never beyond twice the retained size so data is moved at most once per window.
+        final long limit = Math.min(2L * retention + maxBlockSize, Integer.MAX_VALUE - 8);
+        final long capacity = Math.max(windowPosition + length, Math.min(Math.max(window.length * 2L, 65536), limit));
+        final byte[] newWindow = new byte[(int) capacity];
+        System.arraycopy(window, 0, newWindow, 0, windowPosition);
+        this.window = newWindow;
+    }
+}
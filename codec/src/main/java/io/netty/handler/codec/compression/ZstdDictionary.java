@@ -0,0 +1,101 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * A dictionary which is shared by {@link ZstdEncoder} and {@link ZstdDecoder} to compress small messages better.
+ *
+ * The content of the dictionary is used as if it preceded the data of each frame. A dictionary which starts with
+ * {@link ZstdConstants#DICTIONARY_MAGIC_NUMBER}, like those which are trained by the reference implementation, also
+ * contains an identifier and the initial entropy tables and repeat offsets. Any other data is used as content as is.
+ */
+final class ZstdDictionary {
+
+    final int id;
+    final byte[] content;
+
+    final int[] repeatOffsets;
+    final int[] huffmanWeights;
+    final int huffmanSymbols;
+    final ZstdFse.Distribution literalsLengths;
+    final ZstdFse.Distribution offsets;
+    final ZstdFse.Distribution matchLengths;
+
+    ZstdDictionary(byte[] dictionary) {
+        if (dictionary == null) {
+            throw new NullPointerException("dictionary");
+        }
+
+        if (dictionary.length < 8 || getIntLE(dictionary, 0) != DICTIONARY_MAGIC_NUMBER) {
+            id = 0;
+            content = dictionary.clone();
+            repeatOffsets = INITIAL_REPEAT_OFFSETS;
+            huffmanWeights = null;
+            huffmanSymbols = 0;
+            literalsLengths = null;
+            offsets = null;
+            matchLengths = null;
+            return;
+        }
+
+        try {
+            id = getIntLE(dictionary, 4);
+            int offset = 8;
+            final int limit = dictionary.length;
+
+            huffmanWeights = new int[MAX_HUFFMAN_SYMBOL + 1];
+            int[] result = new int[1];
+            offset += ZstdHuffman.readWeights(dictionary, offset, limit, huffmanWeights, result);
+            huffmanSymbols = result[0];
+
+            offsets = new ZstdFse.Distribution();
+            offset += offsets.read(dictionary, offset, limit, MAX_OFFSET_SYMBOL, OFFSET_TABLE_LOG);
+            matchLengths = new ZstdFse.Distribution();
+            offset += matchLengths.read(dictionary, offset, limit, MAX_MATCH_LENGTH_SYMBOL, MATCH_LENGTH_TABLE_LOG);
+            literalsLengths = new ZstdFse.Distribution();
+            offset += literalsLengths.read(
+                    dictionary, offset, limit, MAX_LITERALS_LENGTH_SYMBOL, LITERALS_LENGTH_TABLE_LOG);
+
+            if (offset + 12 > limit) {
+                throw new DecompressionException("truncated repeat offsets");
+            }
+            final int contentLength = limit - offset - 12;
+            repeatOffsets = new int[3];
+            for (int i = 0; i < 3; i ++) {
+                repeatOffsets[i] = getIntLE(dictionary, offset);
+                offset += 4;
+                if (repeatOffsets[i] <= 0 || repeatOffsets[i] > contentLength) {
+                    throw new DecompressionException("invalid repeat offset: " + repeatOffsets[i]);
+                }
+            }
+
+            content = new byte[contentLength];
+            System.arraycopy(dictionary, offset, content, 0, content.length);
+        } catch (DecompressionException e) {
+            throw new IllegalArgumentException("invalid dictionary", e);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the dictionary contains entropy tables.
+     */
+    boolean hasEntropyTables() {
+        return huffmanWeights != null;
+    }
+}
@@ -0,0 +1,343 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ChannelPromiseNotifier;
+import io.netty.handler.codec.MessageToByteEncoder;
+import io.netty.util.concurrent.EventExecutor;
+
+import java.util.concurrent.TimeUnit;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Compresses a {@link ByteBuf} using the Zstandard format.
+ *
+ * See <a href="https://github.com/facebook/zstd">Zstandard</a>.
+ *
+ * The written data is a single Zstandard frame, which is split into blocks of up to 128 KB independent of the
+ * boundaries of the written {@link ByteBuf}s. Matches may refer to all data of the previous window, so repetitions
+ * across messages are compressed as well. Whatever is buffered is written as a smaller block once the channel is
+ * flushed, so no data is held back.
+ *
+ * Small messages compress much better with a dictionary of typical content, which must be given to the
+ * {@link ZstdDecoder} as well. Both dictionaries trained by the reference implementation and any raw data can be used.
+ */
+public class ZstdEncoder extends MessageToByteEncoder<ByteBuf> {
+
+    private static final byte[] EMPTY = new byte[0];
+
+    private final int compressionLevel;
+
+    /**
+     * The dictionary, or {@code null}.
+     */
+    private final ZstdDictionary dictionary;
+
+    /**
+     * The compressor, which is created when the frame is started.
+     */
+    private ZstdBlockCompressor compressor;
+
+    /**
+     * The data which may be referenced by matches, followed by the data of the current block between
+     * {@link #blockStart} and {@link #position}.
+     */
+    private byte[] history = EMPTY;
+    private int blockStart;
+    private int position;
+
+    /**
+     * The compressed data of the current block.
+     */
+    private byte[] compressed;
+
+    /**
+     * Indicates if the compressed stream has been finished.
+     */
+    private volatile boolean finished;
+
+    /**
+     * Used to interact with its {@link io.netty.channel.ChannelPipeline} and other handlers.
+     */
+    private volatile ChannelHandlerContext ctx;
+
+    /**
+     * Creates a new Zstandard encoder with the default compression level ({@code 3}).
+     */
+    public ZstdEncoder() {
+        this(DEFAULT_COMPRESSION_LEVEL);
+    }
+
+    /**
+     * Creates a new Zstandard encoder with the specified compression level.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the best compression.
+     *        The default compression level is {@code 3}.
+     */
+    public ZstdEncoder(int compressionLevel) {
+        this(compressionLevel, null);
+    }
+
+    /**
+     * Creates a new Zstandard encoder with the specified compression level and dictionary.
+     *
+     * @param compressionLevel
+     *        {@code 1} yields the fastest compression and {@code 9} yields the best compression.
+     *        The default compression level is {@code 3}.
+     * @param dictionary
+     *        the dictionary, either a dictionary trained by the reference implementation or any raw data which is
+     *        typical for the compressed data. {@code null} if no dictionary is used
+     */
+    public ZstdEncoder(int compressionLevel, byte[] dictionary) {
+        if (compressionLevel < MIN_COMPRESSION_LEVEL || compressionLevel > MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException(String.format(
+                    "compressionLevel: %d (expected: %d-%d)",
+                    compressionLevel, MIN_COMPRESSION_LEVEL, MAX_COMPRESSION_LEVEL));
+        }
+        this.compressionLevel = compressionLevel;
+        this.dictionary = dictionary == null ? null : new ZstdDictionary(dictionary);
+    }
+
+    @Override
+    protected void encode(ChannelHandlerContext ctx, ByteBuf in, ByteBuf out) throws Exception {
+        if (finished) {
+            out.writeBytes(in);
+            return;
+        }
+
+        if (compressor == null) {
+            startFrame(out);
+        }
+        int length;
+        while ((length = in.readableBytes()) > 0) {
+            length = Math.min(length, MAX_BLOCK_SIZE - (position - blockStart));
+            ensureCapacity(length);
+            in.readBytes(history, position, length);
+            position += length;
+            if (position - blockStart == MAX_BLOCK_SIZE) {
+                compressBlock(out, false);
+            }
+        }
+    }
+
+    @Override
+    protected ByteBuf allocateBuffer(ChannelHandlerContext ctx, ByteBuf msg, boolean preferDirect) {
+        int size;
+        if (finished) {
+            size = msg.readableBytes();
+        } else {
+            int blocks = (position - blockStart + msg.readableBytes()) / MAX_BLOCK_SIZE;
+            size = MAX_FRAME_HEADER_LENGTH + blocks * (BLOCK_HEADER_LENGTH + MAX_BLOCK_SIZE);
+        }
+        if (preferDirect) {
+            return ctx.alloc().ioBuffer(size);
+        } else {
+            return ctx.alloc().heapBuffer(size);
+        }
+    }
+
+    /**
+     * Writes the frame header and puts the content of the dictionary into the history.
+     */
+    private void startFrame(ByteBuf out) {
+        final ZstdBlockCompressor compressor = new ZstdBlockCompressor(compressionLevel, dictionary);
+        this.compressor = compressor;
+        final int windowSize = compressor.windowSize();
+        final int dictionaryId = dictionary != null ? dictionary.id : 0;
+
+        out.writeInt(ByteBufUtil.swapInt(MAGIC_NUMBER));
+        out.writeByte(dictionaryId != 0 ? 3 : 0);
+        out.writeByte(highestBit(windowSize) - MIN_WINDOW_LOG << 3);
+        if (dictionaryId != 0) {
+            out.writeInt(ByteBufUtil.swapInt(dictionaryId));
+        }
+
+        if (dictionary != null) {
+            final byte[] content = dictionary.content;
+            final int length = Math.min(content.length, windowSize);
+            ensureCapacity(length);
+            System.arraycopy(content, content.length - length, history, 0, length);
+            blockStart = position = length;
+        }
+    }
+
+    /**
+     * Makes room for {@code length} more bytes of the current block, moving the last window to the start of the
+     * history once it is full.
+     */
+    private void ensureCapacity(int length) {
+        byte[] history = this.history;
+        if (position + length <= history.length) {
+            return;
+        }
+
+        // The history holds up to two windows, so the data of a window is moved only once.
+        final int windowSize = compressor.windowSize();
+        final int maxCapacity = 2 * windowSize + MAX_BLOCK_SIZE;
+        if (history.length < maxCapacity) {
+            final int capacity = Math.min(Math.max(Math.max(history.length << 1, position + length), 65536),
+                    maxCapacity);
+            final byte[] newHistory = new byte[capacity];
+            System.arraycopy(history, 0, newHistory, 0, position);
+            this.history = history = newHistory;
+        }
+        if (position + length > history.length) {
+            final int shift = blockStart - windowSize;
+            System.arraycopy(history, shift, history, 0, position - shift);
+            blockStart -= shift;
+            position -= shift;
+            compressor.slide(shift);
+        }
+    }
+
+    private void compressBlock(ByteBuf out, boolean last) {
+        final int length = position - blockStart;
+        int compressedLength = -1;
+        if (length > 0) {
+            byte[] compressed = this.compressed;
+            if (compressed == null) {
+                this.compressed = compressed = new byte[MAX_BLOCK_SIZE];
+            }
+            // Blocks which do not get smaller are stored uncompressed.
+            compressedLength = compressor.compress(history, blockStart, position, compressed, 0, length - 1);
+        }
+
+        out.ensureWritable(BLOCK_HEADER_LENGTH + length);
+        final int lastBlock = last ? 1 : 0;
+        if (compressedLength < 0) {
+            out.writeMedium(ByteBufUtil.swapMedium(length << 3 | BLOCK_TYPE_RAW << 1 | lastBlock));
+            out.writeBytes(history, blockStart, length);
+        } else {
+            out.writeMedium(ByteBufUtil.swapMedium(compressedLength << 3 | BLOCK_TYPE_COMPRESSED << 1 | lastBlock));
+            out.writeBytes(compressed, 0, compressedLength);
+        }
+        blockStart = position;
+    }
+
+    @Override
+    public void flush(ChannelHandlerContext ctx) throws Exception {
+        final int length = position - blockStart;
+        if (!finished && length > 0) {
+            ByteBuf out = ctx.alloc().buffer(BLOCK_HEADER_LENGTH + length);
+            compressBlock(out, false);
+            ctx.write(out);
+        }
+        ctx.flush();
+    }
+
+    private ChannelFuture finishEncode(final ChannelHandlerContext ctx, ChannelPromise promise) {
+        if (finished) {
+            promise.setSuccess();
+            return promise;
+        }
+        finished = true;
+
+        final ByteBuf footer = ctx.alloc().heapBuffer(
+                MAX_FRAME_HEADER_LENGTH + BLOCK_HEADER_LENGTH + position - blockStart);
+        if (compressor == null) {
+            startFrame(footer);
+        }
+        compressBlock(footer, true);
+
+        compressor = null;
+        history = EMPTY;
+        compressed = null;
+
+        return ctx.writeAndFlush(footer, promise);
+    }
+
+    /**
+     * Returns {@code true} if and only if the compressed stream has been finished.
+     */
+    public boolean isClosed() {
+        return finished;
+    }
+
+    /**
+     * Close this {@link ZstdEncoder} and so finish the encoding.
+     *
+     * The returned {@link ChannelFuture} will be notified once the operation completes.
+     */
+    public ChannelFuture close() {
+        return close(ctx().newPromise());
+    }
+
+    /**
+     * Close this {@link ZstdEncoder} and so finish the encoding.
+     * The given {@link ChannelFuture} will be notified once the operation
+     * completes and will also be returned.
+     */
+    public ChannelFuture close(final ChannelPromise promise) {
+        ChannelHandlerContext ctx = ctx();
+        EventExecutor executor = ctx.executor();
+        if (executor.inEventLoop()) {
+            return finishEncode(ctx, promise);
+        } else {
+            final ChannelPromise p = ctx.newPromise();
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    ChannelFuture f = finishEncode(ctx(), p);
+                    f.addListener(new ChannelPromiseNotifier(promise));
+                }
+            });
+            return p;
+        }
+    }
+
+    @Override
+    public void close(final ChannelHandlerContext ctx, final ChannelPromise promise) throws Exception {
+        ChannelFuture f = finishEncode(ctx, ctx.newPromise());
+        f.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture f) throws Exception {
+                ctx.close(promise);
+            }
+        });
+
+        if (!f.isDone()) {
+            // Ensure the channel is closed even if the write operation completes in time.
+            ctx.executor().schedule(new Runnable() {
+                @Override
+                public void run() {
+                    ctx.close(promise);
+                }
+            }, 10, TimeUnit.SECONDS); // FIXME: Magic number
+        }
+    }
+
+    private ChannelHandlerContext ctx() {
+        ChannelHandlerContext ctx = this.ctx;
+        if (ctx == null) {
+            throw new IllegalStateException("not added to a pipeline");
+        }
+        return ctx;
+    }
+
+    @Override
+    public void handlerAdded(ChannelHandlerContext ctx) throws Exception {
+        this.ctx = ctx;
+    }
+}
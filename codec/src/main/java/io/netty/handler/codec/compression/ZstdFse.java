@@ -0,0 +1,444 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Finite State Entropy coding as used by the Zstandard format for the symbols of sequences and for the weights of
+ * Huffman trees.
+ *
+ * See <a href="https://github.com/Cyan4973/FiniteStateEntropy">FiniteStateEntropy</a>.
+ */
+final class ZstdFse {
+
+    /**
+     * The highest symbol of any distribution.
+     */
+    private static final int MAX_SYMBOL = 63;
+
+    /**
+     * A normalized distribution of symbols, whose probabilities add up to {@code 1 << tableLog}. A probability of
+     * {@code -1} stands for a symbol which is less probable than {@code 1 / (1 << tableLog)}.
+     */
+    static final class Distribution {
+        final short[] counts = new short[MAX_SYMBOL + 1];
+        int maxSymbol;
+        int tableLog;
+
+        void set(short[] counts, int tableLog) {
+            System.arraycopy(counts, 0, this.counts, 0, counts.length);
+            maxSymbol = counts.length - 1;
+            this.tableLog = tableLog;
+        }
+
+        void set(Distribution distribution) {
+            System.arraycopy(distribution.counts, 0, counts, 0, distribution.maxSymbol + 1);
+            maxSymbol = distribution.maxSymbol;
+            tableLog = distribution.tableLog;
+        }
+
+        /**
+         * Returns {@code true} if all symbols of the given histogram can be encoded with this distribution.
+         */
+        boolean covers(int[] histogram, int maxSymbol) {
+            if (maxSymbol > this.maxSymbol) {
+                return false;
+            }
+            for (int s = 0; s <= maxSymbol; s ++) {
+                if (histogram[s] != 0 && counts[s] == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Returns the estimated number of bits which are needed to encode the given histogram with this
+         * distribution, or {@code -1} if it does not cover all symbols.
+         */
+        int cost(int[] histogram, int maxSymbol) {
+            if (!covers(histogram, maxSymbol)) {
+                return -1;
+            }
+            double bits = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                int count = histogram[s];
+                if (count != 0) {
+                    bits += count * (tableLog - Math.log(Math.abs(counts[s])) / Math.log(2));
+                }
+            }
+            return (int) Math.ceil(bits);
+        }
+
+        /**
+         * Normalizes the given histogram of {@code total} symbols to the given table log.
+         */
+        void normalize(int[] histogram, int maxSymbol, int total, int tableLog) {
+            final int tableSize = 1 << tableLog;
+            final int lowThreshold = total >>> tableLog;
+            int remaining = tableSize;
+            int largest = 0;
+            int largestCount = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                final int count = histogram[s];
+                if (count > largestCount) {
+                    largestCount = count;
+                    largest = s;
+                }
+                if (count == 0) {
+                    counts[s] = 0;
+                } else if (count <= lowThreshold) {
+                    counts[s] = -1;
+                    remaining --;
+                } else {
+                    final long scaled = (long) count << tableLog;
+                    int probability = (int) (scaled / total);
+                    if (probability < 8 && (scaled - (long) probability * total) * 2 >= total) {
+                        // Round up small probabilities, their relative error matters most.
+                        probability ++;
+                    }
+                    counts[s] = (short) probability;
+                    remaining -= probability;
+                }
+            }
+
+            // Give or take what is left to the most probable symbols.
+            while (remaining > 0) {
+                counts[largest] ++;
+                remaining --;
+            }
+            while (remaining < 0) {
+                int max = 1;
+                int maxIndex = -1;
+                for (int s = 0; s <= maxSymbol; s ++) {
+                    if (counts[s] > max) {
+                        max = counts[s];
+                        maxIndex = s;
+                    }
+                }
+                int n = Math.min(-remaining, (max + 1) / 2);
+                counts[maxIndex] -= n;
+                remaining += n;
+            }
+            this.maxSymbol = maxSymbol;
+            this.tableLog = tableLog;
+        }
+
+        /**
+         * Reads the description of a distribution and returns the number of bytes which were read.
+         */
+        int read(byte[] src, int offset, int limit, int maxSymbol, int maxTableLog) {
+            if (offset >= limit) {
+                throw new DecompressionException("truncated FSE table description");
+            }
+            int bitPosition = 0;
+            final int tableLog = (src[offset] & 0x0F) + MIN_TABLE_LOG;
+            if (tableLog > maxTableLog) {
+                throw new DecompressionException(String.format(
+                        "FSE table log too large: %d (expected: %d-%d)", tableLog, MIN_TABLE_LOG, maxTableLog));
+            }
+            bitPosition += 4;
+
+            int remaining = (1 << tableLog) + 1;
+            int threshold = 1 << tableLog;
+            int nbBits = tableLog + 1;
+            int symbol = 0;
+            boolean previousIsZero = false;
+            while (remaining > 1) {
+                if (previousIsZero) {
+                    // A zero probability is followed by the number of further symbols with zero probability.
+                    int end = symbol;
+                    int repeat;
+                    do {
+                        repeat = readBitsLE(src, offset, limit, bitPosition) & 3;
+                        bitPosition += 2;
+                        end += repeat;
+                    } while (repeat == 3);
+                    if (end > maxSymbol) {
+                        throw new DecompressionException("too many symbols in FSE table description");
+                    }
+                    while (symbol < end) {
+                        counts[symbol ++] = 0;
+                    }
+                }
+                if (symbol > maxSymbol) {
+                    throw new DecompressionException("too many symbols in FSE table description");
+                }
+
+                final int bits = readBitsLE(src, offset, limit, bitPosition);
+                final int max = 2 * threshold - 1 - remaining;
+                int count;
+                if ((bits & threshold - 1) < max) {
+                    count = bits & threshold - 1;
+                    bitPosition += nbBits - 1;
+                } else {
+                    count = bits & 2 * threshold - 1;
+                    if (count >= threshold) {
+                        count -= max;
+                    }
+                    bitPosition += nbBits;
+                }
+
+                count --;
+                remaining -= Math.abs(count);
+                counts[symbol ++] = (short) count;
+                previousIsZero = count == 0;
+                while (remaining < threshold) {
+                    nbBits --;
+                    threshold >>>= 1;
+                }
+            }
+            final int length = bitPosition + 7 >>> 3;
+            if (remaining != 1 || offset + length > limit) {
+                throw new DecompressionException("corrupted FSE table description");
+            }
+            this.maxSymbol = symbol - 1;
+            this.tableLog = tableLog;
+            return length;
+        }
+
+        /**
+         * Writes the description of this distribution and returns the position after the last byte.
+         */
+        int write(ZstdBitWriter writer) {
+            final int tableSize = 1 << tableLog;
+            writer.addBits(tableLog - MIN_TABLE_LOG, 4);
+
+            int remaining = tableSize + 1;
+            int threshold = tableSize;
+            int nbBits = tableLog + 1;
+            int symbol = 0;
+            boolean previousIsZero = false;
+            while (symbol <= maxSymbol && remaining > 1) {
+                if (previousIsZero) {
+                    int start = symbol;
+                    while (counts[symbol] == 0) {
+                        symbol ++;
+                    }
+                    while (symbol >= start + 3) {
+                        start += 3;
+                        writer.addBits(3, 2);
+                        writer.flush();
+                    }
+                    writer.addBits(symbol - start, 2);
+                }
+
+                int count = counts[symbol ++];
+                final int max = 2 * threshold - 1 - remaining;
+                remaining -= Math.abs(count);
+                count ++;
+                if (count >= threshold) {
+                    count += max;
+                }
+                // Small values are written without their highest bit, which is zero.
+                writer.addBits(count, count < max ? nbBits - 1 : nbBits);
+                previousIsZero = count == 1;
+                while (remaining < threshold) {
+                    nbBits --;
+                    threshold >>>= 1;
+                }
+                writer.flush();
+            }
+            return writer.finish();
+        }
+    }
+
+    /**
+     * Returns the table log to use for a distribution of {@code total} symbols up to {@code maxSymbol}. Small inputs
+     * get small tables, as describing a larger table would cost more than it saves.
+     */
+    static int optimalTableLog(int maxTableLog, int total, int maxSymbol) {
+        int tableLog = Math.min(maxTableLog, highestBit(total - 1) - 2);
+        final int minTableLog = Math.min(highestBit(total) + 1, highestBit(maxSymbol) + 2);
+        tableLog = Math.max(tableLog, minTableLog);
+        return Math.max(MIN_TABLE_LOG, Math.min(tableLog, maxTableLog));
+    }
+
+    /**
+     * Spreads the symbols of the given distribution over a table of states, the same way for encoding and decoding.
+     * Symbols with a probability of {@code -1} are put at the end of the table and the position after the last
+     * spread symbol is returned, which is the highest state of the other symbols.
+     */
+    private static int spreadSymbols(Distribution distribution, int[] symbols) {
+        final short[] counts = distribution.counts;
+        final int tableSize = 1 << distribution.tableLog;
+        final int tableMask = tableSize - 1;
+        int highThreshold = tableSize - 1;
+        for (int s = 0; s <= distribution.maxSymbol; s ++) {
+            if (counts[s] == -1) {
+                symbols[highThreshold --] = s;
+            }
+        }
+
+        final int step = (tableSize >>> 1) + (tableSize >>> 3) + 3;
+        int position = 0;
+        for (int s = 0; s <= distribution.maxSymbol; s ++) {
+            for (int i = 0; i < counts[s]; i ++) {
+                symbols[position] = s;
+                do {
+                    position = position + step & tableMask;
+                } while (position > highThreshold);
+            }
+        }
+        if (position != 0) {
+            throw new DecompressionException("invalid FSE distribution");
+        }
+        return highThreshold;
+    }
+
+    /**
+     * The table which is used to decode symbols. The state is an index into the table.
+     */
+    static final class DecodingTable {
+        final int[] symbols;
+        final int[] nbBits;
+        final int[] newStates;
+        int tableLog;
+        private final int[] nextStates = new int[MAX_SYMBOL + 1];
+
+        DecodingTable(int maxTableLog) {
+            symbols = new int[1 << maxTableLog];
+            nbBits = new int[1 << maxTableLog];
+            newStates = new int[1 << maxTableLog];
+        }
+
+        void build(Distribution distribution) {
+            final short[] counts = distribution.counts;
+            final int tableLog = distribution.tableLog;
+            final int tableSize = 1 << tableLog;
+            final int[] nextStates = this.nextStates;
+            for (int s = 0; s <= distribution.maxSymbol; s ++) {
+                nextStates[s] = counts[s] == -1 ? 1 : counts[s];
+            }
+            spreadSymbols(distribution, symbols);
+
+            for (int u = 0; u < tableSize; u ++) {
+                final int symbol = symbols[u];
+                final int nextState = nextStates[symbol] ++;
+                final int bits = tableLog - highestBit(nextState);
+                nbBits[u] = bits;
+                newStates[u] = (nextState << bits) - tableSize;
+            }
+            this.tableLog = tableLog;
+        }
+
+        /**
+         * Sets up a table which always decodes the given symbol without reading any bits.
+         */
+        void setRle(int symbol) {
+            symbols[0] = symbol;
+            nbBits[0] = 0;
+            newStates[0] = 0;
+            tableLog = 0;
+        }
+    }
+
+    /**
+     * The table which is used to encode symbols. The state is the index of the next decoding state plus the size of
+     * the table.
+     */
+    static final class EncodingTable {
+        final int[] stateTable;
+        final int[] deltaNbBits = new int[MAX_SYMBOL + 1];
+        final int[] deltaFindState = new int[MAX_SYMBOL + 1];
+        int tableLog;
+        private final int[] symbols;
+        private final int[] cumulative = new int[MAX_SYMBOL + 2];
+
+        EncodingTable(int maxTableLog) {
+            stateTable = new int[1 << maxTableLog];
+            symbols = new int[1 << maxTableLog];
+        }
+
+        void build(Distribution distribution) {
+            final short[] counts = distribution.counts;
+            final int maxSymbol = distribution.maxSymbol;
+            final int tableLog = distribution.tableLog;
+            final int tableSize = 1 << tableLog;
+            final int[] cumulative = this.cumulative;
+
+            cumulative[0] = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                cumulative[s + 1] = cumulative[s] + (counts[s] == -1 ? 1 : counts[s]);
+            }
+            spreadSymbols(distribution, symbols);
+            for (int u = 0; u < tableSize; u ++) {
+                stateTable[cumulative[symbols[u]] ++] = tableSize + u;
+            }
+
+            int total = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                final int count = counts[s];
+                if (count == 0) {
+                    deltaNbBits[s] = (tableLog + 1 << 16) - tableSize;
+                } else if (count == -1 || count == 1) {
+                    deltaNbBits[s] = (tableLog << 16) - tableSize;
+                    deltaFindState[s] = total - 1;
+                    total ++;
+                } else {
+                    final int maxBitsOut = tableLog - highestBit(count - 1);
+                    final int minStatePlus = count << maxBitsOut;
+                    deltaNbBits[s] = (maxBitsOut << 16) - minStatePlus;
+                    deltaFindState[s] = total - count;
+                    total += count;
+                }
+            }
+            this.tableLog = tableLog;
+        }
+
+        /**
+         * Returns the initial state for the last symbol to encode. The state is chosen so the decoder reads at
+         * least one bit when it updates the state.
+         */
+        int init(int symbol) {
+            final int nbBitsOut = deltaNbBits[symbol] + (1 << 15) >>> 16;
+            final int value = (nbBitsOut << 16) - deltaNbBits[symbol];
+            return stateTable[(value >>> nbBitsOut) + deltaFindState[symbol]];
+        }
+
+        /**
+         * Writes the bits of the given state which are needed to encode the given symbol and returns the new state.
+         */
+        int encode(ZstdBitWriter writer, int state, int symbol) {
+            final int nbBitsOut = state + deltaNbBits[symbol] >>> 16;
+            writer.addBits(state, nbBitsOut);
+            return stateTable[(state >>> nbBitsOut) + deltaFindState[symbol]];
+        }
+
+        /**
+         * Writes the final state, which the decoder reads first.
+         */
+        void flush(ZstdBitWriter writer, int state) {
+            writer.addBits(state, tableLog);
+        }
+    }
+
+    /**
+     * Reads up to 25 bits of a little endian bit stream, bytes beyond {@code limit} are read as zeros.
+     */
+    private static int readBitsLE(byte[] src, int offset, int limit, int bitPosition) {
+        int index = offset + (bitPosition >>> 3);
+        int value = 0;
+        for (int i = 0; i < 4 && index + i < limit; i ++) {
+            value |= (src[index + i] & 0xFF) << (i << 3);
+        }
+        return value >>> (bitPosition & 7);
+    }
+
+    private ZstdFse() { }
+}
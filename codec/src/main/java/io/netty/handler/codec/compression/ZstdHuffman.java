@@ -0,0 +1,590 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import java.util.Arrays;
+
+import static io.netty.handler.codec.compression.ZstdConstants.*;
+import static io.netty.handler.codec.compression.ZstdUtil.*;
+
+/**
+ * Huffman coding of the literals of the Zstandard format.
+ *
+ * A Huffman tree is described by the weights of its symbols. A symbol of weight {@code w > 0} is encoded with
+ * {@code maxBits + 1 - w} bits, the weight of the last symbol is not part of the description as it follows from the
+ * others. The weights are either stored as 4 bit values or compressed with {@link ZstdFse}.
+ */
+final class ZstdHuffman {
+
+    /**
+     * Highest weight which can be used.
+     */
+    private static final int MAX_WEIGHT = MAX_HUFFMAN_BITS;
+
+    /**
+     * Maximum number of weights which can be stored as 4 bit values.
+     */
+    private static final int MAX_DIRECT_WEIGHTS = 128;
+
+    /**
+     * Reads the description of a Huffman tree into {@code weights}, including the weight of the last symbol.
+     * Returns the number of bytes which were read and the number of symbols in {@code result}.
+     */
+    static int readWeights(byte[] src, int offset, int limit, int[] weights, int[] result) {
+        if (offset >= limit) {
+            throw new DecompressionException("truncated Huffman tree description");
+        }
+        final int header = src[offset] & 0xFF;
+        int numWeights;
+        int length;
+        if (header < 128) {
+            length = 1 + header;
+            if (offset + length > limit) {
+                throw new DecompressionException("truncated Huffman tree description");
+            }
+            numWeights = decompressWeights(src, offset + 1, offset + length, weights);
+        } else {
+            numWeights = header - 127;
+            length = 1 + (numWeights + 1) / 2;
+            if (offset + length > limit) {
+                throw new DecompressionException("truncated Huffman tree description");
+            }
+            for (int i = 0; i < numWeights; i += 2) {
+                final int b = src[offset + 1 + i / 2] & 0xFF;
+                weights[i] = b >>> 4;
+                weights[i + 1] = b & 0x0F;
+            }
+        }
+
+        int weightSum = 0;
+        for (int i = 0; i < numWeights; i ++) {
+            final int weight = weights[i];
+            if (weight > MAX_WEIGHT) {
+                throw new DecompressionException("invalid Huffman weight: " + weight);
+            }
+            if (weight > 0) {
+                weightSum += 1 << weight - 1;
+            }
+        }
+        if (weightSum == 0) {
+            throw new DecompressionException("empty Huffman tree");
+        }
+        final int maxBits = highestBit(weightSum) + 1;
+        final int rest = (1 << maxBits) - weightSum;
+        if (maxBits > MAX_HUFFMAN_BITS || (rest & rest - 1) != 0) {
+            throw new DecompressionException("invalid Huffman tree");
+        }
+        weights[numWeights] = highestBit(rest) + 1;
+        result[0] = numWeights + 1;
+        return length;
+    }
+
+    private static int decompressWeights(byte[] src, int offset, int limit, int[] weights) {
+        final ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+        offset += distribution.read(src, offset, limit, MAX_WEIGHT, MAX_WEIGHTS_TABLE_LOG);
+        final ZstdFse.DecodingTable table = new ZstdFse.DecodingTable(MAX_WEIGHTS_TABLE_LOG);
+        table.build(distribution);
+        final int[] symbols = table.symbols;
+        final int[] nbBits = table.nbBits;
+        final int[] newStates = table.newStates;
+
+        final ZstdBitReader reader = new ZstdBitReader();
+        reader.init(src, offset, limit);
+        int state1 = reader.readBits(table.tableLog);
+        int state2 = reader.readBits(table.tableLog);
+        reader.reload();
+
+        // Two interleaved states take turns until the bit stream is exhausted.
+        int n = 0;
+        for (;;) {
+            if (n > MAX_HUFFMAN_SYMBOL - 2) {
+                throw new DecompressionException("too many Huffman weights");
+            }
+            weights[n ++] = symbols[state1];
+            state1 = newStates[state1] + reader.readBits(nbBits[state1]);
+            reader.reload();
+            if (reader.isOverflow()) {
+                weights[n ++] = symbols[state2];
+                break;
+            }
+
+            weights[n ++] = symbols[state2];
+            state2 = newStates[state2] + reader.readBits(nbBits[state2]);
+            reader.reload();
+            if (reader.isOverflow()) {
+                weights[n ++] = symbols[state1];
+                break;
+            }
+        }
+        return n;
+    }
+
+    /**
+     * The table which is used to decode literals, indexed by the next {@link #maxBits} bits of the stream.
+     */
+    static final class DecodingTable {
+        private final byte[] symbols = new byte[1 << MAX_HUFFMAN_BITS];
+        private final byte[] nbBits = new byte[1 << MAX_HUFFMAN_BITS];
+        private final int[] weights = new int[MAX_HUFFMAN_SYMBOL + 1];
+        private final int[] rankStart = new int[MAX_WEIGHT + 1];
+        private final int[] result = new int[1];
+        private final ZstdBitReader reader = new ZstdBitReader();
+        private int maxBits;
+
+        /**
+         * Reads the description of a Huffman tree, builds the table and returns the number of bytes read.
+         */
+        int read(byte[] src, int offset, int limit) {
+            final int length = readWeights(src, offset, limit, weights, result);
+            build(weights, result[0]);
+            return length;
+        }
+
+        void build(int[] weights, int numSymbols) {
+            final int[] rankStart = this.rankStart;
+            Arrays.fill(rankStart, 0);
+            int weightSum = 0;
+            for (int s = 0; s < numSymbols; s ++) {
+                rankStart[weights[s]] ++;
+                if (weights[s] > 0) {
+                    weightSum += 1 << weights[s] - 1;
+                }
+            }
+            final int maxBits = highestBit(weightSum);
+
+            // Symbols of low weight come first, each taking 1 << (weight - 1) entries.
+            int next = 0;
+            for (int w = 1; w <= maxBits; w ++) {
+                final int count = rankStart[w];
+                rankStart[w] = next;
+                next += count << w - 1;
+            }
+            for (int s = 0; s < numSymbols; s ++) {
+                final int weight = weights[s];
+                if (weight == 0) {
+                    continue;
+                }
+                final int start = rankStart[weight];
+                final int end = start + (1 << weight - 1);
+                Arrays.fill(symbols, start, end, (byte) s);
+                Arrays.fill(nbBits, start, end, (byte) (maxBits + 1 - weight));
+                rankStart[weight] = end;
+            }
+            this.maxBits = maxBits;
+        }
+
+        /**
+         * Decodes {@code dstLength} literals from one or four streams.
+         */
+        void decompress(byte[] src, int srcIndex, int srcLength, byte[] dst, int dstIndex, int dstLength,
+                        boolean fourStreams) {
+            if (!fourStreams) {
+                decompressStream(src, srcIndex, srcIndex + srcLength, dst, dstIndex, dstLength);
+                return;
+            }
+
+            if (srcLength < 10) {
+                throw new DecompressionException("truncated Huffman streams");
+            }
+            final int length1 = getShortLE(src, srcIndex);
+            final int length2 = getShortLE(src, srcIndex + 2);
+            final int length3 = getShortLE(src, srcIndex + 4);
+            final int start1 = srcIndex + 6;
+            final int start2 = start1 + length1;
+            final int start3 = start2 + length2;
+            final int start4 = start3 + length3;
+            final int end = srcIndex + srcLength;
+            if (start4 >= end) {
+                throw new DecompressionException("invalid Huffman jump table");
+            }
+
+            final int segment = (dstLength + 3) / 4;
+            if (dstLength < 6) {
+                throw new DecompressionException("too few literals for four Huffman streams");
+            }
+            decompressStream(src, start1, start2, dst, dstIndex, segment);
+            decompressStream(src, start2, start3, dst, dstIndex + segment, segment);
+            decompressStream(src, start3, start4, dst, dstIndex + 2 * segment, segment);
+            decompressStream(src, start4, end, dst, dstIndex + 3 * segment, dstLength - 3 * segment);
+        }
+
+        private void decompressStream(byte[] src, int start, int end, byte[] dst, int dstIndex, int length) {
+            final ZstdBitReader reader = this.reader;
+            final byte[] symbols = this.symbols;
+            final byte[] nbBits = this.nbBits;
+            final int maxBits = this.maxBits;
+            reader.init(src, start, end);
+
+            final int dstEnd = dstIndex + length;
+            int i = dstIndex;
+            while (i < dstEnd - 4) {
+                int v = reader.peekBits(maxBits);
+                dst[i] = symbols[v];
+                reader.skipBits(nbBits[v]);
+                v = reader.peekBits(maxBits);
+                dst[i + 1] = symbols[v];
+                reader.skipBits(nbBits[v]);
+                v = reader.peekBits(maxBits);
+                dst[i + 2] = symbols[v];
+                reader.skipBits(nbBits[v]);
+                v = reader.peekBits(maxBits);
+                dst[i + 3] = symbols[v];
+                reader.skipBits(nbBits[v]);
+                reader.reload();
+                i += 4;
+            }
+            while (i < dstEnd) {
+                final int v = reader.peekBits(maxBits);
+                dst[i ++] = symbols[v];
+                reader.skipBits(nbBits[v]);
+                reader.reload();
+            }
+            if (!reader.isFinished()) {
+                throw new DecompressionException("corrupted Huffman stream");
+            }
+        }
+    }
+
+    /**
+     * The table which is used to encode literals.
+     */
+    static final class EncodingTable {
+        private final int[] codes = new int[MAX_HUFFMAN_SYMBOL + 1];
+        private final int[] nbBits = new int[MAX_HUFFMAN_SYMBOL + 1];
+        private int maxSymbol;
+        private int maxBits;
+
+        private final long[] sorted = new long[MAX_HUFFMAN_SYMBOL + 1];
+        private final int[] nodeCounts = new int[2 * (MAX_HUFFMAN_SYMBOL + 1)];
+        private final int[] parents = new int[2 * (MAX_HUFFMAN_SYMBOL + 1)];
+        private final int[] rankCounts = new int[MAX_HUFFMAN_BITS + 1];
+        private final int[] weights = new int[MAX_HUFFMAN_SYMBOL + 1];
+        private final int[] weightCounts = new int[MAX_WEIGHT + 1];
+        private final ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+        private final ZstdFse.EncodingTable fseTable = new ZstdFse.EncodingTable(MAX_WEIGHTS_TABLE_LOG);
+        private final ZstdBitWriter writer = new ZstdBitWriter();
+
+        void set(EncodingTable table) {
+            System.arraycopy(table.codes, 0, codes, 0, table.maxSymbol + 1);
+            System.arraycopy(table.nbBits, 0, nbBits, 0, table.maxSymbol + 1);
+            maxSymbol = table.maxSymbol;
+            maxBits = table.maxBits;
+        }
+
+        /**
+         * Builds a table from the weights of a Huffman tree description.
+         */
+        void set(int[] weights, int numSymbols) {
+            int weightSum = 0;
+            for (int s = 0; s < numSymbols; s ++) {
+                if (weights[s] > 0) {
+                    weightSum += 1 << weights[s] - 1;
+                }
+            }
+            final int maxBits = highestBit(weightSum);
+            for (int s = 0; s < numSymbols; s ++) {
+                nbBits[s] = weights[s] == 0 ? 0 : maxBits + 1 - weights[s];
+            }
+            maxSymbol = numSymbols - 1;
+            this.maxBits = maxBits;
+            assignCodes();
+        }
+
+        /**
+         * Builds an optimal table for the given histogram, with codes of at most {@value
+         * ZstdConstants#MAX_HUFFMAN_BITS} bits. Returns {@code false} if it contains less than two symbols.
+         */
+        boolean build(int[] histogram, int maxSymbol) {
+            final long[] sorted = this.sorted;
+            int n = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                nbBits[s] = 0;
+                if (histogram[s] != 0) {
+                    sorted[n ++] = (long) histogram[s] << 8 | s;
+                }
+            }
+            if (n < 2) {
+                return false;
+            }
+            Arrays.sort(sorted, 0, n);
+
+            // Merge the two least frequent nodes until only the root is left. Leaves and inner nodes are both
+            // created in order of increasing count, so the two least frequent nodes are at the head of either.
+            final int[] nodeCounts = this.nodeCounts;
+            final int[] parents = this.parents;
+            for (int i = 0; i < n; i ++) {
+                nodeCounts[i] = (int) (sorted[i] >>> 8);
+            }
+            int leaf = 0;
+            int inner = n;
+            for (int node = n; node < 2 * n - 1; node ++) {
+                int a = leaf < n && (inner >= node || nodeCounts[leaf] <= nodeCounts[inner]) ? leaf ++ : inner ++;
+                int b = leaf < n && (inner >= node || nodeCounts[leaf] <= nodeCounts[inner]) ? leaf ++ : inner ++;
+                nodeCounts[node] = nodeCounts[a] + nodeCounts[b];
+                parents[a] = node;
+                parents[b] = node;
+            }
+
+            // Compute the depth of each node, from the root to the leaves.
+            final int root = 2 * n - 2;
+            nodeCounts[root] = 0;
+            for (int node = root - 1; node >= 0; node --) {
+                nodeCounts[node] = nodeCounts[parents[node]] + 1;
+            }
+            for (int i = 0; i < n; i ++) {
+                nbBits[(int) sorted[i] & 0xFF] = nodeCounts[i];
+            }
+
+            limitLengths(n);
+            this.maxSymbol = maxSymbol;
+            assignCodes();
+            return true;
+        }
+
+        /**
+         * Limits the code lengths to {@value ZstdConstants#MAX_HUFFMAN_BITS} bits, keeping the code complete.
+         */
+        private void limitLengths(int n) {
+            final long[] sorted = this.sorted;
+            final int limit = MAX_HUFFMAN_BITS;
+            final int capacity = 1 << limit;
+            int kraft = 0;
+            boolean truncated = false;
+            for (int i = 0; i < n; i ++) {
+                final int s = (int) sorted[i] & 0xFF;
+                if (nbBits[s] > limit) {
+                    nbBits[s] = limit;
+                    truncated = true;
+                }
+                kraft += 1 << limit - nbBits[s];
+            }
+
+            if (truncated) {
+                // Lengthen the longest codes below the limit, starting with the least frequent symbols.
+                while (kraft > capacity) {
+                    int best = -1;
+                    for (int i = 0; i < n; i ++) {
+                        final int s = (int) sorted[i] & 0xFF;
+                        if (nbBits[s] < limit && (best < 0 || nbBits[s] > nbBits[best])) {
+                            best = s;
+                        }
+                    }
+                    nbBits[best] ++;
+                    kraft -= 1 << limit - nbBits[best];
+                }
+                // Shorten codes of the most frequent symbols again where the code has room left.
+                while (kraft < capacity) {
+                    int best = -1;
+                    for (int i = n - 1; i >= 0; i --) {
+                        final int s = (int) sorted[i] & 0xFF;
+                        if (nbBits[s] > 1 && 1 << limit - nbBits[s] <= capacity - kraft &&
+                            (best < 0 || nbBits[s] > nbBits[best])) {
+                            best = s;
+                        }
+                    }
+                    kraft += 1 << limit - nbBits[best];
+                    nbBits[best] --;
+                }
+            }
+
+            int maxBits = 0;
+            for (int i = 0; i < n; i ++) {
+                maxBits = Math.max(maxBits, nbBits[(int) sorted[i] & 0xFF]);
+            }
+            this.maxBits = maxBits;
+        }
+
+        /**
+         * Assigns the codes in the same order in which the decoder fills its table: longest codes first, symbols of
+         * the same length in increasing order.
+         */
+        private void assignCodes() {
+            final int[] rankCounts = this.rankCounts;
+            Arrays.fill(rankCounts, 0);
+            for (int s = 0; s <= maxSymbol; s ++) {
+                rankCounts[nbBits[s]] ++;
+            }
+            int min = 0;
+            for (int n = maxBits; n > 0; n --) {
+                final int count = rankCounts[n];
+                rankCounts[n] = min;
+                min = min + count >>> 1;
+            }
+            for (int s = 0; s <= maxSymbol; s ++) {
+                if (nbBits[s] != 0) {
+                    codes[s] = rankCounts[nbBits[s]] ++;
+                }
+            }
+        }
+
+        /**
+         * Returns the number of bits which are needed to encode the given histogram with this table, or {@code -1}
+         * if it does not contain all symbols.
+         */
+        int cost(int[] histogram, int maxSymbol) {
+            if (maxSymbol > this.maxSymbol) {
+                return -1;
+            }
+            int bits = 0;
+            for (int s = 0; s <= maxSymbol; s ++) {
+                if (histogram[s] != 0) {
+                    if (nbBits[s] == 0) {
+                        return -1;
+                    }
+                    bits += histogram[s] * nbBits[s];
+                }
+            }
+            return bits;
+        }
+
+        /**
+         * Writes the description of this table and returns the number of bytes written, or {@code -1} if the table
+         * can not be described.
+         */
+        int writeDescription(byte[] dst, int offset, int limit) {
+            final int numWeights = maxSymbol;
+            final int[] weights = this.weights;
+            final int[] weightCounts = this.weightCounts;
+            Arrays.fill(weightCounts, 0);
+            int maxWeight = 0;
+            for (int s = 0; s < numWeights; s ++) {
+                final int weight = nbBits[s] == 0 ? 0 : maxBits + 1 - nbBits[s];
+                weights[s] = weight;
+                weightCounts[weight] ++;
+                maxWeight = Math.max(maxWeight, weight);
+            }
+
+            int compressedLength = -1;
+            if (numWeights >= 2 && weightCounts[maxWeight] < numWeights) {
+                compressedLength = compressWeights(dst, offset, limit, numWeights, maxWeight);
+            }
+            final int directLength = numWeights <= MAX_DIRECT_WEIGHTS ? 1 + (numWeights + 1) / 2 : -1;
+            if (directLength < 0 || compressedLength > 0 && compressedLength <= directLength) {
+                return compressedLength;
+            }
+            if (offset + directLength > limit) {
+                return -1;
+            }
+
+            dst[offset] = (byte) (127 + numWeights);
+            for (int i = 0; i < numWeights; i += 2) {
+                final int next = i + 1 < numWeights ? weights[i + 1] : 0;
+                dst[offset + 1 + i / 2] = (byte) (weights[i] << 4 | next);
+            }
+            return directLength;
+        }
+
+        private int compressWeights(byte[] dst, int offset, int limit, int numWeights, int maxWeight) {
+            final int tableLog = ZstdFse.optimalTableLog(MAX_WEIGHTS_TABLE_LOG, numWeights, maxWeight);
+            final ZstdFse.Distribution distribution = this.distribution;
+            distribution.normalize(weightCounts, maxWeight, numWeights, tableLog);
+
+            final ZstdBitWriter writer = this.writer;
+            writer.init(dst, offset + 1, Math.min(limit, offset + 128));
+            final int start = distribution.write(writer);
+            if (writer.isOverflow()) {
+                return -1;
+            }
+            final ZstdFse.EncodingTable table = fseTable;
+            table.build(distribution);
+            writer.init(dst, start, Math.min(limit, offset + 128));
+
+            // The first state encodes the weights at even indices and the second state those at odd indices. They
+            // are encoded backwards, starting with the last two weights as initial states.
+            final int[] weights = this.weights;
+            int state1;
+            int state2;
+            if ((numWeights & 1) == 0) {
+                state2 = table.init(weights[numWeights - 1]);
+                state1 = table.init(weights[numWeights - 2]);
+            } else {
+                state1 = table.init(weights[numWeights - 1]);
+                state2 = table.init(weights[numWeights - 2]);
+            }
+            for (int i = numWeights - 3; i >= 0; i --) {
+                if ((i & 1) == 0) {
+                    state1 = table.encode(writer, state1, weights[i]);
+                } else {
+                    state2 = table.encode(writer, state2, weights[i]);
+                }
+                writer.flush();
+            }
+            table.flush(writer, state2);
+            table.flush(writer, state1);
+            final int end = writer.close();
+            if (writer.isOverflow()) {
+                return -1;
+            }
+            dst[offset] = (byte) (end - offset - 1);
+            return end - offset;
+        }
+
+        /**
+         * Encodes the given literals into one or four streams and returns the position after the last byte, or
+         * {@code -1} if they do not fit.
+         */
+        int compress(byte[] src, int srcIndex, int srcLength, byte[] dst, int dstIndex, int limit,
+                     boolean fourStreams) {
+            if (!fourStreams) {
+                return compressStream(src, srcIndex, srcLength, dst, dstIndex, limit);
+            }
+
+            final int segment = (srcLength + 3) / 4;
+            int start = dstIndex + 6;
+            for (int i = 0; i < 4; i ++) {
+                final int length = i < 3 ? segment : srcLength - 3 * segment;
+                final int end = compressStream(src, srcIndex + i * segment, length, dst, start, limit);
+                if (end < 0 || i < 3 && end - start > 0xFFFF) {
+                    return -1;
+                }
+                if (i < 3) {
+                    setShortLE(dst, dstIndex + 2 * i, end - start);
+                }
+                start = end;
+            }
+            return start;
+        }
+
+        private int compressStream(byte[] src, int srcIndex, int srcLength, byte[] dst, int dstIndex, int limit) {
+            final ZstdBitWriter writer = this.writer;
+            final int[] codes = this.codes;
+            final int[] nbBits = this.nbBits;
+            writer.init(dst, dstIndex, limit);
+
+            // The decoder reads the stream backwards, so the last literal is written first.
+            int i = srcIndex + srcLength - 1;
+            for (; i >= srcIndex + 3; i -= 4) {
+                int s = src[i] & 0xFF;
+                writer.addBits(codes[s], nbBits[s]);
+                s = src[i - 1] & 0xFF;
+                writer.addBits(codes[s], nbBits[s]);
+                s = src[i - 2] & 0xFF;
+                writer.addBits(codes[s], nbBits[s]);
+                s = src[i - 3] & 0xFF;
+                writer.addBits(codes[s], nbBits[s]);
+                writer.flush();
+            }
+            for (; i >= srcIndex; i --) {
+                final int s = src[i] & 0xFF;
+                writer.addBits(codes[s], nbBits[s]);
+            }
+            final int end = writer.close();
+            return writer.isOverflow() ? -1 : end;
+        }
+    }
+
+    private ZstdHuffman() { }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+/**
+ * Utility methods used by {@link ZstdEncoder} and {@link ZstdDecoder}.
+ */
+final class ZstdUtil {
+
+    /**
+     * Returns the index of the highest set bit of the given positive value.
+     */
+    static int highestBit(int value) {
+        return 31 - Integer.numberOfLeadingZeros(value);
+    }
+
+    static int getShortLE(byte[] array, int index) {
+        return array[index] & 0xFF | (array[index + 1] & 0xFF) << 8;
+    }
+
+    static int getMediumLE(byte[] array, int index) {
+        return array[index] & 0xFF | (array[index + 1] & 0xFF) << 8 | (array[index + 2] & 0xFF) << 16;
+    }
+
+    static int getIntLE(byte[] array, int index) {
+        return array[index] & 0xFF |
+               (array[index + 1] & 0xFF) << 8 |
+               (array[index + 2] & 0xFF) << 16 |
+               array[index + 3] << 24;
+    }
+
+    static long getLongLE(byte[] array, int index) {
+        return getIntLE(array, index) & 0xFFFFFFFFL | (long) getIntLE(array, index + 4) << 32;
+    }
+
+    static void setShortLE(byte[] array, int index, int value) {
+        array[index] = (byte) value;
+        array[index + 1] = (byte) (value >>> 8);
+    }
+
+    static void setMediumLE(byte[] array, int index, int value) {
+        array[index] = (byte) value;
+        array[index + 1] = (byte) (value >>> 8);
+        array[index + 2] = (byte) (value >>> 16);
+    }
+
+    static void setIntLE(byte[] array, int index, int value) {
+        array[index] = (byte) value;
+        array[index + 1] = (byte) (value >>> 8);
+        array[index + 2] = (byte) (value >>> 16);
+        array[index + 3] = (byte) (value >>> 24);
+    }
+
+    private ZstdUtil() { }
+}
@@ -17,8 +17,11 @@
 /**
  * Encoder and decoder which compresses and decompresses {@link io.netty.buffer.ByteBuf}s
  * in a compression format such as <a href="http://en.wikipedia.org/wiki/Zlib">zlib</a>,
- * <a href="http://en.wikipedia.org/wiki/Gzip">gzip</a>, and
- * <a href="http://code.google.com/p/snappy/">Snappy</a>.
+ * <a href="http://en.wikipedia.org/wiki/Gzip">gzip</a>,
+ * <a href="http://code.google.com/p/snappy/">Snappy</a>,
+ * <a href="http://code.google.com/p/lz4/">LZ4</a>,
+ * <a href="http://en.wikipedia.org/wiki/Bzip2">bzip2</a>, and
+ * <a href="https://github.com/facebook/zstd">Zstandard</a>.
  */
 package io.netty.handler.codec.compression;
-// TODO Implement bzip2 and lzma handlers
+// TODO Implement lzma handler
@@ -34,6 +34,9 @@ import java.util.List;
  * This class does not do any real parsing or validation. A sequence of bytes is considered a JSON object/array
  * if it contains a matching number of opening and closing braces/brackets. It's up to a subsequent
  * {@link ChannelHandler} to parse the JSON text into a more usable form i.e. a POJO.
+ *
+ * A {@link JsonTokenDecoder} can parse the JSON text without scanning it again, see
+ * {@link JsonTokenDecoder#JsonTokenDecoder(int, boolean)}.
  */
 public class JsonObjectDecoder extends ByteToMessageDecoder {
 
@@ -88,8 +91,9 @@ public class JsonObjectDecoder extends ByteToMessageDecoder {
             return;
         }
 
-        // index of next byte to process.
-        int idx = this.idx;
+        // index of next byte to process. It is kept relative to the readerIndex between calls, as the
+        // cumulation may be compacted or replaced in the meantime.
+        int idx = in.readerIndex() + this.idx;
         int wrtIdx = in.writerIndex();
 
         if (wrtIdx > maxObjectLength) {
@@ -172,7 +176,7 @@ public class JsonObjectDecoder extends ByteToMessageDecoder {
         if (in.readableBytes() == 0) {
             this.idx = 0;
         } else {
-            this.idx = idx;
+            this.idx = idx - in.readerIndex();
         }
     }
 
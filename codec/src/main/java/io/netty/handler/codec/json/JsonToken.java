@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.json;
+
+/**
+ * The tokens of a JSON text, as returned by {@link JsonTokenizer#nextToken(io.netty.buffer.ByteBuf)}.
+ */
+public enum JsonToken {
+    /**
+     * The opening brace of an object.
+     */
+    START_OBJECT,
+    /**
+     * The closing brace of an object.
+     */
+    END_OBJECT,
+    /**
+     * The opening bracket of an array.
+     */
+    START_ARRAY,
+    /**
+     * The closing bracket of an array.
+     */
+    END_ARRAY,
+    /**
+     * The name of a member of an object, see {@link JsonTokenizer#fieldName()}.
+     */
+    FIELD_NAME,
+    /**
+     * A string value.
+     */
+    STRING,
+    /**
+     * A number value.
+     */
+    NUMBER,
+    /**
+     * The literal {@code true}.
+     */
+    TRUE,
+    /**
+     * The literal {@code false}.
+     */
+    FALSE,
+    /**
+     * The literal {@code null}.
+     */
+    NULL
+}
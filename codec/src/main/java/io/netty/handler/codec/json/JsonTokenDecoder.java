@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.TooLongFrameException;
+
+import java.util.List;
+
+/**
+ * Decodes a byte stream of JSON text into messages by passing its {@link JsonToken}s to
+ * {@link #decodeToken(ChannelHandlerContext, JsonToken, JsonTokenizer, List)} as soon as they were received.
+ * Unlike a {@link JsonObjectDecoder} followed by a parser, a JSON text is scanned only once and never kept in
+ * memory as a whole, so even an "infinitely" long top-level array can be decoded element by element.
+ *
+ * <pre>
+ * public class EventDecoder extends {@link JsonTokenDecoder} {
+ *     private static final {@link io.netty.handler.codec.AsciiString} ID = new AsciiString("id");
+ *     private boolean id;
+ *
+ *     {@code @Override}
+ *     protected void decodeToken({@link ChannelHandlerContext} ctx, {@link JsonToken} token,
+ *                                {@link JsonTokenizer} tokenizer, List&lt;Object&gt; out) {
+ *         if (token == {@link JsonToken#FIELD_NAME}) {
+ *             // The top-level array is at depth 1 and its objects at depth 2.
+ *             id = tokenizer.depth() == 2 &amp;&amp; ID.equals(tokenizer.fieldName());
+ *         } else if (id &amp;&amp; token == {@link JsonToken#NUMBER}) {
+ *             out.add(tokenizer.longValue());
+ *         }
+ *     }
+ * }
+ * </pre>
+ *
+ * To limit the size of each JSON object or array, place a {@link JsonObjectDecoder} in front of this decoder
+ * and create it with {@code framed} set to {@code true}.
+ *
+ * After the received bytes turned out to be invalid JSON, this decoder discards everything it receives.
+ */
+public abstract class JsonTokenDecoder extends ByteToMessageDecoder {
+
+    private final JsonTokenizer tokenizer;
+    private final boolean framed;
+    private boolean corrupted;
+
+    /**
+     * Creates a new instance which accepts tokens of up to 1 MB.
+     */
+    protected JsonTokenDecoder() {
+        // 1 MB
+        this(1024 * 1024, false);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxTokenLength
+     *        the maximum number of bytes of a single string or number, including the quotes.  If a longer
+     *        token is received, a {@link TooLongFrameException} is thrown.
+     * @param framed
+     *        {@code true} if each received {@link ByteBuf} contains complete JSON values, for example because
+     *        they were split by a {@link JsonObjectDecoder}.
+     */
+    protected JsonTokenDecoder(int maxTokenLength, boolean framed) {
+        tokenizer = new JsonTokenizer(maxTokenLength);
+        this.framed = framed;
+    }
+
+    @Override
+    protected final void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        decode(ctx, in, out, framed);
+    }
+
+    @Override
+    protected final void decodeLast(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+        decode(ctx, in, out, true);
+    }
+
+    private void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out, boolean last) throws Exception {
+        if (corrupted) {
+            in.skipBytes(in.readableBytes());
+            return;
+        }
+
+        JsonTokenizer tokenizer = this.tokenizer;
+        try {
+            for (;;) {
+                JsonToken token = tokenizer.nextToken(in, last);
+                if (token == null) {
+                    break;
+                }
+                decodeToken(ctx, token, tokenizer, out);
+                if (ctx.isRemoved()) {
+                    return;
+                }
+            }
+            if (last && tokenizer.depth() != 0) {
+                throw new CorruptedFrameException("incomplete JSON value (depth: " + tokenizer.depth() + ')');
+            }
+        } catch (DecoderException e) {
+            corrupted = true;
+            in.skipBytes(in.readableBytes());
+            throw e;
+        }
+    }
+
+    /**
+     * Decodes the specified {@link JsonToken}.  Its value is available from the {@link JsonTokenizer} until
+     * this method returns.
+     *
+     * @param ctx           the {@link ChannelHandlerContext} which this {@link JsonTokenDecoder} belongs to
+     * @param token         the {@link JsonToken} which was received
+     * @param tokenizer     the {@link JsonTokenizer} which gives access to the value of the token
+     * @param out           the {@link List} to which decoded messages should be added
+     * @throws Exception    is thrown if an error occurs
+     */
+    protected abstract void decodeToken(
+            ChannelHandlerContext ctx, JsonToken token, JsonTokenizer tokenizer, List<Object> out) throws Exception;
+}
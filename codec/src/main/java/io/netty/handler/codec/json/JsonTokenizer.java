@@ -0,0 +1,561 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufProcessor;
+import io.netty.handler.codec.AsciiString;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.CharsetUtil;
+
+import java.util.Arrays;
+
+/**
+ * Splits JSON text into {@link JsonToken}s while it is received.  The tokens are read directly from the
+ * {@link ByteBuf} and nothing is allocated for them, except for the {@link AsciiString} of a field name
+ * which was not seen recently.  Strings and numbers are only materialized when they are asked for, see
+ * {@link #stringValue()}, {@link #longValue()} and {@link #doubleValue()}.
+ *
+ * The structure of the JSON text is validated, but the content of strings and numbers is only scanned
+ * for their end.  A sequence of JSON values, such as the objects and arrays split by a
+ * {@link JsonObjectDecoder}, is accepted as well.
+ *
+ * <pre>
+ * {@link JsonToken} token;
+ * while ((token = tokenizer.nextToken(buf)) != null) {
+ *     if (token == {@link JsonToken#FIELD_NAME} &amp;&amp; ID.equals(tokenizer.fieldName())) {
+ *         ...
+ *     }
+ * }
+ * </pre>
+ *
+ * A {@link JsonTokenizer} is not thread-safe.
+ */
+public final class JsonTokenizer {
+
+    private static final int EXPECT_VALUE = 0;
+    private static final int EXPECT_VALUE_OR_END = 1;
+    private static final int EXPECT_NAME = 2;
+    private static final int EXPECT_NAME_OR_END = 3;
+    private static final int EXPECT_COLON = 4;
+    private static final int EXPECT_COMMA_OR_END = 5;
+
+    private static final int NAME_CACHE_SIZE = 256;
+    private static final int MAX_CACHED_NAME_LENGTH = 64;
+
+    private static final byte[] TRUE = { 't', 'r', 'u', 'e' };
+    private static final byte[] FALSE = { 'f', 'a', 'l', 's', 'e' };
+    private static final byte[] NULL = { 'n', 'u', 'l', 'l' };
+
+    private static final ByteBufProcessor FIND_NON_WHITESPACE = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value == ' ' || value == '\n' || value == '\r' || value == '\t';
+        }
+    };
+
+    private static final ByteBufProcessor FIND_QUOTE_OR_BACKSLASH = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value != '"' && value != '\\';
+        }
+    };
+
+    private static final ByteBufProcessor FIND_NUMBER_END = new ByteBufProcessor() {
+        @Override
+        public boolean process(byte value) {
+            return value >= '0' && value <= '9' || value == '-' || value == '+' || value == '.' ||
+                   value == 'e' || value == 'E';
+        }
+    };
+
+    private final int maxTokenLength;
+    private final AsciiString[] names = new AsciiString[NAME_CACHE_SIZE];
+
+    // true for an object, false for an array.
+    private boolean[] containers = new boolean[16];
+    private int depth;
+    private int expect;
+
+    // The number of bytes of an incomplete token which were scanned already.
+    private int scanOffset;
+    private boolean escaped;
+
+    private JsonToken token;
+    private ByteBuf buffer;
+    private int valueIndex;
+    private int valueLength;
+    private boolean valueEscaped;
+    private AsciiString fieldName;
+
+    /**
+     * Creates a new instance which accepts tokens of up to 1 MB.
+     */
+    public JsonTokenizer() {
+        // 1 MB
+        this(1024 * 1024);
+    }
+
+    /**
+     * Creates a new instance.
+     *
+     * @param maxTokenLength
+     *        the maximum number of bytes of a single string or number, including the quotes.  If a longer
+     *        token is received, a {@link TooLongFrameException} is thrown.
+     */
+    public JsonTokenizer(int maxTokenLength) {
+        if (maxTokenLength <= 0) {
+            throw new IllegalArgumentException("maxTokenLength: " + maxTokenLength + " (expected: > 0)");
+        }
+        this.maxTokenLength = maxTokenLength;
+    }
+
+    /**
+     * Reads the next {@link JsonToken} from the specified {@link ByteBuf} and returns it, or returns {@code null}
+     * if more bytes are needed.  The bytes of the token and the whitespace and separators in front of it are
+     * consumed.  An incomplete token is left in the buffer and continued on the next call, which must pass the
+     * same bytes followed by the newly received ones.
+     *
+     * @throws CorruptedFrameException if the bytes are not valid JSON
+     * @throws TooLongFrameException if a token exceeds the maximum token length
+     */
+    public JsonToken nextToken(ByteBuf in) {
+        return nextToken(in, false);
+    }
+
+    /**
+     * Reads the next {@link JsonToken} from the specified {@link ByteBuf}, see {@link #nextToken(ByteBuf)}.
+     *
+     * @param last
+     *        {@code true} if no more bytes follow the readable bytes of {@code in}, so that a number at the end
+     *        of the buffer is complete and any other incomplete token is invalid
+     */
+    public JsonToken nextToken(ByteBuf in, boolean last) {
+        if (in == null) {
+            throw new NullPointerException("in");
+        }
+
+        // The readerIndex is only updated once the next token was found, or when more bytes are needed.
+        final int end = in.writerIndex();
+        int readerIndex = in.readerIndex();
+        for (;;) {
+            int index = in.forEachByte(readerIndex, end - readerIndex, FIND_NON_WHITESPACE);
+            if (index < 0) {
+                in.readerIndex(end);
+                return null;
+            }
+
+            byte c = in.getByte(index);
+            switch (expect) {
+            case EXPECT_COLON:
+                if (c != ':') {
+                    throw invalid(index, c);
+                }
+                readerIndex = index + 1;
+                expect = EXPECT_VALUE;
+                break;
+            case EXPECT_COMMA_OR_END:
+                if (c != ',') {
+                    return readEnd(in, index, c);
+                }
+                readerIndex = index + 1;
+                expect = containers[depth - 1] ? EXPECT_NAME : EXPECT_VALUE;
+                break;
+            case EXPECT_NAME_OR_END:
+            case EXPECT_NAME:
+                if (c == '}' && expect == EXPECT_NAME_OR_END) {
+                    return readEnd(in, index, c);
+                }
+                if (c != '"') {
+                    throw invalid(index, c);
+                }
+                return readString(in, index, end, last, JsonToken.FIELD_NAME);
+            case EXPECT_VALUE_OR_END:
+                if (c == ']') {
+                    return readEnd(in, index, c);
+                }
+                return readValue(in, index, end, last, c);
+            default:
+                return readValue(in, index, end, last, c);
+            }
+        }
+    }
+
+    private JsonToken readValue(ByteBuf in, int index, int end, boolean last, byte c) {
+        switch (c) {
+        case '{':
+            push(true);
+            expect = EXPECT_NAME_OR_END;
+            return complete(in, JsonToken.START_OBJECT, index, 1, false);
+        case '[':
+            push(false);
+            expect = EXPECT_VALUE_OR_END;
+            return complete(in, JsonToken.START_ARRAY, index, 1, false);
+        case '"':
+            return readString(in, index, end, last, JsonToken.STRING);
+        case 't':
+            return readLiteral(in, index, end, last, TRUE, JsonToken.TRUE);
+        case 'f':
+            return readLiteral(in, index, end, last, FALSE, JsonToken.FALSE);
+        case 'n':
+            return readLiteral(in, index, end, last, NULL, JsonToken.NULL);
+        default:
+            if (c == '-' || c >= '0' && c <= '9') {
+                return readNumber(in, index, end, last);
+            }
+            throw invalid(index, c);
+        }
+    }
+
+    private JsonToken readEnd(ByteBuf in, int index, byte c) {
+        boolean object = containers[depth - 1];
+        if (object ? c != '}' : c != ']') {
+            throw invalid(index, c);
+        }
+        depth --;
+        valueDone();
+        return complete(in, object ? JsonToken.END_OBJECT : JsonToken.END_ARRAY, index, 1, false);
+    }
+
+    private JsonToken readString(ByteBuf in, int index, int end, boolean last, JsonToken token) {
+        int i;
+        if (scanOffset == 0) {
+            escaped = false;
+            i = index + 1;
+        } else {
+            i = index + scanOffset;
+        }
+
+        for (;;) {
+            int quote = in.forEachByte(i, end - i, FIND_QUOTE_OR_BACKSLASH);
+            if (quote < 0) {
+                return incomplete(in, index, end - index, last);
+            }
+            if (in.getByte(quote) == '"') {
+                int length = quote - index - 1;
+                checkLength(length + 2);
+                if (token == JsonToken.FIELD_NAME) {
+                    fieldName = name(in, index + 1, length, escaped);
+                    expect = EXPECT_COLON;
+                } else {
+                    valueDone();
+                }
+                return complete(in, token, index + 1, length, escaped);
+            }
+
+            // Skip the escaped character, which may be a quote.
+            escaped = true;
+            if (quote + 1 == end) {
+                return incomplete(in, index, quote - index, last);
+            }
+            i = quote + 2;
+        }
+    }
+
+    private JsonToken readNumber(ByteBuf in, int index, int end, boolean last) {
+        int i = index + scanOffset;
+        int numberEnd = in.forEachByte(i, end - i, FIND_NUMBER_END);
+        if (numberEnd < 0) {
+            if (!last) {
+                return incomplete(in, index, end - index, false);
+            }
+            numberEnd = end;
+        }
+        checkLength(numberEnd - index);
+        valueDone();
+        return complete(in, JsonToken.NUMBER, index, numberEnd - index, false);
+    }
+
+    private JsonToken readLiteral(ByteBuf in, int index, int end, boolean last, byte[] literal, JsonToken token) {
+        int length = literal.length;
+        if (end - index < length) {
+            return incomplete(in, index, 0, last);
+        }
+        for (int i = 1; i < length; i ++) {
+            byte c = in.getByte(index + i);
+            if (c != literal[i]) {
+                throw invalid(index + i, c);
+            }
+        }
+        valueDone();
+        return complete(in, token, index, length, false);
+    }
+
+    private JsonToken incomplete(ByteBuf in, int index, int scanned, boolean last) {
+        if (last) {
+            throw new CorruptedFrameException("incomplete JSON token at byte position " + index);
+        }
+        checkLength(in.writerIndex() - index);
+        in.readerIndex(index);
+        scanOffset = scanned;
+        return null;
+    }
+
+    private JsonToken complete(ByteBuf in, JsonToken token, int index, int length, boolean escaped) {
+        this.token = token;
+        buffer = in;
+        valueIndex = index;
+        valueLength = length;
+        valueEscaped = escaped;
+        scanOffset = 0;
+        if (token == JsonToken.STRING || token == JsonToken.FIELD_NAME) {
+            // Skip the closing quote.
+            in.readerIndex(index + length + 1);
+        } else {
+            in.readerIndex(index + length);
+        }
+        return token;
+    }
+
+    private void valueDone() {
+        expect = depth == 0 ? EXPECT_VALUE : EXPECT_COMMA_OR_END;
+    }
+
+    private void push(boolean object) {
+        if (depth == containers.length) {
+            containers = Arrays.copyOf(containers, depth << 1);
+        }
+        containers[depth ++] = object;
+    }
+
+    private void checkLength(int length) {
+        if (length > maxTokenLength) {
+            throw new TooLongFrameException("JSON token length exceeds " + maxTokenLength + ": " + length);
+        }
+    }
+
+    private AsciiString name(ByteBuf in, int index, int length, boolean escaped) {
+        if (escaped) {
+            return new AsciiString(decode(in, index, length, true).getBytes(CharsetUtil.UTF_8), false);
+        }
+        if (length > MAX_CACHED_NAME_LENGTH) {
+            return newName(in, index, length);
+        }
+
+        // Most JSON texts use the same few field names over and over again, so look up a recently seen one.
+        int hash = length;
+        for (int i = index; i < index + length; i ++) {
+            hash = hash * 31 + in.getByte(i);
+        }
+        int slot = (hash ^ hash >>> 16) & NAME_CACHE_SIZE - 1;
+        AsciiString name = names[slot];
+        if (name == null || !contentEquals(name, in, index, length)) {
+            name = newName(in, index, length);
+            names[slot] = name;
+        }
+        return name;
+    }
+
+    private static AsciiString newName(ByteBuf in, int index, int length) {
+        byte[] bytes = new byte[length];
+        in.getBytes(index, bytes);
+        return new AsciiString(bytes, false);
+    }
+
+    private static boolean contentEquals(AsciiString name, ByteBuf in, int index, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        byte[] bytes = name.array();
+        for (int i = 0; i < length; i ++) {
+            if (bytes[i] != in.getByte(index + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static CorruptedFrameException invalid(int index, byte c) {
+        return new CorruptedFrameException(
+                "invalid JSON received at byte position " + index + ": 0x" + Integer.toHexString(c & 0xFF));
+    }
+
+    /**
+     * Returns the last token returned by {@link #nextToken(ByteBuf)}, or {@code null} if there was none.
+     */
+    public JsonToken token() {
+        return token;
+    }
+
+    /**
+     * Returns the number of objects and arrays which contain the next token.  This is {@code 0} after a
+     * complete JSON value was read, and {@code 1} for the elements of a top-level array or the members
+     * of a top-level object.
+     */
+    public int depth() {
+        return depth;
+    }
+
+    /**
+     * Returns the name of the last {@link JsonToken#FIELD_NAME}, which are the UTF-8 bytes of the name without
+     * escape sequences.  Compare it to an {@link AsciiString} constant to avoid decoding it.
+     */
+    public AsciiString fieldName() {
+        return fieldName;
+    }
+
+    /**
+     * Returns the bytes of the current token as they were received, without the quotes of a string and
+     * with escape sequences left as they are.  The returned buffer is a slice of the buffer which was passed
+     * to {@link #nextToken(ByteBuf)}, so it is only valid as long as that buffer is not modified.
+     */
+    public ByteBuf rawValue() {
+        checkToken();
+        return buffer.slice(valueIndex, valueLength);
+    }
+
+    /**
+     * Returns the current token as a {@link String}.  Escape sequences of strings and field names are
+     * replaced, other tokens are returned as they were received.
+     */
+    public String stringValue() {
+        checkToken();
+        return decode(buffer, valueIndex, valueLength, valueEscaped);
+    }
+
+    /**
+     * Returns the value of the current {@link JsonToken#NUMBER} as a {@code long} without creating a
+     * {@link String}.
+     *
+     * @throws NumberFormatException if the number is not an integer or does not fit into a {@code long}
+     */
+    public long longValue() {
+        checkToken(JsonToken.NUMBER);
+        ByteBuf buffer = this.buffer;
+        int i = valueIndex;
+        int end = i + valueLength;
+        boolean negative = buffer.getByte(i) == '-';
+        if (negative) {
+            i ++;
+        }
+        if (i == end) {
+            throw new NumberFormatException(stringValue());
+        }
+
+        // Accumulate negatively like Long.parseLong() so that Long.MIN_VALUE does not overflow.
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplyLimit = limit / 10;
+        long result = 0;
+        for (; i < end; i ++) {
+            int digit = buffer.getByte(i) - '0';
+            if (digit < 0 || digit > 9 || result < multiplyLimit) {
+                throw new NumberFormatException(stringValue());
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw new NumberFormatException(stringValue());
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Returns the value of the current {@link JsonToken#NUMBER} as a {@code double}.
+     */
+    public double doubleValue() {
+        checkToken(JsonToken.NUMBER);
+        return Double.parseDouble(stringValue());
+    }
+
+    /**
+     * Resets this tokenizer, so that it can be used for a new JSON text, for example after it failed.
+     */
+    public void reset() {
+        depth = 0;
+        expect = EXPECT_VALUE;
+        scanOffset = 0;
+        token = null;
+        buffer = null;
+        fieldName = null;
+    }
+
+    private void checkToken() {
+        if (token == null) {
+            throw new IllegalStateException("no token");
+        }
+    }
+
+    private void checkToken(JsonToken expected) {
+        if (token != expected) {
+            throw new IllegalStateException("token: " + token + " (expected: " + expected + ')');
+        }
+    }
+
+    private static String decode(ByteBuf buffer, int index, int length, boolean escaped) {
+        String value = buffer.toString(index, length, CharsetUtil.UTF_8);
+        if (!escaped) {
+            return value;
+        }
+
+        StringBuilder buf = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i ++) {
+            char c = value.charAt(i);
+            if (c != '\\') {
+                buf.append(c);
+                continue;
+            }
+
+            // A backslash is always followed by the escaped character in a complete string.
+            c = value.charAt(++ i);
+            switch (c) {
+            case '"':
+            case '\\':
+            case '/':
+                buf.append(c);
+                break;
+            case 'b':
+                buf.append('\b');
+                break;
+            case 'f':
+                buf.append('\f');
+                break;
+            case 'n':
+                buf.append('\n');
+                break;
+            case 'r':
+                buf.append('\r');
+                break;
+            case 't':
+                buf.append('\t');
+                break;
+            case 'u':
+                buf.append(decodeUnicode(value, i + 1));
+                i += 4;
+                break;
+            default:
+                throw new CorruptedFrameException("invalid escape sequence: \\" + c);
+            }
+        }
+        return buf.toString();
+    }
+
+    private static char decodeUnicode(String value, int index) {
+        if (index + 4 > value.length()) {
+            throw new CorruptedFrameException("invalid escape sequence: \\u" + value.substring(index));
+        }
+        int c = 0;
+        for (int i = index; i < index + 4; i ++) {
+            int digit = Character.digit(value.charAt(i), 16);
+            if (digit < 0) {
+                throw new CorruptedFrameException("invalid escape sequence: \\u" + value.substring(index, index + 4));
+            }
+            c = c << 4 | digit;
+        }
+        return (char) c;
+    }
+}
@@ -16,6 +16,7 @@
 package io.netty.handler.codec;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.embedded.EmbeddedChannel;
@@ -23,6 +24,7 @@ import io.netty.util.ReferenceCountUtil;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.util.Arrays;
 import java.util.List;
 
 public class ByteToMessageDecoderTest {
@@ -119,4 +121,99 @@ public class ByteToMessageDecoderTest {
         Assert.assertEquals(channel.readInbound(), Unpooled.wrappedBuffer(new byte[] {'b'}));
         Assert.assertNull(channel.readInbound());
     }
+
+    @Test
+    public void testCompositeCumulator() {
+        final int frameLength = 4096;
+        ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+                if (in.readableBytes() >= frameLength) {
+                    out.add(in.readBytes(frameLength));
+                } else if (in.readableBytes() > 1024) {
+                    // Larger reads are added as components instead of being copied.
+                    Assert.assertTrue(internalBuffer() instanceof CompositeByteBuf);
+                }
+            }
+        };
+        decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf frame = Unpooled.buffer(frameLength * 2);
+        for (int i = 0; i < frameLength * 2; i ++) {
+            frame.writeByte(i);
+        }
+        ByteBuf expected = frame.copy();
+
+        // Small reads which fit into the first buffer are merged, the rest is added as components.
+        ByteBuf first = Unpooled.buffer(1024);
+        first.writeBytes(frame, 10);
+        Assert.assertFalse(channel.writeInbound(first));
+        Assert.assertFalse(channel.writeInbound(frame.readBytes(10)));
+        while (frame.readableBytes() > 1000) {
+            channel.writeInbound(frame.readBytes(1000));
+        }
+        Assert.assertTrue(channel.writeInbound(frame));
+        Assert.assertTrue(channel.finish());
+
+        for (int i = 0; i < 2; i ++) {
+            ByteBuf b = channel.readInbound();
+            Assert.assertEquals(expected.readSlice(frameLength), b);
+            b.release();
+        }
+        Assert.assertNull(channel.readInbound());
+        expected.release();
+    }
+
+    @Test
+    public void testCompositeCumulatorSharedCumulation() {
+        final ByteBuf[] retained = new ByteBuf[1];
+        ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+                if (retained[0] == null) {
+                    retained[0] = in.duplicate().retain();
+                } else if (in.readableBytes() == 4) {
+                    out.add(in.readBytes(4));
+                }
+            }
+        };
+        decoder.setCumulator(ByteToMessageDecoder.COMPOSITE_CUMULATOR);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        Assert.assertFalse(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1, 2 })));
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 3, 4 })));
+
+        // The retained cumulation was copied instead of being written to.
+        Assert.assertEquals(Unpooled.wrappedBuffer(new byte[] { 1, 2 }), retained[0]);
+        ByteBuf b = channel.readInbound();
+        Assert.assertEquals(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3, 4 }), b);
+        b.release();
+        retained[0].release();
+        Assert.assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testFireBatch() {
+        ByteToMessageDecoder decoder = new ByteToMessageDecoder() {
+            @Override
+            protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) throws Exception {
+                if (in.isReadable()) {
+                    out.add(in.readByte());
+                }
+            }
+        };
+        decoder.setFireBatch(true);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        // All the messages decoded from one buffer are passed on together.
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1, 2, 3 })));
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 4 })));
+        List<Object> batch = channel.readInbound();
+        Assert.assertEquals(Arrays.<Object>asList((byte) 1, (byte) 2, (byte) 3), batch);
+        batch = channel.readInbound();
+        Assert.assertEquals(Arrays.<Object>asList((byte) 4), batch);
+        Assert.assertNull(channel.readInbound());
+        Assert.assertFalse(channel.finish());
+    }
 }
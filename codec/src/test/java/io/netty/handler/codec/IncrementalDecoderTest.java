@@ -0,0 +1,189 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.List;
+
+import static io.netty.util.ReferenceCountUtil.*;
+import static org.junit.Assert.*;
+
+public class IncrementalDecoderTest {
+
+    private enum State {
+        READ_COUNT,
+        READ_VALUE
+    }
+
+    /**
+     * Decodes a message which consists of an int count followed by count int values into the sum of the values.
+     */
+    private static final class SumDecoder extends IncrementalDecoder<State> {
+        int steps;
+        private int remaining;
+        private long sum;
+
+        SumDecoder() {
+            super(State.READ_COUNT);
+        }
+
+        @Override
+        protected boolean decode(ChannelHandlerContext ctx, State state, ByteBuf in, List<Object> out) {
+            steps ++;
+            switch (state) {
+            case READ_COUNT:
+                if (in.readableBytes() < 4) {
+                    return false;
+                }
+                remaining = in.readInt();
+                sum = 0;
+                state(State.READ_VALUE);
+                return true;
+            case READ_VALUE:
+                if (remaining == 0) {
+                    out.add(sum);
+                    state(State.READ_COUNT);
+                    return true;
+                }
+                // Read the first two bytes before checking if the rest is there to verify the rewind.
+                if (in.readableBytes() < 2) {
+                    return false;
+                }
+                int high = in.readUnsignedShort();
+                if (in.readableBytes() < 2) {
+                    return false;
+                }
+                sum += high << 16 | in.readUnsignedShort();
+                remaining --;
+                return true;
+            default:
+                throw new Error("Shouldn't reach here.");
+            }
+        }
+    }
+
+    @Test
+    public void testFragmentedInput() {
+        SumDecoder decoder = new SumDecoder();
+        EmbeddedChannel ch = new EmbeddedChannel(decoder);
+        int count = 1000;
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeInt(count);
+        long expected = 0;
+        for (int i = 0; i < count; i ++) {
+            buf.writeInt(i);
+            expected += i;
+        }
+        buf.writeInt(0);
+
+        // Write the messages one byte at a time.
+        while (buf.isReadable()) {
+            ch.writeInbound(buf.readBytes(1));
+        }
+        buf.release();
+
+        assertEquals(Long.valueOf(expected), ch.readInbound());
+        assertEquals(Long.valueOf(0), ch.readInbound());
+        assertNull(ch.readInbound());
+
+        // Each completed step is decoded once, each byte at most triggers a retry of the current step.
+        int bytes = 4 + count * 4 + 4;
+        assertTrue(decoder.steps <= count + 4 + 2 * bytes);
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testTruncatedInput() {
+        EmbeddedChannel ch = new EmbeddedChannel(new SumDecoder());
+        ch.writeInbound(Unpooled.buffer().writeInt(2).writeInt(1).writeShort(0));
+        assertNull(ch.readInbound());
+        ch.writeInbound(Unpooled.buffer().writeShort(2));
+        assertEquals(Long.valueOf(3), ch.readInbound());
+        ch.writeInbound(Unpooled.buffer().writeShort(0));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testReplacement() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IncrementalDecoder<Void>() {
+            @Override
+            protected boolean decode(ChannelHandlerContext ctx, Void state, ByteBuf in, List<Object> out) {
+                // Detect the protocol by a two byte magic and hand off the remaining data.
+                if (in.readableBytes() < 2) {
+                    return false;
+                }
+                in.skipBytes(2);
+                ctx.pipeline().remove(this);
+                return true;
+            }
+        });
+
+        ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 'A' }));
+        assertNull(ch.readInbound());
+        ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 'B', 'C' }));
+        assertEquals(releaseLater(Unpooled.wrappedBuffer(new byte[] { 'C' })), releaseLater(ch.readInbound()));
+        assertNull(ch.readInbound());
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testNoProgress() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IncrementalDecoder<Void>() {
+            @Override
+            protected boolean decode(ChannelHandlerContext ctx, Void state, ByteBuf in, List<Object> out) {
+                return true;
+            }
+        });
+
+        try {
+            ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 'A' }));
+            fail();
+        } catch (DecoderException e) {
+            // expected
+        }
+        // The remaining input is forwarded once the decoder is removed.
+        ch.pipeline().removeFirst();
+        assertTrue(release(ch.readInbound()));
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testMessageFromIncompleteStep() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IncrementalDecoder<Void>() {
+            @Override
+            protected boolean decode(ChannelHandlerContext ctx, Void state, ByteBuf in, List<Object> out) {
+                out.add(in.readBytes(1));
+                return false;
+            }
+        });
+
+        try {
+            ch.writeInbound(Unpooled.wrappedBuffer(new byte[] { 'A' }));
+            fail();
+        } catch (DecoderException e) {
+            // expected
+        }
+        // The message is still forwarded.
+        ch.pipeline().removeFirst();
+        assertTrue(release(ch.readInbound()));
+        assertFalse(ch.finish());
+    }
+}
@@ -82,4 +82,73 @@ public class LengthFieldBasedFrameDecoderTest {
         Assert.assertNull(channel.readInbound());
         channel.finish();
     }
+
+    @Test
+    public void testMultipleFrames() {
+        testMultipleFrames(false);
+    }
+
+    @Test
+    public void testMultipleSlicedFrames() {
+        testMultipleFrames(true);
+    }
+
+    private static void testMultipleFrames(boolean sliceFrames) {
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(16, 0, 1, 0, 1);
+        decoder.setSliceFrames(sliceFrames);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        ByteBuf buf = Unpooled.buffer();
+        for (int i = 0; i < 3; i++) {
+            buf.writeByte(2);
+            buf.writeShort(i);
+        }
+        // An incomplete frame.
+        buf.writeByte(3);
+        buf.writeByte('a');
+        Assert.assertTrue(channel.writeInbound(buf));
+
+        for (int i = 0; i < 3; i++) {
+            ByteBuf b = channel.readInbound();
+            Assert.assertEquals(2, b.readableBytes());
+            Assert.assertEquals(i, b.readShort());
+            if (sliceFrames) {
+                Assert.assertSame(buf, b.unwrap());
+            } else {
+                Assert.assertNotSame(buf, b.unwrap());
+            }
+            b.release();
+        }
+        Assert.assertNull(channel.readInbound());
+
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 'b', 'c' })));
+        ByteBuf b = channel.readInbound();
+        Assert.assertEquals(3, b.readableBytes());
+        Assert.assertEquals('a', b.readByte());
+        Assert.assertEquals('b', b.readByte());
+        Assert.assertEquals('c', b.readByte());
+        b.release();
+
+        Assert.assertEquals(0, buf.refCnt());
+        Assert.assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testMultipleFramesWithSingleDecode() {
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(16, 0, 1, 0, 1);
+        decoder.setSingleDecode(true);
+        EmbeddedChannel channel = new EmbeddedChannel(decoder);
+
+        Assert.assertTrue(channel.writeInbound(Unpooled.wrappedBuffer(new byte[] { 1, 'a', 1, 'b' })));
+        ByteBuf b = channel.readInbound();
+        Assert.assertEquals('a', b.readByte());
+        b.release();
+        Assert.assertNull(channel.readInbound());
+
+        Assert.assertTrue(channel.finish());
+        b = channel.readInbound();
+        Assert.assertEquals('b', b.readByte());
+        b.release();
+        Assert.assertNull(channel.readInbound());
+    }
 }
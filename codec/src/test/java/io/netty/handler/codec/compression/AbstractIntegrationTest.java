@@ -0,0 +1,102 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compresses data with the encoder of a codec and decompresses it again with its decoder.
+ */
+public abstract class AbstractIntegrationTest {
+
+    protected static final byte[] TEXT = ("Netty has been designed carefully with the experiences earned from the " +
+            "implementation of a lot of protocols such as FTP, SMTP, HTTP, and various binary and text-based " +
+            "legacy protocols").getBytes(CharsetUtil.US_ASCII);
+
+    protected abstract ChannelHandler newEncoder();
+
+    protected abstract ChannelHandler newDecoder();
+
+    @Test
+    public void testText() {
+        testIdentity(TEXT, 1);
+    }
+
+    @Test
+    public void testEmpty() {
+        testIdentity(new byte[0], 1);
+    }
+
+    @Test
+    public void testOneByte() {
+        testIdentity(new byte[] { 'A' }, 1);
+    }
+
+    protected void testIdentity(byte[] data, int messages) {
+        testIdentity(newEncoder(), newDecoder(), data, messages);
+    }
+
+    /**
+     * Writes {@code data} to the encoder in the specified number of messages, feeds the compressed data to the
+     * decoder in small pieces and checks that the decompressed data is the same as {@code data}.
+     */
+    protected static void testIdentity(
+            ChannelHandler encoderHandler, ChannelHandler decoderHandler, byte[] data, int messages) {
+        EmbeddedChannel encoder = new EmbeddedChannel(encoderHandler);
+        EmbeddedChannel decoder = new EmbeddedChannel(decoderHandler);
+        CompositeByteBuf decompressed = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        try {
+            int messageSize = data.length / messages + 1;
+            for (int i = 0; i < data.length; i += messageSize) {
+                encoder.writeOutbound(Unpooled.wrappedBuffer(data, i, Math.min(messageSize, data.length - i)));
+            }
+            assertTrue(encoder.finish());
+
+            for (;;) {
+                ByteBuf compressed = encoder.readOutbound();
+                if (compressed == null) {
+                    break;
+                }
+                // Feed the decoder in small pieces.
+                while (compressed.isReadable()) {
+                    decoder.writeInbound(compressed.readSlice(Math.min(1000, compressed.readableBytes())).retain());
+                }
+                compressed.release();
+            }
+
+            for (;;) {
+                ByteBuf msg = decoder.readInbound();
+                if (msg == null) {
+                    break;
+                }
+                decompressed.addComponent(msg);
+                decompressed.writerIndex(decompressed.writerIndex() + msg.readableBytes());
+            }
+            assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+            assertFalse(decoder.finish());
+        } finally {
+            decompressed.release();
+        }
+    }
+}
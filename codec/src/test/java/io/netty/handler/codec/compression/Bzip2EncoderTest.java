@@ -0,0 +1,187 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.ThreadLocalRandom;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorInputStream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import static io.netty.handler.codec.compression.Bzip2Constants.*;
+import static org.junit.Assert.*;
+
+public class Bzip2EncoderTest {
+
+    private static final ThreadLocalRandom rand;
+
+    private static final byte[] BYTES_SMALL = new byte[256];
+    private static final byte[] BYTES_LARGE = new byte[MAX_BLOCK_SIZE * BASE_BLOCK_SIZE * 2];
+    private static final byte[] BYTES_TEXT = new byte[MIN_BLOCK_SIZE * BASE_BLOCK_SIZE * 3];
+
+    static {
+        rand = ThreadLocalRandom.current();
+        rand.nextBytes(BYTES_SMALL);
+        rand.nextBytes(BYTES_LARGE);
+
+        final byte[] words = "Netty is an asynchronous event-driven network application framework ".getBytes();
+        for (int i = 0, offset = 0; i < BYTES_TEXT.length; i++) {
+            if (rand.nextInt(256) == 0) {
+                offset = rand.nextInt(words.length);
+            }
+            BYTES_TEXT[i] = words[(i + offset) % words.length];
+        }
+    }
+
+    @Rule
+    public ExpectedException expected = ExpectedException.none();
+
+    @Test
+    public void testTooSmallBlockSize() throws Exception {
+        expected.expect(IllegalArgumentException.class);
+        expected.expectMessage("blockSizeMultiplier");
+
+        new Bzip2Encoder(MIN_BLOCK_SIZE - 1);
+    }
+
+    @Test
+    public void testTooBigBlockSize() throws Exception {
+        expected.expect(IllegalArgumentException.class);
+        expected.expectMessage("blockSizeMultiplier");
+
+        new Bzip2Encoder(MAX_BLOCK_SIZE + 1);
+    }
+
+    private static byte[] compress(final byte[] data, final int blockSize) {
+        final EmbeddedChannel channel = new EmbeddedChannel(new Bzip2Encoder(blockSize));
+        channel.writeOutbound(Unpooled.wrappedBuffer(data));
+        channel.finish();
+
+        ByteBuf compressed = Unpooled.buffer();
+        ByteBuf msg;
+        while ((msg = channel.readOutbound()) != null) {
+            compressed.writeBytes(msg);
+            msg.release();
+        }
+        final byte[] result = new byte[compressed.readableBytes()];
+        compressed.readBytes(result);
+        compressed.release();
+        return result;
+    }
+
+    private static byte[] decompress(final byte[] compressed) throws Exception {
+        BZip2CompressorInputStream bZip2Is = new BZip2CompressorInputStream(new ByteArrayInputStream(compressed));
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = bZip2Is.read(buffer)) != -1) {
+            os.write(buffer, 0, read);
+        }
+        bZip2Is.close();
+        return os.toByteArray();
+    }
+
+    private static void testCompression(final byte[] data) throws Exception {
+        for (int blockSize = MIN_BLOCK_SIZE; blockSize <= MAX_BLOCK_SIZE; blockSize++) {
+            assertArrayEquals(data, decompress(compress(data, blockSize)));
+        }
+    }
+
+    @Test
+    public void testCompressionOfEmptyStream() throws Exception {
+        testCompression(new byte[0]);
+    }
+
+    @Test
+    public void testCompressionOfSmallChunkOfData() throws Exception {
+        testCompression(BYTES_SMALL);
+    }
+
+    @Test
+    public void testCompressionOfLargeChunkOfData() throws Exception {
+        testCompression(BYTES_LARGE);
+    }
+
+    @Test
+    public void testCompressionOfText() throws Exception {
+        final byte[] compressed = compress(BYTES_TEXT, MIN_BLOCK_SIZE);
+        assertArrayEquals(BYTES_TEXT, decompress(compressed));
+        assertTrue(compressed.length < BYTES_TEXT.length / 10);
+    }
+
+    @Test
+    public void testCompressionOfRuns() throws Exception {
+        // Runs of all lengths around the limits of both run-length encoding stages.
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        for (int length = 1; length < 600; length++) {
+            for (int i = 0; i < length; i++) {
+                os.write(length);
+            }
+        }
+        os.write(new byte[MIN_BLOCK_SIZE * BASE_BLOCK_SIZE * 2], 0, MIN_BLOCK_SIZE * BASE_BLOCK_SIZE * 2);
+        testCompression(os.toByteArray());
+    }
+
+    @Test
+    public void testCompressionOfPeriodicData() throws Exception {
+        // Rotations of periodic data compare equal, which the block sorter must terminate on.
+        final byte[] data = new byte[MIN_BLOCK_SIZE * BASE_BLOCK_SIZE * 3];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) "abcab".charAt(i % 5);
+        }
+        testCompression(data);
+    }
+
+    @Test
+    public void testBlockSorter() throws Exception {
+        final Random random = new Random(1);
+        for (int t = 0; t < 2000; t++) {
+            final int length = 1 + random.nextInt(200);
+            final int alphabetSize = 1 + random.nextInt(4);
+            final int period = random.nextBoolean() ? 1 + random.nextInt(5) : length;
+            final byte[] block = new byte[length];
+            for (int i = 0; i < length; i++) {
+                block[i] = i < period ? (byte) random.nextInt(alphabetSize) : block[i - period];
+            }
+
+            final byte[] bwtBlock = new byte[length];
+            final int origin = new Bzip2BlockSorter(length).bwt(block, length, bwtBlock);
+
+            final String[] rotations = new String[length];
+            final String text = new String(block, CharsetUtil.ISO_8859_1);
+            final String doubled = text + text;
+            for (int i = 0; i < length; i++) {
+                rotations[i] = doubled.substring(i, i + length);
+            }
+            Arrays.sort(rotations);
+            final byte[] lastColumn = new byte[length];
+            for (int i = 0; i < length; i++) {
+                lastColumn[i] = (byte) rotations[i].charAt(length - 1);
+            }
+            assertArrayEquals(lastColumn, bwtBlock);
+            assertEquals(text, rotations[origin]);
+        }
+    }
+}
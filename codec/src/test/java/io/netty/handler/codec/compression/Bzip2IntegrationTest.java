@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static io.netty.handler.codec.compression.Bzip2Constants.*;
+import static org.junit.Assert.*;
+
+public class Bzip2IntegrationTest extends AbstractIntegrationTest {
+
+    @Override
+    protected ChannelHandler newEncoder() {
+        return new Bzip2Encoder();
+    }
+
+    @Override
+    protected ChannelHandler newDecoder() {
+        return new Bzip2Decoder();
+    }
+
+    @Test
+    public void testRandomData() {
+        byte[] data = new byte[300000];
+        new Random(7).nextBytes(data);
+        testIdentity(new Bzip2Encoder(MIN_BLOCK_SIZE), new Bzip2Decoder(), data, 7);
+    }
+
+    @Test
+    public void testMultipleBlocks() {
+        byte[] data = new byte[MIN_BLOCK_SIZE * BASE_BLOCK_SIZE * 4];
+        Random random = new Random(9);
+        for (int i = 0; i < data.length; i ++) {
+            data[i] = random.nextInt(64) == 0 ? (byte) random.nextInt() : TEXT[i % TEXT.length];
+        }
+        testIdentity(new Bzip2Encoder(MIN_BLOCK_SIZE), new Bzip2Decoder(), data, 1);
+        testIdentity(new Bzip2Encoder(MIN_BLOCK_SIZE), new Bzip2Decoder(), data, 1000);
+    }
+
+    @Test
+    public void testClose() {
+        Bzip2Encoder bzip2 = new Bzip2Encoder();
+        EmbeddedChannel encoder = new EmbeddedChannel(bzip2);
+        EmbeddedChannel decoder = new EmbeddedChannel(new Bzip2Decoder());
+
+        // The data is buffered until the stream is finished.
+        assertTrue(encoder.writeOutbound(Unpooled.wrappedBuffer(TEXT)));
+        ByteBuf header = encoder.readOutbound();
+        assertEquals(4, header.readableBytes());
+        assertFalse(decoder.writeInbound(header));
+        assertNull(encoder.readOutbound());
+
+        assertFalse(bzip2.isClosed());
+        assertTrue(bzip2.close().isSuccess());
+        assertTrue(bzip2.isClosed());
+        ByteBuf lastBlock = encoder.readOutbound();
+        assertTrue(decoder.writeInbound(lastBlock));
+        ByteBuf decompressed = decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(TEXT), decompressed);
+        decompressed.release();
+
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+}
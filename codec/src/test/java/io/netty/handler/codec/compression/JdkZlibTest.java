@@ -15,8 +15,17 @@
  */
 package io.netty.handler.codec.compression;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
 
 public class JdkZlibTest extends ZlibTest {
 
@@ -35,4 +44,74 @@ public class JdkZlibTest extends ZlibTest {
     public void testZLIB_OR_NONE3() throws Exception {
         super.testZLIB_OR_NONE3();
     }
+
+    @Test
+    public void testGZIPWithDirectBuffers() throws Exception {
+        byte[] data = ("Netty is an asynchronous event-driven network application framework " +
+                "for rapid development of maintainable high performance protocol servers & clients.")
+                .getBytes(CharsetUtil.US_ASCII);
+        EmbeddedChannel chEncoder = new EmbeddedChannel(new JdkZlibEncoder(ZlibWrapper.GZIP));
+        JdkZlibDecoder decoder = new JdkZlibDecoder(ZlibWrapper.GZIP);
+        EmbeddedChannel chDecoder = new EmbeddedChannel(decoder);
+
+        for (int i = 0; i < 100; i ++) {
+            chEncoder.writeOutbound(Unpooled.directBuffer(data.length).writeBytes(data));
+        }
+        assertTrue(chEncoder.finish());
+
+        // The whole stream, including the footer with the CRC of the direct buffers, is valid.
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        for (;;) {
+            ByteBuf msg = chEncoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            byte[] bytes = new byte[msg.readableBytes()];
+            msg.getBytes(msg.readerIndex(), bytes);
+            compressed.write(bytes);
+            chDecoder.writeInbound(Unpooled.directBuffer(bytes.length).writeBytes(msg));
+            msg.release();
+        }
+        assertTrue(decoder.isClosed());
+
+        ByteBuf decompressed = Unpooled.buffer();
+        for (;;) {
+            ByteBuf msg = chDecoder.readInbound();
+            if (msg == null) {
+                break;
+            }
+            decompressed.writeBytes(msg);
+            msg.release();
+        }
+        assertFalse(chDecoder.finish());
+
+        ByteBuf expected = Unpooled.buffer();
+        for (int i = 0; i < 100; i ++) {
+            expected.writeBytes(data);
+        }
+        assertEquals(expected, decompressed);
+
+        GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.toByteArray()));
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            assertEquals(expected.readSlice(read), Unpooled.wrappedBuffer(buffer, 0, read));
+        }
+        assertFalse(expected.isReadable());
+        expected.release();
+        decompressed.release();
+    }
+
+    @Test
+    public void testDeflaterIsRecycled() {
+        RecyclableDeflater deflater = RecyclableDeflater.newInstance(6, true);
+        deflater.deflater().setInput(new byte[100]);
+        deflater.recycle();
+
+        RecyclableDeflater recycled = RecyclableDeflater.newInstance(6, true);
+        assertSame(deflater, recycled);
+        assertEquals(0, recycled.deflater().getTotalIn());
+        assertTrue(recycled.deflater().needsInput());
+        recycled.recycle();
+    }
 }
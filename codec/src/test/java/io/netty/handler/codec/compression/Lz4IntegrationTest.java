@@ -0,0 +1,166 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Lz4IntegrationTest extends AbstractIntegrationTest {
+
+    @Override
+    protected ChannelHandler newEncoder() {
+        return new Lz4FrameEncoder();
+    }
+
+    @Override
+    protected ChannelHandler newDecoder() {
+        return new Lz4FrameDecoder();
+    }
+
+    @Test
+    public void testRandomData() {
+        byte[] data = new byte[1048576];
+        new Random(7).nextBytes(data);
+        testIdentity(data, 1, Lz4Constants.DEFAULT_BLOCK_SIZE);
+    }
+
+    @Test
+    public void testCompressibleDataAcrossBlocks() {
+        byte[] data = new byte[1048576 + 123];
+        for (int i = 0; i < data.length; i ++) {
+            data[i] = TEXT[i % TEXT.length];
+        }
+        // Messages span multiple blocks and blocks span multiple messages.
+        testIdentity(data, 7, Lz4Constants.MIN_BLOCK_SIZE);
+        testIdentity(data, 100, 1024);
+        testIdentity(data, 3, Lz4Constants.DEFAULT_BLOCK_SIZE);
+    }
+
+    private static void testIdentity(byte[] data, int messages, int blockSize) {
+        Lz4FrameDecoder lz4 = new Lz4FrameDecoder();
+        testIdentity(new Lz4FrameEncoder(blockSize), lz4, data, messages);
+        assertTrue(lz4.isClosed());
+    }
+
+    @Test
+    public void testFlushWritesBufferedData() {
+        Lz4FrameEncoder lz4 = new Lz4FrameEncoder();
+        EmbeddedChannel encoder = new EmbeddedChannel(lz4);
+        EmbeddedChannel decoder = new EmbeddedChannel(new Lz4FrameDecoder());
+
+        // The data is buffered until the channel is flushed.
+        encoder.write(Unpooled.wrappedBuffer(TEXT));
+        encoder.flush();
+        ByteBuf empty = encoder.readOutbound();
+        assertFalse(empty.isReadable());
+        empty.release();
+        ByteBuf compressed = encoder.readOutbound();
+        assertTrue(compressed.isReadable());
+        assertTrue(decoder.writeInbound(compressed));
+        ByteBuf decompressed = decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(TEXT), decompressed);
+        decompressed.release();
+
+        // Finishing the stream writes the end mark.
+        assertFalse(lz4.isClosed());
+        assertTrue(lz4.close().isSuccess());
+        assertTrue(lz4.isClosed());
+        ByteBuf endMark = encoder.readOutbound();
+        assertEquals(Lz4Constants.HEADER_LENGTH, endMark.readableBytes());
+        assertFalse(decoder.writeInbound(endMark));
+        assertTrue(((Lz4FrameDecoder) decoder.pipeline().first()).isClosed());
+
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testInvalidMagic() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new Lz4FrameDecoder());
+        ByteBuf compressed = compress(TEXT);
+        compressed.setByte(0, 'l');
+        decoder.writeInbound(compressed);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testChecksumMismatch() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new Lz4FrameDecoder());
+        ByteBuf compressed = compress(TEXT);
+        int checksumIndex = Lz4Constants.CHECKSUM_OFFSET;
+        compressed.setByte(checksumIndex, compressed.getByte(checksumIndex) + 1);
+        decoder.writeInbound(compressed);
+    }
+
+    @Test
+    public void testChecksumNotValidated() {
+        EmbeddedChannel decoder = new EmbeddedChannel(new Lz4FrameDecoder(false));
+        ByteBuf compressed = compress(TEXT);
+        int checksumIndex = Lz4Constants.CHECKSUM_OFFSET;
+        compressed.setByte(checksumIndex, compressed.getByte(checksumIndex) + 1);
+        assertTrue(decoder.writeInbound(compressed));
+        ByteBuf decompressed = decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(TEXT), decompressed);
+        decompressed.release();
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void testIncompressibleBlockIsSliced() {
+        byte[] data = new byte[4096];
+        new Random(3).nextBytes(data);
+        ByteBuf compressed = compress(data);
+        assertEquals(Lz4Constants.BLOCK_TYPE_NON_COMPRESSED,
+                compressed.getByte(Lz4Constants.TOKEN_OFFSET) & 0xF0);
+
+        EmbeddedChannel decoder = new EmbeddedChannel(new Lz4FrameDecoder());
+        assertTrue(decoder.writeInbound(compressed));
+        ByteBuf decompressed = decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(data), decompressed);
+        decompressed.release();
+        assertFalse(decoder.finish());
+    }
+
+    private static ByteBuf compress(byte[] data) {
+        EmbeddedChannel encoder = new EmbeddedChannel(new Lz4FrameEncoder());
+        assertTrue(encoder.writeOutbound(Unpooled.wrappedBuffer(data)));
+        ByteBuf compressed = Unpooled.buffer();
+        for (;;) {
+            ByteBuf msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            compressed.writeBytes(msg);
+            msg.release();
+        }
+        encoder.finish();
+        for (;;) {
+            Object msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        return compressed;
+    }
+}
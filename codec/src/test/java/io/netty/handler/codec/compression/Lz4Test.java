@@ -0,0 +1,160 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class Lz4Test {
+
+    private final int[] hashTable = new int[Lz4Constants.HASH_TABLE_SIZE];
+
+    @Test
+    public void testXxHash32() {
+        assertEquals(0x02CC5D05, hash(""));
+        assertEquals(0x32D153FF, hash("abc"));
+        assertEquals(0xE2293B2F, hash("Nobody inspects the spammish repetition"));
+    }
+
+    private static int hash(String data) {
+        ByteBuf heap = Unpooled.copiedBuffer(data, CharsetUtil.US_ASCII);
+        ByteBuf direct = Unpooled.directBuffer().writeBytes(heap, 0, heap.readableBytes());
+        try {
+            int hash = XxHash32.hash(heap, heap.readerIndex(), heap.readableBytes(), 0);
+            assertEquals(hash, XxHash32.hash(direct, direct.readerIndex(), direct.readableBytes(), 0));
+            return hash;
+        } finally {
+            heap.release();
+            direct.release();
+        }
+    }
+
+    @Test
+    public void testDecompressLiteralsAndMatch() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[] {
+                0x44, 'a', 'b', 'c', 'd', 0x04, 0x00, // 4 literals, match of 8 bytes with offset 4
+                0x10, 'x'                             // 1 literal
+        });
+        assertEquals("abcdabcdabcdx", decompress(in, 13));
+    }
+
+    @Test
+    public void testDecompressOverlappingMatch() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[] {
+                0x1F, 'a', 0x01, 0x00, 0x03, // 1 literal, match of 4 + 15 + 3 bytes with offset 1
+                0x50, 'b', 'c', 'd', 'e', 'f' // 5 literals
+        });
+        assertEquals("aaaaaaaaaaaaaaaaaaaaaaabcdef", decompress(in, 28));
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testDecompressInvalidOffset() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[] {
+                0x14, 'a', 0x02, 0x00, 0x10, 'x'
+        });
+        decompress(in, 10);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testDecompressLengthMismatch() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[] {
+                0x30, 'a', 'b', 'c'
+        });
+        decompress(in, 4);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testDecompressTruncated() {
+        ByteBuf in = Unpooled.wrappedBuffer(new byte[] {
+                0x44, 'a', 'b', 'c', 'd', 0x04
+        });
+        decompress(in, 12);
+    }
+
+    private static String decompress(ByteBuf in, int length) {
+        ByteBuf out = Unpooled.buffer(length);
+        try {
+            Lz4.decompress(in, in.readerIndex(), in.readableBytes(), out, 0, length);
+            out.writerIndex(length);
+            return out.toString(CharsetUtil.US_ASCII);
+        } finally {
+            in.release();
+            out.release();
+        }
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Random random = new Random(5);
+        int[] lengths = { 0, 1, Lz4Constants.MIN_LENGTH - 1, Lz4Constants.MIN_LENGTH, 100, 65536, 300000 };
+        for (int length : lengths) {
+            byte[] randomData = new byte[length];
+            random.nextBytes(randomData);
+            testRoundTrip(randomData);
+
+            testRoundTrip(new byte[length]);
+
+            byte[] textData = new byte[length];
+            byte[] words = "Netty is an asynchronous event-driven network application framework ".getBytes();
+            for (int i = 0; i < length; i ++) {
+                textData[i] = random.nextInt(32) == 0 ? (byte) random.nextInt() : words[i % words.length];
+            }
+            testRoundTrip(textData);
+        }
+    }
+
+    private void testRoundTrip(byte[] data) {
+        testRoundTrip(Unpooled.wrappedBuffer(data), Unpooled.buffer(Lz4.maxCompressedLength(data.length) + 3));
+        testRoundTrip(Unpooled.directBuffer(data.length + 7).writeZero(7).writeBytes(data).skipBytes(7),
+                Unpooled.directBuffer(Lz4.maxCompressedLength(data.length)));
+    }
+
+    private void testRoundTrip(ByteBuf in, ByteBuf compressed) {
+        int length = in.readableBytes();
+        ByteBuf out = Unpooled.buffer(length);
+        try {
+            int compressedLength = Lz4.compress(in, in.readerIndex(), length, compressed, compressed.writerIndex(),
+                    hashTable);
+            assertTrue(compressedLength <= Lz4.maxCompressedLength(length));
+            Lz4.decompress(compressed, compressed.writerIndex(), compressedLength, out, 0, length);
+            out.writerIndex(length);
+            assertEquals(in, out);
+        } finally {
+            in.release();
+            compressed.release();
+            out.release();
+        }
+    }
+
+    @Test
+    public void testCompressCompressibleData() {
+        ByteBuf in = Unpooled.buffer().writeZero(65536);
+        ByteBuf compressed = Unpooled.buffer(Lz4.maxCompressedLength(65536));
+        try {
+            int compressedLength = Lz4.compress(in, 0, 65536, compressed, 0, hashTable);
+            assertTrue(compressedLength < 512);
+        } finally {
+            in.release();
+            compressed.release();
+        }
+    }
+}
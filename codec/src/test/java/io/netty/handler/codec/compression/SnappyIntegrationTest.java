@@ -72,6 +72,41 @@ public class SnappyIntegrationTest {
         }));
     }
 
+    @Test
+    public void testRepetitiveText() throws Exception {
+        testIdentity(newRepetitiveText());
+    }
+
+    @Test
+    public void testDirectBuffer() throws Exception {
+        // Direct buffers are read through their memory address if available.
+        byte[] text = newRepetitiveText();
+        ByteBuf in = directBuffer(text.length).writeBytes(text);
+        testIdentity(in.slice(3, text.length - 3));
+    }
+
+    /**
+     * Returns text with matches of all lengths, most of them longer than the 8 bytes
+     * compared at once by the encoder.
+     */
+    private static byte[] newRepetitiveText() {
+        Random random = new Random(5);
+        ByteBuf text = buffer();
+        while (text.readableBytes() < 100000) {
+            int length = random.nextInt(200);
+            int offset = random.nextInt(Math.max(1, text.readableBytes() - length));
+            if (random.nextInt(4) == 0 || text.readableBytes() <= length) {
+                text.writeBytes(("Netty is an asynchronous event-driven network application framework " +
+                        random.nextInt()).getBytes(CharsetUtil.US_ASCII));
+            } else {
+                text.writeBytes(text, offset, length);
+            }
+        }
+        byte[] array = new byte[text.readableBytes()];
+        text.readBytes(array);
+        return array;
+    }
+
     // These tests were found using testRandom() with large RANDOM_RUNS.
 
     // Tests that copies do not attempt to overrun into a previous frame chunk
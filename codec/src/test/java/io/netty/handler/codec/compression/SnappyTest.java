@@ -20,6 +20,8 @@ import io.netty.buffer.Unpooled;
 import org.junit.After;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static io.netty.handler.codec.compression.Snappy.*;
 import static org.junit.Assert.*;
 
@@ -178,6 +180,48 @@ public class SnappyTest {
         assertEquals(maskChecksum(0xd6cb8b55), calculateChecksum(input));
     }
 
+    @Test
+    public void testCalculateChecksumOfDirectBuffer() {
+        ByteBuf input = Unpooled.directBuffer().writeBytes(new byte[] {
+                'n', 'e', 't', 't', 'y'
+        });
+        try {
+            assertEquals(maskChecksum(0xd6cb8b55), calculateChecksum(input));
+        } finally {
+            input.release();
+        }
+    }
+
+    @Test
+    public void testCrc32cOfCheckValue() {
+        Crc32c crc32c = new Crc32c();
+        crc32c.update(new byte[] { '1', '2', '3', '4', '5', '6', '7', '8', '9' }, 0, 9);
+        assertEquals(0xe3069283L, crc32c.getValue());
+    }
+
+    @Test
+    public void testCrc32cSlicingMatchesBytewise() {
+        byte[] data = new byte[100];
+        new Random(3).nextBytes(data);
+        ByteBuf direct = Unpooled.directBuffer(data.length).writeBytes(data);
+        try {
+            for (int offset = 0; offset < 9; offset ++) {
+                for (int length = 0; length <= data.length - offset; length ++) {
+                    Crc32c bytewise = new Crc32c();
+                    for (int i = offset; i < offset + length; i ++) {
+                        bytewise.update(data[i]);
+                    }
+                    Crc32c sliced = new Crc32c();
+                    sliced.update(data, offset, length);
+                    assertEquals(bytewise.getValue(), sliced.getValue());
+                    assertEquals(maskChecksum((int) bytewise.getValue()), calculateChecksum(direct, offset, length));
+                }
+            }
+        } finally {
+            direct.release();
+        }
+    }
+
     @Test
     public void testValidateChecksumMatches() {
         ByteBuf input = Unpooled.wrappedBuffer(new byte[] {
@@ -0,0 +1,240 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ZstdIntegrationTest extends AbstractIntegrationTest {
+
+    @Override
+    protected ChannelHandler newEncoder() {
+        return new ZstdEncoder();
+    }
+
+    @Override
+    protected ChannelHandler newDecoder() {
+        return new ZstdDecoder();
+    }
+
+    @Test
+    public void testRandomData() {
+        byte[] data = new byte[300000];
+        new Random(7).nextBytes(data);
+        testIdentity(data, 3);
+    }
+
+    @Test
+    public void testAllLevels() {
+        byte[] data = newTextData(new Random(5), 400000);
+        for (int level = 1; level <= 9; level ++) {
+            testIdentity(new ZstdEncoder(level), new ZstdDecoder(), data, 7);
+        }
+    }
+
+    @Test
+    public void testWindowSlides() {
+        // More than two windows of level 1, so matches have to be found after the history was moved.
+        byte[] data = newTextData(new Random(9), 5 * 1048576);
+        testIdentity(new ZstdEncoder(1), new ZstdDecoder(), data, 50);
+    }
+
+    @Test
+    public void testDictionary() {
+        byte[] data = newTextData(new Random(11), 10000);
+        testIdentity(new ZstdEncoder(3, TEXT), new ZstdDecoder(TEXT), data, 100);
+    }
+
+    @Test
+    public void testDictionaryImprovesSmallMessages() {
+        Random random = new Random(13);
+        byte[] dictionary = newTextData(random, 4096);
+        byte[] message = newTextData(random, 200);
+
+        int withoutDictionary = compressFlushed(new ZstdEncoder(), message);
+        int withDictionary = compressFlushed(new ZstdEncoder(3, dictionary), message);
+        assertTrue(withDictionary + " < " + withoutDictionary, withDictionary < withoutDictionary * 3 / 4);
+    }
+
+    private static int compressFlushed(ZstdEncoder zstd, byte[] message) {
+        EmbeddedChannel encoder = new EmbeddedChannel(zstd);
+        // Skip the frame header.
+        encoder.write(Unpooled.EMPTY_BUFFER);
+        encoder.flush();
+        releaseOutbound(encoder);
+
+        encoder.write(Unpooled.wrappedBuffer(message));
+        encoder.flush();
+        int length = 0;
+        for (;;) {
+            ByteBuf msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            length += msg.readableBytes();
+            msg.release();
+        }
+        encoder.finish();
+        releaseOutbound(encoder);
+        return length;
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testMissingDictionary() {
+        EmbeddedChannel encoder = new EmbeddedChannel(new ZstdEncoder(3, newFormattedDictionary()));
+        EmbeddedChannel decoder = new EmbeddedChannel(new ZstdDecoder());
+        encoder.writeOutbound(Unpooled.wrappedBuffer(TEXT));
+        encoder.finish();
+        try {
+            for (;;) {
+                ByteBuf msg = encoder.readOutbound();
+                if (msg == null) {
+                    break;
+                }
+                decoder.writeInbound(msg);
+            }
+        } finally {
+            releaseOutbound(encoder);
+            decoder.finish();
+        }
+    }
+
+    @Test
+    public void testFormattedDictionary() {
+        byte[] dictionary = newFormattedDictionary();
+        byte[] data = newTextData(new Random(17), 50000);
+        testIdentity(new ZstdEncoder(5, dictionary), new ZstdDecoder(dictionary), data, 20);
+    }
+
+    /**
+     * Returns a dictionary in the format of the reference implementation with flat entropy tables, followed by
+     * {@link #TEXT} as content.
+     */
+    private static byte[] newFormattedDictionary() {
+        ByteBuf dictionary = Unpooled.buffer();
+        dictionary.writeInt(0x37A430EC); // magic number
+        dictionary.writeInt(0x78563412); // id 0x12345678
+        // A Huffman tree description with 4 bit weights for the 128 ASCII characters, all of weight 1 but the last.
+        dictionary.writeByte(127 + 127);
+        for (int i = 0; i < 63; i ++) {
+            dictionary.writeByte(0x11);
+        }
+        dictionary.writeByte(0x10);
+        // Offsets, match lengths and literals lengths with uniform distributions, then the repeat offsets.
+        writeUniformDistribution(dictionary, 32, 5);
+        writeUniformDistribution(dictionary, 53, 6);
+        writeUniformDistribution(dictionary, 36, 6);
+        dictionary.writeInt(0x01000000).writeInt(0x04000000).writeInt(0x08000000);
+        dictionary.writeBytes(TEXT);
+        byte[] array = new byte[dictionary.readableBytes()];
+        dictionary.readBytes(array);
+        dictionary.release();
+        return array;
+    }
+
+    private static void writeUniformDistribution(ByteBuf out, int symbols, int tableLog) {
+        // Every symbol gets one state and the first symbols get the remaining ones.
+        short[] counts = new short[symbols];
+        for (int i = 0; i < symbols; i ++) {
+            counts[i] = (short) (i < (1 << tableLog) - symbols ? 2 : 1);
+        }
+        ZstdFse.Distribution distribution = new ZstdFse.Distribution();
+        distribution.set(counts, tableLog);
+        byte[] description = new byte[64];
+        ZstdBitWriter writer = new ZstdBitWriter();
+        writer.init(description, 0, description.length);
+        out.writeBytes(description, 0, distribution.write(writer));
+    }
+
+    @Test
+    public void testFlushWritesBufferedData() {
+        ZstdEncoder zstd = new ZstdEncoder();
+        EmbeddedChannel encoder = new EmbeddedChannel(zstd);
+        EmbeddedChannel decoder = new EmbeddedChannel(new ZstdDecoder());
+
+        // The data is buffered until the channel is flushed.
+        encoder.write(Unpooled.wrappedBuffer(TEXT));
+        encoder.flush();
+        for (;;) {
+            ByteBuf compressed = encoder.readOutbound();
+            if (compressed == null) {
+                break;
+            }
+            decoder.writeInbound(compressed);
+        }
+        ByteBuf decompressed = decoder.readInbound();
+        assertEquals(Unpooled.wrappedBuffer(TEXT), decompressed);
+        decompressed.release();
+
+        // Finishing the stream writes the last block.
+        assertFalse(zstd.isClosed());
+        assertTrue(zstd.close().isSuccess());
+        assertTrue(zstd.isClosed());
+        ByteBuf lastBlock = encoder.readOutbound();
+        assertEquals(ZstdConstants.BLOCK_HEADER_LENGTH, lastBlock.readableBytes());
+        assertFalse(decoder.writeInbound(lastBlock));
+
+        assertFalse(encoder.finish());
+        assertFalse(decoder.finish());
+    }
+
+    @Test
+    public void testCodecFactory() {
+        testIdentity(ZstdCodecFactory.newZstdEncoder(9), ZstdCodecFactory.newZstdDecoder(), TEXT, 1);
+        testIdentity(ZstdCodecFactory.newZstdEncoder(1, TEXT), ZstdCodecFactory.newZstdDecoder(TEXT), TEXT, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        new ZstdEncoder(10);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMaxWindowLog() {
+        new ZstdDecoder(null, 31);
+    }
+
+    private static byte[] newTextData(Random random, int length) {
+        byte[] words = "Netty is an asynchronous event-driven network application framework ".getBytes();
+        byte[] data = new byte[length];
+        int offset = 0;
+        for (int i = 0; i < length; i ++) {
+            if (random.nextInt(16) == 0) {
+                offset = random.nextInt(words.length);
+            }
+            data[i] = random.nextInt(64) == 0 ? (byte) random.nextInt() : words[(i + offset) % words.length];
+        }
+        return data;
+    }
+
+    private static void releaseOutbound(EmbeddedChannel channel) {
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
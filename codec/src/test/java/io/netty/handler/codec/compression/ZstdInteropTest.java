@@ -0,0 +1,223 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Assume;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that {@link ZstdDecoder} decodes frames of the reference implementation and, if the {@code zstd} command
+ * line tool is installed, that the reference implementation decodes the frames of {@link ZstdEncoder}.
+ *
+ * The {@code zstd-*.zst} resources were compressed with libzstd 1.5.4 from {@link #newReferenceData()}, with the
+ * content checksum enabled as the {@code zstd} command line tool does:
+ * <ul>
+ *     <li>{@code zstd-level1.zst}, {@code zstd-level3.zst} and {@code zstd-level19.zst}, like {@code zstd -N file},
+ *     are single segment frames with the content size.</li>
+ *     <li>{@code zstd-stream.zst}, like {@code cat file | zstd}, was compressed at level 3 in pieces of 8192 bytes
+ *     which were flushed one by one, so the frame has no content size and many small blocks.</li>
+ * </ul>
+ */
+public class ZstdInteropTest {
+
+    private static final byte[][] WORDS;
+
+    static {
+        String[] words = ("Netty is an asynchronous event-driven network application framework for rapid development " +
+                "of maintainable high performance protocol servers and clients").split(" ");
+        WORDS = new byte[words.length][];
+        for (int i = 0; i < words.length; i ++) {
+            WORDS[i] = words[i].getBytes(CharsetUtil.US_ASCII);
+        }
+    }
+
+    @Test
+    public void testDecodeLevel1() throws Exception {
+        testDecodeReferenceFrame("zstd-level1.zst");
+    }
+
+    @Test
+    public void testDecodeLevel3() throws Exception {
+        testDecodeReferenceFrame("zstd-level3.zst");
+    }
+
+    @Test
+    public void testDecodeLevel19() throws Exception {
+        testDecodeReferenceFrame("zstd-level19.zst");
+    }
+
+    @Test
+    public void testDecodeStream() throws Exception {
+        testDecodeReferenceFrame("zstd-stream.zst");
+    }
+
+    @Test
+    public void testEncodeForReferenceDecoder() throws Exception {
+        Assume.assumeTrue(isZstdInstalled());
+
+        byte[] data = newReferenceData();
+        for (int level = 1; level <= 9; level ++) {
+            File file = File.createTempFile("netty-zstd-", ".zst");
+            try {
+                OutputStream out = new FileOutputStream(file);
+                try {
+                    out.write(encode(new ZstdEncoder(level), data));
+                } finally {
+                    out.close();
+                }
+                assertArrayEquals("level: " + level, data, run("zstd", "-d", "-q", "-c", file.getPath()));
+            } finally {
+                assertTrue(file.delete());
+            }
+        }
+    }
+
+    private static void testDecodeReferenceFrame(String name) throws IOException {
+        byte[] frame = readResource(name);
+        EmbeddedChannel decoder = new EmbeddedChannel(new ZstdDecoder());
+        ByteBuf compressed = Unpooled.wrappedBuffer(frame);
+        // Feed the decoder in small pieces.
+        while (compressed.isReadable()) {
+            decoder.writeInbound(compressed.readSlice(Math.min(1000, compressed.readableBytes())).retain());
+        }
+        compressed.release();
+
+        CompositeByteBuf decompressed = Unpooled.compositeBuffer(Integer.MAX_VALUE);
+        try {
+            for (;;) {
+                ByteBuf msg = decoder.readInbound();
+                if (msg == null) {
+                    break;
+                }
+                decompressed.addComponent(msg);
+                decompressed.writerIndex(decompressed.writerIndex() + msg.readableBytes());
+            }
+            assertEquals(Unpooled.wrappedBuffer(newReferenceData()), decompressed);
+            assertFalse(decoder.finish());
+        } finally {
+            decompressed.release();
+        }
+    }
+
+    private static byte[] encode(ZstdEncoder zstd, byte[] data) {
+        EmbeddedChannel encoder = new EmbeddedChannel(zstd);
+        encoder.writeOutbound(Unpooled.wrappedBuffer(data));
+        assertTrue(encoder.finish());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (;;) {
+            ByteBuf msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            byte[] bytes = new byte[msg.readableBytes()];
+            msg.readBytes(bytes);
+            msg.release();
+            out.write(bytes, 0, bytes.length);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Returns the data the {@code zstd-*.zst} resources were compressed from: words of a sentence picked by a linear
+     * congruential generator, with runs of zeros in between.
+     */
+    private static byte[] newReferenceData() {
+        ByteBuf data = Unpooled.buffer();
+        long state = 1;
+        while (data.readableBytes() < 140000) {
+            state = (state * 1103515245 + 12345) & 0x7fffffff;
+            int r = (int) (state >> 16);
+            if (r % 64 == 0) {
+                data.writeZero(r % 1000);
+            } else {
+                data.writeBytes(WORDS[r % WORDS.length]).writeByte(' ');
+            }
+        }
+        byte[] array = new byte[140000];
+        data.readBytes(array);
+        data.release();
+        return array;
+    }
+
+    private static byte[] readResource(String name) throws IOException {
+        InputStream in = ZstdInteropTest.class.getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalArgumentException("resource not found: " + name);
+        }
+        try {
+            return readFully(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static byte[] readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        for (;;) {
+            int n = in.read(buffer);
+            if (n == -1) {
+                return out.toByteArray();
+            }
+            out.write(buffer, 0, n);
+        }
+    }
+
+    private static boolean isZstdInstalled() {
+        try {
+            run("zstd", "-V");
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static byte[] run(String... command) throws IOException {
+        Process process = new ProcessBuilder(command).start();
+        process.getOutputStream().close();
+        InputStream in = process.getInputStream();
+        byte[] output;
+        try {
+            output = readFully(in);
+        } finally {
+            in.close();
+        }
+        try {
+            if (process.waitFor() != 0) {
+                throw new IOException("exit value " + process.exitValue() + ": " + command[0]);
+            }
+        } catch (InterruptedException e) {
+            throw new IOException(e.toString());
+        } finally {
+            process.getErrorStream().close();
+        }
+        return output;
+    }
+}
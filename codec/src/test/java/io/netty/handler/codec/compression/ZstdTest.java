@@ -0,0 +1,151 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.compression;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Decodes frames which were written by the reference implementation.
+ */
+public class ZstdTest {
+
+    private static final byte[] TEXT = ("Netty has been designed carefully with the experiences earned from the " +
+            "implementation of a lot of protocols such as FTP, SMTP, HTTP, and various binary and text-based " +
+            "legacy protocols").getBytes(CharsetUtil.US_ASCII);
+
+    /**
+     * {@link #TEXT} repeated four times, compressed with level 3 and a content checksum.
+     */
+    private static final String CHECKSUM_FRAME =
+            "28b52ffd64dc014d040032c91b1b80b569032dc276ba16a9a6906d89883cd587c73f8ce50c3a8a8c06cbd8f1e473b562b0" +
+            "cb7729c32bac4a9e32011f34a26008b000802058cdc8286a4d697253259bc966238d796b8b479e12e4905486b25b6ff0a7" +
+            "9e2cf7d11aed0d78a5a41857667c8ec7e98ff12fac86bc767f080800227456c127ec62b303d856cae22c4bfc94ac295050" +
+            "05f65fe0";
+
+    /**
+     * {@link #TEXT} repeated four times, compressed with {@link #TEXT} as raw dictionary.
+     */
+    private static final String DICTIONARY_FRAME = "28b52ffd60dc01450000000100d974950102";
+
+    /**
+     * A skippable frame with four bytes of user data.
+     */
+    private static final String SKIPPABLE_FRAME = "502a4d180400000001020304";
+
+    @Test
+    public void testXxHash64() {
+        assertEquals(0xEF46DB3751D8E999L, hash(""));
+        assertEquals(0x44BC2CF5AD770999L, hash("abc"));
+        assertEquals(0xFBCEA83C8A378BF1L, hash("Nobody inspects the spammish repetition"));
+
+        // Feeding the data in pieces yields the same hash.
+        byte[] data = new byte[1000];
+        for (int i = 0; i < data.length; i ++) {
+            data[i] = (byte) (i * 31);
+        }
+        XxHash64 hash = new XxHash64(0);
+        hash.update(data, 0, data.length);
+        long expected = hash.value();
+        hash.reset();
+        for (int i = 0; i < data.length; i += 7) {
+            hash.update(data, i, Math.min(7, data.length - i));
+        }
+        assertEquals(expected, hash.value());
+    }
+
+    private static long hash(String data) {
+        byte[] bytes = data.getBytes(CharsetUtil.US_ASCII);
+        XxHash64 hash = new XxHash64(0);
+        hash.update(bytes, 0, bytes.length);
+        return hash.value();
+    }
+
+    @Test
+    public void testDecodeChecksumFrame() {
+        assertEquals(repeat(TEXT, 4), decode(new ZstdDecoder(), CHECKSUM_FRAME));
+    }
+
+    @Test
+    public void testDecodeDictionaryFrame() {
+        assertEquals(repeat(TEXT, 4), decode(new ZstdDecoder(TEXT), DICTIONARY_FRAME));
+    }
+
+    @Test
+    public void testDecodeConcatenatedAndSkippableFrames() {
+        ByteBuf expected = repeat(TEXT, 8);
+        assertEquals(expected, decode(new ZstdDecoder(), SKIPPABLE_FRAME + CHECKSUM_FRAME + CHECKSUM_FRAME));
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testChecksumMismatch() {
+        String corrupted = CHECKSUM_FRAME.substring(0, CHECKSUM_FRAME.length() - 2) + "e1";
+        decode(new ZstdDecoder(), corrupted);
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testInvalidMagic() {
+        decode(new ZstdDecoder(), "29" + CHECKSUM_FRAME.substring(2));
+    }
+
+    @Test(expected = DecompressionException.class)
+    public void testWindowTooLarge() {
+        // A frame header which asks for a window of 16 MB.
+        decode(new ZstdDecoder(), "28b52ffd0070");
+    }
+
+    @Test
+    public void testLargerWindowAccepted() {
+        assertEquals(Unpooled.EMPTY_BUFFER, decode(new ZstdDecoder(null, 24), "28b52ffd0070010000"));
+    }
+
+    private static ByteBuf decode(ZstdDecoder zstd, String hex) {
+        EmbeddedChannel decoder = new EmbeddedChannel(zstd);
+        byte[] compressed = new byte[hex.length() / 2];
+        for (int i = 0; i < compressed.length; i ++) {
+            compressed[i] = (byte) Integer.parseInt(hex.substring(i * 2, i * 2 + 2), 16);
+        }
+
+        // Feed the decoder byte by byte, so every state has to wait for more data.
+        ByteBuf decompressed = Unpooled.buffer();
+        for (byte b : compressed) {
+            decoder.writeInbound(Unpooled.wrappedBuffer(new byte[] { b }));
+            for (;;) {
+                ByteBuf msg = decoder.readInbound();
+                if (msg == null) {
+                    break;
+                }
+                decompressed.writeBytes(msg);
+                msg.release();
+            }
+        }
+        assertFalse(decoder.finish());
+        return decompressed;
+    }
+
+    private static ByteBuf repeat(byte[] data, int count) {
+        ByteBuf buf = Unpooled.buffer(data.length * count);
+        for (int i = 0; i < count; i ++) {
+            buf.writeBytes(data);
+        }
+        return buf;
+    }
+}
@@ -231,4 +231,21 @@ public class JsonObjectDecoderTest {
 
         assertFalse(ch.finish());
     }
+
+    @Test
+    public void testStreamArrayElementsWhileCumulationIsCompacted() {
+        EmbeddedChannel ch = new EmbeddedChannel(new JsonObjectDecoder(true));
+
+        // The read bytes of the cumulation are discarded between the writes, while an element is incomplete.
+        ch.writeInbound(Unpooled.copiedBuffer("[{\"key\" : \"value1\"}, {\"key\" :", CharsetUtil.UTF_8));
+        ch.writeInbound(Unpooled.copiedBuffer(" \"value2\"}, {\"key\" : ", CharsetUtil.UTF_8));
+        ch.writeInbound(Unpooled.copiedBuffer("\"value3\"}]", CharsetUtil.UTF_8));
+
+        for (int i = 1; i <= 3; i ++) {
+            ByteBuf res = ch.readInbound();
+            assertEquals("{\"key\" : \"value" + i + "\"}", res.toString(CharsetUtil.UTF_8));
+            res.release();
+        }
+        assertFalse(ch.finish());
+    }
 }
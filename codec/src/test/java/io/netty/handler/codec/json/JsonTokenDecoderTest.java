@@ -0,0 +1,119 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.json;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.AsciiString;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonTokenDecoderTest {
+
+    private static final AsciiString ID = new AsciiString("id");
+
+    @Test
+    public void testStreamArrayElements() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IdDecoder(16, false));
+
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < 1000; i ++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\": ").append(i).append(", \"text\": \"some \\\"text\\\"\"}");
+        }
+        json.append(']');
+
+        // The elements are decoded while the array is received and no element is kept in memory.
+        byte[] bytes = json.toString().getBytes(CharsetUtil.UTF_8);
+        for (int i = 0; i < bytes.length; i += 7) {
+            ch.writeInbound(Unpooled.wrappedBuffer(bytes, i, Math.min(7, bytes.length - i)));
+        }
+        for (long i = 0; i < 1000; i ++) {
+            assertEquals(Long.valueOf(i), ch.readInbound());
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testNumberAtEndOfStream() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IdDecoder(16, false));
+        assertTrue(ch.writeInbound(Unpooled.copiedBuffer("{\"id\": 1} {\"id\": 2} 3", CharsetUtil.US_ASCII)));
+        assertEquals(Long.valueOf(1), ch.readInbound());
+        assertEquals(Long.valueOf(2), ch.readInbound());
+
+        // The last number is not complete until the stream is finished.
+        assertFalse(ch.writeInbound(Unpooled.copiedBuffer("4", CharsetUtil.US_ASCII)));
+        assertTrue(ch.finish());
+        assertEquals(Long.valueOf(34), ch.readInbound());
+        assertNull(ch.readInbound());
+    }
+
+    @Test
+    public void testFramedByJsonObjectDecoder() {
+        EmbeddedChannel ch = new EmbeddedChannel(new JsonObjectDecoder(true), new IdDecoder(16, true));
+        assertTrue(ch.writeInbound(Unpooled.copiedBuffer("[1, 2, {\"id\": 3}, ", CharsetUtil.US_ASCII)));
+        assertTrue(ch.writeInbound(Unpooled.copiedBuffer("4]", CharsetUtil.US_ASCII)));
+        for (long i = 1; i <= 4; i ++) {
+            assertEquals(Long.valueOf(i), ch.readInbound());
+        }
+        assertFalse(ch.finish());
+    }
+
+    @Test
+    public void testCorruptedInputIsDiscarded() {
+        EmbeddedChannel ch = new EmbeddedChannel(new IdDecoder(16, false));
+        try {
+            ch.writeInbound(Unpooled.copiedBuffer("{\"id\": 1}]", CharsetUtil.US_ASCII));
+            fail();
+        } catch (CorruptedFrameException e) {
+            // expected
+        }
+        assertEquals(Long.valueOf(1), ch.readInbound());
+
+        assertFalse(ch.writeInbound(Unpooled.copiedBuffer("{\"id\": 2}", CharsetUtil.US_ASCII)));
+        assertFalse(ch.finish());
+    }
+
+    /**
+     * Decodes the value of the "id" fields, as well as numbers outside of any object.
+     */
+    private static final class IdDecoder extends JsonTokenDecoder {
+        private boolean id;
+
+        IdDecoder(int maxTokenLength, boolean framed) {
+            super(maxTokenLength, framed);
+        }
+
+        @Override
+        protected void decodeToken(ChannelHandlerContext ctx, JsonToken token, JsonTokenizer tokenizer,
+                                   List<Object> out) {
+            if (token == JsonToken.FIELD_NAME) {
+                id = ID.equals(tokenizer.fieldName());
+            } else if (token == JsonToken.NUMBER && (id || tokenizer.depth() == 0)) {
+                out.add(tokenizer.longValue());
+                id = false;
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.handler.codec.json;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.AsciiString;
+import io.netty.handler.codec.CorruptedFrameException;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.util.CharsetUtil;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class JsonTokenizerTest {
+
+    private static final String JSON =
+            "{ \"id\": 42, \"name\" : \"Esc\\\"aped \\\\ \\u00e9\\n\", \"tags\": [\"a\", \"{b}\"],\n" +
+            "  \"nested\": {\"ok\": true, \"no\": false, \"none\": null, \"empty\": {}, \"list\": []},\n" +
+            "  \"pi\": -3.14e0, \"caf\\u00e9\": \"\u00fcber\" }";
+
+    private static final String[] TOKENS = {
+        "START_OBJECT 1", "FIELD_NAME 1 id", "NUMBER 1 42", "FIELD_NAME 1 name", "STRING 1 Esc\"aped \\ \u00e9\n",
+        "FIELD_NAME 1 tags", "START_ARRAY 2", "STRING 2 a", "STRING 2 {b}", "END_ARRAY 1",
+        "FIELD_NAME 1 nested", "START_OBJECT 2", "FIELD_NAME 2 ok", "TRUE 2 true", "FIELD_NAME 2 no", "FALSE 2 false",
+        "FIELD_NAME 2 none", "NULL 2 null", "FIELD_NAME 2 empty", "START_OBJECT 3", "END_OBJECT 2",
+        "FIELD_NAME 2 list", "START_ARRAY 3", "END_ARRAY 2", "END_OBJECT 1",
+        "FIELD_NAME 1 pi", "NUMBER 1 -3.14e0", "FIELD_NAME 1 caf\u00e9", "STRING 1 \u00fcber", "END_OBJECT 0"
+    };
+
+    @Test
+    public void testTokens() {
+        ByteBuf buf = Unpooled.copiedBuffer(JSON, CharsetUtil.UTF_8);
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        List<String> tokens = new ArrayList<String>();
+        while (tokenizer.nextToken(buf) != null) {
+            tokens.add(toString(tokenizer));
+        }
+        assertEquals(Arrays.asList(TOKENS), tokens);
+        assertFalse(buf.isReadable());
+        buf.release();
+    }
+
+    @Test
+    public void testSingleByteStream() {
+        byte[] json = JSON.getBytes(CharsetUtil.UTF_8);
+        ByteBuf buf = Unpooled.buffer();
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        List<String> tokens = new ArrayList<String>();
+        for (byte b : json) {
+            buf.writeByte(b);
+            while (tokenizer.nextToken(buf) != null) {
+                tokens.add(toString(tokenizer));
+            }
+            buf.discardReadBytes();
+        }
+        assertEquals(Arrays.asList(TOKENS), tokens);
+        buf.release();
+    }
+
+    @Test
+    public void testSequenceOfValues() {
+        ByteBuf buf = Unpooled.copiedBuffer("1 \"a\"[2]{} 3", CharsetUtil.UTF_8);
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        assertEquals(JsonToken.NUMBER, tokenizer.nextToken(buf));
+        assertEquals(1, tokenizer.longValue());
+        assertEquals(JsonToken.STRING, tokenizer.nextToken(buf));
+        assertEquals(JsonToken.START_ARRAY, tokenizer.nextToken(buf));
+        assertEquals(JsonToken.NUMBER, tokenizer.nextToken(buf));
+        assertEquals(JsonToken.END_ARRAY, tokenizer.nextToken(buf));
+        assertEquals(JsonToken.START_OBJECT, tokenizer.nextToken(buf));
+        assertEquals(JsonToken.END_OBJECT, tokenizer.nextToken(buf));
+        assertEquals(0, tokenizer.depth());
+
+        // The number may continue in the next buffer.
+        assertNull(tokenizer.nextToken(buf));
+        assertEquals(JsonToken.NUMBER, tokenizer.nextToken(buf, true));
+        assertEquals(3, tokenizer.longValue());
+        assertNull(tokenizer.nextToken(buf, true));
+        buf.release();
+    }
+
+    @Test
+    public void testNumbers() {
+        assertEquals(Long.MAX_VALUE, number(String.valueOf(Long.MAX_VALUE)).longValue());
+        assertEquals(Long.MIN_VALUE, number(String.valueOf(Long.MIN_VALUE)).longValue());
+        assertEquals(0, number("-0").longValue());
+        assertEquals(1.5e10, number("1.5E+10").doubleValue(), 0);
+        assertNumberFormatException("9223372036854775808");
+        assertNumberFormatException("-9223372036854775809");
+        assertNumberFormatException("1.5");
+        assertNumberFormatException("-");
+    }
+
+    private static JsonTokenizer number(String number) {
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        // The value is read from the buffer lazily, so it must not be released.
+        ByteBuf buf = Unpooled.wrappedBuffer(number.getBytes(CharsetUtil.US_ASCII));
+        assertEquals(JsonToken.NUMBER, tokenizer.nextToken(buf, true));
+        assertEquals(number, tokenizer.rawValue().toString(CharsetUtil.US_ASCII));
+        return tokenizer;
+    }
+
+    private static void assertNumberFormatException(String number) {
+        try {
+            number(number).longValue();
+            fail();
+        } catch (NumberFormatException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testFieldNamesAreCached() {
+        ByteBuf buf = Unpooled.copiedBuffer("[{\"id\":1},{\"id\":2}]", CharsetUtil.US_ASCII);
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        List<AsciiString> names = new ArrayList<AsciiString>();
+        JsonToken token;
+        while ((token = tokenizer.nextToken(buf)) != null) {
+            if (token == JsonToken.FIELD_NAME) {
+                names.add(tokenizer.fieldName());
+            }
+        }
+        assertEquals(2, names.size());
+        assertEquals(new AsciiString("id"), names.get(0));
+        assertSame(names.get(0), names.get(1));
+        buf.release();
+    }
+
+    @Test
+    public void testInvalidJson() {
+        assertCorrupted("{1}");
+        assertCorrupted("{\"a\" 1}");
+        assertCorrupted("{\"a\": 1,}");
+        assertCorrupted("[1 2]");
+        assertCorrupted("[}");
+        assertCorrupted("{]");
+        assertCorrupted("]");
+        assertCorrupted("tru3");
+        assertCorrupted("\"abc");
+        assertCorrupted("[\"\\x\"]");
+    }
+
+    private static void assertCorrupted(String json) {
+        ByteBuf buf = Unpooled.copiedBuffer(json, CharsetUtil.US_ASCII);
+        JsonTokenizer tokenizer = new JsonTokenizer();
+        try {
+            while (tokenizer.nextToken(buf, true) != null) {
+                tokenizer.stringValue();
+            }
+            fail(json);
+        } catch (CorruptedFrameException e) {
+            // expected
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testTooLongToken() {
+        ByteBuf buf = Unpooled.copiedBuffer("[\"abcdefgh\"]", CharsetUtil.US_ASCII);
+        JsonTokenizer tokenizer = new JsonTokenizer(8);
+        assertEquals(JsonToken.START_ARRAY, tokenizer.nextToken(buf));
+        try {
+            tokenizer.nextToken(buf);
+            fail();
+        } catch (TooLongFrameException e) {
+            // expected
+        }
+
+        // An incomplete token is checked as well.
+        tokenizer.reset();
+        buf.setIndex(0, 9);
+        assertEquals(JsonToken.START_ARRAY, tokenizer.nextToken(buf));
+        assertNull(tokenizer.nextToken(buf));
+        buf.writerIndex(10);
+        try {
+            tokenizer.nextToken(buf);
+            fail();
+        } catch (TooLongFrameException e) {
+            // expected
+        }
+        buf.release();
+    }
+
+    private static String toString(JsonTokenizer tokenizer) {
+        JsonToken token = tokenizer.token();
+        switch (token) {
+        case START_OBJECT:
+        case END_OBJECT:
+        case START_ARRAY:
+        case END_ARRAY:
+            return token + " " + tokenizer.depth();
+        case FIELD_NAME:
+            assertEquals(tokenizer.stringValue(), new String(tokenizer.fieldName().array(), CharsetUtil.UTF_8));
+            return token + " " + tokenizer.depth() + ' ' + tokenizer.stringValue();
+        default:
+            return token + " " + tokenizer.depth() + ' ' + tokenizer.stringValue();
+        }
+    }
+}
@@ -139,6 +139,12 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         if (handlerSharableCache != null) {
             count ++;
         }
+        if (handlerNameCache != null) {
+            count ++;
+        }
+        if (handlerSkipFlagsCache != null) {
+            count ++;
+        }
         if (counterHashCode != null) {
             count ++;
         }
@@ -247,6 +253,24 @@ public final class InternalThreadLocalMap extends UnpaddedInternalThreadLocalMap
         return cache;
     }
 
+    public Map<Class<?>, String> handlerNameCache() {
+        Map<Class<?>, String> cache = handlerNameCache;
+        if (cache == null) {
+            // Start with small capacity to keep memory overhead as low as possible.
+            handlerNameCache = cache = new WeakHashMap<Class<?>, String>(4);
+        }
+        return cache;
+    }
+
+    public Map<Class<?>, Integer> handlerSkipFlagsCache() {
+        Map<Class<?>, Integer> cache = handlerSkipFlagsCache;
+        if (cache == null) {
+            // Start with small capacity to keep memory overhead as low as possible.
+            handlerSkipFlagsCache = cache = new WeakHashMap<Class<?>, Integer>(4);
+        }
+        return cache;
+    }
+
     public int localChannelReaderStackDepth() {
         return localChannelReaderStackDepth;
     }
@@ -0,0 +1,156 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import java.util.AbstractQueue;
+import java.util.Iterator;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free unbounded {@link java.util.Queue} for a single producer thread and a single consumer thread.
+ *
+ * The elements are stored in fixed size chunks which are linked together. Once the consumer drained a chunk it hands
+ * it back to the producer, so in steady state the two threads keep swapping the same chunks like a ring buffer and no
+ * allocation takes place.
+ *
+ * Only {@link #offer(Object)} and {@link #add(Object)} may be called by the producer thread, and only {@link #poll()},
+ * {@link #peek()}, {@link #isEmpty()} and {@link #size()} may be called by the consumer thread.
+ * {@link #iterator()} is not supported.
+ */
+final class SpscLinkedArrayQueue<E> extends AbstractQueue<E> {
+
+    private static final int CHUNK_SIZE = 128;
+
+    /**
+     * The drained chunk which is handed back by the consumer to be reused by the producer.
+     */
+    private final AtomicReference<AtomicReferenceArray<Object>> spareChunk =
+            new AtomicReference<AtomicReferenceArray<Object>>();
+
+    // Only accessed by the producer thread.
+    private AtomicReferenceArray<Object> producerChunk;
+    private int producerIndex;
+
+    // Only accessed by the consumer thread.
+    private AtomicReferenceArray<Object> consumerChunk;
+    private int consumerIndex;
+
+    SpscLinkedArrayQueue() {
+        // The last slot of each chunk holds the link to the next chunk.
+        producerChunk = consumerChunk = new AtomicReferenceArray<Object>(CHUNK_SIZE + 1);
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException("e");
+        }
+
+        AtomicReferenceArray<Object> chunk = producerChunk;
+        if (producerIndex == CHUNK_SIZE) {
+            AtomicReferenceArray<Object> next = spareChunk.getAndSet(null);
+            if (next == null) {
+                next = new AtomicReferenceArray<Object>(CHUNK_SIZE + 1);
+            }
+            // Store the element before linking the chunk, so the consumer always finds it once it follows the link.
+            next.lazySet(0, e);
+            chunk.lazySet(CHUNK_SIZE, next);
+            producerChunk = next;
+            producerIndex = 1;
+        } else {
+            chunk.lazySet(producerIndex ++, e);
+        }
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        AtomicReferenceArray<Object> chunk = nextConsumerChunk();
+        if (chunk == null) {
+            return null;
+        }
+        Object e = chunk.get(consumerIndex);
+        if (e == null) {
+            return null;
+        }
+        // Clear the slot so the chunk does not retain the element and can be reused.
+        chunk.lazySet(consumerIndex ++, null);
+        return (E) e;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        AtomicReferenceArray<Object> chunk = nextConsumerChunk();
+        if (chunk == null) {
+            return null;
+        }
+        return (E) chunk.get(consumerIndex);
+    }
+
+    /**
+     * Returns the chunk which holds the next element to consume, or {@code null} if the producer did not link the
+     * next chunk yet.
+     */
+    @SuppressWarnings("unchecked")
+    private AtomicReferenceArray<Object> nextConsumerChunk() {
+        AtomicReferenceArray<Object> chunk = consumerChunk;
+        if (consumerIndex == CHUNK_SIZE) {
+            AtomicReferenceArray<Object> next = (AtomicReferenceArray<Object>) chunk.get(CHUNK_SIZE);
+            if (next == null) {
+                return null;
+            }
+            // All the slots of the drained chunk were cleared already, so only the link needs to be cleared before
+            // the producer may reuse it.
+            chunk.lazySet(CHUNK_SIZE, null);
+            spareChunk.set(chunk);
+            consumerChunk = chunk = next;
+            consumerIndex = 0;
+        }
+        return chunk;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return peek() == null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int size() {
+        AtomicReferenceArray<Object> chunk = nextConsumerChunk();
+        int size = 0;
+        int index = consumerIndex;
+        while (chunk != null) {
+            if (index == CHUNK_SIZE) {
+                chunk = (AtomicReferenceArray<Object>) chunk.get(CHUNK_SIZE);
+                index = 0;
+            } else if (chunk.get(index ++) != null) {
+                size ++;
+            } else {
+                break;
+            }
+        }
+        return size;
+    }
+
+    @Override
+    public Iterator<E> iterator() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -41,6 +41,8 @@ class UnpaddedInternalThreadLocalMap {
     int futureListenerStackDepth;
     int localChannelReaderStackDepth;
     Map<Class<?>, Boolean> handlerSharableCache;
+    Map<Class<?>, String> handlerNameCache;
+    Map<Class<?>, Integer> handlerSkipFlagsCache;
     IntegerHolder counterHashCode;
     ThreadLocalRandom random;
     Map<Class<?>, TypeParameterMatcher> typeParameterMatcherGetCache;
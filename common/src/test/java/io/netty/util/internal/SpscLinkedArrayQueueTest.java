@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.util.internal;
+
+import org.junit.Test;
+
+import java.util.Queue;
+
+import static org.junit.Assert.*;
+
+public class SpscLinkedArrayQueueTest {
+
+    @Test
+    public void testOfferPollAcrossChunks() {
+        Queue<Integer> queue = new SpscLinkedArrayQueue<Integer>();
+        assertTrue(queue.isEmpty());
+        assertNull(queue.poll());
+
+        // Interleave offer and poll so that drained chunks are reused.
+        int next = 0;
+        for (int round = 0; round < 10; round ++) {
+            for (int i = 0; i < 300; i ++) {
+                assertTrue(queue.offer(round * 300 + i));
+            }
+            assertEquals(300 + round * 50, queue.size());
+            for (int i = 0; i < 250; i ++) {
+                assertEquals(next ++, queue.poll().intValue());
+            }
+        }
+
+        assertEquals(500, queue.size());
+        assertEquals(next, queue.peek().intValue());
+        while (!queue.isEmpty()) {
+            assertEquals(next ++, queue.poll().intValue());
+        }
+        assertEquals(3000, next);
+        assertEquals(0, queue.size());
+        assertNull(queue.poll());
+        assertNull(queue.peek());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        new SpscLinkedArrayQueue<Object>().offer(null);
+    }
+
+    @Test(timeout = 10000)
+    public void testConcurrentProducerAndConsumer() throws Exception {
+        final Queue<Integer> queue = new SpscLinkedArrayQueue<Integer>();
+        final int count = 1000000;
+        Thread producer = new Thread() {
+            @Override
+            public void run() {
+                for (int i = 0; i < count; i ++) {
+                    queue.offer(i);
+                }
+            }
+        };
+        producer.start();
+
+        int next = 0;
+        while (next < count) {
+            Integer value = queue.poll();
+            if (value != null) {
+                assertEquals(next ++, value.intValue());
+            }
+        }
+        producer.join();
+        assertTrue(queue.isEmpty());
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ChannelFactory;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the rate at which a {@link Bootstrap} can open and close short-lived {@link LocalChannel}s,
+ * either created through {@link Bootstrap#channel(Class)} or through a {@link ChannelFactory}.
+ */
+public class BootstrapConnectBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "class", "factory" })
+    public String channel;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Bootstrap bootstrap;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(2);
+        LocalAddress addr = new LocalAddress(BootstrapConnectBenchmark.class.getSimpleName());
+        ChannelInitializer<Channel> initializer = new ChannelInitializer<Channel>() {
+            @Override
+            protected void initChannel(Channel ch) {
+                // NOOP
+            }
+        };
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(initializer)
+                .bind(addr).sync().channel();
+
+        bootstrap = new Bootstrap()
+                .group(group)
+                .handler(initializer)
+                .remoteAddress(addr);
+        if ("factory".equals(channel)) {
+            bootstrap.channelFactory(new ChannelFactory<LocalChannel>() {
+                @Override
+                public LocalChannel newChannel() {
+                    return new LocalChannel();
+                }
+            });
+        } else {
+            bootstrap.channel(LocalChannel.class);
+        }
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public Channel connectAndClose() throws Exception {
+        Channel ch = bootstrap.connect().sync().channel();
+        ch.close().sync();
+        return ch;
+    }
+}
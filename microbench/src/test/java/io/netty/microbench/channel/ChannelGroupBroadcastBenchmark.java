@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.group.ChannelGroup;
+import io.netty.channel.group.ChannelMatchers;
+import io.netty.channel.group.DefaultChannelGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.GlobalEventExecutor;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class benchmarks broadcasting one message to all {@link Channel}s of a {@link ChannelGroup}. Every
+ * invocation waits until the message was received by all the peers.
+ */
+@State(Scope.Benchmark)
+public class ChannelGroupBroadcastBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "100", "1000", "10000" })
+    public int channels;
+
+    @Param({ "4" })
+    public int eventLoops;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private DefaultChannelGroup channelGroup;
+    private ByteBuf payload;
+    private final AtomicLong received = new AtomicLong();
+    private long expected;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(eventLoops);
+        LocalAddress addr = new LocalAddress(ChannelGroupBroadcastBenchmark.class.getSimpleName());
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ReceiveHandler(received))
+                .bind(addr).sync().channel();
+
+        Bootstrap cb = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        // NOOP
+                    }
+                });
+        channelGroup = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        for (int i = 0; i < channels; i ++) {
+            channelGroup.add(cb.connect(addr).sync().channel());
+        }
+        payload = Unpooled.directBuffer(128).writeZero(128);
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        channelGroup.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+        payload.release();
+    }
+
+    @Benchmark
+    public void broadcast() throws Exception {
+        channelGroup.writeAndFlush(payload.duplicate().retain()).sync();
+        awaitReceived();
+    }
+
+    @Benchmark
+    public void broadcastVoidPromise() {
+        channelGroup.writeAndFlush(payload.duplicate().retain(), ChannelMatchers.all(), true);
+        awaitReceived();
+    }
+
+    private void awaitReceived() {
+        expected += channels;
+        while (received.get() < expected) {
+            Thread.yield();
+        }
+    }
+
+    @Sharable
+    private static final class ReceiveHandler extends ChannelHandlerAdapter {
+        private final AtomicLong received;
+
+        ReceiveHandler(AtomicLong received) {
+            this.received = received;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+            received.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks writing bursts of {@link ByteBuf}s to a {@link ChannelOutboundBuffer} and flushing them,
+ * either on a long living channel or on a new channel for each burst.
+ */
+public class ChannelOutboundBufferBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "32", "1024" })
+    public int burstSize;
+
+    @Param({ "false", "true" })
+    public boolean newChannel;
+
+    private EmbeddedChannel channel;
+    private ByteBuf message;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel();
+        message = Unpooled.unreleasableBuffer(Unpooled.directBuffer(64).writeZero(64));
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public int writeAndFlush() {
+        EmbeddedChannel channel = this.channel;
+        if (newChannel) {
+            channel.finish();
+            this.channel = channel = new EmbeddedChannel();
+        }
+        for (int i = 0; i < burstSize; i ++) {
+            channel.write(message, channel.voidPromise());
+        }
+        channel.flush();
+
+        int count = 0;
+        while (channel.readOutbound() != null) {
+            count ++;
+        }
+        return count;
+    }
+}
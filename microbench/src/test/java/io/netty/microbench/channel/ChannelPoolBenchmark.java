@@ -0,0 +1,105 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.pool.SimpleChannelPool;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+
+/**
+ * This class benchmarks the acquire / release throughput of the {@link ChannelPool} implementations when the same
+ * pool is shared by multiple threads.
+ */
+@Threads(4)
+@State(Scope.Benchmark)
+public class ChannelPoolBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "simple", "fixed" })
+    public String pool;
+
+    @Param({ "1", "4" })
+    public int eventLoops;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private ChannelPool channelPool;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(eventLoops);
+        LocalAddress addr = new LocalAddress(ChannelPoolBenchmark.class.getSimpleName());
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        // NOOP
+                    }
+                })
+                .bind(addr).sync().channel();
+
+        Bootstrap cb = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .remoteAddress(addr);
+        NoopChannelPoolHandler handler = new NoopChannelPoolHandler();
+        if ("fixed".equals(pool)) {
+            channelPool = new FixedChannelPool(cb, handler, 64);
+        } else {
+            channelPool = new SimpleChannelPool(cb, handler);
+        }
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        channelPool.close();
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public Channel acquireRelease() throws Exception {
+        Channel channel = channelPool.acquire().sync().getNow();
+        channelPool.release(channel).sync();
+        return channel;
+    }
+
+    private static final class NoopChannelPoolHandler extends AbstractChannelPoolHandler {
+        @Override
+        public void channelCreated(Channel ch) {
+            // NOOP
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.concurrent.Promise;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the round trip of batches of {@link ByteBuf}s which are echoed back by a {@link LocalChannel}
+ * running on another event loop, either flushed at once or one by one.
+ */
+public class LocalChannelEchoBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "64" })
+    public int batchSize;
+
+    @Param({ "false", "true" })
+    public boolean flushEachMessage;
+
+    private EventLoopGroup group;
+    private Channel serverChannel;
+    private Channel clientChannel;
+    private EchoClientHandler clientHandler;
+    private ByteBuf message;
+
+    @Setup
+    public void setup() throws Exception {
+        group = new DefaultEventLoopGroup(2);
+        LocalAddress addr = new LocalAddress(LocalChannelEchoBenchmark.class.getSimpleName());
+        serverChannel = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(new EchoServerHandler())
+                .bind(addr).sync().channel();
+
+        clientHandler = new EchoClientHandler();
+        clientChannel = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .handler(clientHandler)
+                .connect(addr).sync().channel();
+        message = Unpooled.unreleasableBuffer(Unpooled.directBuffer(64).writeZero(64));
+    }
+
+    @TearDown
+    public void teardown() throws Exception {
+        clientChannel.close().sync();
+        serverChannel.close().sync();
+        group.shutdownGracefully().sync();
+    }
+
+    @Benchmark
+    public void echo() throws Exception {
+        Promise<Void> promise = clientChannel.eventLoop().newPromise();
+        clientHandler.expect(batchSize, promise);
+        for (int i = 0; i < batchSize; i ++) {
+            clientChannel.write(message.duplicate(), clientChannel.voidPromise());
+            if (flushEachMessage) {
+                clientChannel.flush();
+            }
+        }
+        if (!flushEachMessage) {
+            clientChannel.flush();
+        }
+        promise.sync();
+    }
+
+    @Sharable
+    private static final class EchoServerHandler extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.write(msg, ctx.voidPromise());
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            ctx.flush();
+        }
+    }
+
+    private static final class EchoClientHandler extends ChannelHandlerAdapter {
+        private volatile Promise<Void> promise;
+        private volatile int remaining;
+
+        void expect(int messages, Promise<Void> promise) {
+            remaining = messages;
+            this.promise = promise;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ReferenceCountUtil.release(msg);
+            if (-- remaining == 0) {
+                promise.setSuccess(null);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks adding and removing handlers to a {@link ChannelPipeline}, as done by protocols which
+ * upgrade or switch the pipeline per request, and the lookup of handlers by name and by type.
+ */
+public class PipelineChurnBenchmark extends AbstractMicrobenchmark {
+
+    private static final ChannelHandler UPGRADE_HANDLER = new UpgradeHandler();
+
+    @Param({ "4", "16" })
+    public int depth;
+
+    private EmbeddedChannel channel;
+    private ChannelPipeline pipeline;
+    private String lastName;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel();
+        pipeline = channel.pipeline();
+        for (int i = 0; i < depth; i ++) {
+            pipeline.addLast("handler" + i, new ChannelHandlerAdapter());
+        }
+        pipeline.addLast(new LastHandler());
+        lastName = "handler" + (depth - 1);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public ChannelHandler addAndRemoveWithGeneratedName() {
+        pipeline.addLast(UPGRADE_HANDLER);
+        return pipeline.remove(UpgradeHandler.class);
+    }
+
+    @Benchmark
+    public ChannelHandler addAndRemoveByName() {
+        pipeline.addAfter(lastName, "upgrade", UPGRADE_HANDLER);
+        return pipeline.remove("upgrade");
+    }
+
+    @Benchmark
+    public ChannelHandlerContext contextByName() {
+        return pipeline.context(lastName);
+    }
+
+    @Benchmark
+    public ChannelHandlerContext contextByType() {
+        return pipeline.context(LastHandler.class);
+    }
+
+    @Sharable
+    private static final class UpgradeHandler extends ChannelHandlerAdapter { }
+
+    @Sharable
+    private static final class LastHandler extends ChannelHandlerAdapter { }
+}
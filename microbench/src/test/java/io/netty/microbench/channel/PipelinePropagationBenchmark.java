@@ -0,0 +1,104 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.channel;
+
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the propagation of events through a deep {@link ChannelPipeline} in which most of the
+ * handlers are only interested in {@code channelRead}.
+ */
+public class PipelinePropagationBenchmark extends AbstractMicrobenchmark {
+
+    private static final Object MESSAGE = new Object();
+
+    @Param({ "4", "12", "32" })
+    public int depth;
+
+    private EmbeddedChannel channel;
+    private ChannelPipeline pipeline;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel();
+        channel.config().setAutoRead(false);
+        pipeline = channel.pipeline();
+        for (int i = 0; i < depth; i ++) {
+            pipeline.addLast(new ChannelReadHandler());
+        }
+        pipeline.addLast(new ConsumingHandler());
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public void fireChannelRead() {
+        pipeline.fireChannelRead(MESSAGE);
+    }
+
+    @Benchmark
+    public void fireChannelReadComplete() {
+        pipeline.fireChannelReadComplete();
+    }
+
+    @Benchmark
+    public void fireChannelWritabilityChanged() {
+        pipeline.fireChannelWritabilityChanged();
+    }
+
+    @Benchmark
+    public void flush() {
+        pipeline.flush();
+    }
+
+    @Sharable
+    private static final class ChannelReadHandler extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            ctx.fireChannelRead(msg);
+        }
+    }
+
+    @Sharable
+    private static final class ConsumingHandler extends ChannelHandlerAdapter {
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            // Consume the message.
+        }
+
+        @Override
+        public void channelReadComplete(ChannelHandlerContext ctx) {
+            // Consume the event.
+        }
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            // Consume the event.
+        }
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * This class benchmarks decoding length prefixed frames which are received in chunks of {@link #CHUNK_SIZE} bytes,
+ * using either the {@link ByteToMessageDecoder#MERGE_CUMULATOR} or the
+ * {@link ByteToMessageDecoder#COMPOSITE_CUMULATOR}.
+ */
+public class ByteToMessageDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final int CHUNK_SIZE = 65536;
+    private static final int STREAM_SIZE = 4 * 1024 * 1024;
+
+    @Param({ "16384", "4194304" })
+    public int frameSize;
+
+    @Param({ "merge", "composite" })
+    public String cumulator;
+
+    private EmbeddedChannel channel;
+    private ByteBuf stream;
+    private FrameCounter counter;
+
+    @Setup
+    public void setup() {
+        int frames = Math.max(1, STREAM_SIZE / frameSize);
+        stream = Unpooled.directBuffer(frames * (4 + frameSize));
+        for (int i = 0; i < frames; i ++) {
+            stream.writeInt(frameSize);
+            stream.writeZero(frameSize);
+        }
+
+        FrameDecoder decoder = new FrameDecoder();
+        decoder.setCumulator("composite".equals(cumulator) ?
+                ByteToMessageDecoder.COMPOSITE_CUMULATOR : ByteToMessageDecoder.MERGE_CUMULATOR);
+        counter = new FrameCounter();
+        channel = new EmbeddedChannel(decoder, counter);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+        stream.release();
+    }
+
+    @Benchmark
+    public int decode() {
+        ByteBuf stream = this.stream;
+        int length = stream.readableBytes();
+        for (int i = 0; i < length; i += CHUNK_SIZE) {
+            channel.writeInbound(stream.slice(i, Math.min(CHUNK_SIZE, length - i)).retain());
+        }
+        return counter.frames;
+    }
+
+    private static final class FrameDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            if (in.readableBytes() < 4) {
+                return;
+            }
+            int length = in.getInt(in.readerIndex());
+            if (in.readableBytes() < length + 4) {
+                return;
+            }
+            in.skipBytes(4);
+            out.add(in.readSlice(length).retain());
+        }
+    }
+
+    private static final class FrameCounter extends ChannelHandlerAdapter {
+        int frames;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            frames ++;
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.Bzip2Encoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.apache.commons.compress.compressors.bzip2.BZip2CompressorOutputStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * This class benchmarks the compression throughput of the {@link Bzip2Encoder} against the
+ * {@link BZip2CompressorOutputStream} of Commons Compress. Both compress {@link #MESSAGES} messages of
+ * {@link #MESSAGE_SIZE} bytes each, which span more than one block.
+ */
+public class Bzip2Benchmark extends AbstractMicrobenchmark {
+
+    private static final int MESSAGE_SIZE = 65536;
+    private static final int MESSAGES = 16;
+
+    @Param({ "netty", "commons" })
+    public String encoder;
+
+    @Param({ "text", "records", "random" })
+    public String data;
+
+    @Param({ "1", "9" })
+    public int blockSize;
+
+    private ByteBuf[] messages;
+    private byte[] message;
+    private ByteArrayOutputStream compressed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        messages = new ByteBuf[MESSAGES];
+        for (int i = 0; i < MESSAGES; i ++) {
+            messages[i] = CompressionBenchmark.newMessage(data, MESSAGE_SIZE, random);
+        }
+        message = new byte[MESSAGE_SIZE];
+        compressed = new ByteArrayOutputStream(MESSAGES * MESSAGE_SIZE);
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buf : messages) {
+            buf.release();
+        }
+    }
+
+    @Benchmark
+    public int encode() throws IOException {
+        if ("commons".equals(encoder)) {
+            compressed.reset();
+            BZip2CompressorOutputStream out = new BZip2CompressorOutputStream(compressed, blockSize);
+            for (ByteBuf buf : messages) {
+                buf.getBytes(buf.readerIndex(), message);
+                out.write(message);
+            }
+            out.close();
+            return compressed.size();
+        }
+
+        EmbeddedChannel channel = new EmbeddedChannel(new Bzip2Encoder(blockSize));
+        for (ByteBuf buf : messages) {
+            channel.writeOutbound(buf.duplicate().retain());
+        }
+        channel.finish();
+        int bytes = 0;
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            bytes += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+        }
+        return bytes;
+    }
+}
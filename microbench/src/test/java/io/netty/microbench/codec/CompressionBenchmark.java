@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.Lz4FrameDecoder;
+import io.netty.handler.codec.compression.Lz4FrameEncoder;
+import io.netty.handler.codec.compression.SnappyFramedDecoder;
+import io.netty.handler.codec.compression.SnappyFramedEncoder;
+import io.netty.handler.codec.compression.ZstdDecoder;
+import io.netty.handler.codec.compression.ZstdEncoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks the compression codecs by encoding and decoding a stream of {@link #MESSAGES} different
+ * messages of {@link #MESSAGE_SIZE} bytes each. The messages are either text, records like those of a replication
+ * stream or random data.
+ */
+public class CompressionBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MESSAGE_SIZE = 65536;
+    private static final int MESSAGES = 16;
+
+    private static final String[] WORDS = (
+            "the quick brown fox jumps over lazy dog netty is an asynchronous event driven network application " +
+            "framework for rapid development of maintainable high performance protocol servers and clients " +
+            "request response header content length connection keep alive").split(" ");
+
+    private static final String[] ACTIONS = { "insert", "update", "delete", "upsert" };
+    private static final String[] TABLES = { "accounts", "orders", "order_items", "sessions", "inventory" };
+
+    @Param({ "lz4", "snappy", "zlib", "zstd" })
+    public String codec;
+
+    @Param({ "text", "records", "random" })
+    public String data;
+
+    private ByteBuf[] messages;
+    private ByteBuf[] compressed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        messages = new ByteBuf[MESSAGES];
+        for (int i = 0; i < MESSAGES; i ++) {
+            messages[i] = newMessage(data, MESSAGE_SIZE, random);
+        }
+
+        // Prepare a finished stream for the decode benchmark.
+        EmbeddedChannel ch = new EmbeddedChannel(newEncoder());
+        for (ByteBuf message : messages) {
+            ch.writeOutbound(message.duplicate().retain());
+        }
+        ch.finish();
+        compressed = new ByteBuf[ch.outboundMessages().size()];
+        for (int i = 0; i < compressed.length; i ++) {
+            compressed[i] = ch.readOutbound();
+        }
+    }
+
+    /**
+     * Returns a message of the given kind of data.
+     */
+    static ByteBuf newMessage(String data, int size, Random random) {
+        ByteBuf message = Unpooled.buffer(size);
+        if ("text".equals(data)) {
+            while (message.isWritable()) {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                message.writeBytes(word.getBytes(CharsetUtil.US_ASCII), 0,
+                        Math.min(word.length(), message.writableBytes()));
+                if (message.isWritable()) {
+                    message.writeByte(' ');
+                }
+            }
+        } else if ("records".equals(data)) {
+            while (message.isWritable()) {
+                byte[] record = newRecord(random);
+                message.writeBytes(record, 0, Math.min(record.length, message.writableBytes()));
+            }
+        } else {
+            byte[] bytes = new byte[size];
+            random.nextBytes(bytes);
+            message.writeBytes(bytes);
+        }
+        return message;
+    }
+
+    /**
+     * Returns a record of a replication stream.
+     */
+    static byte[] newRecord(Random random) {
+        String record = "{\"seq\":" + (1000000 + random.nextInt(1000000)) +
+                ",\"action\":\"" + ACTIONS[random.nextInt(ACTIONS.length)] +
+                "\",\"table\":\"" + TABLES[random.nextInt(TABLES.length)] +
+                "\",\"key\":" + random.nextInt(100000) +
+                ",\"timestamp\":" + (1400000000000L + random.nextInt(100000000)) +
+                ",\"columns\":{\"status\":\"" + (random.nextBoolean() ? "active" : "inactive") +
+                "\",\"balance\":" + random.nextInt(100000) + '.' + random.nextInt(100) +
+                ",\"owner\":\"user" + random.nextInt(10000) + "@example.com\"}}\n";
+        return record.getBytes(CharsetUtil.US_ASCII);
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buf : messages) {
+            buf.release();
+        }
+        for (ByteBuf buf : compressed) {
+            buf.release();
+        }
+    }
+
+    private ChannelHandler newEncoder() {
+        if ("lz4".equals(codec)) {
+            return new Lz4FrameEncoder();
+        }
+        if ("snappy".equals(codec)) {
+            return new SnappyFramedEncoder();
+        }
+        if ("zstd".equals(codec)) {
+            return new ZstdEncoder();
+        }
+        return new JdkZlibEncoder();
+    }
+
+    private ChannelHandler newDecoder() {
+        if ("lz4".equals(codec)) {
+            return new Lz4FrameDecoder();
+        }
+        if ("snappy".equals(codec)) {
+            return new SnappyFramedDecoder();
+        }
+        if ("zstd".equals(codec)) {
+            return new ZstdDecoder();
+        }
+        return new JdkZlibDecoder();
+    }
+
+    @Benchmark
+    public int encode() {
+        EmbeddedChannel encoder = new EmbeddedChannel(newEncoder());
+        for (ByteBuf message : messages) {
+            encoder.writeOutbound(message.duplicate().retain());
+        }
+        encoder.finish();
+        return releaseOutbound(encoder);
+    }
+
+    @Benchmark
+    public int decode() {
+        EmbeddedChannel decoder = new EmbeddedChannel(newDecoder());
+        for (ByteBuf buf : compressed) {
+            decoder.writeInbound(buf.duplicate().retain());
+        }
+        decoder.finish();
+        int bytes = 0;
+        for (;;) {
+            ByteBuf buf = decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            bytes += buf.readableBytes();
+            buf.release();
+        }
+        return bytes;
+    }
+
+    private static int releaseOutbound(EmbeddedChannel channel) {
+        int bytes = 0;
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            bytes += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+        }
+        return bytes;
+    }
+}
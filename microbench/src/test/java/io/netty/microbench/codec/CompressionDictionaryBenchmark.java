@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.compression.JdkZlibDecoder;
+import io.netty.handler.codec.compression.JdkZlibEncoder;
+import io.netty.handler.codec.compression.ZstdDecoder;
+import io.netty.handler.codec.compression.ZstdEncoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks compressing a short stream of {@link #MESSAGES} small and similar messages, each of which is
+ * flushed on its own, with and without a dictionary which consists of other messages of the same kind.
+ */
+public class CompressionDictionaryBenchmark extends AbstractMicrobenchmark {
+
+    private static final int MESSAGES = 16;
+    private static final int DICTIONARY_MESSAGES = 64;
+
+    @Param({ "zlib", "zstd" })
+    public String codec;
+
+    @Param({ "false", "true" })
+    public boolean dictionary;
+
+    private byte[] dictionaryContent;
+    private ByteBuf[] messages;
+    private ByteBuf[] compressed;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        ByteBuf content = Unpooled.buffer();
+        for (int i = 0; i < DICTIONARY_MESSAGES; i ++) {
+            content.writeBytes(CompressionBenchmark.newRecord(random));
+        }
+        dictionaryContent = new byte[content.readableBytes()];
+        content.readBytes(dictionaryContent);
+        content.release();
+
+        messages = new ByteBuf[MESSAGES];
+        for (int i = 0; i < MESSAGES; i ++) {
+            messages[i] = Unpooled.wrappedBuffer(CompressionBenchmark.newRecord(random));
+        }
+
+        // Prepare a finished stream for the decode benchmark.
+        EmbeddedChannel ch = new EmbeddedChannel(newEncoder());
+        for (ByteBuf message : messages) {
+            ch.writeOutbound(message.duplicate().retain());
+        }
+        ch.finish();
+        compressed = new ByteBuf[ch.outboundMessages().size()];
+        for (int i = 0; i < compressed.length; i ++) {
+            compressed[i] = ch.readOutbound();
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        for (ByteBuf buf : messages) {
+            buf.release();
+        }
+        for (ByteBuf buf : compressed) {
+            buf.release();
+        }
+    }
+
+    private ChannelHandler newEncoder() {
+        if ("zstd".equals(codec)) {
+            return dictionary ? new ZstdEncoder(3, dictionaryContent) : new ZstdEncoder();
+        }
+        return dictionary ? new JdkZlibEncoder(6, dictionaryContent) : new JdkZlibEncoder();
+    }
+
+    private ChannelHandler newDecoder() {
+        if ("zstd".equals(codec)) {
+            return dictionary ? new ZstdDecoder(dictionaryContent) : new ZstdDecoder();
+        }
+        return dictionary ? new JdkZlibDecoder(dictionaryContent) : new JdkZlibDecoder();
+    }
+
+    @Benchmark
+    public int encode() {
+        EmbeddedChannel encoder = new EmbeddedChannel(newEncoder());
+        for (ByteBuf message : messages) {
+            encoder.writeOutbound(message.duplicate().retain());
+        }
+        encoder.finish();
+        int bytes = 0;
+        for (;;) {
+            Object msg = encoder.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            bytes += ((ByteBuf) msg).readableBytes();
+            ReferenceCountUtil.release(msg);
+        }
+        return bytes;
+    }
+
+    @Benchmark
+    public int decode() {
+        EmbeddedChannel decoder = new EmbeddedChannel(newDecoder());
+        for (ByteBuf buf : compressed) {
+            decoder.writeInbound(buf.duplicate().retain());
+        }
+        decoder.finish();
+        int bytes = 0;
+        for (;;) {
+            ByteBuf buf = decoder.readInbound();
+            if (buf == null) {
+                break;
+            }
+            bytes += buf.readableBytes();
+            buf.release();
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.MessageToMessageDecoder;
+import io.netty.handler.codec.MessageToMessageEncoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * This class benchmarks a chain of decoders which splits a buffer into many small messages and converts each of
+ * them, and a chain of encoders which does the same for outbound messages.
+ */
+public class DecoderChainBenchmark extends AbstractMicrobenchmark {
+
+    @Param({ "1", "256" })
+    public int messagesPerRead;
+
+    private EmbeddedChannel channel;
+    private ByteBuf input;
+    private MessageCounter counter;
+
+    @Setup
+    public void setup() {
+        counter = new MessageCounter();
+        channel = new EmbeddedChannel(
+                new IntegerDecoder(), new IntegerToLongDecoder(), new LongToIntegerDecoder(), counter,
+                new IntegerEncoder(), new SplittingEncoder());
+        input = Unpooled.unreleasableBuffer(Unpooled.buffer(messagesPerRead * 4).writeZero(messagesPerRead * 4));
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+    }
+
+    @Benchmark
+    public int decode() {
+        channel.writeInbound(input.duplicate());
+        return counter.messages;
+    }
+
+    @Benchmark
+    public Object encode() {
+        channel.writeOutbound(messagesPerRead);
+        Object msg = channel.readOutbound();
+        while (channel.readOutbound() != null) {
+            continue;
+        }
+        return msg;
+    }
+
+    private static final class IntegerDecoder extends ByteToMessageDecoder {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            while (in.readableBytes() >= 4) {
+                out.add(in.readInt());
+            }
+        }
+    }
+
+    private static final class IntegerToLongDecoder extends MessageToMessageDecoder<Integer> {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, Integer msg, List<Object> out) {
+            out.add(msg.longValue());
+        }
+    }
+
+    private static final class LongToIntegerDecoder extends MessageToMessageDecoder<Long> {
+        @Override
+        protected void decode(ChannelHandlerContext ctx, Long msg, List<Object> out) {
+            out.add(msg.intValue());
+        }
+    }
+
+    private static final class MessageCounter extends ChannelHandlerAdapter {
+        int messages;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            messages ++;
+        }
+    }
+
+    private static final class SplittingEncoder extends MessageToMessageEncoder<Integer> {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Integer msg, List<Object> out) {
+            for (int i = 0; i < msg; i ++) {
+                out.add(i);
+            }
+        }
+    }
+
+    private static final class IntegerEncoder extends MessageToMessageEncoder<Integer> {
+        @Override
+        protected void encode(ChannelHandlerContext ctx, Integer msg, List<Object> out) {
+            out.add(msg.longValue());
+        }
+    }
+}
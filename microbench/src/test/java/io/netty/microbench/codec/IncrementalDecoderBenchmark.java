@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.ByteToMessageDecoder;
+import io.netty.handler.codec.IncrementalDecoder;
+import io.netty.handler.codec.ReplayingDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+
+/**
+ * This class benchmarks decoding a message which consists of an int count followed by count int values with a
+ * {@link ReplayingDecoder} and an {@link IncrementalDecoder}, while the message is received in fragments of
+ * {@link #fragmentSize} bytes.
+ */
+public class IncrementalDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final int VALUES = 16384;
+
+    @Param({ "64", "1024", "65536" })
+    public int fragmentSize;
+
+    @Param({ "replaying", "incremental" })
+    public String decoder;
+
+    private EmbeddedChannel channel;
+    private ByteBuf message;
+    private MessageCounter counter;
+
+    @Setup
+    public void setup() {
+        message = Unpooled.directBuffer(4 + VALUES * 4);
+        message.writeInt(VALUES);
+        for (int i = 0; i < VALUES; i ++) {
+            message.writeInt(i);
+        }
+
+        counter = new MessageCounter();
+        ByteToMessageDecoder decoder = "incremental".equals(this.decoder) ?
+                new IncrementalSumDecoder() : new ReplayingSumDecoder();
+        channel = new EmbeddedChannel(decoder, counter);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+        message.release();
+    }
+
+    @Benchmark
+    public int decode() {
+        ByteBuf message = this.message;
+        int length = message.readableBytes();
+        for (int i = 0; i < length; i += fragmentSize) {
+            channel.writeInbound(message.slice(i, Math.min(fragmentSize, length - i)).retain());
+        }
+        return counter.messages;
+    }
+
+    private enum State {
+        READ_COUNT,
+        READ_VALUES
+    }
+
+    private static final class ReplayingSumDecoder extends ReplayingDecoder<State> {
+        private int count;
+
+        ReplayingSumDecoder() {
+            super(State.READ_COUNT);
+        }
+
+        @Override
+        protected void decode(ChannelHandlerContext ctx, ByteBuf in, List<Object> out) {
+            switch (state()) {
+            case READ_COUNT:
+                count = in.readInt();
+                checkpoint(State.READ_VALUES);
+            case READ_VALUES:
+                long sum = 0;
+                for (int i = 0; i < count; i ++) {
+                    sum += in.readInt();
+                }
+                checkpoint(State.READ_COUNT);
+                out.add(sum);
+                break;
+            default:
+                throw new Error("Shouldn't reach here.");
+            }
+        }
+    }
+
+    private static final class IncrementalSumDecoder extends IncrementalDecoder<State> {
+        private int remaining;
+        private long sum;
+
+        IncrementalSumDecoder() {
+            super(State.READ_COUNT);
+        }
+
+        @Override
+        protected boolean decode(ChannelHandlerContext ctx, State state, ByteBuf in, List<Object> out) {
+            switch (state) {
+            case READ_COUNT:
+                if (in.readableBytes() < 4) {
+                    return false;
+                }
+                remaining = in.readInt();
+                sum = 0;
+                state(State.READ_VALUES);
+                return true;
+            case READ_VALUES:
+                // Consume as many values as are available within one step.
+                int available = Math.min(remaining, in.readableBytes() >>> 2);
+                for (int i = 0; i < available; i ++) {
+                    sum += in.readInt();
+                }
+                remaining -= available;
+                if (remaining > 0) {
+                    return available > 0;
+                }
+                out.add(sum);
+                state(State.READ_COUNT);
+                return true;
+            default:
+                throw new Error("Shouldn't reach here.");
+            }
+        }
+    }
+
+    private static final class MessageCounter extends ChannelHandlerAdapter {
+        int messages;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            messages ++;
+        }
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.AsciiString;
+import io.netty.handler.codec.json.JsonObjectDecoder;
+import io.netty.handler.codec.json.JsonToken;
+import io.netty.handler.codec.json.JsonTokenDecoder;
+import io.netty.handler.codec.json.JsonTokenizer;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * This class benchmarks decoding a top-level JSON array of events, which is received in reads of
+ * {@link #READ_SIZE} bytes, by splitting it into elements with a {@link JsonObjectDecoder}, by tokenizing the
+ * elements split by a {@link JsonObjectDecoder} with a {@link JsonTokenDecoder}, and by tokenizing the array
+ * with a {@link JsonTokenDecoder} only.
+ */
+public class JsonDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final int READ_SIZE = 8192;
+    private static final int EVENTS = 32768;
+    private static final AsciiString ID = new AsciiString("id");
+
+    @Param({ "objects", "objects-tokens", "tokens" })
+    public String decoder;
+
+    private EmbeddedChannel channel;
+    private ByteBuf stream;
+    private MessageCounter counter;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(42);
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < EVENTS; i ++) {
+            if (i > 0) {
+                json.append(",\n");
+            }
+            json.append("{\"id\": ").append(i)
+                .append(", \"type\": \"").append(random.nextBoolean() ? "click" : "view")
+                .append("\", \"user\": \"user-").append(random.nextInt(10000))
+                .append("\", \"timestamp\": ").append(1400000000000L + random.nextInt())
+                .append(", \"score\": ").append(random.nextDouble())
+                .append(", \"tags\": [\"a\", \"b\\\"c\"], \"valid\": true, \"parent\": null}");
+        }
+        json.append(']');
+        byte[] bytes = json.toString().getBytes(CharsetUtil.UTF_8);
+        stream = PooledByteBufAllocator.DEFAULT.directBuffer(bytes.length);
+        stream.writeBytes(bytes);
+
+        counter = new MessageCounter();
+        if ("objects".equals(decoder)) {
+            channel = new EmbeddedChannel(new JsonObjectDecoder(true), counter);
+        } else if ("objects-tokens".equals(decoder)) {
+            channel = new EmbeddedChannel(new JsonObjectDecoder(true), new IdDecoder(true), counter);
+        } else {
+            channel = new EmbeddedChannel(new IdDecoder(false), counter);
+        }
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+        stream.release();
+    }
+
+    @Benchmark
+    public int decode() {
+        ByteBuf stream = this.stream;
+        int length = stream.readableBytes();
+        for (int i = 0; i < length; i += READ_SIZE) {
+            ByteBuf read = PooledByteBufAllocator.DEFAULT.directBuffer(READ_SIZE);
+            read.writeBytes(stream, i, Math.min(READ_SIZE, length - i));
+            channel.writeInbound(read);
+        }
+        return counter.messages;
+    }
+
+    private static final class IdDecoder extends JsonTokenDecoder {
+        private boolean id;
+
+        IdDecoder(boolean framed) {
+            super(1024 * 1024, framed);
+        }
+
+        @Override
+        protected void decodeToken(ChannelHandlerContext ctx, JsonToken token, JsonTokenizer tokenizer,
+                                   List<Object> out) {
+            if (token == JsonToken.FIELD_NAME) {
+                id = ID.equals(tokenizer.fieldName());
+            } else if (id) {
+                out.add(tokenizer.longValue());
+                id = false;
+            }
+        }
+    }
+
+    private static final class MessageCounter extends ChannelHandlerAdapter {
+        int messages;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            messages ++;
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
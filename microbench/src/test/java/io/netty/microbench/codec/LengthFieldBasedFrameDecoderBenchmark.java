@@ -0,0 +1,94 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * This class benchmarks the {@link LengthFieldBasedFrameDecoder} with frames of {@link #frameSize} bytes which
+ * are copied or sliced, while the stream of frames is received in reads of {@link #READ_SIZE} bytes.
+ */
+public class LengthFieldBasedFrameDecoderBenchmark extends AbstractMicrobenchmark {
+
+    private static final int READ_SIZE = 8192;
+    private static final int STREAM_SIZE = 1024 * 1024;
+
+    @Param({ "16", "256", "65536" })
+    public int frameSize;
+
+    @Param({ "copy", "slice" })
+    public String frames;
+
+    private EmbeddedChannel channel;
+    private ByteBuf stream;
+    private FrameCounter counter;
+
+    @Setup
+    public void setup() {
+        stream = PooledByteBufAllocator.DEFAULT.directBuffer(STREAM_SIZE);
+        for (int i = 0; stream.writableBytes() >= 4 + frameSize; i ++) {
+            stream.writeInt(frameSize);
+            for (int j = 0; j < frameSize; j ++) {
+                stream.writeByte(i + j);
+            }
+        }
+
+        LengthFieldBasedFrameDecoder decoder = new LengthFieldBasedFrameDecoder(Integer.MAX_VALUE, 0, 4, 0, 4);
+        decoder.setSliceFrames("slice".equals(frames));
+        counter = new FrameCounter();
+        channel = new EmbeddedChannel(decoder, counter);
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+    }
+
+    @TearDown
+    public void teardown() {
+        channel.finish();
+        stream.release();
+    }
+
+    @Benchmark
+    public int decode() {
+        ByteBuf stream = this.stream;
+        int length = stream.readableBytes();
+        for (int i = 0; i < length; i += READ_SIZE) {
+            ByteBuf read = PooledByteBufAllocator.DEFAULT.directBuffer(READ_SIZE);
+            read.writeBytes(stream, i, Math.min(READ_SIZE, length - i));
+            channel.writeInbound(read);
+        }
+        return counter.frames;
+    }
+
+    private static final class FrameCounter extends ChannelHandlerAdapter {
+        int frames;
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            frames ++;
+            ReferenceCountUtil.release(msg);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.handler.codec.compression.Snappy;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks the two parts of a framed Snappy chunk: the compression of the chunk
+ * and the masked CRC32C checksum, for both heap and direct buffers.
+ */
+public class SnappyBenchmark extends AbstractMicrobenchmark {
+
+    /**
+     * The size of a chunk of the framing format.
+     */
+    private static final int CHUNK_SIZE = 32767;
+
+    @Param({ "text", "records", "random" })
+    public String data;
+
+    @Param({ "heap", "direct" })
+    public String buffer;
+
+    private final Snappy snappy = new Snappy();
+    private ByteBuf chunk;
+    private ByteBuf out;
+
+    @Setup
+    public void setup() {
+        ByteBuf message = CompressionBenchmark.newMessage(data, CHUNK_SIZE, new Random(42));
+        if ("direct".equals(buffer)) {
+            chunk = PooledByteBufAllocator.DEFAULT.directBuffer(CHUNK_SIZE);
+            out = PooledByteBufAllocator.DEFAULT.directBuffer(CHUNK_SIZE * 2);
+        } else {
+            chunk = PooledByteBufAllocator.DEFAULT.heapBuffer(CHUNK_SIZE);
+            out = PooledByteBufAllocator.DEFAULT.heapBuffer(CHUNK_SIZE * 2);
+        }
+        chunk.writeBytes(message);
+        message.release();
+    }
+
+    @TearDown
+    public void teardown() {
+        chunk.release();
+        out.release();
+    }
+
+    @Benchmark
+    public int compress() {
+        out.clear();
+        snappy.encode(chunk.duplicate(), out, CHUNK_SIZE);
+        return out.writerIndex();
+    }
+
+    @Benchmark
+    public int checksum() {
+        return Snappy.calculateChecksum(chunk);
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.microbench.http;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.handler.codec.http.DefaultFullHttpRequest;
+import io.netty.handler.codec.http.DefaultFullHttpResponse;
+import io.netty.handler.codec.http.FullHttpRequest;
+import io.netty.handler.codec.http.HttpContentCompressor;
+import io.netty.handler.codec.http.HttpHeaders.Names;
+import io.netty.handler.codec.http.HttpMethod;
+import io.netty.handler.codec.http.HttpResponseStatus;
+import io.netty.handler.codec.http.HttpVersion;
+import io.netty.microbench.util.AbstractMicrobenchmark;
+import io.netty.util.CharsetUtil;
+import io.netty.util.ReferenceCountUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Random;
+
+/**
+ * This class benchmarks the {@link HttpContentCompressor} with responses of {@link #size} bytes in heap or direct
+ * buffers, which is one request and response on a keep-alive connection per operation.
+ */
+public class HttpContentCompressorBenchmark extends AbstractMicrobenchmark {
+
+    private static final String[] WORDS = {
+        "netty", "is", "an", "asynchronous", "event-driven", "network", "application", "framework", "for", "rapid",
+        "development", "of", "maintainable", "high", "performance", "protocol", "servers", "and", "clients"
+    };
+
+    @Param({ "1024", "65536" })
+    public int size;
+
+    @Param({ "heap", "direct" })
+    public String buffer;
+
+    @Param({ "gzip", "deflate" })
+    public String encoding;
+
+    private EmbeddedChannel channel;
+    private ByteBuf content;
+
+    @Setup
+    public void setup() {
+        channel = new EmbeddedChannel(new HttpContentCompressor());
+        channel.config().setAllocator(PooledByteBufAllocator.DEFAULT);
+
+        if ("direct".equals(buffer)) {
+            content = PooledByteBufAllocator.DEFAULT.directBuffer(size);
+        } else {
+            content = PooledByteBufAllocator.DEFAULT.heapBuffer(size);
+        }
+        Random random = new Random(42);
+        while (content.isWritable()) {
+            byte[] word = WORDS[random.nextInt(WORDS.length)].getBytes(CharsetUtil.US_ASCII);
+            content.writeBytes(word, 0, Math.min(word.length, content.writableBytes()));
+            if (content.isWritable()) {
+                content.writeByte(' ');
+            }
+        }
+    }
+
+    @TearDown
+    public void teardown() {
+        content.release();
+        channel.finish();
+    }
+
+    @Benchmark
+    public int compress() {
+        FullHttpRequest request = new DefaultFullHttpRequest(HttpVersion.HTTP_1_1, HttpMethod.GET, "/");
+        request.headers().set(Names.ACCEPT_ENCODING, encoding);
+        channel.writeInbound(request);
+        ReferenceCountUtil.release(channel.readInbound());
+
+        channel.writeOutbound(new DefaultFullHttpResponse(
+                HttpVersion.HTTP_1_1, HttpResponseStatus.OK, content.duplicate().retain()));
+        int bytes = 0;
+        for (;;) {
+            Object msg = channel.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            if (msg instanceof ByteBuf) {
+                bytes += ((ByteBuf) msg).readableBytes();
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        return bytes;
+    }
+}
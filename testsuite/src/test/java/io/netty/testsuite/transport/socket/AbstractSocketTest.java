@@ -25,11 +25,12 @@ import io.netty.testsuite.util.TestUtils;
 import io.netty.util.NetUtil;
 
 import java.net.InetSocketAddress;
+import java.net.SocketAddress;
 import java.util.List;
 
 public abstract class AbstractSocketTest extends AbstractComboTestsuiteTest<ServerBootstrap, Bootstrap> {
 
-    protected volatile InetSocketAddress addr;
+    protected volatile SocketAddress addr;
 
     protected AbstractSocketTest() {
         super(ServerBootstrap.class, Bootstrap.class);
@@ -42,12 +43,16 @@ public abstract class AbstractSocketTest extends AbstractComboTestsuiteTest<Serv
 
     @Override
     protected void configure(ServerBootstrap bootstrap, Bootstrap bootstrap2, ByteBufAllocator allocator) {
-        addr = new InetSocketAddress(
-                NetUtil.LOCALHOST, TestUtils.getFreePort());
+        addr = newSocketAddress();
         bootstrap.localAddress(addr);
         bootstrap.option(ChannelOption.ALLOCATOR, allocator);
         bootstrap.childOption(ChannelOption.ALLOCATOR, allocator);
         bootstrap2.remoteAddress(addr);
         bootstrap2.option(ChannelOption.ALLOCATOR, allocator);
     }
+
+    protected SocketAddress newSocketAddress() {
+        return new InetSocketAddress(
+                NetUtil.LOCALHOST, TestUtils.getFreePort());
+    }
 }
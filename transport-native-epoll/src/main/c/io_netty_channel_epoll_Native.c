@@ -24,6 +24,7 @@
 #include <netinet/in.h>
 #include <sys/types.h>
 #include <sys/socket.h>
+#include <sys/un.h>
 #include <unistd.h>
 #include <arpa/inet.h>
 #include <fcntl.h>
@@ -35,6 +36,61 @@
 extern int accept4(int sockFd, struct sockaddr *addr, socklen_t *addrlen, int flags) __attribute__((weak));
 extern int epoll_create1(int flags) __attribute__((weak));
 
+// Our own definition of struct mmsghdr as the one of the libc is only visible when _GNU_SOURCE is defined.
+struct netty_mmsghdr {
+    struct msghdr msg_hdr;
+    unsigned int msg_len;
+};
+
+// optional, if not present we fallback to multiple calls of sendto(...) / recvfrom(...)
+extern int sendmmsg(int sockFd, struct netty_mmsghdr *msgvec, unsigned int vlen, unsigned int flags) __attribute__((weak));
+extern int recvmmsg(int sockFd, struct netty_mmsghdr *msgvec, unsigned int vlen, unsigned int flags, struct timespec *timeout) __attribute__((weak));
+extern int pipe2(int pipefd[2], int flags) __attribute__((weak));
+extern ssize_t splice(int fdIn, loff_t *offIn, int fdOut, loff_t *offOut, size_t len, unsigned int flags) __attribute__((weak));
+
+// Define the flags of splice(...) as they are only exposed by fcntl.h if _GNU_SOURCE is set
+#ifndef SPLICE_F_MOVE
+#define SPLICE_F_MOVE 1
+#endif
+#ifndef SPLICE_F_NONBLOCK
+#define SPLICE_F_NONBLOCK 2
+#endif
+
+// Our own definition of struct ucred as the one of the libc is only visible when _GNU_SOURCE is defined.
+struct netty_ucred {
+    pid_t pid;
+    uid_t uid;
+    gid_t gid;
+};
+
+// Definitions which are needed for MSG_ZEROCOPY but are missing in older headers.
+#ifndef SO_ZEROCOPY
+#define SO_ZEROCOPY 60
+#endif
+#ifndef MSG_ZEROCOPY
+#define MSG_ZEROCOPY 0x4000000
+#endif
+#ifndef IPV6_RECVERR
+#define IPV6_RECVERR 25
+#endif
+#define NETTY_SO_EE_ORIGIN_ZEROCOPY 5
+#define NETTY_SO_EE_CODE_ZEROCOPY_COPIED 1
+
+// Returned by accept0(...) once there is no connection left to accept. Errors are returned as -errno, which is
+// never as small as this.
+#define NETTY_ACCEPT_DRAINED (-0x7fffffff - 1)
+
+// Our own definition of struct sock_extended_err as linux/errqueue.h may not be present.
+struct netty_sock_extended_err {
+    uint32_t ee_errno;
+    uint8_t ee_origin;
+    uint8_t ee_type;
+    uint8_t ee_code;
+    uint8_t ee_pad;
+    uint32_t ee_info;
+    uint32_t ee_data;
+};
+
 // Those are initialized in the init(...) method and cached for performance reasons
 jmethodID updatePosId = NULL;
 jmethodID posId = NULL;
@@ -48,6 +104,12 @@ jfieldID fileDescriptorFieldId = NULL;
 jfieldID readerIndexFieldId = NULL;
 jfieldID writerIndexFieldId = NULL;
 jfieldID memoryAddressFieldId = NULL;
+jfieldID packetMemoryAddressFieldId = NULL;
+jfieldID packetCountFieldId = NULL;
+jfieldID packetAddrFieldId = NULL;
+jfieldID packetScopeIdFieldId = NULL;
+jfieldID packetPortFieldId = NULL;
+jfieldID packetSenderFieldId = NULL;
 jmethodID inetSocketAddrMethodId = NULL;
 jmethodID datagramSocketAddrMethodId = NULL;
 jclass runtimeExceptionClass = NULL;
@@ -396,6 +458,42 @@ jint JNI_OnLoad(JavaVM* vm, void* reserved) {
             // pending exception...
             return JNI_ERR;
         }
+
+        jclass nativeDatagramPacketClass = (*env)->FindClass(env, "io/netty/channel/epoll/NativeDatagramPacketArray$NativeDatagramPacket");
+        if (nativeDatagramPacketClass == NULL) {
+             // pending exception...
+            return JNI_ERR;
+        }
+        packetMemoryAddressFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "memoryAddress", "J");
+        if (packetMemoryAddressFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetCountFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "count", "I");
+        if (packetCountFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetAddrFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "addr", "[B");
+        if (packetAddrFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetScopeIdFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "scopeId", "I");
+        if (packetScopeIdFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetPortFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "port", "I");
+        if (packetPortFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        packetSenderFieldId = (*env)->GetFieldID(env, nativeDatagramPacketClass, "sender", "Lio/netty/channel/epoll/EpollDatagramChannel$DatagramSocketAddress;");
+        if (packetSenderFieldId == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
         return JNI_VERSION_1_6;
     }
 }
@@ -515,6 +613,9 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_epollWait(JNIEnv * env
         if (ev[i].events & EPOLLOUT) {
             elements[i] |= EPOLL_WRITE;
         }
+        if (ev[i].events & EPOLLERR) {
+            elements[i] |= EPOLL_ERR;
+        }
     }
     jint mode;
     // release again to prevent memory leak
@@ -595,6 +696,86 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_writeAddress(JNIEnv *
     return write0(env, clazz, fd, (void *) address, pos, limit);
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendAddressZeroCopy(JNIEnv * env, jclass clazz, jint fd, jlong address, jint pos, jint limit) {
+    ssize_t res;
+    int err;
+    do {
+        res = send(fd, ((void *) address) + pos, (size_t) (limit - pos), MSG_ZEROCOPY);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        // network stack saturated... try again later
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            return 0;
+        }
+        // not able to pin more pages at the moment, so the caller should fallback to a copying write
+        if (err == ENOBUFS) {
+            return -1;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while send(...): ", err));
+        return -1;
+    }
+    return (jint) res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvZeroCopyCompletions(JNIEnv * env, jclass clazz, jint fd, jintArray completions) {
+    jsize max = (*env)->GetArrayLength(env, completions) / 3;
+    jint values[3];
+    jsize count = 0;
+
+    while (count < max) {
+        char control[CMSG_SPACE(sizeof(struct netty_sock_extended_err)) + 64];
+        struct msghdr msg;
+        memset(&msg, 0, sizeof(msg));
+        msg.msg_control = control;
+        msg.msg_controllen = sizeof(control);
+
+        ssize_t res;
+        int err;
+        do {
+            res = recvmsg(fd, &msg, MSG_ERRQUEUE);
+            // keep on reading if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res < 0) {
+            if (err == EAGAIN || err == EWOULDBLOCK) {
+                // the error queue is empty
+                break;
+            }
+            if (err == EBADF) {
+                throwClosedChannelException(env);
+                return -1;
+            }
+            throwIOException(env, exceptionMessage("Error during recvmsg(...): ", err));
+            return -1;
+        }
+
+        struct cmsghdr *cmsg;
+        for (cmsg = CMSG_FIRSTHDR(&msg); cmsg != NULL; cmsg = CMSG_NXTHDR(&msg, cmsg)) {
+            if (!((cmsg->cmsg_level == IPPROTO_IP && cmsg->cmsg_type == IP_RECVERR) ||
+                    (cmsg->cmsg_level == IPPROTO_IPV6 && cmsg->cmsg_type == IPV6_RECVERR))) {
+                continue;
+            }
+            struct netty_sock_extended_err *serr = (struct netty_sock_extended_err *) CMSG_DATA(cmsg);
+            if (serr->ee_errno != 0 || serr->ee_origin != NETTY_SO_EE_ORIGIN_ZEROCOPY) {
+                continue;
+            }
+            // ee_info and ee_data are the first and the last (inclusive) send call which completed.
+            values[0] = (jint) serr->ee_info;
+            values[1] = (jint) serr->ee_data;
+            values[2] = (serr->ee_code & NETTY_SO_EE_CODE_ZEROCOPY_COPIED) != 0 ? 1 : 0;
+            (*env)->SetIntArrayRegion(env, completions, count * 3, 3, values);
+            count++;
+        }
+    }
+    return count;
+}
+
 jint sendTo0(JNIEnv * env, jint fd, void* buffer, jint pos, jint limit ,jbyteArray address, jint scopeId, jint port) {
     struct sockaddr_storage addr;
     init_sockaddr(env, address, scopeId, port, &addr);
@@ -675,6 +856,150 @@ JNIEXPORT jobject JNICALL Java_io_netty_channel_epoll_Native_recvFromAddress(JNI
     return recvFrom0(env, fd, (void*) address, pos, limit);
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendmmsg(JNIEnv * env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct netty_mmsghdr msg[len];
+    struct iovec iov[len];
+    struct sockaddr_storage addr[len];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+    memset(addr, 0, sizeof(addr));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jbyteArray address = (jbyteArray) (*env)->GetObjectField(env, packet, packetAddrFieldId);
+        jint scopeId = (*env)->GetIntField(env, packet, packetScopeIdFieldId);
+        jint port = (*env)->GetIntField(env, packet, packetPortFieldId);
+
+        init_sockaddr(env, address, scopeId, port, &addr[i]);
+
+        iov[i].iov_base = (void *) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        iov[i].iov_len = (size_t) (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(struct sockaddr_storage);
+        msg[i].msg_hdr.msg_iov = &iov[i];
+        msg[i].msg_hdr.msg_iovlen = 1;
+
+        // Explicit delete local reference as otherwise the local references will only be released once the native method returns.
+        // Also there may be a lot of these and JNI specification only specify that 16 must be able to be created.
+        //
+        // See https://github.com/netty/netty/issues/2623
+        (*env)->DeleteLocalRef(env, address);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    ssize_t res;
+    int err;
+    if (sendmmsg) {
+        do {
+           res = sendmmsg(fd, msg, len, 0);
+           // keep on writing if it was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+    } else {
+        // sendmmsg(...) is not supported by the libc, so just send one datagram after the other.
+        for (i = 0; i < len; i++) {
+            do {
+                res = sendmsg(fd, &msg[i].msg_hdr, 0);
+                // keep on writing if it was interrupted
+            } while (res == -1 && ((err = errno) == EINTR));
+            if (res < 0) {
+                break;
+            }
+        }
+        if (i > 0) {
+            return i;
+        }
+    }
+
+    if (res < 0) {
+        // network stack saturated... try again later
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while sendmmsg(...): ", err));
+        return -1;
+    }
+    return (jint) res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvmmsg(JNIEnv * env, jclass clazz, jint fd, jobjectArray packets, jint offset, jint len) {
+    struct netty_mmsghdr msg[len];
+    struct iovec iov[len];
+    struct sockaddr_storage addr[len];
+    int i;
+
+    memset(msg, 0, sizeof(msg));
+
+    for (i = 0; i < len; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+
+        iov[i].iov_base = (void *) (*env)->GetLongField(env, packet, packetMemoryAddressFieldId);
+        iov[i].iov_len = (size_t) (*env)->GetIntField(env, packet, packetCountFieldId);
+
+        msg[i].msg_hdr.msg_name = &addr[i];
+        msg[i].msg_hdr.msg_namelen = sizeof(struct sockaddr_storage);
+        msg[i].msg_hdr.msg_iov = &iov[i];
+        msg[i].msg_hdr.msg_iovlen = 1;
+
+        // See https://github.com/netty/netty/issues/2623
+        (*env)->DeleteLocalRef(env, packet);
+    }
+
+    ssize_t res;
+    int err;
+    if (recvmmsg) {
+        do {
+            res = recvmmsg(fd, msg, len, 0, NULL);
+            // Keep on reading if we was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+    } else {
+        // recvmmsg(...) is not supported by the libc, so just read one datagram after the other.
+        for (i = 0; i < len; i++) {
+            do {
+                res = recvmsg(fd, &msg[i].msg_hdr, 0);
+                // Keep on reading if we was interrupted
+            } while (res == -1 && ((err = errno) == EINTR));
+            if (res < 0) {
+                break;
+            }
+            msg[i].msg_len = (unsigned int) res;
+        }
+        if (i > 0) {
+            res = i;
+        }
+    }
+
+    if (res < 0) {
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            // Nothing left to read
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error while recvmmsg(...): ", err));
+        return -1;
+    }
+
+    for (i = 0; i < res; i++) {
+        jobject packet = (*env)->GetObjectArrayElement(env, packets, i + offset);
+        jobject sender = createDatagramSocketAddress(env, addr[i], msg[i].msg_len);
+        (*env)->SetIntField(env, packet, packetCountFieldId, (jint) msg[i].msg_len);
+        (*env)->SetObjectField(env, packet, packetSenderFieldId, sender);
+
+        // See https://github.com/netty/netty/issues/2623
+        (*env)->DeleteLocalRef(env, sender);
+        (*env)->DeleteLocalRef(env, packet);
+    }
+    return (jint) res;
+}
+
 void incrementPosition(JNIEnv * env, jobject bufObj, int written) {
     // Get the current position using the (*env)->GetIntField if possible and fallback
     // to slower (*env)->CallIntMethod(...) if needed
@@ -889,6 +1214,16 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socketStream(JNIEnv *
     return socket0(env, clazz, SOCK_STREAM);
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_socketDomain(JNIEnv * env, jclass clazz) {
+    int fd = socket(AF_UNIX, SOCK_STREAM | SOCK_NONBLOCK, 0);
+    if (fd == -1) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error creating socket: ", err));
+        return -1;
+    }
+    return fd;
+}
+
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_bind(JNIEnv * env, jclass clazz, jint fd, jbyteArray address, jint scopeId, jint port) {
     struct sockaddr_storage addr;
     init_sockaddr(env, address, scopeId, port, &addr);
@@ -952,41 +1287,243 @@ JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_finishConnect(JNIE
     }
 }
 
-JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_accept(JNIEnv * env, jclass clazz, jint fd) {
+static jint accept0(jint fd, struct sockaddr_storage * addr) {
     jint socketFd;
     int err;
+    socklen_t addrlen = sizeof(struct sockaddr_storage);
 
     do {
         if (accept4) {
-            socketFd = accept4(fd, NULL, 0, SOCK_NONBLOCK | SOCK_CLOEXEC);
+            socketFd = accept4(fd, (struct sockaddr *) addr, addr == NULL ? NULL : &addrlen, SOCK_NONBLOCK | SOCK_CLOEXEC);
         } else  {
-            socketFd = accept(fd, NULL, 0);
+            socketFd = accept(fd, (struct sockaddr *) addr, addr == NULL ? NULL : &addrlen);
         }
     } while (socketFd == -1 && ((err = errno) == EINTR));
 
     if (socketFd == -1) {
         if (err == EAGAIN || err == EWOULDBLOCK) {
-            // Everything consumed so just return -1 here.
-            return -1;
+            // Everything consumed.
+            return NETTY_ACCEPT_DRAINED;
         } else {
-            throwIOException(env, exceptionMessage("Error during accept(...): ", err));
-            return -1;
+            return -err;
         }
     }
-    if (accept4)  {
-        return socketFd;
-    } else  {
+    if (!accept4)  {
         // accept4 was not present so need two more sys-calls ...
-        if (fcntl(socketFd, F_SETFD, FD_CLOEXEC) == -1) {
-            throwIOException(env, exceptionMessage("Error during accept(...): ", err));
+        if (fcntl(socketFd, F_SETFD, FD_CLOEXEC) == -1 || fcntl(socketFd, F_SETFL, O_NONBLOCK) == -1) {
+            err = errno;
+            close(socketFd);
+            return -err;
+        }
+    }
+    return socketFd;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_accept(JNIEnv * env, jclass clazz, jint fd, jintArray fds, jobjectArray remoteAddresses) {
+    jint length = (*env)->GetArrayLength(env, fds);
+    jint accepted[length];
+    struct sockaddr_storage addr;
+    jint count = 0;
+
+    while (count < length) {
+        jint socketFd = accept0(fd, remoteAddresses == NULL ? NULL : &addr);
+        if (socketFd == NETTY_ACCEPT_DRAINED) {
+            break;
+        }
+        if (socketFd < 0) {
+            if (count == 0) {
+                throwIOException(env, exceptionMessage("Error during accept(...): ", -socketFd));
+                return -1;
+            }
+            // Return what was accepted so far, the error will be reported by the next call.
+            break;
+        }
+        if (remoteAddresses != NULL) {
+            jobject remoteAddress = createInetSocketAddress(env, addr);
+            if (remoteAddress == NULL) {
+                // An exception is pending, so close what was accepted.
+                close(socketFd);
+                while (count > 0) {
+                    close(accepted[--count]);
+                }
+                return -1;
+            }
+            (*env)->SetObjectArrayElement(env, remoteAddresses, count, remoteAddress);
+            (*env)->DeleteLocalRef(env, remoteAddress);
+        }
+        accepted[count++] = socketFd;
+    }
+    (*env)->SetIntArrayRegion(env, fds, 0, count, accepted);
+    return count;
+}
+
+int init_sockaddr_un(JNIEnv * env, jbyteArray path, struct sockaddr_un * addr) {
+    jint pathLength = (*env)->GetArrayLength(env, path);
+    memset(addr, 0, sizeof(struct sockaddr_un));
+    addr->sun_family = AF_UNIX;
+    // The path must be NULL terminated.
+    if (pathLength < 0 || (size_t) pathLength >= sizeof(addr->sun_path)) {
+        throwIOException(env, "Path of domain socket is too long");
+        return -1;
+    }
+    (*env)->GetByteArrayRegion(env, path, 0, pathLength, (jbyte *) addr->sun_path);
+    return 0;
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_bindDomainSocket(JNIEnv * env, jclass clazz, jint fd, jbyteArray path) {
+    struct sockaddr_un addr;
+    if (init_sockaddr_un(env, path, &addr) == -1) {
+        return;
+    }
+
+    if (bind(fd, (struct sockaddr *) &addr, sizeof(addr)) == -1) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during bind(...): ", err));
+    }
+}
+
+JNIEXPORT jboolean JNICALL Java_io_netty_channel_epoll_Native_connectDomainSocket(JNIEnv * env, jclass clazz, jint fd, jbyteArray path) {
+    struct sockaddr_un addr;
+    if (init_sockaddr_un(env, path, &addr) == -1) {
+        return JNI_FALSE;
+    }
+
+    int res;
+    int err;
+    do {
+        res = connect(fd, (struct sockaddr *) &addr, sizeof(addr));
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        if (err == EINPROGRESS) {
+            // connect not complete yet need to wait for EPOLLOUT event
+            return JNI_FALSE;
+        }
+        throwIOException(env, exceptionMessage("Unable to connect to domain socket: ", err));
+
+        return JNI_FALSE;
+    }
+    return JNI_TRUE;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_sendFd(JNIEnv * env, jclass clazz, jint socketFd, jint fd) {
+    struct msghdr descriptorMessage;
+    struct iovec iov[1];
+    char control[CMSG_SPACE(sizeof(int))];
+    // At least one byte of normal data must be send with the file descriptor on a stream socket.
+    char iovData[1] = { ' ' };
+
+    memset(&descriptorMessage, 0, sizeof(descriptorMessage));
+    memset(control, 0, sizeof(control));
+    descriptorMessage.msg_control = control;
+    descriptorMessage.msg_controllen = sizeof(control);
+
+    struct cmsghdr* cmsg = CMSG_FIRSTHDR(&descriptorMessage);
+    cmsg->cmsg_len = CMSG_LEN(sizeof(int));
+    cmsg->cmsg_level = SOL_SOCKET;
+    cmsg->cmsg_type = SCM_RIGHTS;
+    *((int *) CMSG_DATA(cmsg)) = fd;
+
+    iov[0].iov_base = iovData;
+    iov[0].iov_len = sizeof(iovData);
+    descriptorMessage.msg_iov = iov;
+    descriptorMessage.msg_iovlen = 1;
+
+    ssize_t res;
+    int err;
+    do {
+        res = sendmsg(socketFd, &descriptorMessage, 0);
+        // keep on writing if it was interrupted
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        if (err == EAGAIN || err == EWOULDBLOCK) {
+            // network stack saturated... try again later
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error during sendFd(...): ", err));
+        return -1;
+    }
+    return (jint) res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_recvFd(JNIEnv * env, jclass clazz, jint fd) {
+    struct msghdr descriptorMessage;
+    struct iovec iov[1];
+    char control[CMSG_SPACE(sizeof(int))];
+    char iovData[1];
+
+    memset(&descriptorMessage, 0, sizeof(descriptorMessage));
+    memset(control, 0, sizeof(control));
+    descriptorMessage.msg_control = control;
+    descriptorMessage.msg_controllen = sizeof(control);
+    iov[0].iov_base = iovData;
+    iov[0].iov_len = sizeof(iovData);
+    descriptorMessage.msg_iov = iov;
+    descriptorMessage.msg_iovlen = 1;
+
+    ssize_t res;
+    int err;
+    for (;;) {
+        do {
+            res = recvmsg(fd, &descriptorMessage, 0);
+            // Keep on reading if we was interrupted
+        } while (res == -1 && ((err = errno) == EINTR));
+
+        if (res == 0) {
+            // end-of-stream
             return -1;
         }
-        if (fcntl(socketFd, F_SETFL, O_NONBLOCK) == -1) {
-            throwIOException(env, exceptionMessage("Error during accept(...): ", err));
+
+        if (res < 0) {
+            if (err == EAGAIN || err == EWOULDBLOCK) {
+                // Nothing left to read
+                return 0;
+            }
+            if (err == EBADF) {
+                throwClosedChannelException(env);
+                return -1;
+            }
+            throwIOException(env, exceptionMessage("Error during recvFd(...): ", err));
             return -1;
         }
+
+        struct cmsghdr* cmsg = CMSG_FIRSTHDR(&descriptorMessage);
+        if (cmsg == NULL) {
+            // No file descriptor was send with the data, so try the next message.
+            continue;
+        }
+        if (cmsg->cmsg_len == CMSG_LEN(sizeof(int)) && cmsg->cmsg_level == SOL_SOCKET && cmsg->cmsg_type == SCM_RIGHTS) {
+            // Mark the received file descriptor as close-on-exec as we do for accepted sockets.
+            int receivedFd = *((int *) CMSG_DATA(cmsg));
+            fcntl(receivedFd, F_SETFD, FD_CLOEXEC);
+            return (jint) receivedFd;
+        }
+        throwIOException(env, "Received unexpected control message");
+        return -1;
     }
-    return socketFd;
+}
+
+JNIEXPORT jintArray JNICALL Java_io_netty_channel_epoll_Native_getPeerCredentials0(JNIEnv * env, jclass clazz, jint fd) {
+    struct netty_ucred credentials;
+    socklen_t len = sizeof(credentials);
+    if (getsockopt(fd, SOL_SOCKET, SO_PEERCRED, &credentials, &len) == -1) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during getsockopt(SO_PEERCRED): ", err));
+        return NULL;
+    }
+    jintArray result = (*env)->NewIntArray(env, 3);
+    if (result == NULL) {
+        // NewIntArray(...) throws an OutOfMemoryError already.
+        return NULL;
+    }
+    jint values[3] = { (jint) credentials.pid, (jint) credentials.uid, (jint) credentials.gid };
+    (*env)->SetIntArrayRegion(env, result, 0, 3, values);
+    return result;
 }
 
 JNIEXPORT jlong JNICALL Java_io_netty_channel_epoll_Native_sendfile(JNIEnv *env, jclass clazz, jint fd, jobject fileRegion, jlong off, jlong len) {
@@ -1026,6 +1563,94 @@ JNIEXPORT jlong JNICALL Java_io_netty_channel_epoll_Native_sendfile(JNIEnv *env,
     return res;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_open0(JNIEnv * env, jclass clazz, jbyteArray path) {
+    jsize len = (*env)->GetArrayLength(env, path);
+    char* p = malloc(len + 1);
+    if (p == NULL) {
+        throwOutOfMemoryError(env, "Error allocating memory for the path");
+        return -1;
+    }
+    (*env)->GetByteArrayRegion(env, path, 0, len, (jbyte*) p);
+    p[len] = '\0';
+
+    int fd;
+    int err;
+    do {
+        fd = open(p, O_RDWR | O_CREAT | O_CLOEXEC, 0666);
+    } while (fd == -1 && ((err = errno) == EINTR));
+    free(p);
+
+    if (fd == -1) {
+        throwIOException(env, exceptionMessage("Error during open(...): ", err));
+        return -1;
+    }
+    return fd;
+}
+
+JNIEXPORT jlong JNICALL Java_io_netty_channel_epoll_Native_pipe(JNIEnv * env, jclass clazz) {
+    int fd[2];
+    if (pipe2) {
+        if (pipe2(fd, O_NONBLOCK | O_CLOEXEC) == -1) {
+            throwIOException(env, exceptionMessage("Error during pipe2(...): ", errno));
+            return -1;
+        }
+    } else {
+        // pipe2 was not present so need more sys-calls ...
+        if (pipe(fd) == -1) {
+            throwIOException(env, exceptionMessage("Error during pipe(...): ", errno));
+            return -1;
+        }
+        int i;
+        for (i = 0; i < 2; i++) {
+            if (fcntl(fd[i], F_SETFD, FD_CLOEXEC) == -1 || fcntl(fd[i], F_SETFL, O_NONBLOCK) == -1) {
+                int err = errno;
+                close(fd[0]);
+                close(fd[1]);
+                throwIOException(env, exceptionMessage("Error during pipe(...): ", err));
+                return -1;
+            }
+        }
+    }
+    // Return the read end in the upper and the write end in the lower 32 bits.
+    return (((jlong) fd[0]) << 32) | (fd[1] & 0xffffffffL);
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_splice(JNIEnv * env, jclass clazz, jint fd, jlong offIn, jint fdOut, jlong offOut, jlong len) {
+    if (!splice) {
+        throwIOException(env, "splice(...) is not supported");
+        return -1;
+    }
+    ssize_t res;
+    int err;
+    loff_t off_in = (loff_t) offIn;
+    loff_t off_out = (loff_t) offOut;
+
+    // A negative offset means the file offset of the fd is used, which is also required for pipes and sockets.
+    loff_t* p_off_in = off_in >= 0 ? &off_in : NULL;
+    loff_t* p_off_out = off_out >= 0 ? &off_out : NULL;
+
+    do {
+        res = splice(fd, p_off_in, fdOut, p_off_out, (size_t) len, SPLICE_F_NONBLOCK | SPLICE_F_MOVE);
+    } while (res == -1 && ((err = errno) == EINTR));
+
+    if (res < 0) {
+        if (err == EAGAIN) {
+            return 0;
+        }
+        if (err == EBADF) {
+            throwClosedChannelException(env);
+            return -1;
+        }
+        throwIOException(env, exceptionMessage("Error during splice(...): ", err));
+        return -1;
+    }
+    if (res == 0) {
+        // end-of-stream
+        return -1;
+    }
+    return (jint) res;
+}
+
 JNIEXPORT jobject JNICALL Java_io_netty_channel_epoll_Native_remoteAddress(JNIEnv * env, jclass clazz, jint fd) {
     socklen_t len;
     struct sockaddr_storage addr;
@@ -1076,11 +1701,11 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTcpCork(JNIEnv *env
     setOption(env, fd, SOL_TCP, TCP_CORK, &optval, sizeof(optval));
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval) {
-    setOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval));
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setZeroCopy(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval));
 }
 
-JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+static int setSoLinger(JNIEnv *env, jint fd, jint optval) {
     struct linger solinger;
     if (optval < 0) {
         solinger.l_onoff = 0;
@@ -1089,7 +1714,15 @@ JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv
         solinger.l_onoff = 1;
         solinger.l_linger = optval;
     }
-    setOption(env, fd, SOL_SOCKET, SO_LINGER, &solinger, sizeof(solinger));
+    return setOption(env, fd, SOL_SOCKET, SO_LINGER, &solinger, sizeof(solinger));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setSoLinger(env, fd, optval);
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval));
 }
 
 JNIEXPORT void JNICALL Java_io_netty_channel_epoll_Native_setBroadcast(JNIEnv * env, jclass clazz, jint fd, jint optval) {
@@ -1108,6 +1741,78 @@ JNIEXPORT void Java_io_netty_channel_epoll_Native_setTcpKeepCnt(JNIEnv *env, jcl
     setOption(env, fd, SOL_TCP, TCP_KEEPCNT, &optval, sizeof(optval));
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_setSocketOptions(JNIEnv *env, jclass clazz, jint fd, jintArray options, jint offset, jint length) {
+    jint opts[length];
+    int i;
+    (*env)->GetIntArrayRegion(env, options, 0, length, opts);
+    for (i = offset; i + 1 < length; i += 2) {
+        jint optval = opts[i + 1];
+        struct linger solinger;
+        int level;
+        int optname;
+        void *value = &optval;
+        socklen_t len = sizeof(optval);
+        switch (opts[i]) {
+            case SOCKET_OPTION_SO_RCVBUF:
+                level = SOL_SOCKET;
+                optname = SO_RCVBUF;
+                break;
+            case SOCKET_OPTION_SO_SNDBUF:
+                level = SOL_SOCKET;
+                optname = SO_SNDBUF;
+                break;
+            case SOCKET_OPTION_SO_KEEPALIVE:
+                level = SOL_SOCKET;
+                optname = SO_KEEPALIVE;
+                break;
+            case SOCKET_OPTION_SO_REUSEADDR:
+                level = SOL_SOCKET;
+                optname = SO_REUSEADDR;
+                break;
+            case SOCKET_OPTION_SO_LINGER:
+                solinger.l_onoff = optval < 0 ? 0 : 1;
+                solinger.l_linger = optval < 0 ? 0 : optval;
+                level = SOL_SOCKET;
+                optname = SO_LINGER;
+                value = &solinger;
+                len = sizeof(solinger);
+                break;
+            case SOCKET_OPTION_IP_TOS:
+                level = IPPROTO_IP;
+                optname = IP_TOS;
+                break;
+            case SOCKET_OPTION_TCP_NODELAY:
+                level = IPPROTO_TCP;
+                optname = TCP_NODELAY;
+                break;
+            case SOCKET_OPTION_TCP_CORK:
+                level = SOL_TCP;
+                optname = TCP_CORK;
+                break;
+            case SOCKET_OPTION_TCP_KEEPIDLE:
+                level = SOL_TCP;
+                optname = TCP_KEEPIDLE;
+                break;
+            case SOCKET_OPTION_TCP_KEEPINTVL:
+                level = SOL_TCP;
+                optname = TCP_KEEPINTVL;
+                break;
+            case SOCKET_OPTION_TCP_KEEPCNT:
+                level = SOL_TCP;
+                optname = TCP_KEEPCNT;
+                break;
+            default:
+                throwRuntimeException(env, "Unknown socket option");
+                return -1;
+        }
+        if (setsockopt(fd, level, optname, value, len) < 0) {
+            // Let the caller find out why this option could not be set and continue after it.
+            return i;
+        }
+    }
+    return length;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isReuseAddresss(JNIEnv *env, jclass clazz, jint fd) {
     int optval;
     if (getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
@@ -1156,6 +1861,14 @@ JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isTcpCork(JNIEnv *env,
     return optval;
 }
 
+JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_isZeroCopy(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_ZEROCOPY, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
 JNIEXPORT jint JNICALL Java_io_netty_channel_epoll_Native_getSoLinger(JNIEnv *env, jclass clazz, jint fd) {
     struct linger optval;
     if (getOption(env, fd, SOL_SOCKET, SO_LINGER, &optval, sizeof(optval)) == -1) {
@@ -66,16 +66,6 @@ abstract class AbstractEpollChannel extends AbstractChannel {
         Native.close(fd);
     }
 
-    @Override
-    public InetSocketAddress remoteAddress() {
-        return (InetSocketAddress) super.remoteAddress();
-    }
-
-    @Override
-    public InetSocketAddress localAddress() {
-        return (InetSocketAddress) super.localAddress();
-    }
-
     @Override
     protected void doDisconnect() throws Exception {
         doClose();
@@ -104,6 +94,14 @@ abstract class AbstractEpollChannel extends AbstractChannel {
         }
     }
 
+    /**
+     * Returns {@code true} if EPOLLIN must stay set even if no read was requested, for example because data is
+     * still spliced from this channel.
+     */
+    boolean isEpollInRequired() {
+        return false;
+    }
+
     final void clearEpollIn() {
         // Only clear if registered with an EventLoop as otherwise
         if (isRegistered()) {
@@ -180,6 +178,13 @@ abstract class AbstractEpollChannel extends AbstractChannel {
             // NOOP
         }
 
+        /**
+         * Called once EPOLLERR event is ready to be processed
+         */
+        void epollErrReady() {
+            // NOOP
+        }
+
         @Override
         public void beginRead() {
             // Channel.read() or ChannelHandlerContext.read() was called
@@ -211,7 +216,7 @@ abstract class AbstractEpollChannel extends AbstractChannel {
         }
 
         protected final void clearEpollIn0() {
-            if ((flags & readFlag) != 0) {
+            if ((flags & readFlag) != 0 && !isEpollInRequired()) {
                 flags &= ~readFlag;
                 modifyEvents();
             }
@@ -0,0 +1,134 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
+import io.netty.channel.ServerChannel;
+
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * Base class for {@link ServerChannel}s which use linux EPOLL Edge-Triggered Mode to accept connections.
+ */
+abstract class AbstractEpollServerChannel extends AbstractEpollChannel implements ServerChannel {
+
+    // Maximal number of connections which are accepted with one call into the native code.
+    private static final int MAX_ACCEPTS_PER_CALL = 64;
+
+    private final int[] acceptedFds = new int[MAX_ACCEPTS_PER_CALL];
+    private final InetSocketAddress[] acceptedAddresses;
+
+    /**
+     * Create a new instance, {@code inet} is {@code true} if the remote addresses of the accepted connections are
+     * {@link InetSocketAddress}es.
+     */
+    AbstractEpollServerChannel(int fd, boolean inet) {
+        super(fd, Native.EPOLLACCEPT);
+        acceptedAddresses = inet ? new InetSocketAddress[MAX_ACCEPTS_PER_CALL] : null;
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof EpollEventLoop;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Create a new child {@link Channel} for the given accepted file descriptor. The remote address is {@code null}
+     * if the accepted connections are not using {@link InetSocketAddress}es.
+     */
+    abstract Channel newChildChannel(int fd, InetSocketAddress remoteAddress) throws Exception;
+
+    final class EpollServerSocketUnsafe extends AbstractEpollUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void epollInReady() {
+            assert eventLoop().inEventLoop();
+            final ChannelPipeline pipeline = pipeline();
+            Throwable exception = null;
+            try {
+                try {
+                    final int[] acceptedFds = AbstractEpollServerChannel.this.acceptedFds;
+                    final InetSocketAddress[] acceptedAddresses = AbstractEpollServerChannel.this.acceptedAddresses;
+                    for (;;) {
+                        int accepted = Native.accept(fd, acceptedFds, acceptedAddresses);
+                        if (accepted == 0) {
+                            // this means everything was handled for now
+                            break;
+                        }
+                        for (int i = 0; i < accepted; i ++) {
+                            InetSocketAddress remoteAddress = null;
+                            if (acceptedAddresses != null) {
+                                remoteAddress = acceptedAddresses[i];
+                                acceptedAddresses[i] = null;
+                            }
+                            try {
+                                readPending = false;
+                                pipeline.fireChannelRead(newChildChannel(acceptedFds[i], remoteAddress));
+                            } catch (Throwable t) {
+                                // keep on reading as we use epoll ET and need to consume everything from the socket
+                                pipeline.fireChannelReadComplete();
+                                pipeline.fireExceptionCaught(t);
+                            }
+                        }
+                    }
+                } catch (Throwable t) {
+                    exception = t;
+                }
+                pipeline.fireChannelReadComplete();
+
+                if (exception != null) {
+                    pipeline.fireExceptionCaught(exception);
+                }
+            } finally {
+                // Check if there is a readPending which was not processed yet.
+                // This could be for two reasons:
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
+                //
+                // See https://github.com/netty/netty/issues/2254
+                if (!config().isAutoRead() && !readPending) {
+                    clearEpollIn0();
+                }
+            }
+        }
+    }
+}
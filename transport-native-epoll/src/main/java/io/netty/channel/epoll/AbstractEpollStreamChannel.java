@@ -0,0 +1,1125 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelConfig;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.DefaultFileRegion;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.epoll.EpollChannelOutboundBuffer.AddressEntry;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.nio.NioSocketChannelOutboundBuffer;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.OneTimeTask;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Base class for stream oriented channels which use linux EPOLL Edge-Triggered Mode, like TCP and Unix domain
+ * sockets.
+ */
+public abstract class AbstractEpollStreamChannel extends AbstractEpollChannel {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(AbstractEpollStreamChannel.class);
+    private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
+
+    static {
+        CLOSED_CHANNEL_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    // Only accessed from the EventLoop.
+    private Queue<SpliceInTask> spliceQueue;
+    // Lazily created pipe through which the data is spliced, and the number of bytes which are still in it.
+    private int pipeIn = -1;
+    private int pipeOut = -1;
+    private int pipePending;
+    // true while the splice queue is processed, to not schedule another run from within it.
+    private boolean splicing;
+    private Runnable spliceInReadyTask;
+
+    // Set once the kernel reported that it copied data which was sent via MSG_ZEROCOPY.
+    private boolean zeroCopyDisabled;
+
+    AbstractEpollStreamChannel(Channel parent, int fd) {
+        super(parent, fd, Native.EPOLLIN, true);
+    }
+
+    AbstractEpollStreamChannel(int fd) {
+        super(fd, Native.EPOLLIN);
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollStreamUnsafe();
+    }
+
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link AbstractEpollStreamChannel}.
+     * The {@code len} is the number of bytes to splice.
+     *
+     * The data is moved through a pipe in the kernel and so never copied into the JVM. Please note:
+     * <ul>
+     *   <li>both channels need to be registered to the same {@link EventLoop}, otherwise an
+     *   {@link IllegalArgumentException} is thrown.</li>
+     *   <li>no data is read from this channel into {@link ByteBuf}s until all requested bytes were spliced, even if
+     *   {@link ChannelConfig#isAutoRead()} is set.</li>
+     *   <li>the returned {@link ChannelFuture} is notified once all bytes were written to the other channel.</li>
+     * </ul>
+     */
+    public final ChannelFuture spliceTo(AbstractEpollStreamChannel ch, int len) {
+        return spliceTo(ch, len, newPromise());
+    }
+
+    /**
+     * Splice from this {@link AbstractEpollStreamChannel} to another {@link AbstractEpollStreamChannel} and notify
+     * the given {@link ChannelPromise} once done. See {@link #spliceTo(AbstractEpollStreamChannel, int)}.
+     */
+    public final ChannelFuture spliceTo(AbstractEpollStreamChannel ch, int len, ChannelPromise promise) {
+        if (ch.eventLoop() != eventLoop()) {
+            throw new IllegalArgumentException("EventLoops are not the same.");
+        }
+        if (len < 0) {
+            throw new IllegalArgumentException("len: " + len + " (expected: >= 0)");
+        }
+        if (promise == null) {
+            throw new NullPointerException("promise");
+        }
+        addToSpliceQueue(new SpliceInChannelTask(ch, len, promise));
+        return promise;
+    }
+
+    /**
+     * Splice {@code len} bytes from this {@link AbstractEpollStreamChannel} to the given {@link FileDescriptor},
+     * starting at {@code offset}. The {@link FileDescriptor} must refer to a file, as it is written in blocking
+     * mode. See {@link #spliceTo(AbstractEpollStreamChannel, int)} for the other restrictions.
+     */
+    public final ChannelFuture spliceTo(FileDescriptor ch, long offset, int len) {
+        return spliceTo(ch, offset, len, newPromise());
+    }
+
+    /**
+     * Splice {@code len} bytes from this {@link AbstractEpollStreamChannel} to the given {@link FileDescriptor}
+     * and notify the given {@link ChannelPromise} once done. See {@link #spliceTo(FileDescriptor, long, int)}.
+     */
+    public final ChannelFuture spliceTo(FileDescriptor ch, long offset, int len, ChannelPromise promise) {
+        if (ch == null) {
+            throw new NullPointerException("ch");
+        }
+        if (offset < 0) {
+            throw new IllegalArgumentException("offset: " + offset + " (expected: >= 0)");
+        }
+        if (len < 0) {
+            throw new IllegalArgumentException("len: " + len + " (expected: >= 0)");
+        }
+        if (promise == null) {
+            throw new NullPointerException("promise");
+        }
+        addToSpliceQueue(new SpliceFdTask(ch, offset, len, promise));
+        return promise;
+    }
+
+    private void addToSpliceQueue(final SpliceInTask task) {
+        EventLoop eventLoop = eventLoop();
+        if (eventLoop.inEventLoop()) {
+            addToSpliceQueue0(task);
+        } else {
+            eventLoop.execute(new OneTimeTask() {
+                @Override
+                public void run() {
+                    addToSpliceQueue0(task);
+                }
+            });
+        }
+    }
+
+    private void addToSpliceQueue0(SpliceInTask task) {
+        if (!isOpen()) {
+            task.promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+            return;
+        }
+        Queue<SpliceInTask> spliceQueue = this.spliceQueue;
+        if (spliceQueue == null) {
+            this.spliceQueue = spliceQueue = new ArrayDeque<SpliceInTask>();
+        }
+        spliceQueue.add(task);
+        try {
+            // Make sure EPOLLIN is set even if no read was requested.
+            doBeginRead();
+        } catch (Exception e) {
+            pipeline().fireExceptionCaught(e);
+        }
+        // As we use epoll ET we will not be notified about data which is already waiting, so try to splice it now.
+        scheduleSpliceIn();
+    }
+
+    private void scheduleSpliceIn() {
+        Runnable task = spliceInReadyTask;
+        if (task == null) {
+            spliceInReadyTask = task = new Runnable() {
+                @Override
+                public void run() {
+                    if (isOpen()) {
+                        ((AbstractEpollUnsafe) unsafe()).epollInReady();
+                    }
+                }
+            };
+        }
+        eventLoop().execute(task);
+    }
+
+    @Override
+    boolean isEpollInRequired() {
+        return spliceQueue != null && !spliceQueue.isEmpty();
+    }
+
+    /**
+     * Called once all data was moved out of the pipe.
+     */
+    private void pipeDrained() {
+        if (!isOpen()) {
+            closePipe();
+        } else if (!splicing && isEpollInRequired()) {
+            scheduleSpliceIn();
+        }
+    }
+
+    /**
+     * Called if moving the data out of the pipe failed, which leaves it in an unknown state.
+     */
+    private void discardPipe() {
+        if (pipePending > 0 || !isOpen()) {
+            closePipe();
+        }
+        pipePending = 0;
+        if (isOpen() && !splicing && isEpollInRequired()) {
+            scheduleSpliceIn();
+        }
+    }
+
+    private void closePipe() {
+        pipePending = 0;
+        if (pipeIn != -1) {
+            closeQuietly(pipeIn);
+            closeQuietly(pipeOut);
+            pipeIn = -1;
+            pipeOut = -1;
+        }
+    }
+
+    private static void closeQuietly(int fd) {
+        try {
+            Native.close(fd);
+        } catch (IOException e) {
+            logger.warn("Failed to close a pipe.", e);
+        }
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            Queue<SpliceInTask> spliceQueue = this.spliceQueue;
+            if (spliceQueue != null) {
+                for (;;) {
+                    SpliceInTask task = spliceQueue.poll();
+                    if (task == null) {
+                        break;
+                    }
+                    task.promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+                }
+            }
+            if (pipePending == 0) {
+                // Otherwise the pipe is closed once the data which is still in it was moved out.
+                closePipe();
+            }
+        }
+    }
+
+    /**
+     * Connect to the remote peer. Returns {@code true} if the connection was established directly and
+     * {@code false} if it is still in progress, in which case EPOLLOUT must be set.
+     */
+    protected abstract boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception;
+
+    /**
+     * Returns the minimal number of readable bytes of a {@link ByteBuf} to send it via {@code MSG_ZEROCOPY}, or
+     * {@code 0} if it should never be used.
+     */
+    int zeroCopyThreshold() {
+        return 0;
+    }
+
+    /**
+     * Returns {@code true} if the given message should be sent via {@code MSG_ZEROCOPY}.
+     */
+    private boolean isZeroCopy(ChannelOutboundBuffer in, Object msg) {
+        if (zeroCopyDisabled || !(in instanceof EpollChannelOutboundBuffer) || !(msg instanceof ByteBuf)) {
+            return false;
+        }
+        int threshold = zeroCopyThreshold();
+        if (threshold <= 0) {
+            return false;
+        }
+        ByteBuf buf = (ByteBuf) msg;
+        return buf.hasMemoryAddress() && buf.readableBytes() >= threshold;
+    }
+
+    /**
+     * Write bytes form the given {@link ByteBuf} via {@code MSG_ZEROCOPY}. The {@link ByteBuf} is retained by the
+     * {@link EpollChannelOutboundBuffer} until the kernel reported that it is done with it.
+     */
+    private int doWriteBytesZeroCopy(EpollChannelOutboundBuffer in, ByteBuf buf, int readable) throws Exception {
+        int readerIndex = buf.readerIndex();
+        int localFlushedAmount = Native.sendAddressZeroCopy(fd, buf.memoryAddress(), readerIndex, buf.writerIndex());
+        if (localFlushedAmount < 0) {
+            // The kernel can not pin more memory at the moment, so just copy the data this time.
+            return doWriteBytes(buf, readable);
+        }
+        if (localFlushedAmount > 0) {
+            in.addZeroCopy(buf);
+            buf.readerIndex(readerIndex + localFlushedAmount);
+        }
+        return localFlushedAmount;
+    }
+
+    /**
+     * Write bytes form the given {@link ByteBuf} to the underlying {@link java.nio.channels.Channel}.
+     * @param buf           the {@link ByteBuf} from which the bytes should be written
+     * @return amount       the amount of written bytes
+     */
+    private int doWriteBytes(ByteBuf buf, int readable) throws Exception {
+        int readerIndex = buf.readerIndex();
+        int localFlushedAmount;
+        if (buf.nioBufferCount() == 1) {
+            if (buf.hasMemoryAddress()) {
+                localFlushedAmount = Native.writeAddress(fd, buf.memoryAddress(), readerIndex, buf.writerIndex());
+            } else {
+                ByteBuffer nioBuf = buf.internalNioBuffer(readerIndex, readable);
+                localFlushedAmount = Native.write(fd, nioBuf, nioBuf.position(), nioBuf.limit());
+            }
+        } else {
+            // backed by more then one buffer, do a gathering write...
+            ByteBuffer[] nioBufs = buf.nioBuffers();
+            localFlushedAmount = (int) Native.writev(fd, nioBufs, 0, nioBufs.length);
+        }
+        if (localFlushedAmount > 0) {
+            buf.readerIndex(readerIndex + localFlushedAmount);
+        }
+        return localFlushedAmount;
+    }
+
+    /**
+     * Write the flushed buffers with a gathering write. Returns {@code false} if not all of them could be written.
+     */
+    private boolean writeBytesMultiple(
+            EpollChannelOutboundBuffer in, int msgCount, AddressEntry[] nioBuffers) throws IOException {
+
+        int nioBufferCnt = in.addressCount();
+        long expectedWrittenBytes = in.addressSize();
+
+        long localWrittenBytes = Native.writevAddresses(fd, nioBuffers, 0, nioBufferCnt);
+
+        if (localWrittenBytes < expectedWrittenBytes) {
+            setEpollOut();
+
+            // Did not write all buffers completely.
+            // Release the fully written buffers and update the indexes of the partially written buffer.
+            for (int i = msgCount; i > 0; i --) {
+                final ByteBuf buf = (ByteBuf) in.current();
+                final int readerIndex = buf.readerIndex();
+                final int readableBytes = buf.writerIndex() - readerIndex;
+
+                if (readableBytes < localWrittenBytes) {
+                    in.remove();
+                    localWrittenBytes -= readableBytes;
+                } else if (readableBytes > localWrittenBytes) {
+
+                    buf.readerIndex(readerIndex + (int) localWrittenBytes);
+                    in.progress(localWrittenBytes);
+                    break;
+                } else { // readable == writtenBytes
+                    in.remove();
+                    break;
+                }
+            }
+            return false;
+        } else {
+            // Release all buffers
+            for (int i = msgCount; i > 0; i --) {
+                in.remove();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Write the flushed buffers with a gathering write. Returns {@code false} if not all of them could be written.
+     */
+    private boolean writeBytesMultiple(
+            NioSocketChannelOutboundBuffer in, int msgCount, ByteBuffer[] nioBuffers) throws IOException {
+
+        int nioBufferCnt = in.nioBufferCount();
+        long expectedWrittenBytes = in.nioBufferSize();
+
+        long localWrittenBytes = Native.writev(fd, nioBuffers, 0, nioBufferCnt);
+
+        if (localWrittenBytes < expectedWrittenBytes) {
+            setEpollOut();
+
+            // Did not write all buffers completely.
+            // Release the fully written buffers and update the indexes of the partially written buffer.
+            for (int i = msgCount; i > 0; i --) {
+                final ByteBuf buf = (ByteBuf) in.current();
+                final int readerIndex = buf.readerIndex();
+                final int readableBytes = buf.writerIndex() - readerIndex;
+
+                if (readableBytes < localWrittenBytes) {
+                    in.remove();
+                    localWrittenBytes -= readableBytes;
+                } else if (readableBytes > localWrittenBytes) {
+
+                    buf.readerIndex(readerIndex + (int) localWrittenBytes);
+                    in.progress(localWrittenBytes);
+                    break;
+                } else { // readable == writtenBytes
+                    in.remove();
+                    break;
+                }
+            }
+            return false;
+        } else {
+            // Release all buffers
+            for (int i = msgCount; i > 0; i --) {
+                in.remove();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Write a {@link DefaultFileRegion}
+     *
+     * @param region        the {@link DefaultFileRegion} from which the bytes should be written
+     * @return amount       the amount of written bytes
+     */
+    private long doWriteFileRegion(DefaultFileRegion region, long count) throws Exception {
+        return Native.sendfile(fd, region, region.transfered(), count);
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        for (;;) {
+            final int msgCount = in.size();
+
+            if (msgCount == 0) {
+                // Wrote all messages.
+                clearEpollOut();
+                break;
+            }
+
+            // Do gathering write if:
+            // * the outbound buffer contains more than one messages and
+            // * they are all buffers rather than a file region and
+            // * the first one should not be sent via MSG_ZEROCOPY.
+            if (msgCount > 1 && !isZeroCopy(in, in.current())) {
+                if (PlatformDependent.hasUnsafe()) {
+                    // this means we can cast to EpollChannelOutboundBuffer and write the AdressEntry directly.
+                    EpollChannelOutboundBuffer epollIn = (EpollChannelOutboundBuffer) in;
+                    // Ensure the pending writes are made of memoryaddresses only.
+                    AddressEntry[] addresses = epollIn.memoryAddresses();
+                    if (addresses != null) {
+                        if (!writeBytesMultiple(epollIn, msgCount, addresses)) {
+                            // Did not write all buffers completely, EPOLLOUT was set so we are notified once
+                            // the socket is writable again.
+                            break;
+                        }
+
+                        // We do not break the loop here even if the outbound buffer was flushed completely,
+                        // because a user might have triggered another write and flush when we notify his or her
+                        // listeners.
+                        continue;
+                    }
+                } else {
+                    NioSocketChannelOutboundBuffer nioIn = (NioSocketChannelOutboundBuffer) in;
+                    // Ensure the pending writes are made of memoryaddresses only.
+                    ByteBuffer[] buffers = nioIn.nioBuffers();
+                    if (buffers != null) {
+                        if (!writeBytesMultiple(nioIn, msgCount, buffers)) {
+                            // Did not write all buffers completely, EPOLLOUT was set so we are notified once
+                            // the socket is writable again.
+                            break;
+                        }
+
+                        // We do not break the loop here even if the outbound buffer was flushed completely,
+                        // because a user might have triggered another write and flush when we notify his or her
+                        // listeners.
+                        continue;
+                    }
+                }
+            }
+
+            // The outbound buffer contains only one message or it contains a file region.
+            if (!doWriteSingle(in)) {
+                // Did not write the message completely.
+                setEpollOut();
+                break;
+            }
+        }
+    }
+
+    /**
+     * Write the current message of the given {@link ChannelOutboundBuffer} and remove it once it was written
+     * completely. Returns {@code false} if it could not be written completely.
+     */
+    protected boolean doWriteSingle(ChannelOutboundBuffer in) throws Exception {
+        Object msg = in.current();
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            int readableBytes = buf.readableBytes();
+            if (readableBytes == 0) {
+                in.remove();
+                return true;
+            }
+
+            int localFlushedAmount = isZeroCopy(in, buf) ?
+                    doWriteBytesZeroCopy((EpollChannelOutboundBuffer) in, buf, readableBytes) :
+                    doWriteBytes(buf, readableBytes);
+            in.progress(localFlushedAmount);
+            if (localFlushedAmount < readableBytes) {
+                return false;
+            }
+            in.remove();
+            return true;
+        } else if (msg instanceof SpliceOutTask) {
+            if (!((SpliceOutTask) msg).spliceOut(in)) {
+                return false;
+            }
+            in.remove();
+            return true;
+        } else if (msg instanceof DefaultFileRegion) {
+            DefaultFileRegion region = (DefaultFileRegion) msg;
+
+            long expected = region.count() - region.position();
+            long localFlushedAmount = doWriteFileRegion(region, expected);
+            in.progress(localFlushedAmount);
+
+            if (localFlushedAmount < expected) {
+                return false;
+            }
+
+            if (region.transfered() >= region.count()) {
+                in.remove();
+            }
+            return true;
+        } else {
+            throw new UnsupportedOperationException("unsupported message type: " + StringUtil.simpleClassName(msg));
+        }
+    }
+
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    public boolean isOutputShutdown() {
+        return outputShutdown || !isActive();
+    }
+
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            try {
+                Native.shutdown(fd, false, true);
+                outputShutdown = true;
+                promise.setSuccess();
+            } catch (Throwable t) {
+                promise.setFailure(t);
+            }
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownOutput(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    class EpollStreamUnsafe extends AbstractEpollUnsafe {
+        private RecvByteBufAllocator.Handle allocHandle;
+        private int[] zeroCopyCompletions;
+
+        void closeOnRead(ChannelPipeline pipeline) {
+            inputShutdown = true;
+            if (isOpen()) {
+                if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                    clearEpollIn0();
+                    pipeline.fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        private boolean handleReadException(ChannelPipeline pipeline, ByteBuf byteBuf, Throwable cause, boolean close) {
+            if (byteBuf != null) {
+                if (byteBuf.isReadable()) {
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                } else {
+                    byteBuf.release();
+                }
+            }
+            pipeline.fireChannelReadComplete();
+            pipeline.fireExceptionCaught(cause);
+            if (close || cause instanceof IOException) {
+                closeOnRead(pipeline);
+                return true;
+            }
+            return false;
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new IllegalStateException("connection attempt already made");
+                }
+
+                boolean wasActive = isActive();
+                if (doConnect(remoteAddress, localAddress)) {
+                    fulfillConnectPromise(promise, wasActive);
+                } else {
+                    connectPromise = promise;
+                    requestedRemoteAddress = remoteAddress;
+
+                    // Schedule connect timeout.
+                    int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                    if (connectTimeoutMillis > 0) {
+                        connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                            @Override
+                            public void run() {
+                                ChannelPromise connectPromise = AbstractEpollStreamChannel.this.connectPromise;
+                                ConnectTimeoutException cause =
+                                        new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                                if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                    close(voidPromise());
+                                }
+                            }
+                        }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                    }
+
+                    promise.addListener(new ChannelFutureListener() {
+                        @Override
+                        public void operationComplete(ChannelFuture future) throws Exception {
+                            if (future.isCancelled()) {
+                                if (connectTimeoutFuture != null) {
+                                    connectTimeoutFuture.cancel(false);
+                                }
+                                connectPromise = null;
+                                close(voidPromise());
+                            }
+                        }
+                    });
+                }
+            } catch (Throwable t) {
+                if (t instanceof ConnectException) {
+                    Throwable newT = new ConnectException(t.getMessage() + ": " + remoteAddress);
+                    newT.setStackTrace(t.getStackTrace());
+                    t = newT;
+                }
+                closeIfClosed();
+                promise.tryFailure(t);
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, boolean wasActive) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+            active = true;
+
+            // trySuccess() will return false if a user cancelled the connection attempt.
+            boolean promiseSet = promise.trySuccess();
+
+            // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+            // because what happened is what happened.
+            if (!wasActive && isActive()) {
+                pipeline().fireChannelActive();
+            }
+
+            // If a user cancelled the connection attempt, close the channel, which is followed by channelInactive().
+            if (!promiseSet) {
+                close(voidPromise());
+            }
+        }
+
+        private void fulfillConnectPromise(ChannelPromise promise, Throwable cause) {
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+            }
+
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(cause);
+            closeIfClosed();
+        }
+
+        private void finishConnect() {
+            // Note this method is invoked by the event loop only if the connection attempt was
+            // neither cancelled nor timed out.
+
+            assert eventLoop().inEventLoop();
+
+            boolean connectStillInProgress = false;
+            try {
+                boolean wasActive = isActive();
+                if (!doFinishConnect()) {
+                    connectStillInProgress = true;
+                    return;
+                }
+                fulfillConnectPromise(connectPromise, wasActive);
+            } catch (Throwable t) {
+                if (t instanceof ConnectException) {
+                    Throwable newT = new ConnectException(t.getMessage() + ": " + requestedRemoteAddress);
+                    newT.setStackTrace(t.getStackTrace());
+                    t = newT;
+                }
+
+                fulfillConnectPromise(connectPromise, t);
+            } finally {
+                if (!connectStillInProgress) {
+                    // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+                    // See https://github.com/netty/netty/issues/1770
+                    if (connectTimeoutFuture != null) {
+                        connectTimeoutFuture.cancel(false);
+                    }
+                    connectPromise = null;
+                }
+            }
+        }
+
+        @Override
+        void epollOutReady() {
+            if (connectPromise != null) {
+                // pending connect which is now complete so handle it.
+                finishConnect();
+            } else {
+                super.epollOutReady();
+            }
+        }
+
+        /**
+         * Finish the connect
+         */
+        private boolean doFinishConnect() throws Exception {
+            if (Native.finishConnect(fd)) {
+                clearEpollOut();
+                return true;
+            } else {
+                setEpollOut();
+                return false;
+            }
+        }
+
+        /**
+         * Read bytes into the given {@link ByteBuf} and return the amount.
+         */
+        private int doReadBytes(ByteBuf byteBuf) throws Exception {
+            int writerIndex = byteBuf.writerIndex();
+            int localReadAmount;
+            if (byteBuf.hasMemoryAddress()) {
+                localReadAmount = Native.readAddress(fd, byteBuf.memoryAddress(), writerIndex, byteBuf.capacity());
+            } else {
+                ByteBuffer buf = byteBuf.internalNioBuffer(writerIndex, byteBuf.writableBytes());
+                localReadAmount = Native.read(fd, buf, buf.position(), buf.limit());
+            }
+            if (localReadAmount > 0) {
+                byteBuf.writerIndex(writerIndex + localReadAmount);
+            }
+            return localReadAmount;
+        }
+
+        @Override
+        void epollErrReady() {
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (!(in instanceof EpollChannelOutboundBuffer)) {
+                return;
+            }
+            EpollChannelOutboundBuffer epollIn = (EpollChannelOutboundBuffer) in;
+            if (!epollIn.hasZeroCopyPending()) {
+                return;
+            }
+            int[] completions = zeroCopyCompletions;
+            if (completions == null) {
+                zeroCopyCompletions = completions = new int[3 * 16];
+            }
+            try {
+                for (;;) {
+                    int count = Native.recvZeroCopyCompletions(fd, completions);
+                    for (int i = 0; i < count; i++) {
+                        epollIn.zeroCopyCompleted(completions[i * 3], completions[i * 3 + 1]);
+                        if (completions[i * 3 + 2] != 0) {
+                            // The kernel had to copy the data anyway (for example on loopback), which is more
+                            // expensive than a plain write, so stop using MSG_ZEROCOPY for this channel.
+                            zeroCopyDisabled = true;
+                        }
+                    }
+                    if (count < completions.length / 3) {
+                        // Nothing left in the error queue.
+                        break;
+                    }
+                }
+            } catch (IOException e) {
+                pipeline().fireExceptionCaught(e);
+            }
+        }
+
+        @Override
+        void epollRdHupReady() {
+            if (isActive()) {
+                epollInReady();
+            } else {
+                closeOnRead(pipeline());
+            }
+        }
+
+        /**
+         * Splice the available data for the pending {@link SpliceInTask}s. Returns {@code true} if all of them are
+         * done, so the channel can be read as usual.
+         */
+        private boolean spliceIn(Queue<SpliceInTask> spliceQueue) {
+            splicing = true;
+            try {
+                for (;;) {
+                    SpliceInTask task = spliceQueue.peek();
+                    if (task == null) {
+                        return true;
+                    }
+                    if (task.promise.isDone()) {
+                        // Cancelled or failed while writing out the data spliced before.
+                        spliceQueue.remove();
+                        continue;
+                    }
+                    if (task.len == 0) {
+                        spliceQueue.remove();
+                        task.promise.trySuccess();
+                        continue;
+                    }
+                    if (pipePending > 0) {
+                        // The data spliced before was not moved out of the pipe yet, we are notified once it was.
+                        return false;
+                    }
+                    try {
+                        if (pipeIn == -1) {
+                            long pipe = Native.pipe();
+                            pipeIn = (int) (pipe >>> 32);
+                            pipeOut = (int) pipe;
+                        }
+                        int splicedIn = Native.splice(fd, -1, pipeOut, -1, task.len);
+                        if (splicedIn == 0) {
+                            // Nothing left to read.
+                            return false;
+                        }
+                        if (splicedIn < 0) {
+                            // end-of-stream, so no more data can be spliced.
+                            ClosedChannelException cause = new ClosedChannelException();
+                            for (;;) {
+                                task = spliceQueue.poll();
+                                if (task == null) {
+                                    break;
+                                }
+                                task.promise.tryFailure(cause);
+                            }
+                            closeOnRead(pipeline());
+                            return false;
+                        }
+                        pipePending = splicedIn;
+                        task.len -= splicedIn;
+                        boolean last = task.len == 0;
+                        if (last) {
+                            spliceQueue.remove();
+                        }
+                        task.spliceOut(splicedIn, last);
+                    } catch (Throwable cause) {
+                        spliceQueue.remove(task);
+                        task.promise.tryFailure(cause);
+                        discardPipe();
+                    }
+                }
+            } finally {
+                splicing = false;
+            }
+        }
+
+        @Override
+        void epollInReady() {
+            final ChannelConfig config = config();
+            Queue<SpliceInTask> spliceQueue = AbstractEpollStreamChannel.this.spliceQueue;
+            if (spliceQueue != null && !spliceQueue.isEmpty() && !spliceIn(spliceQueue)) {
+                // Still splicing, so the data must not be read into ByteBufs.
+                return;
+            }
+            if (!config.isAutoRead() && !readPending) {
+                // EPOLLIN was only set for splicing or the read was suspended in the meantime.
+                clearEpollIn0();
+                return;
+            }
+
+            final ChannelPipeline pipeline = pipeline();
+            final ByteBufAllocator allocator = config.getAllocator();
+            RecvByteBufAllocator.Handle allocHandle = this.allocHandle;
+            if (allocHandle == null) {
+                this.allocHandle = allocHandle = config.getRecvByteBufAllocator().newHandle();
+            }
+
+            ByteBuf byteBuf = null;
+            boolean close = false;
+            try {
+                int totalReadAmount = 0;
+                for (;;) {
+                    // we use a direct buffer here as the native implementations only be able
+                    // to handle direct buffers.
+                    byteBuf = allocHandle.allocate(allocator);
+                    int writable = byteBuf.writableBytes();
+                    int localReadAmount = doReadBytes(byteBuf);
+                    if (localReadAmount <= 0) {
+                        // not was read release the buffer
+                        byteBuf.release();
+                        close = localReadAmount < 0;
+                        break;
+                    }
+                    readPending = false;
+                    pipeline.fireChannelRead(byteBuf);
+                    byteBuf = null;
+
+                    if (totalReadAmount >= Integer.MAX_VALUE - localReadAmount) {
+                        allocHandle.record(totalReadAmount);
+
+                        // Avoid overflow.
+                        totalReadAmount = localReadAmount;
+                    } else {
+                        totalReadAmount += localReadAmount;
+                    }
+
+                    if (localReadAmount < writable) {
+                        // Read less than what the buffer can hold,
+                        // which might mean we drained the recv buffer completely.
+                        break;
+                    }
+                }
+                pipeline.fireChannelReadComplete();
+                allocHandle.record(totalReadAmount);
+
+                if (close) {
+                    closeOnRead(pipeline);
+                    close = false;
+                }
+            } catch (Throwable t) {
+                boolean closed = handleReadException(pipeline, byteBuf, t, close);
+                if (!closed) {
+                    // trigger a read again as there may be something left to read and because of epoll ET we
+                    // will not get notified again until we read everything from the socket
+                    eventLoop().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            epollInReady();
+                        }
+                    });
+                }
+            } finally {
+                // Check if there is a readPending which was not processed yet.
+                // This could be for two reasons:
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
+                //
+                // See https://github.com/netty/netty/issues/2254
+                if (!config.isAutoRead() && !readPending) {
+                    clearEpollIn0();
+                }
+            }
+        }
+    }
+
+    /**
+     * A pending {@link #spliceTo(AbstractEpollStreamChannel, int)} or {@link #spliceTo(FileDescriptor, long, int)}
+     * of this channel.
+     */
+    private abstract class SpliceInTask {
+        final ChannelPromise promise;
+        int len;
+
+        SpliceInTask(int len, ChannelPromise promise) {
+            this.promise = promise;
+            this.len = len;
+        }
+
+        /**
+         * Move the {@code splicedIn} bytes which were just spliced into the pipe to their destination. If
+         * {@code last} is {@code true} these are the last bytes of this task.
+         */
+        abstract void spliceOut(int splicedIn, boolean last) throws Exception;
+    }
+
+    private final class SpliceInChannelTask extends SpliceInTask {
+        private final AbstractEpollStreamChannel ch;
+
+        SpliceInChannelTask(AbstractEpollStreamChannel ch, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.ch = ch;
+        }
+
+        @Override
+        void spliceOut(int splicedIn, boolean last) {
+            SpliceOutTask task = new SpliceOutTask(this, splicedIn, last);
+            // We are in the EventLoop of the other channel as well, so just call the unsafe methods directly.
+            Unsafe unsafe = ch.unsafe();
+            unsafe.write(task, ch.newPromise().addListener(task));
+            unsafe.flush();
+        }
+    }
+
+    private final class SpliceFdTask extends SpliceInTask {
+        private final FileDescriptor fd;
+        private long offset;
+
+        SpliceFdTask(FileDescriptor fd, long offset, int len, ChannelPromise promise) {
+            super(len, promise);
+            this.fd = fd;
+            this.offset = offset;
+        }
+
+        @Override
+        void spliceOut(int splicedIn, boolean last) throws Exception {
+            do {
+                int splicedOut = Native.splice(pipeIn, -1, fd.intValue(), offset, splicedIn);
+                if (splicedOut <= 0) {
+                    throw new IOException("Unable to splice to " + fd);
+                }
+                offset += splicedOut;
+                splicedIn -= splicedOut;
+                pipePending -= splicedOut;
+            } while (splicedIn > 0);
+
+            if (last) {
+                promise.trySuccess();
+            }
+        }
+    }
+
+    /**
+     * Written to the destination channel of a {@link SpliceInChannelTask} to move the data from the pipe of this
+     * channel into it once it is writable.
+     */
+    private final class SpliceOutTask implements ChannelFutureListener {
+        private final SpliceInChannelTask task;
+        private final boolean last;
+        private int len;
+
+        SpliceOutTask(SpliceInChannelTask task, int len, boolean last) {
+            this.task = task;
+            this.len = len;
+            this.last = last;
+        }
+
+        /**
+         * Returns {@code true} if all data was moved out of the pipe.
+         */
+        boolean spliceOut(ChannelOutboundBuffer in) throws Exception {
+            int splicedOut = Native.splice(pipeIn, -1, task.ch.fd, -1, len);
+            if (splicedOut < 0) {
+                throw new IOException("Pipe closed unexpectedly");
+            }
+            if (splicedOut > 0) {
+                in.progress(splicedOut);
+                len -= splicedOut;
+                pipePending -= splicedOut;
+                if (len == 0) {
+                    pipeDrained();
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            if (future.isSuccess()) {
+                if (last) {
+                    task.promise.trySuccess();
+                }
+            } else {
+                task.promise.tryFailure(future.cause());
+                discardPipe();
+            }
+        }
+    }
+
+    @Override
+    protected ChannelOutboundBuffer newOutboundBuffer() {
+        if (PlatformDependent.hasUnsafe()) {
+            // This means we will be able to access the memory addresses directly and so be able to do
+            // gathering writes with the AddressEntry.
+            return EpollChannelOutboundBuffer.newInstance(this);
+        } else {
+            // No access to the memoryAddres, so fallback to use ByteBuffer[] for gathering writes.
+            return NioSocketChannelOutboundBuffer.newInstance(this);
+        }
+    }
+}
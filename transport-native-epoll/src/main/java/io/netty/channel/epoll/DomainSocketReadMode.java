@@ -0,0 +1,33 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+/**
+ * Different modes of reading from an {@link EpollDomainSocketChannel}.
+ */
+public enum DomainSocketReadMode {
+
+    /**
+     * Read {@link io.netty.buffer.ByteBuf}s from the {@link EpollDomainSocketChannel}.
+     */
+    BYTES,
+
+    /**
+     * Read {@link FileDescriptor}s from the {@link EpollDomainSocketChannel}, which were sent by the remote peer
+     * via {@code SCM_RIGHTS}.
+     */
+    FILE_DESCRIPTORS
+}
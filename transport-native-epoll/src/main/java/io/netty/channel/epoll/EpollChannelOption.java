@@ -25,6 +25,14 @@ public final class EpollChannelOption {
     public static final ChannelOption<Integer> TCP_KEEPIDLE = ChannelOption.valueOf(T, "TCP_KEEPIDLE");
     public static final ChannelOption<Integer> TCP_KEEPINTVL = ChannelOption.valueOf(T, "TCP_KEEPINTVL");
     public static final ChannelOption<Integer> TCP_KEEPCNT = ChannelOption.valueOf(T, "TCP_KEEPCNT");
+    public static final ChannelOption<Integer> DATAGRAM_READ_BATCH_SIZE =
+            ChannelOption.valueOf(T, "DATAGRAM_READ_BATCH_SIZE");
+    public static final ChannelOption<Integer> DATAGRAM_WRITE_BATCH_SIZE =
+            ChannelOption.valueOf(T, "DATAGRAM_WRITE_BATCH_SIZE");
+    public static final ChannelOption<DomainSocketReadMode> DOMAIN_SOCKET_READ_MODE =
+            ChannelOption.valueOf(T, "DOMAIN_SOCKET_READ_MODE");
+    public static final ChannelOption<Integer> ZEROCOPY_SEND_THRESHOLD =
+            ChannelOption.valueOf(T, "ZEROCOPY_SEND_THRESHOLD");
 
     private EpollChannelOption() { }
 
@@ -31,6 +31,12 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
     private AddressEntry[] addresses;
     private int addressCount;
     private long addressSize;
+
+    // Buffers which were sent via MSG_ZEROCOPY, indexed by the sequence number of the send call. They are retained
+    // until the kernel reported that it is done with them.
+    private ByteBuf[] zeroCopyBuffers;
+    private int zeroCopyHead;
+    private int zeroCopyTail;
     private static final Recycler<EpollChannelOutboundBuffer> RECYCLER = new Recycler<EpollChannelOutboundBuffer>() {
         @Override
         protected EpollChannelOutboundBuffer newObject(Handle<EpollChannelOutboundBuffer> handle) {
@@ -41,7 +47,7 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
     /**
      * Get a new instance of this {@link EpollChannelOutboundBuffer} and attach it the given {@link EpollSocketChannel}
      */
-    static EpollChannelOutboundBuffer newInstance(EpollSocketChannel channel) {
+    static EpollChannelOutboundBuffer newInstance(AbstractEpollChannel channel) {
         EpollChannelOutboundBuffer buffer = RECYCLER.get();
         buffer.channel = channel;
         return buffer;
@@ -75,26 +81,23 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
      * <p>
      * Note that the returned array is reused and thus should not escape
      * {@link io.netty.channel.AbstractChannel#doWrite(ChannelOutboundBuffer)}.
-     * Refer to {@link EpollSocketChannel#doWrite(ChannelOutboundBuffer)} for an example.
+     * Refer to {@link AbstractEpollStreamChannel#doWrite(ChannelOutboundBuffer)} for an example.
      * </p>
      */
     AddressEntry[] memoryAddresses() {
         long addressSize = 0;
         int addressCount = 0;
-        final Entry[] buffer = entries();
-        final int mask = buffer.length - 1;
         AddressEntry[] addresses = this.addresses;
-        Object m;
-        int unflushed = unflushed();
-        int flushed = flushed();
-        while (flushed != unflushed && (m = buffer[flushed].msg()) != null) {
+        Entry e = flushedEntry();
+        while (isFlushedEntry(e)) {
+            Object m = e.msg();
             if (!(m instanceof ByteBuf)) {
                 this.addressCount = 0;
                 this.addressSize = 0;
                 return null;
             }
 
-            AddressEntry entry = (AddressEntry) buffer[flushed];
+            AddressEntry entry = (AddressEntry) e;
 
             // Check if the entry was cancelled. if so we just skip it.
             if (!entry.isCancelled()) {
@@ -118,7 +121,7 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
                 }
             }
 
-            flushed = flushed + 1 & mask;
+            e = e.next();
         }
         this.addressCount = addressCount;
         this.addressSize = addressSize;
@@ -159,8 +162,73 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
         return addressSize;
     }
 
+    /**
+     * Retain the given {@link ByteBuf} as it was just sent via {@code MSG_ZEROCOPY} and so must not be released
+     * before {@link #zeroCopyCompleted(int, int)} was called for the sequence number of the send call.
+     */
+    void addZeroCopy(ByteBuf buf) {
+        ByteBuf[] buffers = zeroCopyBuffers;
+        if (buffers == null) {
+            zeroCopyBuffers = buffers = new ByteBuf[INITIAL_CAPACITY];
+        } else if (zeroCopyTail - zeroCopyHead == buffers.length) {
+            ByteBuf[] newBuffers = new ByteBuf[buffers.length << 1];
+            for (int seq = zeroCopyHead; seq != zeroCopyTail; seq ++) {
+                newBuffers[seq & newBuffers.length - 1] = buffers[seq & buffers.length - 1];
+            }
+            zeroCopyBuffers = buffers = newBuffers;
+        }
+        buffers[zeroCopyTail & buffers.length - 1] = buf.retain();
+        zeroCopyTail ++;
+    }
+
+    /**
+     * Release the buffers of the {@code MSG_ZEROCOPY} send calls from {@code first} to {@code last} (inclusive).
+     */
+    void zeroCopyCompleted(int first, int last) {
+        ByteBuf[] buffers = zeroCopyBuffers;
+        if (buffers == null) {
+            return;
+        }
+        final int mask = buffers.length - 1;
+        // Compare via the difference as the sequence numbers may wrap around.
+        for (int seq = first; seq - last <= 0; seq ++) {
+            if (seq - zeroCopyHead >= 0 && seq - zeroCopyTail < 0) {
+                int idx = seq & mask;
+                ByteBuf buf = buffers[idx];
+                if (buf != null) {
+                    buffers[idx] = null;
+                    safeRelease(buf);
+                }
+            }
+        }
+        // Completions may be reported out of order, so only move forward over the released ones.
+        while (zeroCopyHead != zeroCopyTail && buffers[zeroCopyHead & mask] == null) {
+            zeroCopyHead ++;
+        }
+    }
+
+    /**
+     * Returns {@code true} if there are buffers sent via {@code MSG_ZEROCOPY} which were not completed yet.
+     */
+    boolean hasZeroCopyPending() {
+        return zeroCopyHead != zeroCopyTail;
+    }
+
     @Override
     public void recycle() {
+        ByteBuf[] buffers = zeroCopyBuffers;
+        if (buffers != null) {
+            // The channel is closed, so no completions will be received anymore.
+            for (int seq = zeroCopyHead; seq != zeroCopyTail; seq ++) {
+                ByteBuf buf = buffers[seq & buffers.length - 1];
+                if (buf != null) {
+                    safeRelease(buf);
+                }
+            }
+            zeroCopyBuffers = null;
+            zeroCopyHead = 0;
+            zeroCopyTail = 0;
+        }
         if (addresses.length > INITIAL_CAPACITY) {
             addresses = new AddressEntry[INITIAL_CAPACITY];
         } else {
@@ -173,15 +241,26 @@ final class EpollChannelOutboundBuffer extends ChannelOutboundBuffer {
 
     @Override
     protected AddressEntry newEntry() {
-        return new AddressEntry();
+        return AddressEntry.RECYCLER.get();
     }
 
     static final class AddressEntry extends Entry {
+        private static final Recycler<AddressEntry> RECYCLER = new Recycler<AddressEntry>() {
+            @Override
+            protected AddressEntry newObject(Handle<AddressEntry> handle) {
+                return new AddressEntry(handle);
+            }
+        };
+
         // These fields will be accessed via JNI directly so be carefully when touch them!
         long memoryAddress;
         int readerIndex;
         int writerIndex;
 
+        private AddressEntry(Recycler.Handle<AddressEntry> handle) {
+            super(handle);
+        }
+
         @Override
         public void clear() {
             memoryAddress = -1;
@@ -16,6 +16,7 @@
 package io.netty.channel.epoll;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.ByteBufHolder;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelMetadata;
@@ -24,8 +25,8 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.ChannelPromise;
 import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.epoll.NativeDatagramPacketArray.NativeDatagramPacket;
 import io.netty.channel.socket.DatagramChannel;
-import io.netty.channel.socket.DatagramChannelConfig;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.util.internal.StringUtil;
 
@@ -55,6 +56,16 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
         config = new EpollDatagramChannelConfig(this);
     }
 
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
     @Override
     public ChannelMetadata metadata() {
         return METADATA;
@@ -256,6 +267,32 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 break;
             }
 
+            int writeBatchSize = config().getWriteBatchSize();
+            if (writeBatchSize > 1 && in.size() > 1) {
+                // Try to send multiple datagrams with one syscall.
+                NativeDatagramPacketArray packets =
+                        ((EpollDatagramChannelOutboundBuffer) in).datagramPackets(remote, writeBatchSize);
+                int count = packets.count();
+                if (count > 1) {
+                    int sent;
+                    try {
+                        sent = Native.sendmmsg(fd, packets.packets(), 0, count);
+                    } finally {
+                        packets.clear();
+                    }
+                    if (sent == 0) {
+                        // Did not write all messages.
+                        setEpollOut();
+                        break;
+                    }
+                    for (int i = 0; i < sent; i++) {
+                        in.remove();
+                    }
+                    continue;
+                }
+                packets.clear();
+            }
+
             boolean done = false;
             for (int i = config().getWriteSpinCount() - 1; i >= 0; i--) {
                 if (doWriteMessage(msg)) {
@@ -337,6 +374,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
     final class EpollDatagramChannelUnsafe extends AbstractEpollUnsafe {
         private RecvByteBufAllocator.Handle allocHandle;
+        private NativeDatagramPacketArray recvPackets;
 
         @Override
         public void connect(SocketAddress remote, SocketAddress local, ChannelPromise channelPromise) {
@@ -368,7 +406,7 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
 
         @Override
         void epollInReady() {
-            DatagramChannelConfig config = config();
+            EpollDatagramChannelConfig config = config();
             RecvByteBufAllocator.Handle allocHandle = this.allocHandle;
             if (allocHandle == null) {
                 this.allocHandle = allocHandle = config.getRecvByteBufAllocator().newHandle();
@@ -377,6 +415,10 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
             assert eventLoop().inEventLoop();
             final ChannelPipeline pipeline = pipeline();
             try {
+                int readBatchSize = config.getReadBatchSize();
+                if (readBatchSize > 1 && epollInReadyBatched(config, allocHandle, pipeline, readBatchSize)) {
+                    return;
+                }
                 for (;;) {
                     ByteBuf data = null;
                     try {
@@ -426,6 +468,70 @@ public final class EpollDatagramChannel extends AbstractEpollChannel implements
                 }
             }
         }
+
+        /**
+         * Read as many datagrams as possible via {@code recvmmsg(...)}, up to {@code readBatchSize} per syscall.
+         * Returns {@code false} if the allocated buffers can not be used for this, in which case the datagrams need
+         * to be read one by one.
+         */
+        private boolean epollInReadyBatched(
+                EpollDatagramChannelConfig config, RecvByteBufAllocator.Handle allocHandle,
+                ChannelPipeline pipeline, int readBatchSize) {
+            NativeDatagramPacketArray packets = recvPackets;
+            if (packets == null || packets.capacity() != readBatchSize) {
+                recvPackets = packets = new NativeDatagramPacketArray(readBatchSize);
+            }
+            final ByteBufAllocator allocator = config.getAllocator();
+            final InetSocketAddress local = (InetSocketAddress) localAddress();
+            final NativeDatagramPacket[] array = packets.packets();
+
+            for (;;) {
+                int count = 0;
+                int received = 0;
+                int fired = 0;
+                try {
+                    for (int i = 0; i < readBatchSize; i++) {
+                        ByteBuf data = allocHandle.allocate(allocator);
+                        if (!packets.addReadable(data)) {
+                            data.release();
+                            break;
+                        }
+                    }
+                    count = packets.count();
+                    if (count == 0) {
+                        // No memory address, so recvmmsg(...) can not be used.
+                        return false;
+                    }
+
+                    received = Native.recvmmsg(fd, array, 0, count);
+                    for (; fired < received; fired++) {
+                        NativeDatagramPacket packet = array[fired];
+                        ByteBuf data = packet.buf();
+                        int readBytes = packet.count;
+                        data.writerIndex(data.writerIndex() + readBytes);
+                        allocHandle.record(readBytes);
+                        readPending = false;
+                        pipeline.fireChannelRead(new DatagramPacket(data, local, packet.sender()));
+                    }
+                } catch (Throwable t) {
+                    // keep on reading as we use epoll ET and need to consume everything from the socket
+                    pipeline.fireChannelReadComplete();
+                    pipeline.fireExceptionCaught(t);
+                    received = count;
+                } finally {
+                    // release all buffers which were not used
+                    for (int i = fired; i < packets.count(); i++) {
+                        array[i].buf().release();
+                    }
+                    packets.clear();
+                }
+
+                if (received < count) {
+                    // recvmmsg(...) returns less datagrams then requested only if the socket was drained
+                    return true;
+                }
+            }
+        }
     }
 
     /**
@@ -31,6 +31,8 @@ public final class EpollDatagramChannelConfig extends DefaultChannelConfig imple
     private static final RecvByteBufAllocator DEFAULT_RCVBUF_ALLOCATOR = new FixedRecvByteBufAllocator(2048);
     private final EpollDatagramChannel datagramChannel;
     private boolean activeOnOpen;
+    private volatile int readBatchSize = 1;
+    private volatile int writeBatchSize = 1;
 
     EpollDatagramChannelConfig(EpollDatagramChannel channel) {
         super(channel);
@@ -47,7 +49,8 @@ public final class EpollDatagramChannelConfig extends DefaultChannelConfig imple
                 ChannelOption.SO_REUSEADDR, ChannelOption.IP_MULTICAST_LOOP_DISABLED,
                 ChannelOption.IP_MULTICAST_ADDR, ChannelOption.IP_MULTICAST_IF, ChannelOption.IP_MULTICAST_TTL,
                 ChannelOption.IP_TOS, ChannelOption.DATAGRAM_CHANNEL_ACTIVE_ON_REGISTRATION,
-                EpollChannelOption.SO_REUSEPORT);
+                EpollChannelOption.SO_REUSEPORT, EpollChannelOption.DATAGRAM_READ_BATCH_SIZE,
+                EpollChannelOption.DATAGRAM_WRITE_BATCH_SIZE);
     }
 
     @SuppressWarnings({ "unchecked", "deprecation" })
@@ -86,6 +89,12 @@ public final class EpollDatagramChannelConfig extends DefaultChannelConfig imple
         if (option == EpollChannelOption.SO_REUSEPORT) {
             return (T) Boolean.valueOf(isReusePort());
         }
+        if (option == EpollChannelOption.DATAGRAM_READ_BATCH_SIZE) {
+            return (T) Integer.valueOf(getReadBatchSize());
+        }
+        if (option == EpollChannelOption.DATAGRAM_WRITE_BATCH_SIZE) {
+            return (T) Integer.valueOf(getWriteBatchSize());
+        }
         return super.getOption(option);
     }
 
@@ -116,6 +125,10 @@ public final class EpollDatagramChannelConfig extends DefaultChannelConfig imple
             setActiveOnOpen((Boolean) value);
         } else if (option == EpollChannelOption.SO_REUSEPORT) {
             setReusePort((Boolean) value);
+        } else if (option == EpollChannelOption.DATAGRAM_READ_BATCH_SIZE) {
+            setReadBatchSize((Integer) value);
+        } else if (option == EpollChannelOption.DATAGRAM_WRITE_BATCH_SIZE) {
+            setWriteBatchSize((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -298,6 +311,48 @@ public final class EpollDatagramChannelConfig extends DefaultChannelConfig imple
         return this;
     }
 
+    /**
+     * Returns the maximal number of datagrams that are received with one {@code recvmmsg(...)} syscall.
+     */
+    public int getReadBatchSize() {
+        return readBatchSize;
+    }
+
+    /**
+     * Set the maximal number of datagrams that are received with one {@code recvmmsg(...)} syscall. The default
+     * value of {@code 1} receives one datagram per syscall. A buffer is allocated via the
+     * {@link RecvByteBufAllocator} for each datagram of a batch, so this works best with a pooled direct
+     * {@link ByteBufAllocator}.
+     */
+    public EpollDatagramChannelConfig setReadBatchSize(int readBatchSize) {
+        this.readBatchSize = checkBatchSize("readBatchSize", readBatchSize);
+        return this;
+    }
+
+    /**
+     * Returns the maximal number of datagrams that are sent with one {@code sendmmsg(...)} syscall.
+     */
+    public int getWriteBatchSize() {
+        return writeBatchSize;
+    }
+
+    /**
+     * Set the maximal number of flushed datagrams that are sent with one {@code sendmmsg(...)} syscall. The
+     * default value of {@code 1} sends one datagram per syscall.
+     */
+    public EpollDatagramChannelConfig setWriteBatchSize(int writeBatchSize) {
+        this.writeBatchSize = checkBatchSize("writeBatchSize", writeBatchSize);
+        return this;
+    }
+
+    private static int checkBatchSize(String name, int batchSize) {
+        if (batchSize <= 0 || batchSize > NativeDatagramPacketArray.MAX_PACKETS) {
+            throw new IllegalArgumentException(name + ": " + batchSize +
+                    " (expected: 0 < " + name + " <= " + NativeDatagramPacketArray.MAX_PACKETS + ')');
+        }
+        return batchSize;
+    }
+
     @Override
     protected void autoReadCleared() {
         datagramChannel.clearEpollIn();
@@ -20,6 +20,8 @@ import io.netty.channel.ChannelOutboundBuffer;
 import io.netty.channel.socket.DatagramPacket;
 import io.netty.util.Recycler;
 
+import java.net.InetSocketAddress;
+
 final class EpollDatagramChannelOutboundBuffer extends ChannelOutboundBuffer {
     private static final Recycler<EpollDatagramChannelOutboundBuffer> RECYCLER =
             new Recycler<EpollDatagramChannelOutboundBuffer>() {
@@ -35,6 +37,8 @@ final class EpollDatagramChannelOutboundBuffer extends ChannelOutboundBuffer {
         return buffer;
     }
 
+    private NativeDatagramPacketArray packets;
+
     private EpollDatagramChannelOutboundBuffer(Recycler.Handle<EpollDatagramChannelOutboundBuffer> handle) {
         super(handle);
     }
@@ -60,4 +64,57 @@ final class EpollDatagramChannelOutboundBuffer extends ChannelOutboundBuffer {
     private static boolean isCopyNeeded(ByteBuf content) {
         return !content.hasMemoryAddress() || content.nioBufferCount() != 1;
     }
+
+    /**
+     * Returns a {@link NativeDatagramPacketArray} which holds up to {@code maxPackets} of the flushed datagrams,
+     * starting with the current one. Gathering stops at the first message that can not be sent via
+     * {@link Native#sendmmsg(int, NativeDatagramPacketArray.NativeDatagramPacket[], int, int)}, so
+     * {@link NativeDatagramPacketArray#count()} may be {@code 0}.
+     * <p>
+     * Note that the returned array is reused and so {@link NativeDatagramPacketArray#clear()} must be called once
+     * it is not used anymore. It should not escape
+     * {@link io.netty.channel.AbstractChannel#doWrite(ChannelOutboundBuffer)}.
+     * </p>
+     */
+    NativeDatagramPacketArray datagramPackets(InetSocketAddress remote, int maxPackets) {
+        NativeDatagramPacketArray packets = this.packets;
+        if (packets == null || packets.capacity() != maxPackets) {
+            this.packets = packets = new NativeDatagramPacketArray(maxPackets);
+        }
+
+        Entry entry = flushedEntry();
+        while (isFlushedEntry(entry)) {
+            Object m = entry.msg();
+            if (entry.isCancelled()) {
+                break;
+            }
+
+            ByteBuf content;
+            InetSocketAddress recipient;
+            if (m instanceof DatagramPacket) {
+                DatagramPacket packet = (DatagramPacket) m;
+                content = packet.content();
+                recipient = packet.recipient();
+            } else if (m instanceof ByteBuf) {
+                content = (ByteBuf) m;
+                recipient = remote;
+            } else {
+                break;
+            }
+
+            if (recipient == null || !content.isReadable() || !packets.addWritable(content, recipient)) {
+                break;
+            }
+            entry = entry.next();
+        }
+        return packets;
+    }
+
+    @Override
+    public void recycle() {
+        if (packets != null) {
+            packets.clear();
+        }
+        super.recycle();
+    }
 }
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+
+/**
+ * {@link Channel} implementation for
+ * <a href="http://man7.org/linux/man-pages/man7/unix.7.html">Unix Domain Sockets</a> that uses linux EPOLL
+ * Edge-Triggered Mode for maximal performance.
+ * <p>
+ * Besides {@link io.netty.buffer.ByteBuf}s it is possible to write {@link FileDescriptor}s, which are passed to the
+ * remote peer via {@code SCM_RIGHTS}. The remote peer needs to use {@link DomainSocketReadMode#FILE_DESCRIPTORS}
+ * to receive them.
+ */
+public final class EpollDomainSocketChannel extends AbstractEpollStreamChannel {
+
+    private final EpollDomainSocketChannelConfig config = new EpollDomainSocketChannelConfig(this);
+
+    private volatile DomainSocketAddress local;
+    private volatile DomainSocketAddress remote;
+
+    public EpollDomainSocketChannel() {
+        super(Native.socketDomainFd());
+    }
+
+    EpollDomainSocketChannel(EpollServerDomainSocketChannel parent, int fd) {
+        super(parent, fd);
+        local = parent.localAddress();
+    }
+
+    @Override
+    protected AbstractEpollUnsafe newUnsafe() {
+        return new EpollDomainUnsafe();
+    }
+
+    @Override
+    public DomainSocketAddress remoteAddress() {
+        return (DomainSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public DomainSocketAddress localAddress() {
+        return (DomainSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected DomainSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected DomainSocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        DomainSocketAddress addr = (DomainSocketAddress) localAddress;
+        Native.bind(fd, addr);
+        local = addr;
+    }
+
+    @Override
+    protected boolean doConnect(SocketAddress remoteAddress, SocketAddress localAddress) throws Exception {
+        if (localAddress != null) {
+            doBind(localAddress);
+        }
+
+        boolean success = false;
+        try {
+            DomainSocketAddress remoteSocketAddress = (DomainSocketAddress) remoteAddress;
+            boolean connected = Native.connect(fd, remoteSocketAddress);
+            remote = remoteSocketAddress;
+            if (!connected) {
+                setEpollOut();
+            }
+            success = true;
+            return connected;
+        } finally {
+            if (!success) {
+                doClose();
+            }
+        }
+    }
+
+    @Override
+    public EpollDomainSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public EpollServerDomainSocketChannel parent() {
+        return (EpollServerDomainSocketChannel) super.parent();
+    }
+
+    /**
+     * Returns the credentials of the process on the other side of the connection.
+     */
+    public PeerCredentials peerCredentials() throws IOException {
+        return Native.getPeerCredentials(fd);
+    }
+
+    @Override
+    protected boolean doWriteSingle(ChannelOutboundBuffer in) throws Exception {
+        Object msg = in.current();
+        if (msg instanceof FileDescriptor) {
+            if (Native.sendFd(fd, ((FileDescriptor) msg).intValue()) > 0) {
+                // File descriptor was written, so remove it.
+                in.remove();
+                return true;
+            }
+            return false;
+        }
+        return super.doWriteSingle(in);
+    }
+
+    final class EpollDomainUnsafe extends EpollStreamUnsafe {
+
+        @Override
+        void epollInReady() {
+            switch (config().getReadMode()) {
+                case BYTES:
+                    super.epollInReady();
+                    break;
+                case FILE_DESCRIPTORS:
+                    epollInReadFd();
+                    break;
+                default:
+                    throw new Error();
+            }
+        }
+
+        private void epollInReadFd() {
+            final EpollDomainSocketChannelConfig config = config();
+            final ChannelPipeline pipeline = pipeline();
+            try {
+                for (;;) {
+                    int socketFd = Native.recvFd(fd);
+                    if (socketFd == 0) {
+                        // Nothing left to read.
+                        break;
+                    }
+                    if (socketFd == -1) {
+                        pipeline.fireChannelReadComplete();
+                        closeOnRead(pipeline);
+                        return;
+                    }
+                    readPending = false;
+
+                    try {
+                        pipeline.fireChannelRead(new FileDescriptor(socketFd));
+                    } catch (Throwable t) {
+                        // keep on reading as we use epoll ET and need to consume everything from the socket
+                        pipeline.fireChannelReadComplete();
+                        pipeline.fireExceptionCaught(t);
+                    }
+                }
+                pipeline.fireChannelReadComplete();
+            } catch (Throwable t) {
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(t);
+                if (t instanceof IOException) {
+                    closeOnRead(pipeline);
+                } else {
+                    // trigger a read again as there may be something left to read and because of epoll ET we
+                    // will not get notified again until we read everything from the socket
+                    eventLoop().execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            epollInReady();
+                        }
+                    });
+                }
+            } finally {
+                // Check if there is a readPending which was not processed yet.
+                // This could be for two reasons:
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
+                // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
+                //
+                // See https://github.com/netty/netty/issues/2254
+                if (!config.isAutoRead() && !readPending) {
+                    clearEpollIn0();
+                }
+            }
+        }
+    }
+}
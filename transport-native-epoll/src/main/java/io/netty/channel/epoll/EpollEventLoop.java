@@ -313,10 +313,15 @@ final class EpollEventLoop extends SingleThreadEventLoop {
                 boolean read = (ev & Native.EPOLLIN) != 0;
                 boolean write = (ev & Native.EPOLLOUT) != 0;
                 boolean close = (ev & Native.EPOLLRDHUP) != 0;
+                boolean err = (ev & Native.EPOLLERR) != 0;
 
                 AbstractEpollChannel ch = ids.get(id);
                 if (ch != null) {
                     AbstractEpollUnsafe unsafe = (AbstractEpollUnsafe) ch.unsafe();
+                    if (err && ch.isOpen()) {
+                        // Something was queued on the error queue of the socket
+                        unsafe.epollErrReady();
+                    }
                     if (write && ch.isOpen()) {
                         // force flush of data as the epoll is writable again
                         unsafe.epollOutReady();
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.channel.Channel;
+
+import java.io.File;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link io.netty.channel.ServerChannel} implementation for
+ * <a href="http://man7.org/linux/man-pages/man7/unix.7.html">Unix Domain Sockets</a> that uses linux EPOLL
+ * Edge-Triggered Mode for maximal performance. The accepted connections are {@link EpollDomainSocketChannel}s.
+ */
+public final class EpollServerDomainSocketChannel extends AbstractEpollServerChannel {
+
+    private final EpollServerDomainSocketChannelConfig config = new EpollServerDomainSocketChannelConfig(this);
+    private volatile DomainSocketAddress local;
+
+    public EpollServerDomainSocketChannel() {
+        super(Native.socketDomainFd(), false);
+    }
+
+    @Override
+    public DomainSocketAddress remoteAddress() {
+        return (DomainSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public DomainSocketAddress localAddress() {
+        return (DomainSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected DomainSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        DomainSocketAddress addr = (DomainSocketAddress) localAddress;
+        Native.bind(fd, addr);
+        local = addr;
+        Native.listen(fd, config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        try {
+            super.doClose();
+        } finally {
+            DomainSocketAddress local = this.local;
+            if (local != null) {
+                // Delete the socket file so the path can be used again.
+                new File(local.path()).delete();
+            }
+        }
+    }
+
+    @Override
+    public EpollServerDomainSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    Channel newChildChannel(int fd, InetSocketAddress remoteAddress) throws Exception {
+        return new EpollDomainSocketChannel(this, fd);
+    }
+}
@@ -15,11 +15,9 @@
  */
 package io.netty.channel.epoll;
 
-import io.netty.channel.ChannelOutboundBuffer;
-import io.netty.channel.ChannelPipeline;
-import io.netty.channel.ChannelPromise;
-import io.netty.channel.EventLoop;
+import io.netty.channel.Channel;
 import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.util.internal.PlatformDependent;
 
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -28,19 +26,29 @@ import java.net.SocketAddress;
  * {@link ServerSocketChannel} implementation that uses linux EPOLL Edge-Triggered Mode for
  * maximal performance.
  */
-public final class EpollServerSocketChannel extends AbstractEpollChannel implements ServerSocketChannel {
+public final class EpollServerSocketChannel extends AbstractEpollServerChannel implements ServerSocketChannel {
 
     private final EpollServerSocketChannelConfig config;
     private volatile InetSocketAddress local;
 
     public EpollServerSocketChannel() {
-        super(Native.socketStreamFd(), Native.EPOLLACCEPT);
+        super(Native.socketStreamFd(), true);
         config = new EpollServerSocketChannelConfig(this);
+        if (PlatformDependent.canEnableTcpNoDelayByDefault()) {
+            // Set it on the listening socket as the accepted sockets inherit it, which saves a setsockopt(...) call
+            // per accepted connection.
+            Native.setTcpNoDelay(fd, 1);
+        }
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
     }
 
     @Override
-    protected boolean isCompatible(EventLoop loop) {
-        return loop instanceof EpollEventLoop;
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
     }
 
     @Override
@@ -64,69 +72,12 @@ public final class EpollServerSocketChannel extends AbstractEpollChannel impleme
     }
 
     @Override
-    protected InetSocketAddress remoteAddress0() {
-        return null;
-    }
-
-    @Override
-    protected AbstractEpollUnsafe newUnsafe() {
-        return new EpollServerSocketUnsafe();
-    }
-
-    @Override
-    protected void doWrite(ChannelOutboundBuffer in) {
-        throw new UnsupportedOperationException();
-    }
-
-    final class EpollServerSocketUnsafe extends AbstractEpollUnsafe {
-
-        @Override
-        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
-            // Connect not supported by ServerChannel implementations
-            channelPromise.setFailure(new UnsupportedOperationException());
-        }
-
-        @Override
-        void epollInReady() {
-            assert eventLoop().inEventLoop();
-            final ChannelPipeline pipeline = pipeline();
-            Throwable exception = null;
-            try {
-                try {
-                    for (;;) {
-                        int socketFd = Native.accept(fd);
-                        if (socketFd == -1) {
-                            // this means everything was handled for now
-                            break;
-                        }
-                        try {
-                            readPending = false;
-                            pipeline.fireChannelRead(new EpollSocketChannel(EpollServerSocketChannel.this, socketFd));
-                        } catch (Throwable t) {
-                            // keep on reading as we use epoll ET and need to consume everything from the socket
-                            pipeline.fireChannelReadComplete();
-                            pipeline.fireExceptionCaught(t);
-                        }
-                    }
-                } catch (Throwable t) {
-                    exception = t;
-                }
-                pipeline.fireChannelReadComplete();
-
-                if (exception != null) {
-                    pipeline.fireExceptionCaught(exception);
-                }
-            } finally {
-                // Check if there is a readPending which was not processed yet.
-                // This could be for two reasons:
-                // * The user called Channel.read() or ChannelHandlerContext.read() in channelRead(...) method
-                // * The user called Channel.read() or ChannelHandlerContext.read() in channelReadComplete(...) method
-                //
-                // See https://github.com/netty/netty/issues/2254
-                if (!config.isAutoRead() && !readPending) {
-                    clearEpollIn0();
-                }
-            }
+    Channel newChildChannel(int fd, InetSocketAddress remoteAddress) throws Exception {
+        InetSocketAddress local = this.local;
+        if (local.getAddress().isAnyLocalAddress()) {
+            // The connection may have been accepted on any local address.
+            local = null;
         }
+        return new EpollSocketChannel(this, fd, local, remoteAddress);
     }
 }
@@ -24,6 +24,7 @@ import io.netty.channel.socket.SocketChannelConfig;
 import io.netty.util.internal.PlatformDependent;
 
 import java.util.Map;
+import java.util.Map.Entry;
 
 import static io.netty.channel.ChannelOption.*;
 
@@ -31,6 +32,7 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
 
     private final EpollSocketChannel channel;
     private volatile boolean allowHalfClosure;
+    private volatile int zeroCopyThreshold;
 
     /**
      * Creates a new instance.
@@ -39,7 +41,8 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
         super(channel);
 
         this.channel = channel;
-        if (PlatformDependent.canEnableTcpNoDelayByDefault()) {
+        // Accepted channels inherit TCP_NODELAY from the EpollServerSocketChannel.
+        if (channel.parent() == null && PlatformDependent.canEnableTcpNoDelayByDefault()) {
             setTcpNoDelay(true);
         }
     }
@@ -50,7 +53,8 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
                 super.getOptions(),
                 SO_RCVBUF, SO_SNDBUF, TCP_NODELAY, SO_KEEPALIVE, SO_REUSEADDR, SO_LINGER, IP_TOS,
                 ALLOW_HALF_CLOSURE, EpollChannelOption.TCP_CORK, EpollChannelOption.TCP_KEEPCNT,
-                EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL);
+                EpollChannelOption.TCP_KEEPIDLE, EpollChannelOption.TCP_KEEPINTVL,
+                EpollChannelOption.ZEROCOPY_SEND_THRESHOLD);
     }
 
     @SuppressWarnings("unchecked")
@@ -92,9 +96,118 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
         if (option == EpollChannelOption.TCP_KEEPCNT) {
             return (T) Integer.valueOf(getTcpKeepCnt());
         }
+        if (option == EpollChannelOption.ZEROCOPY_SEND_THRESHOLD) {
+            return (T) Integer.valueOf(getZeroCopyThreshold());
+        }
         return super.getOption(option);
     }
 
+    /**
+     * Set the given options, all the socket options among them are set with a single call into the native code.
+     */
+    @Override
+    public boolean setOptions(Map<ChannelOption<?>, ?> options) {
+        boolean setAllOptions = true;
+        for (Throwable cause: trySetOptions(options).values()) {
+            if (cause != null) {
+                PlatformDependent.throwException(cause);
+            }
+            setAllOptions = false;
+        }
+        return setAllOptions;
+    }
+
+    /**
+     * Set the given options, all the socket options among them are set with a single call into the native code
+     * unless one of them cannot be set.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<ChannelOption<?>, Throwable> trySetOptions(Map<ChannelOption<?>, ?> options) {
+        if (options == null) {
+            throw new NullPointerException("options");
+        }
+
+        Map<ChannelOption<?>, Throwable> failedOptions = null;
+        ChannelOption<Object>[] batchedOptions = null;
+        Object[] batchedValues = null;
+        int[] socketOptions = null;
+        int length = 0;
+        for (Entry<ChannelOption<?>, ?> e: options.entrySet()) {
+            ChannelOption<Object> option = (ChannelOption<Object>) e.getKey();
+            Object value = e.getValue();
+            int socketOption = socketOption(option);
+            if (socketOption == -1) {
+                failedOptions = trySetOption(option, value, failedOptions);
+                continue;
+            }
+            try {
+                validate(option, value);
+            } catch (Throwable t) {
+                failedOptions = trySetOption(option, value, failedOptions);
+                continue;
+            }
+            if (socketOptions == null) {
+                batchedOptions = new ChannelOption[options.size()];
+                batchedValues = new Object[options.size()];
+                socketOptions = new int[options.size() * 2];
+            }
+            batchedOptions[length >> 1] = option;
+            batchedValues[length >> 1] = value;
+            socketOptions[length ++] = socketOption;
+            socketOptions[length ++] = value instanceof Boolean ? ((Boolean) value ? 1 : 0) : (Integer) value;
+        }
+
+        int offset = 0;
+        while (offset < length) {
+            int failed = Native.setSocketOptions(channel.fd, socketOptions, offset, length);
+            if (failed == length) {
+                break;
+            }
+            // Set the option which failed on its own to get the cause, then go on with the ones after it.
+            failedOptions = trySetOption(batchedOptions[failed >> 1], batchedValues[failed >> 1], failedOptions);
+            offset = failed + 2;
+        }
+        return failedOptions(failedOptions);
+    }
+
+    private static int socketOption(ChannelOption<?> option) {
+        if (option == SO_RCVBUF) {
+            return Native.SOCKET_OPTION_SO_RCVBUF;
+        }
+        if (option == SO_SNDBUF) {
+            return Native.SOCKET_OPTION_SO_SNDBUF;
+        }
+        if (option == TCP_NODELAY) {
+            return Native.SOCKET_OPTION_TCP_NODELAY;
+        }
+        if (option == SO_KEEPALIVE) {
+            return Native.SOCKET_OPTION_SO_KEEPALIVE;
+        }
+        if (option == SO_REUSEADDR) {
+            return Native.SOCKET_OPTION_SO_REUSEADDR;
+        }
+        if (option == SO_LINGER) {
+            return Native.SOCKET_OPTION_SO_LINGER;
+        }
+        if (option == IP_TOS) {
+            return Native.SOCKET_OPTION_IP_TOS;
+        }
+        if (option == EpollChannelOption.TCP_CORK) {
+            return Native.SOCKET_OPTION_TCP_CORK;
+        }
+        if (option == EpollChannelOption.TCP_KEEPIDLE) {
+            return Native.SOCKET_OPTION_TCP_KEEPIDLE;
+        }
+        if (option == EpollChannelOption.TCP_KEEPINTVL) {
+            return Native.SOCKET_OPTION_TCP_KEEPINTVL;
+        }
+        if (option == EpollChannelOption.TCP_KEEPCNT) {
+            return Native.SOCKET_OPTION_TCP_KEEPCNT;
+        }
+        return -1;
+    }
+
     @Override
     public <T> boolean setOption(ChannelOption<T> option, T value) {
         validate(option, value);
@@ -123,6 +236,8 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
             setTcpKeepCntl((Integer) value);
         } else if (option == EpollChannelOption.TCP_KEEPINTVL) {
             setTcpKeepIntvl((Integer) value);
+        } else if (option == EpollChannelOption.ZEROCOPY_SEND_THRESHOLD) {
+            setZeroCopyThreshold((Integer) value);
         } else {
             return super.setOption(option, value);
         }
@@ -273,6 +388,34 @@ public final class EpollSocketChannelConfig extends DefaultChannelConfig impleme
         return this;
     }
 
+    /**
+     * Returns the minimal number of readable bytes of a direct {@link io.netty.buffer.ByteBuf} to send it via
+     * {@code MSG_ZEROCOPY}, or {@code 0} if it is disabled. See {@link #setZeroCopyThreshold(int)}.
+     */
+    public int getZeroCopyThreshold() {
+        return zeroCopyThreshold;
+    }
+
+    /**
+     * Send direct {@link io.netty.buffer.ByteBuf}s with at least the given number of readable bytes via
+     * {@code MSG_ZEROCOPY}, which sets {@code SO_ZEROCOPY} on the socket. The pages of the buffer are then passed
+     * to the kernel instead of being copied, and the buffer is only released once the kernel reported that it is
+     * done with it. This only pays off for large buffers, so use a threshold of at least about 10 KiB. Use
+     * {@code 0} to disable it, which is the default. See {@code Documentation/networking/msg_zerocopy.rst} of the
+     * linux kernel for more details.
+     */
+    public EpollSocketChannelConfig setZeroCopyThreshold(int zeroCopyThreshold) {
+        if (zeroCopyThreshold < 0) {
+            throw new IllegalArgumentException(
+                    "zeroCopyThreshold: " + zeroCopyThreshold + " (expected: >= 0)");
+        }
+        if (zeroCopyThreshold > 0) {
+            Native.setZeroCopy(channel.fd, 1);
+        }
+        this.zeroCopyThreshold = zeroCopyThreshold;
+        return this;
+    }
+
     @Override
     public boolean isAllowHalfClosure() {
         return allowHalfClosure;
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Native file descriptor which can be written to an {@link EpollDomainSocketChannel} to pass it to the remote peer,
+ * or be the destination of {@link AbstractEpollStreamChannel#spliceTo(FileDescriptor, long, int)}.
+ * It is also what is read from an {@link EpollDomainSocketChannel} if {@link DomainSocketReadMode#FILE_DESCRIPTORS}
+ * is used, in which case the user is responsible to {@link #close()} it.
+ */
+public final class FileDescriptor {
+    private final int fd;
+    private volatile boolean open = true;
+
+    public FileDescriptor(int fd) {
+        if (fd < 0) {
+            throw new IllegalArgumentException("fd must be >= 0");
+        }
+        this.fd = fd;
+    }
+
+    /**
+     * Open the file with the given path for reading and writing and return its {@link FileDescriptor}. The file is
+     * created if it does not exist yet.
+     */
+    public static FileDescriptor from(String path) throws IOException {
+        if (path == null) {
+            throw new NullPointerException("path");
+        }
+        return new FileDescriptor(Native.open(path));
+    }
+
+    /**
+     * See {@link #from(String)}.
+     */
+    public static FileDescriptor from(File file) throws IOException {
+        if (file == null) {
+            throw new NullPointerException("file");
+        }
+        return from(file.getPath());
+    }
+
+    /**
+     * Return the int value of the file descriptor.
+     */
+    public int intValue() {
+        return fd;
+    }
+
+    /**
+     * Close the file descriptor.
+     */
+    public void close() throws IOException {
+        if (open) {
+            open = false;
+            Native.close(fd);
+        }
+    }
+
+    /**
+     * Returns {@code true} if the file descriptor is open.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    @Override
+    public String toString() {
+        return "FileDescriptor{" +
+                "fd=" + fd +
+                '}';
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FileDescriptor)) {
+            return false;
+        }
+
+        return fd == ((FileDescriptor) o).fd;
+    }
+
+    @Override
+    public int hashCode() {
+        return fd;
+    }
+}
@@ -19,6 +19,8 @@ package io.netty.channel.epoll;
 import io.netty.channel.ChannelException;
 import io.netty.channel.DefaultFileRegion;
 import io.netty.channel.epoll.EpollChannelOutboundBuffer.AddressEntry;
+import io.netty.channel.epoll.NativeDatagramPacketArray.NativeDatagramPacket;
+import io.netty.util.CharsetUtil;
 import io.netty.util.internal.NativeLibraryLoader;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.SystemPropertyUtil;
@@ -52,6 +54,7 @@ final class Native {
     public static final int EPOLLOUT = 0x02;
     public static final int EPOLLACCEPT = 0x04;
     public static final int EPOLLRDHUP = 0x08;
+    public static final int EPOLLERR = 0x10;
 
     public static native int eventFd();
     public static native void eventFdWrite(int fd, long value);
@@ -68,6 +71,22 @@ final class Native {
     public static native int write(int fd, ByteBuffer buf, int pos, int limit) throws IOException;
     public static native int writeAddress(int fd, long address, int pos, int limit) throws IOException;
 
+    /**
+     * Send the bytes of the given memory address via {@code MSG_ZEROCOPY}, which requires {@code SO_ZEROCOPY} to be
+     * set on the socket. The memory must not be changed or freed before its completion was received via
+     * {@link #recvZeroCopyCompletions(int, int[])}. Returns {@code 0} if the socket is not writable at the moment and
+     * {@code -1} if the kernel can not pin more memory, in which case a copying write should be used.
+     */
+    public static native int sendAddressZeroCopy(int fd, long address, int pos, int limit) throws IOException;
+
+    /**
+     * Read the completions of {@link #sendAddressZeroCopy(int, long, int, int)} calls from the error queue of the
+     * socket. Each completion is stored as three ints in the given array: the first and the last (inclusive)
+     * sequence number of the completed calls and {@code 1} if the kernel copied the data anyway, {@code 0}
+     * otherwise. Returns the number of completions which were stored.
+     */
+    public static native int recvZeroCopyCompletions(int fd, int[] completions) throws IOException;
+
     public static native long writev(int fd, ByteBuffer[] buffers, int offset, int length) throws IOException;
     public static native long writevAddresses(int fd, AddressEntry[] addresses, int offset, int length)
             throws IOException;
@@ -77,6 +96,29 @@ final class Native {
 
     public static native long sendfile(int dest, DefaultFileRegion src, long offset, long length) throws IOException;
 
+    /**
+     * Move up to {@code len} bytes from {@code fd} to {@code fdOut} via {@code splice(...)}, one of them needs to be
+     * a pipe. An offset of {@code -1} uses the current offset of the file descriptor, which is the only valid value
+     * for pipes and sockets. Returns {@code 0} if nothing could be moved at the moment and {@code -1} on
+     * end-of-stream.
+     */
+    public static native int splice(int fd, long offIn, int fdOut, long offOut, long len) throws IOException;
+
+    /**
+     * Open the file with the given path for reading and writing, it is created if it does not exist yet.
+     */
+    public static int open(String path) throws IOException {
+        return open0(path.getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static native int open0(byte[] path) throws IOException;
+
+    /**
+     * Create a new non-blocking pipe. The file descriptor of the read end is stored in the upper and the one of the
+     * write end in the lower 32 bits of the returned value.
+     */
+    public static native long pipe() throws IOException;
+
     public static int sendTo(
             int fd, ByteBuffer buf, int pos, int limit, InetAddress addr, int port) throws IOException {
         // just duplicate the toNativeInetAddress code here to minimize object creation as this method is expected
@@ -123,6 +165,21 @@ final class Native {
     public static native EpollDatagramChannel.DatagramSocketAddress recvFromAddress(
             int fd, long memoryAddress, int pos, int limit) throws IOException;
 
+    /**
+     * Send the given {@link NativeDatagramPacket}s via {@code sendmmsg(...)} and return the number of datagrams
+     * that were sent. Falls back to one {@code sendmsg(...)} per datagram if {@code sendmmsg(...)} is not supported.
+     */
+    public static native int sendmmsg(
+            int fd, NativeDatagramPacket[] packets, int offset, int len) throws IOException;
+
+    /**
+     * Receive into the given {@link NativeDatagramPacket}s via {@code recvmmsg(...)} and return the number of
+     * datagrams that were received. Falls back to one {@code recvmsg(...)} per datagram if {@code recvmmsg(...)}
+     * is not supported.
+     */
+    public static native int recvmmsg(
+            int fd, NativeDatagramPacket[] packets, int offset, int len) throws IOException;
+
     // socket operations
     public static int socketStreamFd() {
         try {
@@ -139,15 +196,25 @@ final class Native {
             throw new ChannelException(e);
         }
     }
+
+    public static int socketDomainFd() {
+        try {
+            return socketDomain();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
     private static native int socketStream() throws IOException;
     private static native int socketDgram() throws IOException;
+    private static native int socketDomain() throws IOException;
 
     public static void bind(int fd, InetAddress addr, int port) throws IOException {
         NativeInetAddress address = toNativeInetAddress(addr);
         bind(fd, address.address, address.scopeId, port);
     }
 
-    private static byte[] ipv4MappedIpv6Address(byte[] ipv4) {
+    static byte[] ipv4MappedIpv6Address(byte[] ipv4) {
         byte[] address = new byte[16];
         System.arraycopy(IPV4_MAPPED_IPV6_PREFIX, 0, address, 0, IPV4_MAPPED_IPV6_PREFIX.length);
         System.arraycopy(ipv4, 0, address, 12, ipv4.length);
@@ -165,9 +232,49 @@ final class Native {
 
     public static native InetSocketAddress remoteAddress(int fd);
     public static native InetSocketAddress localAddress(int fd);
-    public static native int accept(int fd) throws IOException;
+
+    /**
+     * Accept connections via {@code accept4(...)} until either the given array is full or no connection is pending
+     * anymore. The accepted sockets are non-blocking and close-on-exec. If {@code remoteAddresses} is not
+     * {@code null} the remote address of each connection is stored at the same index as its file descriptor.
+     * Returns the number of accepted connections. If accepting fails after some connections were accepted already
+     * these are returned and the error is thrown by the next call.
+     */
+    public static native int accept(int fd, int[] fds, InetSocketAddress[] remoteAddresses) throws IOException;
     public static native void shutdown(int fd, boolean read, boolean write) throws IOException;
 
+    // unix domain socket operations
+    public static void bind(int fd, DomainSocketAddress address) throws IOException {
+        bindDomainSocket(fd, address.path().getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static native void bindDomainSocket(int fd, byte[] path) throws IOException;
+
+    public static boolean connect(int fd, DomainSocketAddress address) throws IOException {
+        return connectDomainSocket(fd, address.path().getBytes(CharsetUtil.UTF_8));
+    }
+
+    private static native boolean connectDomainSocket(int fd, byte[] path) throws IOException;
+
+    /**
+     * Send the file descriptor {@code fd} over the domain socket {@code socketFd} via {@code SCM_RIGHTS}. Returns
+     * {@code 0} if the socket is not writable at the moment.
+     */
+    public static native int sendFd(int socketFd, int fd) throws IOException;
+
+    /**
+     * Receive a file descriptor which was sent via {@link #sendFd(int, int)}. Returns {@code 0} if nothing is left
+     * to read and {@code -1} on end-of-stream.
+     */
+    public static native int recvFd(int fd) throws IOException;
+
+    public static PeerCredentials getPeerCredentials(int fd) throws IOException {
+        int[] credentials = getPeerCredentials0(fd);
+        return new PeerCredentials(credentials[0], credentials[1], credentials[2]);
+    }
+
+    private static native int[] getPeerCredentials0(int fd) throws IOException;
+
     // Socket option operations
     public static native int getReceiveBufferSize(int fd);
     public static native int getSendBufferSize(int fd);
@@ -176,6 +283,7 @@ final class Native {
     public static native int isReusePort(int fd);
     public static native int isTcpNoDelay(int fd);
     public static native int isTcpCork(int fd);
+    public static native int isZeroCopy(int fd);
     public static native int getSoLinger(int fd);
     public static native int getTrafficClass(int fd);
     public static native int isBroadcast(int fd);
@@ -190,6 +298,7 @@ final class Native {
     public static native void setSendBufferSize(int fd, int sendBufferSize);
     public static native void setTcpNoDelay(int fd, int tcpNoDelay);
     public static native void setTcpCork(int fd, int tcpCork);
+    public static native void setZeroCopy(int fd, int zeroCopy);
     public static native void setSoLinger(int fd, int soLinger);
     public static native void setTrafficClass(int fd, int tcpNoDelay);
     public static native void setBroadcast(int fd, int broadcast);
@@ -197,6 +306,28 @@ final class Native {
     public static native void setTcpKeepIntvl(int fd, int seconds);
     public static native void setTcpKeepCnt(int fd, int probes);
 
+    // Socket options which can be set via setSocketOptions(...), these need to match the values in the native code
+    public static final int SOCKET_OPTION_SO_RCVBUF = 0x01;
+    public static final int SOCKET_OPTION_SO_SNDBUF = 0x02;
+    public static final int SOCKET_OPTION_SO_KEEPALIVE = 0x03;
+    public static final int SOCKET_OPTION_SO_REUSEADDR = 0x04;
+    public static final int SOCKET_OPTION_SO_LINGER = 0x05;
+    public static final int SOCKET_OPTION_IP_TOS = 0x06;
+    public static final int SOCKET_OPTION_TCP_NODELAY = 0x07;
+    public static final int SOCKET_OPTION_TCP_CORK = 0x08;
+    public static final int SOCKET_OPTION_TCP_KEEPIDLE = 0x09;
+    public static final int SOCKET_OPTION_TCP_KEEPINTVL = 0x0a;
+    public static final int SOCKET_OPTION_TCP_KEEPCNT = 0x0b;
+
+    /**
+     * Set multiple socket options with one call. The ints of the given array from {@code offset} to {@code length}
+     * are pairs of one of the {@code SOCKET_OPTION_*} constants and the value to set.
+     *
+     * @return {@code length} if all options were set, or the index of the first option which could not be set,
+     *         in which case the options after it were not set either
+     */
+    public static native int setSocketOptions(int fd, int[] options, int offset, int length);
+
     private static NativeInetAddress toNativeInetAddress(InetAddress addr) {
         byte[] bytes = addr.getAddress();
         if (addr instanceof Inet6Address) {
@@ -0,0 +1,169 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.epoll.EpollDatagramChannel.DatagramSocketAddress;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+
+/**
+ * Holds a fixed number of reusable {@link NativeDatagramPacket}s which are passed to
+ * {@link Native#sendmmsg(int, NativeDatagramPacket[], int, int)} and
+ * {@link Native#recvmmsg(int, NativeDatagramPacket[], int, int)} to transfer multiple datagrams with one syscall.
+ *
+ * <strong>Internal usage only!</strong>
+ */
+final class NativeDatagramPacketArray {
+
+    /**
+     * The maximal number of datagrams that can be transfered via one syscall. The kernel will silently truncate
+     * the number of messages to this value anyway, so there is no need to use more.
+     */
+    static final int MAX_PACKETS = 1024;
+
+    private final NativeDatagramPacket[] packets;
+    private int count;
+
+    NativeDatagramPacketArray(int size) {
+        if (size <= 0 || size > MAX_PACKETS) {
+            throw new IllegalArgumentException("size: " + size + " (expected: 0 < size <= " + MAX_PACKETS + ')');
+        }
+        packets = new NativeDatagramPacket[size];
+        for (int i = 0; i < packets.length; i++) {
+            packets[i] = new NativeDatagramPacket();
+        }
+    }
+
+    /**
+     * Add the readable bytes of the given {@link ByteBuf} as datagram which should be send to the given
+     * {@link InetSocketAddress}. Returns {@code false} if the array is full or the {@link ByteBuf} can not be used via
+     * its memory address, {@code true} otherwise.
+     */
+    boolean addWritable(ByteBuf buf, InetSocketAddress recipient) {
+        if (count == packets.length || !buf.hasMemoryAddress()) {
+            return false;
+        }
+        NativeDatagramPacket packet = packets[count];
+        packet.buf = buf;
+        packet.memoryAddress = buf.memoryAddress() + buf.readerIndex();
+        packet.count = buf.readableBytes();
+        packet.setRecipient(recipient);
+        count++;
+        return true;
+    }
+
+    /**
+     * Add the writable bytes of the given {@link ByteBuf} as space into which a datagram should be received.
+     * Returns {@code false} if the array is full or the {@link ByteBuf} can not be used via its memory address,
+     * {@code true} otherwise.
+     */
+    boolean addReadable(ByteBuf buf) {
+        if (count == packets.length || !buf.hasMemoryAddress()) {
+            return false;
+        }
+        NativeDatagramPacket packet = packets[count];
+        packet.buf = buf;
+        packet.memoryAddress = buf.memoryAddress() + buf.writerIndex();
+        packet.count = buf.writableBytes();
+        packet.sender = null;
+        count++;
+        return true;
+    }
+
+    /**
+     * Returns the {@link NativeDatagramPacket}s. Only the first {@link #count()} of them are valid.
+     */
+    NativeDatagramPacket[] packets() {
+        return packets;
+    }
+
+    /**
+     * Returns the number of {@link NativeDatagramPacket}s that were added.
+     */
+    int count() {
+        return count;
+    }
+
+    /**
+     * Returns the maximal number of {@link NativeDatagramPacket}s this array can hold.
+     */
+    int capacity() {
+        return packets.length;
+    }
+
+    /**
+     * Clear all {@link NativeDatagramPacket}s so the array can be reused and the {@link ByteBuf}s can be GC'ed.
+     */
+    void clear() {
+        for (int i = 0; i < count; i++) {
+            packets[i].clear();
+        }
+        count = 0;
+    }
+
+    static final class NativeDatagramPacket {
+        // These fields will be accessed via JNI directly so be carefully when touch them!
+        long memoryAddress;
+        int count;
+        byte[] addr;
+        int scopeId;
+        int port;
+        DatagramSocketAddress sender;
+
+        // Not used by JNI
+        private ByteBuf buf;
+
+        /**
+         * The {@link ByteBuf} which this packet was added with.
+         */
+        ByteBuf buf() {
+            return buf;
+        }
+
+        /**
+         * The sender of the received datagram. Only valid after it was filled by
+         * {@link Native#recvmmsg(int, NativeDatagramPacket[], int, int)}.
+         */
+        DatagramSocketAddress sender() {
+            return sender;
+        }
+
+        private void setRecipient(InetSocketAddress recipient) {
+            InetAddress address = recipient.getAddress();
+            if (address instanceof Inet6Address) {
+                addr = address.getAddress();
+                scopeId = ((Inet6Address) address).getScopeId();
+            } else {
+                addr = Native.ipv4MappedIpv6Address(address.getAddress());
+                scopeId = 0;
+            }
+            port = recipient.getPort();
+        }
+
+        private void clear() {
+            memoryAddress = 0;
+            count = 0;
+            addr = null;
+            scopeId = 0;
+            port = 0;
+            sender = null;
+            buf = null;
+        }
+    }
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+/**
+ * User credentials of the process on the other side of an {@link EpollDomainSocketChannel}, as returned by
+ * {@code SO_PEERCRED}.
+ */
+public final class PeerCredentials {
+    private final int pid;
+    private final int uid;
+    private final int gid;
+
+    PeerCredentials(int pid, int uid, int gid) {
+        this.pid = pid;
+        this.uid = uid;
+        this.gid = gid;
+    }
+
+    /**
+     * Returns the process id of the peer.
+     */
+    public int pid() {
+        return pid;
+    }
+
+    /**
+     * Returns the user id of the peer.
+     */
+    public int uid() {
+        return uid;
+    }
+
+    /**
+     * Returns the group id of the peer.
+     */
+    public int gid() {
+        return gid;
+    }
+
+    @Override
+    public String toString() {
+        return "PeerCredentials{" +
+                "pid=" + pid +
+                ", uid=" + uid +
+                ", gid=" + gid +
+                '}';
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Opens connections from multiple threads against a single acceptor and against multiple acceptors which are bound
+ * with {@link EpollChannelOption#SO_REUSEPORT}, and logs the connections accepted per second of both.
+ */
+public class EpollAcceptThroughputTest {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollAcceptThroughputTest.class);
+
+    private static final int ACCEPTORS = 4;
+    private static final int CLIENTS = 8;
+    private static final int CONNECTIONS_PER_CLIENT = 500;
+
+    private static final EventLoopGroup BOSS_GROUP =
+            new EpollEventLoopGroup(ACCEPTORS, new DefaultThreadFactory("testsuite-epoll-accept-boss", true));
+    private static final EventLoopGroup WORKER_GROUP =
+            new EpollEventLoopGroup(ACCEPTORS, new DefaultThreadFactory("testsuite-epoll-accept-worker", true));
+
+    @AfterClass
+    public static void destroy() {
+        BOSS_GROUP.shutdownGracefully();
+        WORKER_GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 60000)
+    public void testSingleAcceptor() throws Throwable {
+        testAccept(1);
+    }
+
+    @Test(timeout = 60000)
+    public void testMultipleAcceptors() throws Throwable {
+        testAccept(ACCEPTORS);
+    }
+
+    private static void testAccept(int acceptors) throws Throwable {
+        final CountDownLatch accepted = new CountDownLatch(CLIENTS * CONNECTIONS_PER_CLIENT);
+        Channel sc = new ServerBootstrap().group(BOSS_GROUP, WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .option(EpollChannelOption.SO_REUSEPORT, true)
+                .acceptors(acceptors)
+                .childHandler(new AcceptHandler(accepted))
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort())).sync().channel();
+
+        final InetSocketAddress address = (InetSocketAddress) sc.localAddress();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        ExecutorService executor = Executors.newFixedThreadPool(CLIENTS);
+        try {
+            long start = System.nanoTime();
+            for (int i = 0; i < CLIENTS; i ++) {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            for (int i = 0; i < CONNECTIONS_PER_CLIENT; i ++) {
+                                Socket socket = new Socket(address.getAddress(), address.getPort());
+                                // Reset the connection on close so the test does not run out of local ports
+                                // because of sockets in TIME_WAIT.
+                                socket.setSoLinger(true, 0);
+                                socket.close();
+                            }
+                        } catch (Throwable t) {
+                            error.compareAndSet(null, t);
+                        }
+                    }
+                });
+            }
+            executor.shutdown();
+            assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+            if (error.get() != null) {
+                throw error.get();
+            }
+            assertTrue(accepted.await(30, TimeUnit.SECONDS));
+            long elapsed = System.nanoTime() - start;
+            logger.info("{} acceptor(s): {} connections/s", acceptors,
+                    (long) CLIENTS * CONNECTIONS_PER_CLIENT * TimeUnit.SECONDS.toNanos(1) / elapsed);
+        } finally {
+            executor.shutdownNow();
+            sc.close().sync();
+        }
+    }
+
+    @Sharable
+    private static final class AcceptHandler extends ChannelHandlerAdapter {
+        private final CountDownLatch accepted;
+
+        AcceptHandler(CountDownLatch accepted) {
+            this.accepted = accepted;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            accepted.countDown();
+            ctx.close();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+public class EpollChildOptionsTest {
+
+    @Test(timeout = 10000)
+    public void testChildOptions() throws Exception {
+        final BlockingQueue<Channel> children = new LinkedBlockingQueue<Channel>();
+        Channel sc = new ServerBootstrap()
+                .group(EpollSocketTestPermutation.EPOLL_BOSS_GROUP, EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.SO_LINGER, 10)
+                .childOption(ChannelOption.IP_TOS, 0x10)
+                .childOption(EpollChannelOption.TCP_KEEPIDLE, 100)
+                .childOption(ChannelOption.ALLOW_HALF_CLOSURE, true)
+                .childHandler(new ChildHandler(children))
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort())).sync().channel();
+        Socket socket = new Socket();
+        try {
+            socket.connect(sc.localAddress());
+            EpollSocketChannel child = (EpollSocketChannel) children.take();
+            EpollSocketChannelConfig config = child.config();
+            assertEquals(10, config.getSoLinger());
+            assertEquals(0x10, config.getTrafficClass());
+            assertEquals(100, config.getTcpKeepIdle());
+            assertTrue(config.isAllowHalfClosure());
+            // Inherited from the EpollServerSocketChannel.
+            assertTrue(config.isTcpNoDelay());
+
+            assertEquals(socket.getLocalSocketAddress(), child.remoteAddress());
+            assertEquals(socket.getRemoteSocketAddress(), child.localAddress());
+            child.close().sync();
+        } finally {
+            socket.close();
+            sc.close().sync();
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void testFailingChildOption() throws Exception {
+        final BlockingQueue<Channel> children = new LinkedBlockingQueue<Channel>();
+        Channel sc = new ServerBootstrap()
+                .group(EpollSocketTestPermutation.EPOLL_BOSS_GROUP, EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.SO_LINGER, 10)
+                // TCP_KEEPIDLE must be at least 1, so the kernel rejects it.
+                .childOption(EpollChannelOption.TCP_KEEPIDLE, 0)
+                .childOption(ChannelOption.IP_TOS, 0x10)
+                .childHandler(new ChildHandler(children))
+                .bind(new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort())).sync().channel();
+        Socket socket = new Socket();
+        try {
+            socket.connect(sc.localAddress());
+            EpollSocketChannel child = (EpollSocketChannel) children.take();
+            EpollSocketChannelConfig config = child.config();
+            // The options before and after the one which failed are set.
+            assertEquals(10, config.getSoLinger());
+            assertEquals(0x10, config.getTrafficClass());
+
+            Map<ChannelOption<?>, Object> options = new LinkedHashMap<ChannelOption<?>, Object>();
+            options.put(ChannelOption.SO_LINGER, 20);
+            options.put(EpollChannelOption.TCP_KEEPIDLE, 0);
+            options.put(ChannelOption.IP_TOS, 0x08);
+            Map<ChannelOption<?>, Throwable> failedOptions = config.trySetOptions(options);
+            assertEquals(1, failedOptions.size());
+            assertNotNull(failedOptions.get(EpollChannelOption.TCP_KEEPIDLE));
+            assertEquals(20, config.getSoLinger());
+            assertEquals(0x08, config.getTrafficClass());
+            child.close().sync();
+        } finally {
+            socket.close();
+            sc.close().sync();
+        }
+    }
+
+    @Sharable
+    private static final class ChildHandler extends ChannelHandlerAdapter {
+        private final BlockingQueue<Channel> children;
+
+        ChildHandler(BlockingQueue<Channel> children) {
+            this.children = children;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            children.add(ctx.channel());
+        }
+    }
+}
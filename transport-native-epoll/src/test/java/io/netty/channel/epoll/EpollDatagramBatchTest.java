@@ -0,0 +1,161 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.socket.DatagramPacket;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends and receives datagrams with and without {@link EpollChannelOption#DATAGRAM_READ_BATCH_SIZE} and
+ * {@link EpollChannelOption#DATAGRAM_WRITE_BATCH_SIZE} and logs the throughput of each combination.
+ */
+public class EpollDatagramBatchTest {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollDatagramBatchTest.class);
+
+    // Send the datagrams in windows and wait until all were received, as otherwise datagrams may be dropped.
+    private static final int WINDOW = 256;
+    private static final int ROUNDS = 256;
+    private static final int PACKET_SIZE = 64;
+
+    @Test(timeout = 60000)
+    public void testPerPacket() throws Throwable {
+        testSendAndReceive(1, 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedRead() throws Throwable {
+        testSendAndReceive(64, 1);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedWrite() throws Throwable {
+        testSendAndReceive(1, 64);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedReadAndWrite() throws Throwable {
+        testSendAndReceive(64, 64);
+    }
+
+    @Test(timeout = 60000)
+    public void testBatchedWriteConnected() throws Throwable {
+        final InetSocketAddress addr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        final CountDownLatch latch = new CountDownLatch(WINDOW);
+        Channel sc = newBootstrap(1, 1).handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void messageReceived(ChannelHandlerContext ctx, DatagramPacket msg) throws Exception {
+                latch.countDown();
+            }
+        }).bind(addr).sync().channel();
+        Channel cc = newBootstrap(1, 64).handler(new SimpleChannelInboundHandler<Object>() {
+            @Override
+            protected void messageReceived(ChannelHandlerContext ctx, Object msg) throws Exception {
+                // Nothing will be sent.
+            }
+        }).connect(addr, new InetSocketAddress(NetUtil.LOCALHOST4, 0)).sync().channel();
+
+        // Write ByteBufs to a connected channel so the remote address of the channel is used for all datagrams.
+        for (int i = 0; i < WINDOW; i++) {
+            cc.write(cc.alloc().directBuffer(PACKET_SIZE).writeInt(i).writeZero(PACKET_SIZE - 4));
+        }
+        cc.flush();
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+
+        sc.close().sync();
+        cc.close().sync();
+    }
+
+    private static void testSendAndReceive(int readBatchSize, int writeBatchSize) throws Throwable {
+        final InetSocketAddress addr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        final AtomicReference<CountDownLatch> latch = new AtomicReference<CountDownLatch>();
+        final AtomicInteger expected = new AtomicInteger();
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        Channel sc = newBootstrap(readBatchSize, 1).handler(new SimpleChannelInboundHandler<DatagramPacket>() {
+            @Override
+            protected void messageReceived(ChannelHandlerContext ctx, DatagramPacket msg) throws Exception {
+                ByteBuf content = msg.content();
+                if (content.readableBytes() != PACKET_SIZE) {
+                    error.compareAndSet(null, new AssertionError("size: " + content.readableBytes()));
+                }
+                // Datagrams send over loopback arrive in order.
+                int seq = content.readInt();
+                if (seq != expected.getAndIncrement()) {
+                    error.compareAndSet(null, new AssertionError("seq: " + seq));
+                }
+                latch.get().countDown();
+            }
+        }).bind(addr).sync().channel();
+
+        Channel cc = newBootstrap(1, writeBatchSize).handler(new SimpleChannelInboundHandler<Object>() {
+            @Override
+            protected void messageReceived(ChannelHandlerContext ctx, Object msg) throws Exception {
+                // Nothing will be sent.
+            }
+        }).bind(0).sync().channel();
+
+        long start = System.nanoTime();
+        int seq = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            CountDownLatch roundLatch = new CountDownLatch(WINDOW);
+            latch.set(roundLatch);
+            for (int i = 0; i < WINDOW; i++) {
+                ByteBuf buf = cc.alloc().directBuffer(PACKET_SIZE).writeInt(seq++).writeZero(PACKET_SIZE - 4);
+                cc.write(new DatagramPacket(buf, addr));
+            }
+            cc.flush();
+            assertTrue("round " + round, roundLatch.await(10, TimeUnit.SECONDS));
+            if (error.get() != null) {
+                throw error.get();
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        logger.info("readBatchSize={}, writeBatchSize={}: {} datagrams/s", readBatchSize, writeBatchSize,
+                (long) ROUNDS * WINDOW * TimeUnit.SECONDS.toNanos(1) / elapsed);
+
+        sc.close().sync();
+        cc.close().sync();
+    }
+
+    private static Bootstrap newBootstrap(int readBatchSize, int writeBatchSize) {
+        return new Bootstrap().group(EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollDatagramChannel.class)
+                .option(ChannelOption.ALLOCATOR, PooledByteBufAllocator.DEFAULT)
+                .option(ChannelOption.SO_RCVBUF, 1024 * 1024)
+                .option(EpollChannelOption.DATAGRAM_READ_BATCH_SIZE, readBatchSize)
+                .option(EpollChannelOption.DATAGRAM_WRITE_BATCH_SIZE, writeBatchSize);
+    }
+}
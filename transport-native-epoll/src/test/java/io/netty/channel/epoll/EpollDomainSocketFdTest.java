@@ -0,0 +1,140 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.testsuite.transport.TestsuitePermutation;
+import io.netty.testsuite.transport.socket.AbstractSocketTest;
+import org.junit.Test;
+
+import java.net.SocketAddress;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+
+import static org.junit.Assert.*;
+
+public class EpollDomainSocketFdTest extends AbstractSocketTest {
+
+    @Override
+    protected SocketAddress newSocketAddress() {
+        return EpollSocketTestPermutation.newSocketAddress();
+    }
+
+    @Override
+    protected List<TestsuitePermutation.BootstrapComboFactory<ServerBootstrap, Bootstrap>> newFactories() {
+        return EpollSocketTestPermutation.INSTANCE.domainSocket();
+    }
+
+    @Test(timeout = 30000)
+    public void testSendRecvFd() throws Throwable {
+        run();
+    }
+
+    public void testSendRecvFd(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>(1);
+        sb.childHandler(new ChannelHandlerAdapter() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                // Create a new socket and pass its file descriptor to the client.
+                final FileDescriptor fd = new FileDescriptor(Native.socketDomainFd());
+                ctx.writeAndFlush(fd).addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (!future.isSuccess()) {
+                            queue.offer(future.cause());
+                        }
+                        // The client received a copy of the file descriptor, so this one can be closed.
+                        fd.close();
+                    }
+                });
+            }
+        });
+        cb.handler(new ChannelHandlerAdapter() {
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                queue.offer(msg);
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                queue.offer(cause);
+                ctx.close();
+            }
+        });
+        cb.option(EpollChannelOption.DOMAIN_SOCKET_READ_MODE, DomainSocketReadMode.FILE_DESCRIPTORS);
+
+        Channel sc = sb.bind().sync().channel();
+        Channel cc = cb.connect().sync().channel();
+
+        Object received = queue.take();
+        cc.close().sync();
+        sc.close().sync();
+
+        if (received instanceof FileDescriptor) {
+            FileDescriptor fd = (FileDescriptor) received;
+            assertTrue(fd.isOpen());
+            fd.close();
+            assertFalse(fd.isOpen());
+        } else {
+            throw (Throwable) received;
+        }
+    }
+
+    @Test(timeout = 30000)
+    public void testPeerCredentials() throws Throwable {
+        run();
+    }
+
+    public void testPeerCredentials(ServerBootstrap sb, Bootstrap cb) throws Throwable {
+        final BlockingQueue<Object> queue = new LinkedBlockingQueue<Object>(1);
+        sb.childHandler(new ChannelHandlerAdapter() {
+            @Override
+            public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                try {
+                    queue.offer(((EpollDomainSocketChannel) ctx.channel()).peerCredentials());
+                } catch (Throwable cause) {
+                    queue.offer(cause);
+                }
+            }
+        });
+        cb.handler(new ChannelHandlerAdapter());
+
+        Channel sc = sb.bind().sync().channel();
+        EpollDomainSocketChannel cc = (EpollDomainSocketChannel) cb.connect().sync().channel();
+
+        Object received = queue.take();
+        PeerCredentials clientCredentials = cc.peerCredentials();
+        cc.close().sync();
+        sc.close().sync();
+
+        if (received instanceof PeerCredentials) {
+            // Both sides of the connection are in the same process.
+            PeerCredentials serverCredentials = (PeerCredentials) received;
+            assertEquals(clientCredentials.pid(), serverCredentials.pid());
+            assertEquals(clientCredentials.uid(), serverCredentials.uid());
+            assertEquals(clientCredentials.gid(), serverCredentials.gid());
+        } else {
+            throw (Throwable) received;
+        }
+    }
+}
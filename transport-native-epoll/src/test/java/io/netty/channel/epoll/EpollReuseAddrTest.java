@@ -18,6 +18,7 @@ package io.netty.channel.epoll;
 import io.netty.bootstrap.AbstractBootstrap;
 import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.ChannelHandlerAdapter;
@@ -36,6 +37,9 @@ import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.InetSocketAddress;
 import java.net.Socket;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -114,6 +118,31 @@ public class EpollReuseAddrTest {
         future2.channel().close().syncUninterruptibly();
     }
 
+    @Test(timeout = 10000)
+    public void testMultipleAcceptors() throws Exception {
+        Assume.assumeTrue(versionEqOrGt(3, 9, 0));
+        ServerBootstrap bootstrap = createServerBootstrap();
+        bootstrap.option(EpollChannelOption.SO_REUSEPORT, true);
+        bootstrap.acceptors(2);
+        final Set<Channel> acceptors = Collections.newSetFromMap(new ConcurrentHashMap<Channel, Boolean>());
+        bootstrap.childHandler(new AcceptorsTestHandler(acceptors));
+        ChannelFuture future = bootstrap.bind().syncUninterruptibly();
+        InetSocketAddress address = (InetSocketAddress) future.channel().localAddress();
+
+        while (acceptors.size() < 2) {
+            Socket socket = new Socket(address.getAddress(), address.getPort());
+            socket.setReuseAddress(true);
+            socket.close();
+        }
+        Assert.assertTrue(acceptors.contains(future.channel()));
+
+        // Closing the acceptor returned by bind() also closes the other one.
+        future.channel().close().syncUninterruptibly();
+        for (Channel acceptor: acceptors) {
+            acceptor.closeFuture().syncUninterruptibly();
+        }
+    }
+
     @Test(timeout = 10000)
     public void testMultipleBindDatagramChannel() throws Exception {
         ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.ADVANCED);
@@ -216,6 +245,21 @@ public class EpollReuseAddrTest {
         }
     }
 
+    @ChannelHandler.Sharable
+    private static class AcceptorsTestHandler extends ChannelHandlerAdapter {
+        private final Set<Channel> acceptors;
+
+        AcceptorsTestHandler(Set<Channel> acceptors) {
+            this.acceptors = acceptors;
+        }
+
+        @Override
+        public void channelActive(ChannelHandlerContext ctx) throws Exception {
+            acceptors.add(ctx.channel().parent());
+            ctx.close();
+        }
+    }
+
     @ChannelHandler.Sharable
     private static class DatagramSocketTestHandler extends ChannelHandlerAdapter {
         private final AtomicBoolean received;
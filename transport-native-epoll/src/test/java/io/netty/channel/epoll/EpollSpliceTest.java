@@ -0,0 +1,237 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Proxies data through an {@link EpollSocketChannel} via {@link AbstractEpollStreamChannel#spliceTo} and via the
+ * usual read / write relay (like the {@code HexDumpProxy} example) and logs the throughput of both.
+ */
+public class EpollSpliceTest {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollSpliceTest.class);
+
+    private static final int CHUNK_SIZE = 64 * 1024;
+    private static final byte[] DATA = new byte[32 * 1024 * 1024];
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @Test(timeout = 60000)
+    public void testRelay() throws Throwable {
+        testProxy(false);
+    }
+
+    @Test(timeout = 60000)
+    public void testSplice() throws Throwable {
+        testProxy(true);
+    }
+
+    @Test(timeout = 30000)
+    public void testSpliceToFile() throws Throwable {
+        final int len = 4 * 1024 * 1024;
+        final File file = File.createTempFile("netty-splice", null);
+        file.deleteOnExit();
+        final FileDescriptor fd = FileDescriptor.from(file);
+        final AtomicReference<ChannelFuture> spliceFuture = new AtomicReference<ChannelFuture>();
+        final CountDownLatch latch = new CountDownLatch(1);
+
+        InetSocketAddress addr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        Channel sc = new ServerBootstrap()
+                .group(EpollSocketTestPermutation.EPOLL_BOSS_GROUP, EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        spliceFuture.set(((EpollSocketChannel) ctx.channel()).spliceTo(fd, 0, len));
+                        latch.countDown();
+                    }
+                }).bind(addr).sync().channel();
+        Channel cc = newClient().connect(addr).sync().channel();
+        cc.writeAndFlush(Unpooled.wrappedBuffer(DATA, 0, len)).sync();
+
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        spliceFuture.get().sync();
+        fd.close();
+
+        byte[] written = new byte[len];
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            raf.readFully(written);
+            assertEquals(len, raf.length());
+        } finally {
+            raf.close();
+        }
+        for (int i = 0; i < len; i++) {
+            assertEquals("index " + i, DATA[i], written[i]);
+        }
+
+        cc.close().sync();
+        sc.close().sync();
+    }
+
+    private static void testProxy(final boolean splice) throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final AtomicReference<ChannelFuture> spliceFuture = new AtomicReference<ChannelFuture>();
+
+        // The server verifies and counts what it receives via the proxy.
+        InetSocketAddress serverAddr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        Channel sc = newServer().childHandler(new SimpleChannelInboundHandler<ByteBuf>() {
+            private int received;
+
+            @Override
+            protected void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                int len = msg.readableBytes();
+                if (!ByteBufUtil.equals(msg, Unpooled.wrappedBuffer(DATA, received, len))) {
+                    error.compareAndSet(null, new AssertionError("received: " + received));
+                    latch.countDown();
+                    ctx.close();
+                    return;
+                }
+                received += len;
+                if (received == DATA.length) {
+                    latch.countDown();
+                }
+            }
+
+            @Override
+            public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                error.compareAndSet(null, cause);
+                latch.countDown();
+            }
+        }).bind(serverAddr).sync().channel();
+
+        final InetSocketAddress proxyAddr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        final InetSocketAddress backendAddr = serverAddr;
+        Channel pc = newServer().childOption(ChannelOption.AUTO_READ, false)
+                .childHandler(new ChannelHandlerAdapter() {
+                    private Channel outbound;
+
+                    @Override
+                    public void channelActive(ChannelHandlerContext ctx) throws Exception {
+                        final Channel inbound = ctx.channel();
+                        // Use the same EventLoop for both channels, as required by spliceTo(...).
+                        new Bootstrap().group(inbound.eventLoop()).channel(EpollSocketChannel.class)
+                                .option(ChannelOption.AUTO_READ, false)
+                                .handler(new ChannelHandlerAdapter())
+                                .connect(backendAddr).addListener(new ChannelFutureListener() {
+                                    @Override
+                                    public void operationComplete(ChannelFuture future) throws Exception {
+                                        if (!future.isSuccess()) {
+                                            error.compareAndSet(null, future.cause());
+                                            latch.countDown();
+                                            return;
+                                        }
+                                        outbound = future.channel();
+                                        if (splice) {
+                                            spliceFuture.set(((EpollSocketChannel) inbound).spliceTo(
+                                                    (EpollSocketChannel) outbound, DATA.length));
+                                        } else {
+                                            inbound.read();
+                                        }
+                                    }
+                                });
+                    }
+
+                    @Override
+                    public void channelRead(final ChannelHandlerContext ctx, Object msg) throws Exception {
+                        // Only used by the relay.
+                        outbound.writeAndFlush(msg).addListener(new ChannelFutureListener() {
+                            @Override
+                            public void operationComplete(ChannelFuture future) throws Exception {
+                                if (future.isSuccess()) {
+                                    ctx.read();
+                                } else {
+                                    future.channel().close();
+                                }
+                            }
+                        });
+                    }
+
+                    @Override
+                    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+                        if (outbound != null) {
+                            outbound.close();
+                        }
+                    }
+                }).bind(proxyAddr).sync().channel();
+
+        Channel cc = newClient().connect(proxyAddr).sync().channel();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < DATA.length; i += CHUNK_SIZE) {
+            cc.write(Unpooled.wrappedBuffer(DATA, i, CHUNK_SIZE));
+        }
+        cc.flush();
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        if (error.get() != null) {
+            throw error.get();
+        }
+        if (splice) {
+            assertTrue(spliceFuture.get().await(10, TimeUnit.SECONDS));
+            assertTrue(spliceFuture.get().isSuccess());
+        }
+        logger.info("{}: {} MiB/s", splice ? "splice" : "relay",
+                (long) DATA.length * TimeUnit.SECONDS.toNanos(1) / elapsed / (1024 * 1024));
+
+        cc.close().sync();
+        pc.close().sync();
+        sc.close().sync();
+    }
+
+    private static ServerBootstrap newServer() {
+        return new ServerBootstrap()
+                .group(EpollSocketTestPermutation.EPOLL_BOSS_GROUP, EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class);
+    }
+
+    private static Bootstrap newClient() {
+        return new Bootstrap().group(EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollSocketChannel.class)
+                .handler(new ChannelHandlerAdapter());
+    }
+}
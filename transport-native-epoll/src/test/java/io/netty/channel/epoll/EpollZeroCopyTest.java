@@ -0,0 +1,172 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.epoll;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Sends large direct buffers with and without {@link EpollChannelOption#ZEROCOPY_SEND_THRESHOLD} and logs the
+ * throughput and the CPU time used by each.
+ * Note that the kernel copies data sent via {@code MSG_ZEROCOPY} over loopback, so the channel switches back to
+ * plain writes after the first completion.
+ */
+public class EpollZeroCopyTest {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(EpollZeroCopyTest.class);
+
+    private static final int MESSAGE_SIZE = 1024 * 1024;
+    private static final int MESSAGES = 64;
+    private static final byte[] DATA = new byte[MESSAGE_SIZE * MESSAGES];
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @Test(timeout = 60000)
+    public void testCopy() throws Throwable {
+        testSend(0);
+    }
+
+    @Test(timeout = 60000)
+    public void testZeroCopy() throws Throwable {
+        testSend(64 * 1024);
+    }
+
+    @Test
+    public void testZeroCopyThresholdOption() throws Exception {
+        EpollSocketChannel ch = new EpollSocketChannel();
+        try {
+            assertEquals(0, (int) ch.config().getOption(EpollChannelOption.ZEROCOPY_SEND_THRESHOLD));
+            assertTrue(ch.config().setOption(EpollChannelOption.ZEROCOPY_SEND_THRESHOLD, 16 * 1024));
+            assertEquals(16 * 1024, ch.config().getZeroCopyThreshold());
+            assertEquals(1, Native.isZeroCopy(ch.fd));
+        } finally {
+            // Not registered, so just close the socket.
+            Native.close(ch.fd);
+        }
+    }
+
+    private static void testSend(int zeroCopyThreshold) throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+
+        InetSocketAddress addr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        Channel sc = new ServerBootstrap()
+                .group(EpollSocketTestPermutation.EPOLL_BOSS_GROUP, EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollServerSocketChannel.class)
+                .childHandler(new SimpleChannelInboundHandler<ByteBuf>() {
+                    private int received;
+
+                    @Override
+                    protected void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                        int len = msg.readableBytes();
+                        if (!ByteBufUtil.equals(msg, Unpooled.wrappedBuffer(DATA, received, len))) {
+                            error.compareAndSet(null, new AssertionError("received: " + received));
+                            latch.countDown();
+                            ctx.close();
+                            return;
+                        }
+                        received += len;
+                        if (received == DATA.length) {
+                            latch.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                        error.compareAndSet(null, cause);
+                        latch.countDown();
+                    }
+                }).bind(addr).sync().channel();
+
+        Channel cc = new Bootstrap().group(EpollSocketTestPermutation.EPOLL_WORKER_GROUP)
+                .channel(EpollSocketChannel.class)
+                .option(EpollChannelOption.ZEROCOPY_SEND_THRESHOLD, zeroCopyThreshold)
+                .handler(new ChannelHandlerAdapter())
+                .connect(addr).sync().channel();
+
+        List<ByteBuf> buffers = new ArrayList<ByteBuf>(MESSAGES);
+        for (int i = 0; i < MESSAGES; i++) {
+            buffers.add(Unpooled.directBuffer(MESSAGE_SIZE).writeBytes(DATA, i * MESSAGE_SIZE, MESSAGE_SIZE));
+        }
+
+        long cpuStart = cpuTime();
+        long start = System.nanoTime();
+        for (ByteBuf buf: buffers) {
+            // Retain the buffers to check that all of them are released in the end.
+            cc.write(buf.retain());
+        }
+        cc.flush();
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        long cpu = cpuTime() - cpuStart;
+        if (error.get() != null) {
+            throw error.get();
+        }
+        logger.info("zeroCopyThreshold={}: {} MiB/s, {} ms CPU", zeroCopyThreshold,
+                (long) DATA.length * TimeUnit.SECONDS.toNanos(1) / elapsed / (1024 * 1024),
+                TimeUnit.NANOSECONDS.toMillis(cpu));
+
+        // The buffers sent via MSG_ZEROCOPY are released once the completion was received from the error queue.
+        for (ByteBuf buf: buffers) {
+            for (int i = 0; buf.refCnt() > 1 && i < 100; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, buf.refCnt());
+            buf.release();
+        }
+
+        cc.close().sync();
+        sc.close().sync();
+    }
+
+    private static long cpuTime() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long time = 0;
+        for (long id: threads.getAllThreadIds()) {
+            long threadTime = threads.getThreadCpuTime(id);
+            if (threadTime > 0) {
+                time += threadTime;
+            }
+        }
+        return time;
+    }
+}
@@ -0,0 +1,719 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#include <jni.h>
+#include <stdlib.h>
+#include <stdint.h>
+#include <string.h>
+#include <errno.h>
+#include <sys/eventfd.h>
+#include <sys/mman.h>
+#include <sys/syscall.h>
+#include <netinet/tcp.h>
+#include <netinet/in.h>
+#include <sys/types.h>
+#include <sys/socket.h>
+#include <unistd.h>
+#include <arpa/inet.h>
+#include <fcntl.h>
+#include "io_netty_channel_uring_Native.h"
+
+// The libc does not provide wrappers for the io_uring syscalls, and linux/io_uring.h may not be present, so we
+// use our own definitions of the needed syscall numbers, constants and structs.
+#ifndef __NR_io_uring_setup
+#define __NR_io_uring_setup 425
+#endif
+#ifndef __NR_io_uring_enter
+#define __NR_io_uring_enter 426
+#endif
+
+#define NETTY_IORING_OFF_SQ_RING 0ULL
+#define NETTY_IORING_OFF_CQ_RING 0x8000000ULL
+#define NETTY_IORING_OFF_SQES 0x10000000ULL
+#define NETTY_IORING_FEAT_SINGLE_MMAP (1U << 0)
+#define NETTY_IORING_FEAT_EXT_ARG (1U << 8)
+#define NETTY_IORING_ENTER_GETEVENTS (1U << 0)
+#define NETTY_IORING_ENTER_EXT_ARG (1U << 3)
+
+struct netty_io_uring_sqe {
+    uint8_t opcode;
+    uint8_t flags;
+    uint16_t ioprio;
+    int32_t fd;
+    uint64_t off;
+    uint64_t addr;
+    uint32_t len;
+    uint32_t op_flags;
+    uint64_t user_data;
+    uint64_t pad[3];
+};
+
+struct netty_io_uring_cqe {
+    uint64_t user_data;
+    int32_t res;
+    uint32_t flags;
+};
+
+struct netty_io_sqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t flags;
+    uint32_t dropped;
+    uint32_t array;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_cqring_offsets {
+    uint32_t head;
+    uint32_t tail;
+    uint32_t ring_mask;
+    uint32_t ring_entries;
+    uint32_t overflow;
+    uint32_t cqes;
+    uint32_t flags;
+    uint32_t resv1;
+    uint64_t resv2;
+};
+
+struct netty_io_uring_params {
+    uint32_t sq_entries;
+    uint32_t cq_entries;
+    uint32_t flags;
+    uint32_t sq_thread_cpu;
+    uint32_t sq_thread_idle;
+    uint32_t features;
+    uint32_t wq_fd;
+    uint32_t resv[3];
+    struct netty_io_sqring_offsets sq_off;
+    struct netty_io_cqring_offsets cq_off;
+};
+
+struct netty_io_uring_getevents_arg {
+    uint64_t sigmask;
+    uint32_t sigmask_sz;
+    uint32_t pad;
+    uint64_t ts;
+};
+
+struct netty_kernel_timespec {
+    int64_t tv_sec;
+    long long tv_nsec;
+};
+
+// The state of a ring which is created by ioUringSetup(...), its address is used as handle on the java side.
+struct netty_io_uring {
+    int fd;
+    void *sq_ptr;
+    size_t sq_size;
+    void *cq_ptr;
+    size_t cq_size;
+    struct netty_io_uring_sqe *sqes;
+    size_t sqes_size;
+
+    unsigned *sq_head;
+    unsigned *sq_tail;
+    unsigned sq_mask;
+    unsigned sq_entries;
+    unsigned *sq_array;
+    // Number of submission queue entries which were added but not submitted yet.
+    unsigned to_submit;
+
+    unsigned *cq_head;
+    unsigned *cq_tail;
+    unsigned cq_mask;
+    struct netty_io_uring_cqe *cqes;
+};
+
+// Those are initialized in the init(...) method and cached for performance reasons
+jmethodID inetSocketAddrMethodId = NULL;
+jclass runtimeExceptionClass = NULL;
+jclass ioExceptionClass = NULL;
+jclass inetSocketAddressClass = NULL;
+
+static int socketType;
+
+// util methods
+void throwRuntimeException(JNIEnv *env, char *message) {
+    (*env)->ThrowNew(env, runtimeExceptionClass, message);
+}
+
+void throwIOException(JNIEnv *env, char *message) {
+    (*env)->ThrowNew(env, ioExceptionClass, message);
+}
+
+void throwOutOfMemoryError( JNIEnv *env, char *message) {
+    jclass exceptionClass = (*env)->FindClass(env, "java/lang/OutOfMemoryError");
+    (*env)->ThrowNew(env, exceptionClass, message);
+}
+
+char *exceptionMessage(char *msg, int error) {
+    char *err = strerror(error);
+    char *result = malloc(strlen(msg) + strlen(err) + 1);
+    strcpy(result, msg);
+    strcat(result, err);
+    return result;
+}
+
+jint getOption(JNIEnv *env, jint fd, int level, int optname, const void *optval, socklen_t optlen) {
+    int code;
+    code = getsockopt(fd, level, optname, optval, &optlen);
+    if (code == 0) {
+        return 0;
+    }
+    int err = errno;
+    throwRuntimeException(env, exceptionMessage("Error during getsockopt(...): ", err));
+    return code;
+}
+
+int setOption(JNIEnv *env, jint fd, int level, int optname, const void *optval, socklen_t len) {
+    int rc = setsockopt(fd, level, optname, optval, len);
+    if (rc < 0) {
+        int err = errno;
+        throwRuntimeException(env, exceptionMessage("Error during setsockopt(...): ", err));
+    }
+    return rc;
+}
+
+jobject createInetSocketAddress(JNIEnv * env, struct sockaddr_storage addr) {
+    char ipstr[INET6_ADDRSTRLEN];
+    int port;
+    if (addr.ss_family == AF_INET) {
+        struct sockaddr_in *s = (struct sockaddr_in *)&addr;
+        port = ntohs(s->sin_port);
+        inet_ntop(AF_INET, &s->sin_addr, ipstr, sizeof ipstr);
+    } else {
+        struct sockaddr_in6 *s = (struct sockaddr_in6 *)&addr;
+        port = ntohs(s->sin6_port);
+        inet_ntop(AF_INET6, &s->sin6_addr, ipstr, sizeof ipstr);
+    }
+    jstring ipString = (*env)->NewStringUTF(env, ipstr);
+    jobject socketAddr = (*env)->NewObject(env, inetSocketAddressClass, inetSocketAddrMethodId, ipString, port);
+    return socketAddr;
+}
+
+// Fills the given sockaddr_storage and returns the length of the address.
+socklen_t init_sockaddr(JNIEnv * env, jbyteArray address, jint scopeId, jint jport, struct sockaddr_storage * addr) {
+    uint16_t port = htons((uint16_t) jport);
+    socklen_t len;
+    jbyte* addressBytes = (*env)->GetByteArrayElements(env, address, 0);
+    memset(addr, 0, sizeof(struct sockaddr_storage));
+    if (socketType == AF_INET6) {
+        struct sockaddr_in6* ip6addr = (struct sockaddr_in6 *) addr;
+        ip6addr->sin6_family = AF_INET6;
+        ip6addr->sin6_port = port;
+
+        if (scopeId != 0) {
+           ip6addr->sin6_scope_id = (uint32_t) scopeId;
+        }
+        memcpy( &(ip6addr->sin6_addr.s6_addr), addressBytes, 16);
+        len = sizeof(struct sockaddr_in6);
+    } else {
+        struct sockaddr_in* ipaddr = (struct sockaddr_in *) addr;
+        ipaddr->sin_family = AF_INET;
+        ipaddr->sin_port = port;
+        memcpy( &(ipaddr->sin_addr.s_addr), addressBytes + 12, 4);
+        len = sizeof(struct sockaddr_in);
+    }
+
+    (*env)->ReleaseByteArrayElements(env, address, addressBytes, JNI_ABORT);
+    return len;
+}
+
+static int socket_type() {
+    int fd = socket(AF_INET6, SOCK_STREAM | SOCK_NONBLOCK, 0);
+    if (fd == -1) {
+        if (errno == EAFNOSUPPORT) {
+            return AF_INET;
+        }
+        return AF_INET6;
+    } else {
+        close(fd);
+        return AF_INET6;
+    }
+}
+
+static void ioUringUnmap(struct netty_io_uring *ring) {
+    if (ring->sqes != NULL && ring->sqes != MAP_FAILED) {
+        munmap(ring->sqes, ring->sqes_size);
+    }
+    if (ring->cq_ptr != NULL && ring->cq_ptr != MAP_FAILED && ring->cq_ptr != ring->sq_ptr) {
+        munmap(ring->cq_ptr, ring->cq_size);
+    }
+    if (ring->sq_ptr != NULL && ring->sq_ptr != MAP_FAILED) {
+        munmap(ring->sq_ptr, ring->sq_size);
+    }
+}
+// util methods end
+
+jint JNI_OnLoad(JavaVM* vm, void* reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        return JNI_ERR;
+    } else {
+        // cache classes that are used within other jni methods for performance reasons
+        jclass localRuntimeExceptionClass = (*env)->FindClass(env, "java/lang/RuntimeException");
+        if (localRuntimeExceptionClass == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        runtimeExceptionClass = (jclass) (*env)->NewGlobalRef(env, localRuntimeExceptionClass);
+        if (runtimeExceptionClass == NULL) {
+            // out-of-memory!
+            throwOutOfMemoryError(env, "Error allocating memory");
+            return JNI_ERR;
+        }
+
+        jclass localIoExceptionClass = (*env)->FindClass(env, "java/io/IOException");
+        if (localIoExceptionClass == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        ioExceptionClass = (jclass) (*env)->NewGlobalRef(env, localIoExceptionClass);
+        if (ioExceptionClass == NULL) {
+            // out-of-memory!
+            throwOutOfMemoryError(env, "Error allocating memory");
+            return JNI_ERR;
+        }
+
+        jclass localInetSocketAddressClass = (*env)->FindClass(env, "java/net/InetSocketAddress");
+        if (localInetSocketAddressClass == NULL) {
+            // pending exception...
+            return JNI_ERR;
+        }
+        inetSocketAddressClass = (jclass) (*env)->NewGlobalRef(env, localInetSocketAddressClass);
+        if (inetSocketAddressClass == NULL) {
+            // out-of-memory!
+            throwOutOfMemoryError(env, "Error allocating memory");
+            return JNI_ERR;
+        }
+
+        inetSocketAddrMethodId = (*env)->GetMethodID(env, inetSocketAddressClass, "<init>", "(Ljava/lang/String;I)V");
+        if (inetSocketAddrMethodId == NULL) {
+            throwRuntimeException(env, "Unable to obtain constructor of InetSocketAddress");
+            return JNI_ERR;
+        }
+
+        socketType = socket_type();
+        return JNI_VERSION_1_6;
+    }
+}
+
+void JNI_OnUnload(JavaVM *vm, void *reserved) {
+    JNIEnv* env;
+    if ((*vm)->GetEnv(vm, (void **) &env, JNI_VERSION_1_6) != JNI_OK) {
+        // Something is wrong but nothing we can do about this :(
+        return;
+    } else {
+        // delete global references so the GC can collect them
+        if (runtimeExceptionClass != NULL) {
+            (*env)->DeleteGlobalRef(env, runtimeExceptionClass);
+        }
+        if (ioExceptionClass != NULL) {
+            (*env)->DeleteGlobalRef(env, ioExceptionClass);
+        }
+        if (inetSocketAddressClass != NULL) {
+            (*env)->DeleteGlobalRef(env, inetSocketAddressClass);
+        }
+    }
+}
+
+JNIEXPORT jlong JNICALL Java_io_netty_channel_uring_Native_ioUringSetup(JNIEnv * env, jclass clazz, jint entries) {
+    struct netty_io_uring_params params;
+    memset(&params, 0, sizeof(params));
+
+    int fd = (int) syscall(__NR_io_uring_setup, (unsigned) entries, &params);
+    if (fd < 0) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during io_uring_setup(...): ", err));
+        return -1;
+    }
+    if ((params.features & NETTY_IORING_FEAT_EXT_ARG) == 0) {
+        // We need to be able to wait with a timeout without submitting a timeout operation.
+        close(fd);
+        throwIOException(env, "io_uring does not support IORING_FEAT_EXT_ARG, Linux 5.11+ is required");
+        return -1;
+    }
+
+    struct netty_io_uring *ring = calloc(1, sizeof(struct netty_io_uring));
+    if (ring == NULL) {
+        close(fd);
+        throwOutOfMemoryError(env, "Error allocating memory");
+        return -1;
+    }
+    ring->fd = fd;
+    ring->sq_size = params.sq_off.array + params.sq_entries * sizeof(unsigned);
+    ring->cq_size = params.cq_off.cqes + params.cq_entries * sizeof(struct netty_io_uring_cqe);
+    if (params.features & NETTY_IORING_FEAT_SINGLE_MMAP) {
+        if (ring->cq_size > ring->sq_size) {
+            ring->sq_size = ring->cq_size;
+        }
+        ring->cq_size = ring->sq_size;
+    }
+    ring->sq_ptr = mmap(0, ring->sq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd,
+                        NETTY_IORING_OFF_SQ_RING);
+    if (ring->sq_ptr == MAP_FAILED) {
+        goto error;
+    }
+    if (params.features & NETTY_IORING_FEAT_SINGLE_MMAP) {
+        ring->cq_ptr = ring->sq_ptr;
+    } else {
+        ring->cq_ptr = mmap(0, ring->cq_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd,
+                            NETTY_IORING_OFF_CQ_RING);
+        if (ring->cq_ptr == MAP_FAILED) {
+            goto error;
+        }
+    }
+    ring->sqes_size = params.sq_entries * sizeof(struct netty_io_uring_sqe);
+    ring->sqes = mmap(0, ring->sqes_size, PROT_READ | PROT_WRITE, MAP_SHARED | MAP_POPULATE, fd,
+                      NETTY_IORING_OFF_SQES);
+    if (ring->sqes == MAP_FAILED) {
+        goto error;
+    }
+
+    ring->sq_head = (unsigned *) ((char *) ring->sq_ptr + params.sq_off.head);
+    ring->sq_tail = (unsigned *) ((char *) ring->sq_ptr + params.sq_off.tail);
+    ring->sq_mask = *(unsigned *) ((char *) ring->sq_ptr + params.sq_off.ring_mask);
+    ring->sq_entries = *(unsigned *) ((char *) ring->sq_ptr + params.sq_off.ring_entries);
+    ring->sq_array = (unsigned *) ((char *) ring->sq_ptr + params.sq_off.array);
+    ring->cq_head = (unsigned *) ((char *) ring->cq_ptr + params.cq_off.head);
+    ring->cq_tail = (unsigned *) ((char *) ring->cq_ptr + params.cq_off.tail);
+    ring->cq_mask = *(unsigned *) ((char *) ring->cq_ptr + params.cq_off.ring_mask);
+    ring->cqes = (struct netty_io_uring_cqe *) ((char *) ring->cq_ptr + params.cq_off.cqes);
+    return (jlong) ring;
+
+error: {
+        int err = errno;
+        ioUringUnmap(ring);
+        free(ring);
+        close(fd);
+        throwIOException(env, exceptionMessage("Error during mmap(...) of the io_uring: ", err));
+        return -1;
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_ioUringExit(JNIEnv * env, jclass clazz, jlong ringAddress) {
+    struct netty_io_uring *ring = (struct netty_io_uring *) ringAddress;
+    ioUringUnmap(ring);
+    // Closing the fd cancels all operations which are still in flight.
+    close(ring->fd);
+    free(ring);
+}
+
+JNIEXPORT jboolean JNICALL Java_io_netty_channel_uring_Native_ioUringAdd(JNIEnv * env, jclass clazz, jlong ringAddress, jint op, jint fd, jlong address, jint len, jlong offset, jint opFlags, jlong userData) {
+    struct netty_io_uring *ring = (struct netty_io_uring *) ringAddress;
+    unsigned tail = *ring->sq_tail;
+    unsigned head = __atomic_load_n(ring->sq_head, __ATOMIC_ACQUIRE);
+    if (tail - head >= ring->sq_entries) {
+        // The submission queue is full.
+        return JNI_FALSE;
+    }
+    unsigned idx = tail & ring->sq_mask;
+    struct netty_io_uring_sqe *sqe = &ring->sqes[idx];
+    memset(sqe, 0, sizeof(struct netty_io_uring_sqe));
+    sqe->opcode = (uint8_t) op;
+    sqe->fd = fd;
+    sqe->off = (uint64_t) offset;
+    sqe->addr = (uint64_t) address;
+    sqe->len = (uint32_t) len;
+    sqe->op_flags = (uint32_t) opFlags;
+    sqe->user_data = (uint64_t) userData;
+    ring->sq_array[idx] = idx;
+    // Publish the entry, the kernel only reads it during the next io_uring_enter(...) as we do not use SQPOLL.
+    __atomic_store_n(ring->sq_tail, tail + 1, __ATOMIC_RELEASE);
+    ring->to_submit++;
+    return JNI_TRUE;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioUringEnter(JNIEnv * env, jclass clazz, jlong ringAddress, jint minComplete, jlong timeoutNanos) {
+    struct netty_io_uring *ring = (struct netty_io_uring *) ringAddress;
+    unsigned flags = 0;
+    struct netty_kernel_timespec ts;
+    struct netty_io_uring_getevents_arg arg;
+    void *argp = NULL;
+    size_t argsz = 0;
+
+    if (minComplete > 0) {
+        flags |= NETTY_IORING_ENTER_GETEVENTS;
+        if (timeoutNanos >= 0) {
+            ts.tv_sec = timeoutNanos / 1000000000L;
+            ts.tv_nsec = timeoutNanos % 1000000000L;
+            memset(&arg, 0, sizeof(arg));
+            arg.ts = (uint64_t) (uintptr_t) &ts;
+            argp = &arg;
+            argsz = sizeof(arg);
+            flags |= NETTY_IORING_ENTER_EXT_ARG;
+        }
+    } else if (ring->to_submit == 0) {
+        // Nothing to submit and nothing to wait for.
+        return 0;
+    }
+
+    int res = (int) syscall(__NR_io_uring_enter, ring->fd, ring->to_submit, (unsigned) minComplete, flags, argp,
+                            argsz);
+    if (res < 0) {
+        int err = errno;
+        if (err == EINTR || err == ETIME || err == EAGAIN || err == EBUSY) {
+            // Interrupted, timed out or the completion queue is full, the caller reaps the completions and
+            // calls us again.
+            return 0;
+        }
+        throwIOException(env, exceptionMessage("Error during io_uring_enter(...): ", err));
+        return -1;
+    }
+    ring->to_submit -= (unsigned) res;
+    return res;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_ioUringReap(JNIEnv * env, jclass clazz, jlong ringAddress, jlongArray completions) {
+    struct netty_io_uring *ring = (struct netty_io_uring *) ringAddress;
+    int len = (*env)->GetArrayLength(env, completions) / 2;
+    unsigned head = *ring->cq_head;
+    unsigned tail = __atomic_load_n(ring->cq_tail, __ATOMIC_ACQUIRE);
+    int ready = (int) (tail - head);
+    if (ready == 0) {
+        return 0;
+    }
+    if (ready > len) {
+        ready = len;
+    }
+
+    jlong elements[ready * 2];
+    int i;
+    for (i = 0; i < ready; i++) {
+        struct netty_io_uring_cqe *cqe = &ring->cqes[(head + i) & ring->cq_mask];
+        elements[i * 2] = (jlong) cqe->user_data;
+        elements[i * 2 + 1] = (jlong) cqe->res;
+    }
+    // Give the slots back to the kernel.
+    __atomic_store_n(ring->cq_head, head + ready, __ATOMIC_RELEASE);
+    (*env)->SetLongArrayRegion(env, completions, 0, ready * 2, elements);
+    return ready;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_eventFd(JNIEnv * env, jclass clazz) {
+    jint eventFD =  eventfd(0, EFD_CLOEXEC | EFD_NONBLOCK);
+
+    if (eventFD < 0) {
+        int err = errno;
+        throwRuntimeException(env, exceptionMessage("Error creating eventFD(...): ", err));
+    }
+    return eventFD;
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_eventFdWrite(JNIEnv * env, jclass clazz, jint fd, jlong value) {
+    jint eventFD = eventfd_write(fd, (eventfd_t)value);
+
+    if (eventFD < 0) {
+        int err = errno;
+        throwRuntimeException(env, exceptionMessage("Error calling eventfd_write(...): ", err));
+    }
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_errnoECANCELED(JNIEnv * env, jclass clazz) {
+    return ECANCELED;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sockNonblockCloexec(JNIEnv * env, jclass clazz) {
+    return SOCK_NONBLOCK | SOCK_CLOEXEC;
+}
+
+JNIEXPORT jstring JNICALL Java_io_netty_channel_uring_Native_strError(JNIEnv * env, jclass clazz, jint err) {
+    return (*env)->NewStringUTF(env, strerror(err));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_close(JNIEnv * env, jclass clazz, jint fd) {
+   if (close(fd) < 0) {
+      throwIOException(env, "Error closing file descriptor");
+   }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_shutdown(JNIEnv * env, jclass clazz, jint fd, jboolean read, jboolean write) {
+    int mode;
+    if (read && write) {
+        mode = SHUT_RDWR;
+    } else if (read) {
+        mode = SHUT_RD;
+    } else {
+        mode = SHUT_WR;
+    }
+    if (shutdown(fd, mode) < 0) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during shutdown(...): ", err));
+    }
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_socketStream(JNIEnv * env, jclass clazz) {
+    // The socket is non-blocking as the io_uring then polls it instead of blocking one of its worker threads.
+    int fd = socket(socketType, SOCK_STREAM | SOCK_NONBLOCK | SOCK_CLOEXEC, 0);
+    if (fd == -1) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error creating socket: ", err));
+        return -1;
+    } else if (socketType == AF_INET6){
+        // Allow to listen /connect ipv4 and ipv6
+        int optval = 0;
+        if (setOption(env, fd, IPPROTO_IPV6, IPV6_V6ONLY, &optval, sizeof(optval)) < 0) {
+            // Something went wrong so close the fd and return here. setOption(...) itself throws the exception already.
+            close(fd);
+            return -1;
+        }
+    }
+    return fd;
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_bind(JNIEnv * env, jclass clazz, jint fd, jbyteArray address, jint scopeId, jint port) {
+    struct sockaddr_storage addr;
+    socklen_t len = init_sockaddr(env, address, scopeId, port, &addr);
+
+    if(bind(fd, (struct sockaddr *) &addr, len) == -1){
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during bind(...): ", err));
+    }
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_listen(JNIEnv * env, jclass clazz, jint fd, jint backlog) {
+    if(listen(fd, backlog) == -1) {
+        int err = errno;
+        throwIOException(env, exceptionMessage("Error during listen(...): ", err));
+    }
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_sockaddr(JNIEnv * env, jclass clazz, jlong memory, jbyteArray address, jint scopeId, jint port) {
+    struct sockaddr_storage addr;
+    socklen_t len = init_sockaddr(env, address, scopeId, port, &addr);
+    memcpy((void *) memory, &addr, len);
+    return (jint) len;
+}
+
+JNIEXPORT jobject JNICALL Java_io_netty_channel_uring_Native_remoteAddress(JNIEnv * env, jclass clazz, jint fd) {
+    socklen_t len;
+    struct sockaddr_storage addr;
+
+    len = sizeof addr;
+    if (getpeername(fd, (struct sockaddr*)&addr, &len) == -1) {
+        return NULL;
+    }
+    return createInetSocketAddress(env, addr);
+}
+
+JNIEXPORT jobject JNICALL Java_io_netty_channel_uring_Native_localAddress(JNIEnv * env, jclass clazz, jint fd) {
+    socklen_t len;
+    struct sockaddr_storage addr;
+
+    len = sizeof addr;
+    if (getsockname(fd, (struct sockaddr*)&addr, &len) == -1) {
+        return NULL;
+    }
+    return createInetSocketAddress(env, addr);
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setReuseAddress(JNIEnv * env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setTcpNoDelay(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, IPPROTO_TCP, TCP_NODELAY, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setReceiveBufferSize(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_RCVBUF, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setSendBufferSize(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_SNDBUF, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setKeepAlive(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, SOL_SOCKET, SO_KEEPALIVE, &optval, sizeof(optval));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    struct linger solinger;
+    if (optval < 0) {
+        solinger.l_onoff = 0;
+        solinger.l_linger = 0;
+    } else {
+        solinger.l_onoff = 1;
+        solinger.l_linger = optval;
+    }
+    setOption(env, fd, SOL_SOCKET, SO_LINGER, &solinger, sizeof(solinger));
+}
+
+JNIEXPORT void JNICALL Java_io_netty_channel_uring_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval) {
+    setOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval));
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_isReuseAddress(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_REUSEADDR, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_isTcpNoDelay(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, IPPROTO_TCP, TCP_NODELAY, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_getReceiveBufferSize(JNIEnv * env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_RCVBUF, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_getSendBufferSize(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_SNDBUF, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_isKeepAlive(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_KEEPALIVE, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_getSoLinger(JNIEnv *env, jclass clazz, jint fd) {
+    struct linger optval;
+    if (getOption(env, fd, SOL_SOCKET, SO_LINGER, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    if (optval.l_onoff == 0) {
+        return -1;
+    } else {
+        return optval.l_linger;
+    }
+}
+
+JNIEXPORT jint JNICALL Java_io_netty_channel_uring_Native_getTrafficClass(JNIEnv *env, jclass clazz, jint fd) {
+    int optval;
+    if (getOption(env, fd, IPPROTO_IP, IP_TOS, &optval, sizeof(optval)) == -1) {
+        return -1;
+    }
+    return optval;
+}
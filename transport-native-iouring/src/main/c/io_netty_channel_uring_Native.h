@@ -0,0 +1,51 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+#include <jni.h>
+
+jlong Java_io_netty_channel_uring_Native_ioUringSetup(JNIEnv * env, jclass clazz, jint entries);
+void Java_io_netty_channel_uring_Native_ioUringExit(JNIEnv * env, jclass clazz, jlong ring);
+jboolean Java_io_netty_channel_uring_Native_ioUringAdd(JNIEnv * env, jclass clazz, jlong ring, jint op, jint fd, jlong address, jint len, jlong offset, jint opFlags, jlong userData);
+jint Java_io_netty_channel_uring_Native_ioUringEnter(JNIEnv * env, jclass clazz, jlong ring, jint minComplete, jlong timeoutNanos);
+jint Java_io_netty_channel_uring_Native_ioUringReap(JNIEnv * env, jclass clazz, jlong ring, jlongArray completions);
+jint Java_io_netty_channel_uring_Native_eventFd(JNIEnv * env, jclass clazz);
+void Java_io_netty_channel_uring_Native_eventFdWrite(JNIEnv * env, jclass clazz, jint fd, jlong value);
+jint Java_io_netty_channel_uring_Native_errnoECANCELED(JNIEnv * env, jclass clazz);
+jint Java_io_netty_channel_uring_Native_sockNonblockCloexec(JNIEnv * env, jclass clazz);
+jstring Java_io_netty_channel_uring_Native_strError(JNIEnv * env, jclass clazz, jint err);
+void Java_io_netty_channel_uring_Native_close(JNIEnv * env, jclass clazz, jint fd);
+void Java_io_netty_channel_uring_Native_shutdown(JNIEnv * env, jclass clazz, jint fd, jboolean read, jboolean write);
+jint Java_io_netty_channel_uring_Native_socketStream(JNIEnv * env, jclass clazz);
+void Java_io_netty_channel_uring_Native_bind(JNIEnv * env, jclass clazz, jint fd, jbyteArray address, jint scopeId, jint port);
+void Java_io_netty_channel_uring_Native_listen(JNIEnv * env, jclass clazz, jint fd, jint backlog);
+jint Java_io_netty_channel_uring_Native_sockaddr(JNIEnv * env, jclass clazz, jlong memory, jbyteArray address, jint scopeId, jint port);
+jobject Java_io_netty_channel_uring_Native_remoteAddress(JNIEnv * env, jclass clazz, jint fd);
+jobject Java_io_netty_channel_uring_Native_localAddress(JNIEnv * env, jclass clazz, jint fd);
+
+// socket options
+void Java_io_netty_channel_uring_Native_setReuseAddress(JNIEnv * env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setTcpNoDelay(JNIEnv *env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setReceiveBufferSize(JNIEnv *env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setSendBufferSize(JNIEnv *env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setKeepAlive(JNIEnv *env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setSoLinger(JNIEnv *env, jclass clazz, jint fd, jint optval);
+void Java_io_netty_channel_uring_Native_setTrafficClass(JNIEnv *env, jclass clazz, jint fd, jint optval);
+jint Java_io_netty_channel_uring_Native_isReuseAddress(JNIEnv *env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_isTcpNoDelay(JNIEnv *env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_getReceiveBufferSize(JNIEnv * env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_getSendBufferSize(JNIEnv *env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_isKeepAlive(JNIEnv *env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_getSoLinger(JNIEnv *env, jclass clazz, jint fd);
+jint Java_io_netty_channel_uring_Native_getTrafficClass(JNIEnv *env, jclass clazz, jint fd);
@@ -0,0 +1,295 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.AbstractChannel;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelMetadata;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.EventLoop;
+import io.netty.util.ReferenceCountUtil;
+import io.netty.util.internal.OneTimeTask;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.channels.UnresolvedAddressException;
+
+/**
+ * Base class for the channels of the io_uring transport. Instead of waiting for readiness, the operations
+ * themselves are submitted to the io_uring of the {@link IOUringEventLoop}, which notifies the
+ * {@link AbstractIOUringUnsafe} once they completed.
+ */
+abstract class AbstractIOUringChannel extends AbstractChannel {
+    private static final ChannelMetadata DATA = new ChannelMetadata(false);
+
+    // Flags of the operations which were submitted and did not complete yet, at most one per type.
+    static final int IO_READ = 1;
+    static final int IO_WRITE = 2;
+    static final int IO_CONNECT = 4;
+
+    protected volatile boolean active;
+    volatile int fd;
+    int id;
+    int ioState;
+    // Set once the channel was deregistered from the IOUringEventLoop while operations were still in flight.
+    boolean removed;
+
+    AbstractIOUringChannel(int fd) {
+        this(null, fd, false);
+    }
+
+    AbstractIOUringChannel(Channel parent, int fd, boolean active) {
+        super(parent);
+        this.fd = fd;
+        this.active = active;
+    }
+
+    @Override
+    public boolean isActive() {
+        return active;
+    }
+
+    @Override
+    public ChannelMetadata metadata() {
+        return DATA;
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        active = false;
+
+        int fd = this.fd;
+        if (ioState != 0 && isRegistered()) {
+            cancelIo(true);
+        }
+        this.fd = -1;
+
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        Object msg = unsafe.readMessage;
+        if (msg != null) {
+            unsafe.readMessage = null;
+            if (msg instanceof Channel) {
+                ((Channel) msg).unsafe().closeForcibly();
+            } else {
+                ReferenceCountUtil.release(msg);
+            }
+        }
+
+        // The operations in flight keep a reference to the socket, so it is only released by the kernel once
+        // they completed.
+        Native.close(fd);
+    }
+
+    /**
+     * Cancel the operations in flight, which then complete soon.
+     */
+    final void cancelIo(boolean shutdown) {
+        if (shutdown) {
+            try {
+                // Shutting down the socket lets pending reads, writes and accepts fail directly and guarantees
+                // that the kernel does not touch the memory of the buffers anymore, which are released on close.
+                Native.shutdown(fd, true, true);
+            } catch (IOException ignore) {
+                // Not connected, nothing to do.
+            }
+        }
+        IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+        if ((ioState & IO_CONNECT) != 0) {
+            loop.cancel(this, Native.IORING_OP_CONNECT);
+        }
+        if ((ioState & IO_READ) != 0) {
+            loop.cancel(this, readOp());
+        }
+        if ((ioState & IO_WRITE) != 0) {
+            loop.cancel(this, Native.IORING_OP_WRITEV);
+        }
+    }
+
+    @Override
+    protected void doDisconnect() throws Exception {
+        doClose();
+    }
+
+    @Override
+    protected boolean isCompatible(EventLoop loop) {
+        return loop instanceof IOUringEventLoop;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return fd != -1;
+    }
+
+    @Override
+    protected void doRegister() throws Exception {
+        ((IOUringEventLoop) eventLoop()).add(this);
+    }
+
+    @Override
+    protected void doDeregister() throws Exception {
+        // Pending reads of a channel which is deregistered but not closed are cancelled, so data which is read by
+        // them is dropped.
+        ((IOUringEventLoop) eventLoop()).remove(this);
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+        if (unsafe.readMessage != null) {
+            // Deliver it later, as we may be called from within the pipeline.
+            eventLoop().execute(unsafe.readMessageTask);
+        } else if ((ioState & IO_READ) == 0) {
+            unsafe.submitRead();
+        }
+    }
+
+    /**
+     * Called once auto read was disabled, so the completion of the read in flight is only delivered by the next
+     * {@link #read()}.
+     */
+    final void clearReadPending() {
+        if (isRegistered()) {
+            final EventLoop loop = eventLoop();
+            final AbstractIOUringUnsafe unsafe = (AbstractIOUringUnsafe) unsafe();
+            if (loop.inEventLoop()) {
+                unsafe.readPending = false;
+            } else {
+                loop.execute(new OneTimeTask() {
+                    @Override
+                    public void run() {
+                        if (!config().isAutoRead()) {
+                            unsafe.readPending = false;
+                        }
+                    }
+                });
+            }
+        }
+    }
+
+    /**
+     * The operation which is submitted by {@link AbstractIOUringUnsafe#submitRead()}.
+     */
+    abstract int readOp();
+
+    @Override
+    protected abstract AbstractIOUringUnsafe newUnsafe();
+
+    protected static void checkResolvable(InetSocketAddress addr) {
+        if (addr.isUnresolved()) {
+            throw new UnresolvedAddressException();
+        }
+    }
+
+    /**
+     * Create the {@link IOException} for the given negative result of an operation.
+     */
+    static IOException newIOException(String operation, int res) {
+        return new IOException(operation + "(...) failed: " + Native.strError(-res));
+    }
+
+    protected abstract class AbstractIOUringUnsafe extends AbstractUnsafe {
+        protected boolean readPending;
+        // A message which completed while no read was pending, it is delivered by the next read.
+        private Object readMessage;
+        private final Runnable readMessageTask = new Runnable() {
+            @Override
+            public void run() {
+                Object msg = readMessage;
+                if (msg != null && readPending) {
+                    readMessage = null;
+                    fireChannelRead(msg);
+                }
+            }
+        };
+
+        @Override
+        public void beginRead() {
+            // Channel.read() or ChannelHandlerContext.read() was called
+            readPending = true;
+            super.beginRead();
+        }
+
+        /**
+         * Submit a read, which must set {@link #IO_READ} until it completed.
+         */
+        abstract void submitRead();
+
+        /**
+         * Called once the read which was submitted by {@link #submitRead()} completed.
+         */
+        abstract void readComplete(int res);
+
+        /**
+         * Called once a {@code IORING_OP_WRITEV} completed.
+         */
+        void writeComplete(int res) {
+            // NOOP
+        }
+
+        /**
+         * Called once a {@code IORING_OP_CONNECT} completed.
+         */
+        void connectComplete(int res) {
+            // NOOP
+        }
+
+        /**
+         * Fire the given message which was read. As the read was already in flight it may complete after auto read
+         * was disabled, in which case the message is kept until the next read.
+         */
+        final void fireChannelRead(Object msg) {
+            if (!readPending) {
+                readMessage = msg;
+                return;
+            }
+            readPending = false;
+            ChannelPipeline pipeline = pipeline();
+            pipeline.fireChannelRead(msg);
+            // Submits the next read if auto read is used.
+            pipeline.fireChannelReadComplete();
+        }
+
+        final void completed(int op, int res) {
+            if (op == Native.IORING_OP_WRITEV) {
+                ioState &= ~IO_WRITE;
+                writeComplete(res);
+            } else if (op == Native.IORING_OP_CONNECT) {
+                ioState &= ~IO_CONNECT;
+                connectComplete(res);
+            } else {
+                ioState &= ~IO_READ;
+                readComplete(res);
+            }
+        }
+
+        /**
+         * Returns {@code true} if the completion of an operation must be ignored, as the channel was closed or
+         * deregistered in the meantime.
+         */
+        final boolean isDiscarded() {
+            return !isOpen() || removed;
+        }
+
+        @Override
+        protected void flush0() {
+            // Only one write is in flight at a time, its completion calls flush0() again.
+            if ((ioState & IO_WRITE) != 0) {
+                return;
+            }
+            super.flush0();
+        }
+    }
+}
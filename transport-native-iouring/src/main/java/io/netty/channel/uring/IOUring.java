@@ -0,0 +1,49 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Tells if {@code netty-transport-native-iouring} is supported, which requires Linux 5.11 or later.
+ */
+public final class IOUring {
+
+    private static final boolean IS_AVAILABLE;
+
+    static  {
+        boolean available = false;
+        // The buffers are passed to the kernel via their memory address.
+        if (PlatformDependent.hasUnsafe()) {
+            try {
+                Native.ioUringExit(Native.ioUringSetup(8));
+                available = true;
+            } catch (Throwable cause) {
+                // ignore
+            }
+        }
+        IS_AVAILABLE = available;
+    }
+
+    /**
+     * Returns {@code true} if and only if {@code netty-transport-native-iouring} can be used.
+     */
+    public static boolean isAvailable() {
+        return IS_AVAILABLE;
+    }
+
+    private IOUring() { }
+}
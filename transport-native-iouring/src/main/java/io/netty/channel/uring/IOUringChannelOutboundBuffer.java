@@ -0,0 +1,110 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.util.Recycler;
+import io.netty.util.internal.PlatformDependent;
+
+/**
+ * Special {@link ChannelOutboundBuffer} implementation which writes the memory addresses of the flushed
+ * {@link ByteBuf}s directly as {@code iovec}s for {@code IORING_OP_WRITEV}.
+ */
+final class IOUringChannelOutboundBuffer extends ChannelOutboundBuffer {
+    private static final Recycler<IOUringChannelOutboundBuffer> RECYCLER =
+            new Recycler<IOUringChannelOutboundBuffer>() {
+        @Override
+        protected IOUringChannelOutboundBuffer newObject(Handle<IOUringChannelOutboundBuffer> handle) {
+            return new IOUringChannelOutboundBuffer(handle);
+        }
+    };
+
+    /**
+     * Get a new instance of this {@link IOUringChannelOutboundBuffer} and attach it the given
+     * {@link AbstractIOUringChannel}
+     */
+    static IOUringChannelOutboundBuffer newInstance(AbstractIOUringChannel channel) {
+        IOUringChannelOutboundBuffer buffer = RECYCLER.get();
+        buffer.channel = channel;
+        return buffer;
+    }
+
+    private IOUringChannelOutboundBuffer(Recycler.Handle<? extends ChannelOutboundBuffer> handle) {
+        super(handle);
+    }
+
+    /**
+     * Check if the message is a {@link ByteBuf} and if so if it has a memoryAddress. If not it will convert this
+     * {@link ByteBuf} to be able to operate on the memoryAddress directly, as the kernel reads from it.
+     */
+    @Override
+    protected Object beforeAdd(Object msg) {
+        if (msg instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) msg;
+            if (!buf.hasMemoryAddress()) {
+                return copyToDirectByteBuf(buf);
+            }
+        }
+        return msg;
+    }
+
+    /**
+     * Returns the number of flushed {@link ByteBuf}s from the start of this buffer, at most {@code maxCount}, which
+     * are written by {@link #iovecs(long, int)}.
+     */
+    int iovCount(int maxCount) {
+        int count = 0;
+        Entry entry = flushedEntry();
+        Object m;
+        while (isFlushedEntry(entry) && count < maxCount && (m = entry.msg()) instanceof ByteBuf) {
+            if (((ByteBuf) m).isReadable()) {
+                count ++;
+            }
+            entry = entry.next();
+        }
+        return count;
+    }
+
+    /**
+     * Write the {@code iovec}s of the readable flushed {@link ByteBuf}s from the start of this buffer to the given
+     * memory, which must have room for {@code count} of them, and return how many were written. It stops at the
+     * first message which is not a {@link ByteBuf}.
+     */
+    int iovecs(long memory, int count) {
+        long iovSize = 0;
+        int iovCount = 0;
+        Entry entry = flushedEntry();
+        Object m;
+        while (isFlushedEntry(entry) && iovCount < count && (m = entry.msg()) instanceof ByteBuf) {
+            ByteBuf buf = (ByteBuf) m;
+            int readableBytes = buf.readableBytes();
+            if (readableBytes > 0) {
+                if (iovSize + readableBytes > Integer.MAX_VALUE) {
+                    // The result of the write is an int.
+                    break;
+                }
+                long iov = memory + (long) iovCount * Native.IOV_SIZE;
+                PlatformDependent.putLong(iov, buf.memoryAddress() + buf.readerIndex());
+                PlatformDependent.putLong(iov + 8, readableBytes);
+                iovSize += readableBytes;
+                iovCount ++;
+            }
+            entry = entry.next();
+        }
+        return iovCount;
+    }
+}
@@ -0,0 +1,365 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.EventLoop;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.SingleThreadEventLoop;
+import io.netty.channel.uring.AbstractIOUringChannel.AbstractIOUringUnsafe;
+import io.netty.util.collection.IntObjectHashMap;
+import io.netty.util.collection.IntObjectMap;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+
+/**
+ * {@link EventLoop} which uses io_uring under the covers. Only works on Linux!
+ * <p>
+ * The operations of the channels are added to the submission queue of the io_uring and submitted all at once by a
+ * single {@code io_uring_enter(...)} per iteration, which also waits for the completions.
+ */
+final class IOUringEventLoop extends SingleThreadEventLoop {
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEventLoop.class);
+    private static final AtomicIntegerFieldUpdater<IOUringEventLoop> WAKEN_UP_UPDATER;
+
+    // The iovecs and socket addresses of the operations are only needed until they were submitted, as the kernel
+    // copies them then, so the memory is reused after each io_uring_enter(...).
+    private static final int SUBMISSION_MEMORY_SIZE = 64 * 1024;
+    // The first bytes of the memory are used to read the eventfd and so are never reused.
+    private static final int EVENTFD_BUFFER_SIZE = 8;
+
+    static {
+        AtomicIntegerFieldUpdater<IOUringEventLoop> updater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(IOUringEventLoop.class, "wakenUp");
+        if (updater == null) {
+            updater = AtomicIntegerFieldUpdater.newUpdater(IOUringEventLoop.class, "wakenUp");
+        }
+        WAKEN_UP_UPDATER = updater;
+    }
+
+    private final long ring;
+    private final int eventFd;
+    private final ByteBuffer memory;
+    private final long memoryAddress;
+    private final IntObjectMap<AbstractIOUringChannel> ids = new IntObjectHashMap<AbstractIOUringChannel>();
+    private final long[] completions;
+
+    private int memoryOffset = EVENTFD_BUFFER_SIZE;
+    private int id;
+    private boolean overflown;
+
+    @SuppressWarnings("unused")
+    private volatile int wakenUp;
+    private volatile int ioRatio = 50;
+
+    IOUringEventLoop(EventLoopGroup parent, Executor executor, int ringSize) throws IOException {
+        super(parent, executor, false);
+        // The completion queue is twice as big as the submission queue.
+        completions = new long[ringSize * 4];
+        boolean success = false;
+        long ring = 0;
+        int eventFd = -1;
+        try {
+            this.ring = ring = Native.ioUringSetup(ringSize);
+            this.eventFd = eventFd = Native.eventFd();
+            success = true;
+        } finally {
+            if (!success) {
+                if (ring != 0) {
+                    Native.ioUringExit(ring);
+                }
+                if (eventFd != -1) {
+                    try {
+                        Native.close(eventFd);
+                    } catch (Exception e) {
+                        // ignore
+                    }
+                }
+            }
+        }
+        memory = ByteBuffer.allocateDirect(SUBMISSION_MEMORY_SIZE);
+        memoryAddress = PlatformDependent.directBufferAddress(memory);
+        submitEventFdRead();
+    }
+
+    private int nextId() {
+        int id = this.id;
+        if (id == Integer.MAX_VALUE) {
+            overflown = true;
+            id = 0;
+        }
+        if (overflown) {
+            // the ids had an overflow before so we need to make sure the id is not in use atm before assign
+            // it.
+            for (;;) {
+                if (!ids.containsKey(++id)) {
+                    this.id = id;
+                    break;
+                }
+            }
+        } else {
+            this.id = ++id;
+        }
+        return id;
+    }
+
+    @Override
+    protected void wakeup(boolean inEventLoop) {
+        if (!inEventLoop && WAKEN_UP_UPDATER.compareAndSet(this, 0, 1)) {
+            // write to the evfd which completes the pending read of it and so wakes up io_uring_enter(...)
+            Native.eventFdWrite(eventFd, 1L);
+        }
+    }
+
+    /**
+     * Register the given channel with this {@link EventLoop}.
+     */
+    void add(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        int id = nextId();
+        ch.id = id;
+        ch.removed = false;
+        ids.put(id, ch);
+    }
+
+    /**
+     * Deregister the given channel from this {@link EventLoop}. If it has operations in flight it is only removed
+     * once they completed, as the memory they use must stay reachable until then.
+     */
+    void remove(AbstractIOUringChannel ch) {
+        assert inEventLoop();
+        ch.removed = true;
+        if (ch.ioState == 0) {
+            ids.remove(ch.id);
+        } else if (ch.isOpen()) {
+            // Deregistered but not closed, so cancel the operations in flight.
+            ch.cancelIo(false);
+        }
+    }
+
+    /**
+     * Add an operation for the given channel to the submission queue. It is submitted with the next
+     * {@code io_uring_enter(...)}, which is done by the event loop after the current tasks and completions were
+     * processed.
+     */
+    void submit(AbstractIOUringChannel ch, int op, long address, int len, long offset, int opFlags) {
+        submit(op, ch.fd, address, len, offset, opFlags, userData(ch.id, op));
+    }
+
+    /**
+     * Cancel the given operation of the given channel, which completes with {@code -ECANCELED} then.
+     */
+    void cancel(AbstractIOUringChannel ch, int op) {
+        submit(Native.IORING_OP_ASYNC_CANCEL, -1, userData(ch.id, op), 0, 0, 0,
+               userData(ch.id, Native.IORING_OP_ASYNC_CANCEL));
+    }
+
+    private void submitEventFdRead() {
+        submit(Native.IORING_OP_READ, eventFd, memoryAddress, EVENTFD_BUFFER_SIZE, 0, 0, 0);
+    }
+
+    private void submit(int op, int fd, long address, int len, long offset, int opFlags, long userData) {
+        if (!Native.ioUringAdd(ring, op, fd, address, len, offset, opFlags, userData)) {
+            // The submission queue is full, so submit what we have so far. The memory must not be reused yet as
+            // the caller may have written to it for this operation.
+            submitNow();
+            Native.ioUringAdd(ring, op, fd, address, len, offset, opFlags, userData);
+        }
+    }
+
+    /**
+     * Allocate memory for the iovecs or socket address of an operation which is submitted afterwards. It must not
+     * be used after the operation was submitted.
+     */
+    long allocate(int size) {
+        assert size <= SUBMISSION_MEMORY_SIZE - EVENTFD_BUFFER_SIZE;
+        if (memoryOffset + size > SUBMISSION_MEMORY_SIZE) {
+            // Everything which uses the memory so far must be submitted before it can be reused.
+            submitNow();
+            memoryOffset = EVENTFD_BUFFER_SIZE;
+        }
+        long address = memoryAddress + memoryOffset;
+        memoryOffset += size;
+        return address;
+    }
+
+    private void submitNow() {
+        try {
+            Native.ioUringEnter(ring, 0, -1);
+        } catch (IOException e) {
+            logger.warn("Failed to submit to the io_uring.", e);
+        }
+    }
+
+    private static long userData(int id, int op) {
+        return (long) id << 32 | op;
+    }
+
+    @Override
+    protected Queue<Runnable> newTaskQueue() {
+        // This event loop never calls takeTask()
+        return PlatformDependent.newMpscQueue();
+    }
+
+    /**
+     * Returns the percentage of the desired amount of time spent for I/O in the event loop.
+     */
+    public int getIoRatio() {
+        return ioRatio;
+    }
+
+    /**
+     * Sets the percentage of the desired amount of time spent for I/O in the event loop.  The default value is
+     * {@code 50}, which means the event loop will try to spend the same amount of time for I/O as for non-I/O tasks.
+     */
+    public void setIoRatio(int ioRatio) {
+        if (ioRatio <= 0 || ioRatio > 100) {
+            throw new IllegalArgumentException("ioRatio: " + ioRatio + " (expected: 0 < ioRatio <= 100)");
+        }
+        this.ioRatio = ioRatio;
+    }
+
+    private void enter(boolean wait) throws IOException {
+        if (wait) {
+            long timeoutNanos = delayNanos(System.nanoTime());
+            if (timeoutNanos > 0) {
+                Native.ioUringEnter(ring, 1, timeoutNanos);
+            } else {
+                Native.ioUringEnter(ring, 0, -1);
+            }
+        } else {
+            // Non blocking just submit and process what is completed already
+            Native.ioUringEnter(ring, 0, -1);
+        }
+        // Everything was submitted, so the memory can be reused.
+        memoryOffset = EVENTFD_BUFFER_SIZE;
+    }
+
+    @Override
+    protected void run() {
+        for (;;) {
+            // Unlike epoll there is no race here, as a wakeup between resetting 'wakenUp' and io_uring_enter(...)
+            // completes the pending read of the eventfd, so io_uring_enter(...) returns directly.
+            WAKEN_UP_UPDATER.set(this, 0);
+            try {
+                enter(!hasTasks());
+
+                final int ioRatio = this.ioRatio;
+                if (ioRatio == 100) {
+                    processCompletions();
+                    runAllTasks();
+                } else {
+                    final long ioStartTime = System.nanoTime();
+
+                    processCompletions();
+
+                    final long ioTime = System.nanoTime() - ioStartTime;
+                    runAllTasks(ioTime * (100 - ioRatio) / ioRatio);
+                }
+
+                if (isShuttingDown()) {
+                    closeAll();
+                    if (confirmShutdown()) {
+                        break;
+                    }
+                }
+            } catch (Throwable t) {
+                logger.warn("Unexpected exception in the io_uring loop.", t);
+
+                // Prevent possible consecutive immediate failures that lead to
+                // excessive CPU consumption.
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    // Ignore.
+                }
+            }
+        }
+    }
+
+    private void closeAll() {
+        Collection<AbstractIOUringChannel> channels = new ArrayList<AbstractIOUringChannel>(ids.size());
+
+        for (IntObjectMap.Entry<AbstractIOUringChannel> entry: ids.entries()) {
+            channels.add(entry.value());
+        }
+
+        for (AbstractIOUringChannel ch: channels) {
+            if (ch.isOpen()) {
+                ch.unsafe().close(ch.unsafe().voidPromise());
+            }
+        }
+    }
+
+    private void processCompletions() {
+        final long[] completions = this.completions;
+        for (;;) {
+            int ready = Native.ioUringReap(ring, completions);
+            for (int i = 0; i < ready; i ++) {
+                long userData = completions[i << 1];
+                int res = (int) completions[(i << 1) + 1];
+                int id = (int) (userData >>> 32);
+                int op = (int) userData;
+                if (id == 0) {
+                    // consume wakeup event and wait for the next one
+                    submitEventFdRead();
+                } else if (op != Native.IORING_OP_ASYNC_CANCEL) {
+                    AbstractIOUringChannel ch = ids.get(id);
+                    if (ch != null) {
+                        ((AbstractIOUringUnsafe) ch.unsafe()).completed(op, res);
+                        if (ch.removed && ch.ioState == 0) {
+                            ids.remove(id);
+                        }
+                    }
+                }
+            }
+            if (ready < completions.length >> 1) {
+                break;
+            }
+        }
+    }
+
+    @Override
+    protected void cleanup() {
+        try {
+            // The channels were closed, but their reads may still be in flight and own buffers, so wait a bit
+            // until they completed.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+            while (!ids.isEmpty() && System.nanoTime() - deadline < 0) {
+                Native.ioUringEnter(ring, 1, TimeUnit.MILLISECONDS.toNanos(10));
+                processCompletions();
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to process the last completions.", e);
+        }
+        Native.ioUringExit(ring);
+        try {
+            Native.close(eventFd);
+        } catch (IOException e) {
+            logger.warn("Failed to close the event fd.", e);
+        }
+        PlatformDependent.freeDirectBuffer(memory);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.socket.ServerSocketChannel;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+/**
+ * {@link ServerSocketChannel} implementation that accepts its connections via the io_uring of the
+ * {@link IOUringEventLoop}.
+ */
+public final class IOUringServerSocketChannel extends AbstractIOUringChannel implements ServerSocketChannel {
+
+    private final IOUringServerSocketChannelConfig config;
+    private volatile InetSocketAddress local;
+
+    public IOUringServerSocketChannel() {
+        super(Native.socketStreamFd());
+        config = new IOUringServerSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected void doBind(SocketAddress localAddress) throws Exception {
+        InetSocketAddress addr = (InetSocketAddress) localAddress;
+        checkResolvable(addr);
+        Native.bind(fd, addr.getAddress(), addr.getPort());
+        local = Native.localAddress(fd);
+        Native.listen(fd, config.getBacklog());
+        active = true;
+    }
+
+    @Override
+    public IOUringServerSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    protected InetSocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return null;
+    }
+
+    @Override
+    int readOp() {
+        return Native.IORING_OP_ACCEPT;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringServerSocketUnsafe();
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) {
+        throw new UnsupportedOperationException();
+    }
+
+    final class IOUringServerSocketUnsafe extends AbstractIOUringUnsafe {
+
+        @Override
+        public void connect(SocketAddress socketAddress, SocketAddress socketAddress2, ChannelPromise channelPromise) {
+            // Connect not supported by ServerChannel implementations
+            channelPromise.setFailure(new UnsupportedOperationException());
+        }
+
+        @Override
+        void submitRead() {
+            // The accepted socket is created non-blocking directly, no need to pass a sockaddr as the addresses are
+            // cached by the IOUringSocketChannel anyway.
+            ((IOUringEventLoop) eventLoop()).submit(
+                    IOUringServerSocketChannel.this, Native.IORING_OP_ACCEPT, 0, 0, 0, Native.SOCK_NONBLOCK_CLOEXEC);
+            ioState |= IO_READ;
+        }
+
+        @Override
+        void readComplete(int res) {
+            if (isDiscarded()) {
+                if (res >= 0) {
+                    closeQuietly(res);
+                }
+                return;
+            }
+
+            final ChannelPipeline pipeline = pipeline();
+            if (res >= 0) {
+                IOUringSocketChannel child;
+                try {
+                    child = new IOUringSocketChannel(IOUringServerSocketChannel.this, res);
+                } catch (Throwable t) {
+                    closeQuietly(res);
+                    pipeline.fireChannelReadComplete();
+                    pipeline.fireExceptionCaught(t);
+                    return;
+                }
+                fireChannelRead(child);
+            } else if (res != -Native.ECANCELED) {
+                pipeline.fireChannelReadComplete();
+                pipeline.fireExceptionCaught(newIOException("accept", res));
+            }
+        }
+
+        private void closeQuietly(int fd) {
+            try {
+                Native.close(fd);
+            } catch (IOException ignore) {
+                // ignore
+            }
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelFutureListener;
+import io.netty.channel.ChannelOption;
+import io.netty.channel.ChannelOutboundBuffer;
+import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.ConnectTimeoutException;
+import io.netty.channel.EventLoop;
+import io.netty.channel.RecvByteBufAllocator;
+import io.netty.channel.socket.ChannelInputShutdownEvent;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.util.internal.EmptyArrays;
+import io.netty.util.internal.StringUtil;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SocketChannel} implementation that submits its reads, writes and connects to the io_uring of the
+ * {@link IOUringEventLoop}.
+ */
+public final class IOUringSocketChannel extends AbstractIOUringChannel implements SocketChannel {
+
+    private static final ClosedChannelException CLOSED_CHANNEL_EXCEPTION = new ClosedChannelException();
+
+    static {
+        CLOSED_CHANNEL_EXCEPTION.setStackTrace(EmptyArrays.EMPTY_STACK_TRACE);
+    }
+
+    private final IOUringSocketChannelConfig config;
+
+    private volatile InetSocketAddress local;
+    private volatile InetSocketAddress remote;
+    private volatile boolean inputShutdown;
+    private volatile boolean outputShutdown;
+
+    /**
+     * The future of the current connection attempt.  If not null, subsequent
+     * connection attempts will fail.
+     */
+    private ChannelPromise connectPromise;
+    private ScheduledFuture<?> connectTimeoutFuture;
+    private SocketAddress requestedRemoteAddress;
+
+    IOUringSocketChannel(Channel parent, int fd) {
+        super(parent, fd, true);
+        config = new IOUringSocketChannelConfig(this);
+        // Directly cache the remote and local addresses
+        // See https://github.com/netty/netty/issues/2359
+        remote = Native.remoteAddress(fd);
+        local = Native.localAddress(fd);
+    }
+
+    public IOUringSocketChannel() {
+        super(Native.socketStreamFd());
+        config = new IOUringSocketChannelConfig(this);
+    }
+
+    @Override
+    public InetSocketAddress remoteAddress() {
+        return (InetSocketAddress) super.remoteAddress();
+    }
+
+    @Override
+    public InetSocketAddress localAddress() {
+        return (InetSocketAddress) super.localAddress();
+    }
+
+    @Override
+    protected SocketAddress localAddress0() {
+        return local;
+    }
+
+    @Override
+    protected SocketAddress remoteAddress0() {
+        return remote;
+    }
+
+    @Override
+    protected void doBind(SocketAddress local) throws Exception {
+        InetSocketAddress localAddress = (InetSocketAddress) local;
+        checkResolvable(localAddress);
+        Native.bind(fd, localAddress.getAddress(), localAddress.getPort());
+        this.local = Native.localAddress(fd);
+    }
+
+    @Override
+    public IOUringSocketChannelConfig config() {
+        return config;
+    }
+
+    @Override
+    public ServerSocketChannel parent() {
+        return (ServerSocketChannel) super.parent();
+    }
+
+    @Override
+    protected ChannelOutboundBuffer newOutboundBuffer() {
+        return IOUringChannelOutboundBuffer.newInstance(this);
+    }
+
+    @Override
+    int readOp() {
+        return Native.IORING_OP_RECV;
+    }
+
+    @Override
+    protected AbstractIOUringUnsafe newUnsafe() {
+        return new IOUringSocketUnsafe();
+    }
+
+    @Override
+    protected void doBeginRead() throws Exception {
+        if (inputShutdown) {
+            return;
+        }
+        super.doBeginRead();
+    }
+
+    @Override
+    protected void doClose() throws Exception {
+        super.doClose();
+
+        ChannelPromise promise = connectPromise;
+        if (promise != null) {
+            // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+            promise.tryFailure(CLOSED_CHANNEL_EXCEPTION);
+            connectPromise = null;
+        }
+
+        ScheduledFuture<?> future = connectTimeoutFuture;
+        if (future != null) {
+            future.cancel(false);
+            connectTimeoutFuture = null;
+        }
+    }
+
+    @Override
+    protected void doWrite(ChannelOutboundBuffer in) throws Exception {
+        if ((ioState & IO_WRITE) != 0) {
+            // The completion of the write in flight calls flush0() again.
+            return;
+        }
+        IOUringChannelOutboundBuffer buffer = (IOUringChannelOutboundBuffer) in;
+        for (;;) {
+            Object msg = buffer.current();
+            if (msg == null) {
+                // Wrote all messages.
+                return;
+            }
+            if (!(msg instanceof ByteBuf)) {
+                throw new UnsupportedOperationException(
+                        "unsupported message type: " + StringUtil.simpleClassName(msg));
+            }
+            if (((ByteBuf) msg).isReadable()) {
+                break;
+            }
+            buffer.remove();
+        }
+
+        // All flushed ByteBufs are written with one IORING_OP_WRITEV, the iovecs are stored in the memory of the
+        // IOUringEventLoop as the kernel only reads them once the submission is consumed.
+        IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+        int count = buffer.iovCount(Native.IOV_MAX);
+        long iovecs = loop.allocate(count * Native.IOV_SIZE);
+        count = buffer.iovecs(iovecs, count);
+        loop.submit(this, Native.IORING_OP_WRITEV, iovecs, count, 0, 0);
+        ioState |= IO_WRITE;
+    }
+
+    public boolean isInputShutdown() {
+        return inputShutdown;
+    }
+
+    public boolean isOutputShutdown() {
+        return outputShutdown || !isActive();
+    }
+
+    public ChannelFuture shutdownOutput() {
+        return shutdownOutput(newPromise());
+    }
+
+    public ChannelFuture shutdownOutput(final ChannelPromise promise) {
+        EventLoop loop = eventLoop();
+        if (loop.inEventLoop()) {
+            try {
+                Native.shutdown(fd, false, true);
+                outputShutdown = true;
+                promise.setSuccess();
+            } catch (Throwable t) {
+                promise.setFailure(t);
+            }
+        } else {
+            loop.execute(new Runnable() {
+                @Override
+                public void run() {
+                    shutdownOutput(promise);
+                }
+            });
+        }
+        return promise;
+    }
+
+    final class IOUringSocketUnsafe extends AbstractIOUringUnsafe {
+        private RecvByteBufAllocator.Handle allocHandle;
+        // The buffer of the read in flight.
+        private ByteBuf readBuffer;
+
+        @Override
+        void submitRead() {
+            IOUringSocketChannelConfig config = config();
+            RecvByteBufAllocator.Handle allocHandle = this.allocHandle;
+            if (allocHandle == null) {
+                this.allocHandle = allocHandle = config.getRecvByteBufAllocator().newHandle();
+            }
+            ByteBuf byteBuf = allocHandle.allocate(config.getAllocator());
+            if (!byteBuf.hasMemoryAddress()) {
+                // The kernel writes into the memory directly, so we need a buffer with a memory address.
+                int capacity = byteBuf.capacity();
+                byteBuf.release();
+                byteBuf = config.getAllocator().directBuffer(capacity);
+            }
+            readBuffer = byteBuf;
+            ((IOUringEventLoop) eventLoop()).submit(IOUringSocketChannel.this, Native.IORING_OP_RECV,
+                    byteBuf.memoryAddress() + byteBuf.writerIndex(), byteBuf.writableBytes(), 0, 0);
+            ioState |= IO_READ;
+        }
+
+        @Override
+        void readComplete(int res) {
+            ByteBuf byteBuf = readBuffer;
+            readBuffer = null;
+            if (isDiscarded()) {
+                byteBuf.release();
+                return;
+            }
+
+            ChannelPipeline pipeline = pipeline();
+            if (res > 0) {
+                byteBuf.writerIndex(byteBuf.writerIndex() + res);
+                allocHandle.record(res);
+                fireChannelRead(byteBuf);
+                return;
+            }
+
+            byteBuf.release();
+            if (res == 0) {
+                closeOnRead(pipeline);
+            } else if (res != -Native.ECANCELED) {
+                pipeline.fireExceptionCaught(newIOException("recv", res));
+                close(voidPromise());
+            }
+        }
+
+        private void closeOnRead(ChannelPipeline pipeline) {
+            inputShutdown = true;
+            if (isOpen()) {
+                if (Boolean.TRUE.equals(config().getOption(ChannelOption.ALLOW_HALF_CLOSURE))) {
+                    pipeline.fireUserEventTriggered(ChannelInputShutdownEvent.INSTANCE);
+                } else {
+                    close(voidPromise());
+                }
+            }
+        }
+
+        @Override
+        void writeComplete(int res) {
+            ChannelOutboundBuffer in = outboundBuffer();
+            if (isDiscarded() || in == null) {
+                // The flushed messages are failed on close.
+                return;
+            }
+            if (res < 0) {
+                IOException cause = newIOException("writev", res);
+                while (in.current() != null) {
+                    in.remove(cause);
+                }
+                close(voidPromise());
+                return;
+            }
+
+            long writtenBytes = res;
+            for (;;) {
+                Object msg = in.current();
+                if (!(msg instanceof ByteBuf)) {
+                    break;
+                }
+                ByteBuf buf = (ByteBuf) msg;
+                int readableBytes = buf.readableBytes();
+                if (readableBytes > writtenBytes) {
+                    // Partially written, the rest is written by the next IORING_OP_WRITEV.
+                    buf.readerIndex(buf.readerIndex() + (int) writtenBytes);
+                    in.progress(writtenBytes);
+                    break;
+                }
+                in.progress(readableBytes);
+                writtenBytes -= readableBytes;
+                in.remove();
+            }
+            flush0();
+        }
+
+        @Override
+        public void connect(
+                final SocketAddress remoteAddress, final SocketAddress localAddress, final ChannelPromise promise) {
+            if (!promise.setUncancellable() || !ensureOpen(promise)) {
+                return;
+            }
+
+            try {
+                if (connectPromise != null) {
+                    throw new IllegalStateException("connection attempt already made");
+                }
+                if (localAddress != null) {
+                    InetSocketAddress localSocketAddress = (InetSocketAddress) localAddress;
+                    checkResolvable(localSocketAddress);
+                    Native.bind(fd, localSocketAddress.getAddress(), localSocketAddress.getPort());
+                }
+
+                InetSocketAddress remoteSocketAddress = (InetSocketAddress) remoteAddress;
+                checkResolvable(remoteSocketAddress);
+                IOUringEventLoop loop = (IOUringEventLoop) eventLoop();
+                long sockaddr = loop.allocate(Native.SOCKADDR_SIZE);
+                int len = Native.sockaddr(
+                        sockaddr, remoteSocketAddress.getAddress(), remoteSocketAddress.getPort());
+                // The length of the address is passed as offset, see io_uring_prep_connect(...).
+                loop.submit(IOUringSocketChannel.this, Native.IORING_OP_CONNECT, sockaddr, 0, len, 0);
+                ioState |= IO_CONNECT;
+                remote = remoteSocketAddress;
+
+                connectPromise = promise;
+                requestedRemoteAddress = remoteAddress;
+
+                // Schedule connect timeout.
+                int connectTimeoutMillis = config().getConnectTimeoutMillis();
+                if (connectTimeoutMillis > 0) {
+                    connectTimeoutFuture = eventLoop().schedule(new Runnable() {
+                        @Override
+                        public void run() {
+                            ChannelPromise connectPromise = IOUringSocketChannel.this.connectPromise;
+                            ConnectTimeoutException cause =
+                                    new ConnectTimeoutException("connection timed out: " + remoteAddress);
+                            if (connectPromise != null && connectPromise.tryFailure(cause)) {
+                                close(voidPromise());
+                            }
+                        }
+                    }, connectTimeoutMillis, TimeUnit.MILLISECONDS);
+                }
+
+                promise.addListener(new ChannelFutureListener() {
+                    @Override
+                    public void operationComplete(ChannelFuture future) throws Exception {
+                        if (future.isCancelled()) {
+                            if (connectTimeoutFuture != null) {
+                                connectTimeoutFuture.cancel(false);
+                            }
+                            connectPromise = null;
+                            close(voidPromise());
+                        }
+                    }
+                });
+            } catch (Throwable t) {
+                closeIfClosed();
+                promise.tryFailure(t);
+            }
+        }
+
+        @Override
+        void connectComplete(int res) {
+            if (isDiscarded()) {
+                // The connect promise was failed on close.
+                return;
+            }
+            ChannelPromise promise = connectPromise;
+            connectPromise = null;
+            // Check for null as the connectTimeoutFuture is only created if a connectTimeoutMillis > 0 is used
+            // See https://github.com/netty/netty/issues/1770
+            if (connectTimeoutFuture != null) {
+                connectTimeoutFuture.cancel(false);
+                connectTimeoutFuture = null;
+            }
+            if (promise == null) {
+                // Closed via cancellation and the promise has been notified already.
+                return;
+            }
+
+            if (res == 0) {
+                boolean wasActive = isActive();
+                local = Native.localAddress(fd);
+                active = true;
+
+                // trySuccess() will return false if a user cancelled the connection attempt.
+                boolean promiseSet = promise.trySuccess();
+
+                // Regardless if the connection attempt was cancelled, channelActive() event should be triggered,
+                // because what happened is what happened.
+                if (!wasActive && isActive()) {
+                    pipeline().fireChannelActive();
+                }
+
+                // If a user cancelled the connection attempt, close the channel, which is followed by
+                // channelInactive().
+                if (!promiseSet) {
+                    close(voidPromise());
+                }
+            } else {
+                // Use tryFailure() instead of setFailure() to avoid the race against cancel().
+                promise.tryFailure(new ConnectException(Native.strError(-res) + ": " + requestedRemoteAddress));
+                closeIfClosed();
+            }
+        }
+    }
+}
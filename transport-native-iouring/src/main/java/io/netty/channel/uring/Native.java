@@ -0,0 +1,173 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.channel.ChannelException;
+import io.netty.util.internal.NativeLibraryLoader;
+import io.netty.util.internal.PlatformDependent;
+import io.netty.util.internal.SystemPropertyUtil;
+
+import java.io.IOException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+
+/**
+ * Native helper methods
+ *
+ * <strong>Internal usage only!</strong>
+ */
+final class Native {
+    private static final byte[] IPV4_MAPPED_IPV6_PREFIX = {
+            0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, 0x00, (byte) 0xff, (byte) 0xff };
+
+    static {
+        String name = SystemPropertyUtil.get("os.name").toLowerCase(Locale.UK).trim();
+        if (!name.startsWith("linux")) {
+            throw new IllegalStateException("Only supported on Linux");
+        }
+        NativeLibraryLoader.load("netty-transport-native-iouring", PlatformDependent.getClassLoader(Native.class));
+    }
+
+    // io_uring operations, see include/uapi/linux/io_uring.h of the linux kernel
+    public static final int IORING_OP_WRITEV = 2;
+    public static final int IORING_OP_ACCEPT = 13;
+    public static final int IORING_OP_ASYNC_CANCEL = 14;
+    public static final int IORING_OP_CONNECT = 16;
+    public static final int IORING_OP_READ = 22;
+    public static final int IORING_OP_RECV = 27;
+
+    public static final int ECANCELED = errnoECANCELED();
+    // The flags of the sockets which are accepted via IORING_OP_ACCEPT
+    public static final int SOCK_NONBLOCK_CLOEXEC = sockNonblockCloexec();
+
+    // The maximal number of iovecs which can be passed to IORING_OP_WRITEV and the size of one
+    public static final int IOV_MAX = 1024;
+    public static final int IOV_SIZE = 16;
+    // Enough space for a sockaddr_in6
+    public static final int SOCKADDR_SIZE = 32;
+
+    // io_uring operations
+    /**
+     * Create a new io_uring with room for at least {@code entries} submissions and return its handle.
+     */
+    public static native long ioUringSetup(int entries) throws IOException;
+    public static native void ioUringExit(long ring);
+
+    /**
+     * Add a submission to the io_uring. The user data is returned with the completion of it. Returns {@code false}
+     * if the submission queue is full, in which case {@link #ioUringEnter(long, int, long)} must be called first.
+     */
+    public static native boolean ioUringAdd(
+            long ring, int op, int fd, long address, int len, long offset, int opFlags, long userData);
+
+    /**
+     * Submit everything that was added since the last call and wait for at least {@code minComplete} completions
+     * but at most {@code timeoutNanos}. A negative timeout waits forever.
+     */
+    public static native int ioUringEnter(long ring, int minComplete, long timeoutNanos) throws IOException;
+
+    /**
+     * Store the user data and result of the completions in pairs into the given array and return the number of
+     * completions.
+     */
+    public static native int ioUringReap(long ring, long[] completions);
+
+    public static native int eventFd();
+    public static native void eventFdWrite(int fd, long value);
+
+    private static native int errnoECANCELED();
+    private static native int sockNonblockCloexec();
+    public static native String strError(int err);
+
+    // File-descriptor operations
+    public static native void close(int fd) throws IOException;
+    public static native void shutdown(int fd, boolean read, boolean write) throws IOException;
+
+    // socket operations
+    public static int socketStreamFd() {
+        try {
+            return socketStream();
+        } catch (IOException e) {
+            throw new ChannelException(e);
+        }
+    }
+
+    private static native int socketStream() throws IOException;
+
+    public static void bind(int fd, InetAddress addr, int port) throws IOException {
+        byte[] address = addr.getAddress();
+        int scopeId = 0;
+        if (addr instanceof Inet6Address) {
+            scopeId = ((Inet6Address) addr).getScopeId();
+        } else {
+            address = ipv4MappedIpv6Address(address);
+        }
+        bind(fd, address, scopeId, port);
+    }
+
+    private static native void bind(int fd, byte[] address, int scopeId, int port) throws IOException;
+    public static native void listen(int fd, int backlog) throws IOException;
+
+    /**
+     * Write the {@code sockaddr} of the given address to the given memory, which must have room for
+     * {@link #SOCKADDR_SIZE} bytes, and return its length.
+     */
+    public static int sockaddr(long memory, InetAddress addr, int port) {
+        byte[] address = addr.getAddress();
+        int scopeId = 0;
+        if (addr instanceof Inet6Address) {
+            scopeId = ((Inet6Address) addr).getScopeId();
+        } else {
+            address = ipv4MappedIpv6Address(address);
+        }
+        return sockaddr(memory, address, scopeId, port);
+    }
+
+    private static native int sockaddr(long memory, byte[] address, int scopeId, int port);
+
+    private static byte[] ipv4MappedIpv6Address(byte[] ipv4) {
+        byte[] address = new byte[16];
+        System.arraycopy(IPV4_MAPPED_IPV6_PREFIX, 0, address, 0, IPV4_MAPPED_IPV6_PREFIX.length);
+        System.arraycopy(ipv4, 0, address, 12, ipv4.length);
+        return address;
+    }
+
+    public static native InetSocketAddress remoteAddress(int fd);
+    public static native InetSocketAddress localAddress(int fd);
+
+    // Socket option operations
+    public static native int getReceiveBufferSize(int fd);
+    public static native int getSendBufferSize(int fd);
+    public static native int isKeepAlive(int fd);
+    public static native int isReuseAddress(int fd);
+    public static native int isTcpNoDelay(int fd);
+    public static native int getSoLinger(int fd);
+    public static native int getTrafficClass(int fd);
+
+    public static native void setKeepAlive(int fd, int keepAlive);
+    public static native void setReceiveBufferSize(int fd, int receiveBufferSize);
+    public static native void setReuseAddress(int fd, int reuseAddress);
+    public static native void setSendBufferSize(int fd, int sendBufferSize);
+    public static native void setTcpNoDelay(int fd, int tcpNoDelay);
+    public static native void setSoLinger(int fd, int soLinger);
+    public static native void setTrafficClass(int fd, int tcpNoDelay);
+
+    private Native() {
+        // utility
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.uring;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerAdapter;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.ServerChannel;
+import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.testsuite.util.TestUtils;
+import io.netty.util.NetUtil;
+import io.netty.util.concurrent.DefaultThreadFactory;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Echoes data through an {@link IOUringSocketChannel} and through an {@link EpollSocketChannel} and logs the
+ * throughput of both.
+ */
+public class IOUringEchoThroughputTest {
+
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(IOUringEchoThroughputTest.class);
+
+    private static final int CHUNK_SIZE = 16 * 1024;
+    // The data is written in batches and only a few of them are in flight, so the throughput and not the
+    // buffering is measured.
+    private static final int BATCH_SIZE = 64 * CHUNK_SIZE;
+    private static final int BATCHES_IN_FLIGHT = 2;
+    private static final byte[] DATA = new byte[64 * 1024 * 1024];
+
+    // The server and the client use their own event loop so they don't compete for the same thread.
+    private static final EventLoopGroup IOURING_SERVER_GROUP =
+            new IOUringEventLoopGroup(1, new DefaultThreadFactory("testsuite-iouring-echo-server", true));
+    private static final EventLoopGroup IOURING_CLIENT_GROUP =
+            new IOUringEventLoopGroup(1, new DefaultThreadFactory("testsuite-iouring-echo-client", true));
+    private static final EventLoopGroup EPOLL_SERVER_GROUP =
+            new EpollEventLoopGroup(1, new DefaultThreadFactory("testsuite-epoll-echo-server", true));
+    private static final EventLoopGroup EPOLL_CLIENT_GROUP =
+            new EpollEventLoopGroup(1, new DefaultThreadFactory("testsuite-epoll-echo-client", true));
+
+    static {
+        new Random().nextBytes(DATA);
+    }
+
+    @AfterClass
+    public static void destroy() {
+        IOURING_SERVER_GROUP.shutdownGracefully();
+        IOURING_CLIENT_GROUP.shutdownGracefully();
+        EPOLL_SERVER_GROUP.shutdownGracefully();
+        EPOLL_CLIENT_GROUP.shutdownGracefully();
+    }
+
+    @Test(timeout = 60000)
+    public void testIOUring() throws Throwable {
+        testEcho("io_uring", IOURING_SERVER_GROUP, IOURING_CLIENT_GROUP,
+                IOUringServerSocketChannel.class, IOUringSocketChannel.class);
+    }
+
+    @Test(timeout = 60000)
+    public void testEpoll() throws Throwable {
+        testEcho("epoll", EPOLL_SERVER_GROUP, EPOLL_CLIENT_GROUP,
+                EpollServerSocketChannel.class, EpollSocketChannel.class);
+    }
+
+    private static void testEcho(String name, EventLoopGroup serverGroup, EventLoopGroup clientGroup,
+                                 Class<? extends ServerChannel> serverClass,
+                                 Class<? extends Channel> clientClass) throws Throwable {
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicReference<Throwable> error = new AtomicReference<Throwable>();
+        final Semaphore window = new Semaphore(BATCHES_IN_FLIGHT);
+
+        InetSocketAddress addr = new InetSocketAddress(NetUtil.LOCALHOST4, TestUtils.getFreePort());
+        Channel sc = new ServerBootstrap().group(serverGroup).channel(serverClass)
+                .childHandler(new ChannelHandlerAdapter() {
+                    @Override
+                    public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                        ctx.write(msg);
+                    }
+
+                    @Override
+                    public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+                        ctx.flush();
+                    }
+                }).bind(addr).sync().channel();
+
+        Channel cc = new Bootstrap().group(clientGroup).channel(clientClass)
+                .handler(new SimpleChannelInboundHandler<ByteBuf>() {
+                    private int received;
+
+                    @Override
+                    protected void messageReceived(ChannelHandlerContext ctx, ByteBuf msg) throws Exception {
+                        int len = msg.readableBytes();
+                        if (!ByteBufUtil.equals(msg, Unpooled.wrappedBuffer(DATA, received, len))) {
+                            error.compareAndSet(null, new AssertionError("received: " + received));
+                            latch.countDown();
+                            ctx.close();
+                            return;
+                        }
+                        int batches = received / BATCH_SIZE;
+                        received += len;
+                        window.release(received / BATCH_SIZE - batches);
+                        if (received == DATA.length) {
+                            latch.countDown();
+                        }
+                    }
+
+                    @Override
+                    public void exceptionCaught(ChannelHandlerContext ctx, Throwable cause) throws Exception {
+                        error.compareAndSet(null, cause);
+                        latch.countDown();
+                    }
+                }).connect(addr).sync().channel();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < DATA.length; i += CHUNK_SIZE) {
+            if (i % BATCH_SIZE == 0) {
+                assertTrue(window.tryAcquire(10, TimeUnit.SECONDS));
+            }
+            cc.write(Unpooled.wrappedBuffer(DATA, i, CHUNK_SIZE));
+            if ((i + CHUNK_SIZE) % BATCH_SIZE == 0) {
+                cc.flush();
+            }
+        }
+        assertTrue(latch.await(30, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+        if (error.get() != null) {
+            throw error.get();
+        }
+        logger.info("{}: {} MiB/s", name,
+                (long) DATA.length * TimeUnit.SECONDS.toNanos(1) / elapsed / (1024 * 1024));
+
+        cc.close().sync();
+        sc.close().sync();
+    }
+}
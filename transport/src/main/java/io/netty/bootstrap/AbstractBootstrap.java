@@ -31,6 +31,8 @@ import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import io.netty.util.internal.StringUtil;
 
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.SocketAddress;
@@ -89,7 +91,9 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
     /**
      * The {@link Class} which is used to create {@link Channel} instances from.
      * You either use this or {@link #channelFactory(ChannelFactory)} if your
-     * {@link Channel} implementation has no no-args constructor.
+     * {@link Channel} implementation has no no-args constructor. The constructor is looked up only once, so
+     * this method fails with an {@link IllegalArgumentException} if the {@link Class} has no public no-args
+     * constructor.
      */
     public B channel(Class<? extends C> channelClass) {
         if (channelClass == null) {
@@ -103,7 +107,8 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
      * when calling {@link #bind()}. This method is usually only used if {@link #channel(Class)}
      * is not working for you because of some more complex needs. If your {@link Channel} implementation
      * has a no-args constructor, its highly recommend to just use {@link #channel(Class)} for
-     * simplify your code.
+     * simplify your code. A {@link ChannelFactory} which invokes the constructor directly avoids
+     * the remaining cost of reflection when creating many short-lived {@link Channel}s.
      */
     @SuppressWarnings("unchecked")
     public B channelFactory(ChannelFactory<? extends C> channelFactory) {
@@ -269,7 +274,7 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
         return doBind(localAddress);
     }
 
-    private ChannelFuture doBind(final SocketAddress localAddress) {
+    ChannelFuture doBind(final SocketAddress localAddress) {
         final ChannelFuture regFuture = initAndRegister();
         final Channel channel = regFuture.channel();
         if (regFuture.cause() != null) {
@@ -432,30 +437,48 @@ public abstract class AbstractBootstrap<B extends AbstractBootstrap<B, C>, C ext
         return buf.toString();
     }
 
+    /**
+     * {@link ChannelFactory} which resolves the no-args constructor of the {@link Channel} implementation only once,
+     * as looking it up and checking access to it for each created {@link Channel} is costly.
+     */
     private static final class BootstrapChannelFactory<T extends Channel> implements ChannelFactory<T> {
-        private final Class<? extends T> clazz;
+        private final Constructor<? extends T> constructor;
 
         BootstrapChannelFactory(Class<? extends T> clazz) {
-            this.clazz = clazz;
+            try {
+                constructor = clazz.getConstructor();
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException("Class " + StringUtil.simpleClassName(clazz) +
+                        " does not have a public no-args constructor", e);
+            }
+            try {
+                // Skip the access checks on every invocation.
+                constructor.setAccessible(true);
+            } catch (SecurityException ignore) {
+                // Not allowed by the SecurityManager, so just use it with access checks.
+            }
         }
 
         @Override
         public T newChannel() {
             try {
-                return clazz.newInstance();
+                return constructor.newInstance();
+            } catch (InvocationTargetException e) {
+                throw new ChannelException(
+                        "Unable to create Channel from class " + constructor.getDeclaringClass(), e.getCause());
             } catch (Throwable t) {
-                throw new ChannelException("Unable to create Channel from class " + clazz, t);
+                throw new ChannelException("Unable to create Channel from class " + constructor.getDeclaringClass(), t);
             }
         }
 
         @Override
         public String toString() {
-            return StringUtil.simpleClassName(clazz) + ".class";
+            return StringUtil.simpleClassName(constructor.getDeclaringClass()) + ".class";
         }
     }
 
-    private static final class PendingRegistrationPromise extends DefaultChannelPromise {
-        private PendingRegistrationPromise(Channel channel) {
+    static final class PendingRegistrationPromise extends DefaultChannelPromise {
+        PendingRegistrationPromise(Channel channel) {
             super(channel);
         }
 
@@ -25,6 +25,9 @@ import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.DefaultChannelConfig;
+import io.netty.channel.EventLoop;
 import io.netty.channel.EventLoopGroup;
 import io.netty.channel.ServerChannel;
 import io.netty.channel.socket.SocketChannel;
@@ -33,10 +36,12 @@ import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 
+import java.net.SocketAddress;
 import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * {@link Bootstrap} sub-class which allows easy bootstrap of {@link ServerChannel}
@@ -50,6 +55,7 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
     private final Map<AttributeKey<?>, Object> childAttrs = new LinkedHashMap<AttributeKey<?>, Object>();
     private volatile EventLoopGroup childGroup;
     private volatile ChannelHandler childHandler;
+    private volatile int acceptors = 1;
 
     public ServerBootstrap() { }
 
@@ -57,6 +63,7 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
         super(bootstrap);
         childGroup = bootstrap.childGroup;
         childHandler = bootstrap.childHandler;
+        acceptors = bootstrap.acceptors;
         synchronized (bootstrap.childOptions) {
             childOptions.putAll(bootstrap.childOptions);
         }
@@ -138,6 +145,27 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
         return this;
     }
 
+    /**
+     * Set the number of {@link ServerChannel}s which are bound to the same local address by each bind operation.
+     * Every one of them is registered with the next {@link EventLoop} of the parent {@link EventLoopGroup}, so the
+     * accepting of new connections is spread over multiple threads instead of being done by a single one.
+     *
+     * This needs a {@link ServerChannel} which allows to bind multiple sockets to the same port, like the
+     * {@code EpollServerSocketChannel} with {@code EpollChannelOption.SO_REUSEPORT} set, in which case the kernel
+     * balances the connections between the acceptors. The {@link #handler(ChannelHandler)} must be
+     * {@link ChannelHandler.Sharable} if more than one acceptor is used.
+     *
+     * The {@link ChannelFuture} returned by the bind operation belongs to the first acceptor and is notified once
+     * all of them are bound. Closing one acceptor closes all of them. The default is {@code 1}.
+     */
+    public ServerBootstrap acceptors(int acceptors) {
+        if (acceptors <= 0) {
+            throw new IllegalArgumentException("acceptors: " + acceptors + " (expected: > 0)");
+        }
+        this.acceptors = acceptors;
+        return this;
+    }
+
     /**
      * Return the configured {@link EventLoopGroup} which will be used for the child channels or {@code null}
      * if non is configured yet.
@@ -169,10 +197,10 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
 
         final EventLoopGroup currentChildGroup = childGroup;
         final ChannelHandler currentChildHandler = childHandler;
-        final Entry<ChannelOption<?>, Object>[] currentChildOptions;
+        final Map<ChannelOption<?>, Object> currentChildOptions;
         final Entry<AttributeKey<?>, Object>[] currentChildAttrs;
         synchronized (childOptions) {
-            currentChildOptions = childOptions.entrySet().toArray(newOptionArray(childOptions.size()));
+            currentChildOptions = new LinkedHashMap<ChannelOption<?>, Object>(childOptions);
         }
         synchronized (childAttrs) {
             currentChildAttrs = childAttrs.entrySet().toArray(newAttrArray(childAttrs.size()));
@@ -187,6 +215,69 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
         });
     }
 
+    @Override
+    ChannelFuture doBind(SocketAddress localAddress) {
+        final int acceptors = this.acceptors;
+        final ChannelFuture future = super.doBind(localAddress);
+        if (acceptors == 1) {
+            return future;
+        }
+
+        final Channel channel = future.channel();
+        final ChannelPromise promise = new PendingRegistrationPromise(channel);
+        future.addListener(new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (future.isSuccess()) {
+                    bindAcceptors(channel, acceptors, promise);
+                } else {
+                    promise.setFailure(future.cause());
+                }
+            }
+        });
+        return promise;
+    }
+
+    private void bindAcceptors(Channel first, int acceptors, final ChannelPromise promise) {
+        final Channel[] channels = new Channel[acceptors];
+        final ChannelFuture[] futures = new ChannelFuture[acceptors - 1];
+        channels[0] = first;
+        // Use the address the first acceptor was bound to as it may have been bound to an ephemeral port.
+        SocketAddress localAddress = first.localAddress();
+        for (int i = 1; i < acceptors; i ++) {
+            futures[i - 1] = super.doBind(localAddress);
+            channels[i] = futures[i - 1].channel();
+        }
+
+        ChannelFutureListener closeListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                for (Channel ch: channels) {
+                    ch.close();
+                }
+            }
+        };
+        for (Channel ch: channels) {
+            ch.closeFuture().addListener(closeListener);
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(futures.length);
+        ChannelFutureListener bindListener = new ChannelFutureListener() {
+            @Override
+            public void operationComplete(ChannelFuture future) throws Exception {
+                if (!future.isSuccess()) {
+                    // The acceptor is closed on failure, which closes all the others as well.
+                    promise.tryFailure(future.cause());
+                } else if (remaining.decrementAndGet() == 0) {
+                    promise.trySuccess();
+                }
+            }
+        };
+        for (ChannelFuture f: futures) {
+            f.addListener(bindListener);
+        }
+    }
+
     @Override
     public ServerBootstrap validate() {
         super.validate();
@@ -200,11 +291,6 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
         return this;
     }
 
-    @SuppressWarnings("unchecked")
-    private static Entry<ChannelOption<?>, Object>[] newOptionArray(int size) {
-        return new Entry[size];
-    }
-
     @SuppressWarnings("unchecked")
     private static Entry<AttributeKey<?>, Object>[] newAttrArray(int size) {
         return new Entry[size];
@@ -214,12 +300,12 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
 
         private final EventLoopGroup childGroup;
         private final ChannelHandler childHandler;
-        private final Entry<ChannelOption<?>, Object>[] childOptions;
+        private final Map<ChannelOption<?>, Object> childOptions;
         private final Entry<AttributeKey<?>, Object>[] childAttrs;
 
         ServerBootstrapAcceptor(
                 EventLoopGroup childGroup, ChannelHandler childHandler,
-                Entry<ChannelOption<?>, Object>[] childOptions, Entry<AttributeKey<?>, Object>[] childAttrs) {
+                Map<ChannelOption<?>, Object> childOptions, Entry<AttributeKey<?>, Object>[] childAttrs) {
             this.childGroup = childGroup;
             this.childHandler = childHandler;
             this.childOptions = childOptions;
@@ -233,15 +319,7 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
 
             child.pipeline().addLast(childHandler);
 
-            for (Entry<ChannelOption<?>, Object> e: childOptions) {
-                try {
-                    if (!child.config().setOption((ChannelOption<Object>) e.getKey(), e.getValue())) {
-                        logger.warn("Unknown channel option: " + e);
-                    }
-                } catch (Throwable t) {
-                    logger.warn("Failed to set a channel option: " + child, t);
-                }
-            }
+            setChildOptions(child);
 
             for (Entry<AttributeKey<?>, Object> e: childAttrs) {
                 child.attr((AttributeKey<Object>) e.getKey()).set(e.getValue());
@@ -261,6 +339,35 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
             }
         }
 
+        @SuppressWarnings("unchecked")
+        private void setChildOptions(Channel child) {
+            ChannelConfig config = child.config();
+            if (config instanceof DefaultChannelConfig) {
+                // Set all options at once, which allows the transport to apply them in a more efficient way.
+                Map<ChannelOption<?>, Throwable> failedOptions =
+                        ((DefaultChannelConfig) config).trySetOptions(childOptions);
+                for (Entry<ChannelOption<?>, Throwable> e: failedOptions.entrySet()) {
+                    Throwable cause = e.getValue();
+                    if (cause == null) {
+                        logger.warn("Unknown channel option: " + e.getKey());
+                    } else {
+                        logger.warn("Failed to set a channel option: " + child, cause);
+                    }
+                }
+                return;
+            }
+
+            for (Entry<ChannelOption<?>, Object> e: childOptions.entrySet()) {
+                try {
+                    if (!config.setOption((ChannelOption<Object>) e.getKey(), e.getValue())) {
+                        logger.warn("Unknown channel option: " + e);
+                    }
+                } catch (Throwable t) {
+                    logger.warn("Failed to set a channel option: " + child, t);
+                }
+            }
+        }
+
         private static void forceClose(Channel child, Throwable t) {
             child.unsafe().closeForcibly();
             logger.warn("Failed to register an accepted channel: " + child, t);
@@ -316,6 +423,11 @@ public final class ServerBootstrap extends AbstractBootstrap<ServerBootstrap, Se
                 buf.append(", ");
             }
         }
+        if (acceptors != 1) {
+            buf.append("acceptors: ");
+            buf.append(acceptors);
+            buf.append(", ");
+        }
         if (childHandler != null) {
             buf.append("childHandler: ");
             buf.append(childHandler);
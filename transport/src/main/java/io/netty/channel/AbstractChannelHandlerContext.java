@@ -22,91 +22,216 @@ import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ResourceLeakHint;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 
 import java.net.SocketAddress;
-import java.util.WeakHashMap;
+import java.util.Map;
 
 abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, ResourceLeakHint {
 
     // This class keeps an integer member field 'skipFlags' whose each bit tells if the corresponding handler method
     // is annotated with @Skip. 'skipFlags' is retrieved in runtime via the reflection API and is cached.
-    // The following constants signify which bit of 'skipFlags' corresponds to which handler method:
+    // The following constants signify which bit of 'skipFlags' corresponds to which handler method. The position of
+    // the bit of an event is also its index in the 'dispatchTable':
 
     static final int MASK_HANDLER_ADDED = 1;
     static final int MASK_HANDLER_REMOVED = 1 << 1;
 
-    private static final int MASK_EXCEPTION_CAUGHT = 1 << 2;
-    private static final int MASK_CHANNEL_REGISTERED = 1 << 3;
-    private static final int MASK_CHANNEL_UNREGISTERED = 1 << 4;
-    private static final int MASK_CHANNEL_ACTIVE = 1 << 5;
-    private static final int MASK_CHANNEL_INACTIVE = 1 << 6;
-    private static final int MASK_CHANNEL_READ = 1 << 7;
-    private static final int MASK_CHANNEL_READ_COMPLETE = 1 << 8;
-    private static final int MASK_CHANNEL_WRITABILITY_CHANGED = 1 << 9;
-    private static final int MASK_USER_EVENT_TRIGGERED = 1 << 10;
-
-    private static final int MASK_BIND = 1 << 11;
-    private static final int MASK_CONNECT = 1 << 12;
-    private static final int MASK_DISCONNECT = 1 << 13;
-    private static final int MASK_CLOSE = 1 << 14;
-    private static final int MASK_DEREGISTER = 1 << 15;
-    private static final int MASK_READ = 1 << 16;
-    private static final int MASK_WRITE = 1 << 17;
-    private static final int MASK_FLUSH = 1 << 18;
-
-    private static final int MASKGROUP_INBOUND = MASK_EXCEPTION_CAUGHT |
-            MASK_CHANNEL_REGISTERED |
-            MASK_CHANNEL_UNREGISTERED |
-            MASK_CHANNEL_ACTIVE |
-            MASK_CHANNEL_INACTIVE |
-            MASK_CHANNEL_READ |
-            MASK_CHANNEL_READ_COMPLETE |
-            MASK_CHANNEL_WRITABILITY_CHANGED |
-            MASK_USER_EVENT_TRIGGERED;
-
-    private static final int MASKGROUP_OUTBOUND = MASK_BIND |
-            MASK_CONNECT |
-            MASK_DISCONNECT |
-            MASK_CLOSE |
-            MASK_DEREGISTER |
-            MASK_READ |
-            MASK_WRITE |
-            MASK_FLUSH;
+    private static final int INDEX_EXCEPTION_CAUGHT = 2;
+    private static final int INDEX_CHANNEL_REGISTERED = 3;
+    private static final int INDEX_CHANNEL_UNREGISTERED = 4;
+    private static final int INDEX_CHANNEL_ACTIVE = 5;
+    private static final int INDEX_CHANNEL_INACTIVE = 6;
+    private static final int INDEX_CHANNEL_READ = 7;
+    private static final int INDEX_CHANNEL_READ_COMPLETE = 8;
+    private static final int INDEX_CHANNEL_WRITABILITY_CHANGED = 9;
+    private static final int INDEX_USER_EVENT_TRIGGERED = 10;
+
+    private static final int INDEX_BIND = 11;
+    private static final int INDEX_CONNECT = 12;
+    private static final int INDEX_DISCONNECT = 13;
+    private static final int INDEX_CLOSE = 14;
+    private static final int INDEX_DEREGISTER = 15;
+    private static final int INDEX_READ = 16;
+    private static final int INDEX_WRITE = 17;
+    private static final int INDEX_FLUSH = 18;
+
+    private static final int MASK_EXCEPTION_CAUGHT = 1 << INDEX_EXCEPTION_CAUGHT;
+    private static final int MASK_CHANNEL_REGISTERED = 1 << INDEX_CHANNEL_REGISTERED;
+    private static final int MASK_CHANNEL_UNREGISTERED = 1 << INDEX_CHANNEL_UNREGISTERED;
+    private static final int MASK_CHANNEL_ACTIVE = 1 << INDEX_CHANNEL_ACTIVE;
+    private static final int MASK_CHANNEL_INACTIVE = 1 << INDEX_CHANNEL_INACTIVE;
+    private static final int MASK_CHANNEL_READ = 1 << INDEX_CHANNEL_READ;
+    private static final int MASK_CHANNEL_READ_COMPLETE = 1 << INDEX_CHANNEL_READ_COMPLETE;
+    private static final int MASK_CHANNEL_WRITABILITY_CHANGED = 1 << INDEX_CHANNEL_WRITABILITY_CHANGED;
+    private static final int MASK_USER_EVENT_TRIGGERED = 1 << INDEX_USER_EVENT_TRIGGERED;
+
+    private static final int MASK_BIND = 1 << INDEX_BIND;
+    private static final int MASK_CONNECT = 1 << INDEX_CONNECT;
+    private static final int MASK_DISCONNECT = 1 << INDEX_DISCONNECT;
+    private static final int MASK_CLOSE = 1 << INDEX_CLOSE;
+    private static final int MASK_DEREGISTER = 1 << INDEX_DEREGISTER;
+    private static final int MASK_READ = 1 << INDEX_READ;
+    private static final int MASK_WRITE = 1 << INDEX_WRITE;
+    private static final int MASK_FLUSH = 1 << INDEX_FLUSH;
+
+    private static final int MASK_ALL_INBOUND = MASK_EXCEPTION_CAUGHT | MASK_CHANNEL_REGISTERED |
+            MASK_CHANNEL_UNREGISTERED | MASK_CHANNEL_ACTIVE | MASK_CHANNEL_INACTIVE | MASK_CHANNEL_READ |
+            MASK_CHANNEL_READ_COMPLETE | MASK_CHANNEL_WRITABILITY_CHANGED | MASK_USER_EVENT_TRIGGERED;
+    private static final int MASK_ALL_OUTBOUND = MASK_BIND | MASK_CONNECT | MASK_DISCONNECT | MASK_CLOSE |
+            MASK_DEREGISTER | MASK_READ | MASK_WRITE | MASK_FLUSH;
+
+    private static final int DISPATCH_TABLE_SIZE = INDEX_FLUSH + 1;
 
     /**
-     * Cache the result of the costly generation of {@link #skipFlags} in the partitioned synchronized
-     * {@link WeakHashMap}.
+     * Computes the {@link #dispatchTable} of every context between {@code head} and {@code tail}. The table of a
+     * context holds for every event the closest context in the direction of the event whose handler does not
+     * {@link Skip} it, so events are passed on without visiting handlers that would only forward them.
+     *
+     * This is called by {@link DefaultChannelPipeline} when it is created. Later modifications of the linked list
+     * of contexts are handled by {@link #updateDispatchTables(AbstractChannelHandlerContext,
+     * AbstractChannelHandlerContext, int)}.
      */
-    @SuppressWarnings("unchecked")
-    private static final WeakHashMap<Class<?>, Integer>[] skipFlagsCache =
-            new WeakHashMap[Runtime.getRuntime().availableProcessors()];
+    static void updateDispatchTables(AbstractChannelHandlerContext head, AbstractChannelHandlerContext tail) {
+        int size = 0;
+        for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+            size ++;
+        }
+
+        AbstractChannelHandlerContext[][] tables = new AbstractChannelHandlerContext[size][];
+        AbstractChannelHandlerContext[] closest = new AbstractChannelHandlerContext[DISPATCH_TABLE_SIZE];
+
+        // Outbound events travel from the tail to the head, so walk from the head to the tail and remember the
+        // last context that handles each event. The head handles all of them.
+        int i = 0;
+        for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+            AbstractChannelHandlerContext[] table = new AbstractChannelHandlerContext[DISPATCH_TABLE_SIZE];
+            for (int index = INDEX_BIND; index <= INDEX_FLUSH; index ++) {
+                table[index] = closest[index];
+                if (ctx == head || (ctx.skipFlags & 1 << index) == 0) {
+                    closest[index] = ctx;
+                }
+            }
+            tables[i ++] = table;
+        }
+
+        // Inbound events travel from the head to the tail, so do the same the other way round. The tail handles all
+        // of them.
+        for (AbstractChannelHandlerContext ctx = tail; ctx != null; ctx = ctx.prev) {
+            AbstractChannelHandlerContext[] table = tables[-- i];
+            for (int index = INDEX_EXCEPTION_CAUGHT; index <= INDEX_USER_EVENT_TRIGGERED; index ++) {
+                table[index] = closest[index];
+                if (ctx == tail || (ctx.skipFlags & 1 << index) == 0) {
+                    closest[index] = ctx;
+                }
+            }
+        }
+
+        // Publish the tables of newly added contexts first, as the tables of the other contexts may point to them.
+        i = 0;
+        for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+            if (ctx.dispatchTable == null) {
+                ctx.dispatchTable = tables[i];
+            }
+            i ++;
+        }
+        i = 0;
+        for (AbstractChannelHandlerContext ctx = head; ctx != null; ctx = ctx.next) {
+            ctx.dispatchTable = tables[i ++];
+        }
+    }
+
+    /**
+     * Updates the {@link #dispatchTable}s after the linked list of contexts was modified between {@code prev} and
+     * {@code next}, which are either adjacent now or have a newly added context in between. Only the tables of the
+     * contexts which may dispatch an event in {@code handledMask} across the modified position are replaced, so
+     * adding or removing a handler does not have to visit the whole pipeline.
+     *
+     * This must be called by {@link DefaultChannelPipeline} while holding its lock.
+     */
+    static void updateDispatchTables(
+            AbstractChannelHandlerContext prev, AbstractChannelHandlerContext next, int handledMask) {
+        AbstractChannelHandlerContext added = prev.next;
+        if (added != next) {
+            // Publish the table of the new context first, as the tables of the other contexts will point to it.
+            AbstractChannelHandlerContext[] table = new AbstractChannelHandlerContext[DISPATCH_TABLE_SIZE];
+            for (int index = INDEX_EXCEPTION_CAUGHT; index <= INDEX_USER_EVENT_TRIGGERED; index ++) {
+                table[index] = next.closestInbound(index);
+            }
+            for (int index = INDEX_BIND; index <= INDEX_FLUSH; index ++) {
+                table[index] = prev.closestOutbound(index);
+            }
+            added.dispatchTable = table;
+            prev = next = added;
+        }
+
+        // Outbound events travel from the tail to the head, so only the contexts after the modified position up to
+        // the first one that handles an event themselves need to be updated.
+        int pending = handledMask & MASK_ALL_OUTBOUND;
+        for (AbstractChannelHandlerContext ctx = prev.next; pending != 0 && ctx != null; ctx = ctx.next) {
+            AbstractChannelHandlerContext[] table = ctx.dispatchTable.clone();
+            for (int index = INDEX_BIND; index <= INDEX_FLUSH; index ++) {
+                int mask = 1 << index;
+                if ((pending & mask) != 0) {
+                    table[index] = prev.closestOutbound(index);
+                    if ((ctx.skipFlags & mask) == 0) {
+                        pending &= ~mask;
+                    }
+                }
+            }
+            ctx.dispatchTable = table;
+        }
 
-    static {
-        for (int i = 0; i < skipFlagsCache.length; i ++) {
-            skipFlagsCache[i] = new WeakHashMap<Class<?>, Integer>();
+        // Inbound events travel from the head to the tail, so do the same the other way round.
+        pending = handledMask & MASK_ALL_INBOUND;
+        for (AbstractChannelHandlerContext ctx = next.prev; pending != 0 && ctx != null; ctx = ctx.prev) {
+            AbstractChannelHandlerContext[] table = ctx.dispatchTable.clone();
+            for (int index = INDEX_EXCEPTION_CAUGHT; index <= INDEX_USER_EVENT_TRIGGERED; index ++) {
+                int mask = 1 << index;
+                if ((pending & mask) != 0) {
+                    table[index] = next.closestInbound(index);
+                    if ((ctx.skipFlags & mask) == 0) {
+                        pending &= ~mask;
+                    }
+                }
+            }
+            ctx.dispatchTable = table;
         }
     }
 
+    /**
+     * Returns the context an outbound event with the given index is passed to by a context right after this one.
+     */
+    private AbstractChannelHandlerContext closestOutbound(int index) {
+        // The head handles all outbound events.
+        return prev == null || (skipFlags & 1 << index) == 0 ? this : dispatchTable[index];
+    }
+
+    /**
+     * Returns the context an inbound event with the given index is passed to by a context right before this one.
+     */
+    private AbstractChannelHandlerContext closestInbound(int index) {
+        // The tail handles all inbound events.
+        return next == null || (skipFlags & 1 << index) == 0 ? this : dispatchTable[index];
+    }
+
     /**
      * Returns an integer bitset that tells which handler methods were annotated with {@link Skip}.
-     * It gets the value from {@link #skipFlagsCache} if an handler of the same type were queried before.
-     * Otherwise, it delegates to {@link #skipFlags0(Class)} to get it.
+     * It gets the value from the thread-local {@link InternalThreadLocalMap#handlerSkipFlagsCache()} if an handler
+     * of the same type were queried before. Otherwise, it delegates to {@link #skipFlags0(Class)} to get it.
      */
     static int skipFlags(ChannelHandler handler) {
-        WeakHashMap<Class<?>, Integer> cache =
-                skipFlagsCache[(int) (Thread.currentThread().getId() % skipFlagsCache.length)];
+        Map<Class<?>, Integer> cache = InternalThreadLocalMap.get().handlerSkipFlagsCache();
         Class<? extends ChannelHandler> handlerType = handler.getClass();
         int flagsVal;
-        synchronized (cache) {
-            Integer flags = cache.get(handlerType);
-            if (flags != null) {
-                flagsVal = flags;
-            } else {
-                flagsVal = skipFlags0(handlerType);
-                cache.put(handlerType, Integer.valueOf(flagsVal));
-            }
+        Integer flags = cache.get(handlerType);
+        if (flags != null) {
+            flagsVal = flags;
+        } else {
+            flagsVal = skipFlags0(handlerType);
+            cache.put(handlerType, Integer.valueOf(flagsVal));
         }
 
         return flagsVal;
@@ -197,6 +322,12 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
     volatile AbstractChannelHandlerContext next;
     volatile AbstractChannelHandlerContext prev;
 
+    /**
+     * The next context to pass each event to, indexed by the position of the event's bit in {@link #skipFlags}.
+     * The array is never modified once published but replaced as a whole by {@link #updateDispatchTables}.
+     */
+    volatile AbstractChannelHandlerContext[] dispatchTable;
+
     private final AbstractChannel channel;
     private final DefaultChannelPipeline pipeline;
     private final String name;
@@ -301,49 +432,49 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelHandlerContext fireChannelRegistered() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_REGISTERED];
         next.invoker().invokeChannelRegistered(next);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireChannelUnregistered() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_UNREGISTERED];
         next.invoker().invokeChannelUnregistered(next);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireChannelActive() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_ACTIVE];
         next.invoker().invokeChannelActive(next);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireChannelInactive() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_INACTIVE];
         next.invoker().invokeChannelInactive(next);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireExceptionCaught(Throwable cause) {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_EXCEPTION_CAUGHT];
         next.invoker().invokeExceptionCaught(next, cause);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireUserEventTriggered(Object event) {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_USER_EVENT_TRIGGERED];
         next.invoker().invokeUserEventTriggered(next, event);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireChannelRead(Object msg) {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_READ];
         ReferenceCountUtil.touch(msg, next);
         next.invoker().invokeChannelRead(next, msg);
         return this;
@@ -351,14 +482,14 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelHandlerContext fireChannelReadComplete() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_READ_COMPLETE];
         next.invoker().invokeChannelReadComplete(next);
         return this;
     }
 
     @Override
     public ChannelHandlerContext fireChannelWritabilityChanged() {
-        AbstractChannelHandlerContext next = findContextInbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CHANNEL_WRITABILITY_CHANGED];
         next.invoker().invokeChannelWritabilityChanged(next);
         return this;
     }
@@ -395,7 +526,7 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelFuture bind(final SocketAddress localAddress, final ChannelPromise promise) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_BIND];
         next.invoker().invokeBind(next, localAddress, promise);
         return promise;
     }
@@ -407,7 +538,7 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelFuture connect(SocketAddress remoteAddress, SocketAddress localAddress, ChannelPromise promise) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CONNECT];
         next.invoker().invokeConnect(next, remoteAddress, localAddress, promise);
         return promise;
     }
@@ -418,28 +549,28 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
             return close(promise);
         }
 
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_DISCONNECT];
         next.invoker().invokeDisconnect(next, promise);
         return promise;
     }
 
     @Override
     public ChannelFuture close(ChannelPromise promise) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_CLOSE];
         next.invoker().invokeClose(next, promise);
         return promise;
     }
 
     @Override
     public ChannelFuture deregister(ChannelPromise promise) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_DEREGISTER];
         next.invoker().invokeDeregister(next, promise);
         return promise;
     }
 
     @Override
     public ChannelHandlerContext read() {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_READ];
         next.invoker().invokeRead(next);
         return this;
     }
@@ -451,7 +582,7 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelFuture write(Object msg, ChannelPromise promise) {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_WRITE];
         ReferenceCountUtil.touch(msg, next);
         next.invoker().invokeWrite(next, msg, promise);
         return promise;
@@ -459,18 +590,18 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
 
     @Override
     public ChannelHandlerContext flush() {
-        AbstractChannelHandlerContext next = findContextOutbound();
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_FLUSH];
         next.invoker().invokeFlush(next);
         return this;
     }
 
     @Override
     public ChannelFuture writeAndFlush(Object msg, ChannelPromise promise) {
-        AbstractChannelHandlerContext next;
-        next = findContextOutbound();
+        AbstractChannelHandlerContext[] dispatchTable = this.dispatchTable;
+        AbstractChannelHandlerContext next = dispatchTable[INDEX_WRITE];
         ReferenceCountUtil.touch(msg, next);
         next.invoker().invokeWrite(next, msg, promise);
-        next = findContextOutbound();
+        next = dispatchTable[INDEX_FLUSH];
         next.invoker().invokeFlush(next);
         return promise;
     }
@@ -504,20 +635,17 @@ abstract class AbstractChannelHandlerContext implements ChannelHandlerContext, R
         return new FailedChannelFuture(channel(), executor(), cause);
     }
 
-    private AbstractChannelHandlerContext findContextInbound() {
-        AbstractChannelHandlerContext ctx = this;
-        do {
-            ctx = ctx.next;
-        } while ((ctx.skipFlags & MASKGROUP_INBOUND) == MASKGROUP_INBOUND);
-        return ctx;
-    }
-
-    private AbstractChannelHandlerContext findContextOutbound() {
-        AbstractChannelHandlerContext ctx = this;
-        do {
-            ctx = ctx.prev;
-        } while ((ctx.skipFlags & MASKGROUP_OUTBOUND) == MASKGROUP_OUTBOUND);
-        return ctx;
+    /**
+     * Passes all events which are fired through this removed context to {@code ctx}, or to the context {@code ctx}
+     * would pass them to if its handler skips them.
+     */
+    void forwardTo(AbstractChannelHandlerContext ctx) {
+        AbstractChannelHandlerContext[] table = new AbstractChannelHandlerContext[DISPATCH_TABLE_SIZE];
+        AbstractChannelHandlerContext[] ctxTable = ctx.dispatchTable;
+        for (int index = INDEX_EXCEPTION_CAUGHT; index <= INDEX_FLUSH; index ++) {
+            table[index] = (ctx.skipFlags & 1 << index) == 0 ? ctx : ctxTable[index];
+        }
+        dispatchTable = table;
     }
 
     @Override
@@ -64,13 +64,19 @@ public class ChannelOutboundBuffer {
 
     protected AbstractChannel channel;
 
-    // A circular buffer used to store messages.  The buffer is arranged such that:  flushed <= unflushed <= tail.  The
-    // flushed messages are stored in the range [flushed, unflushed).  Unflushed messages are stored in the range
-    // [unflushed, tail).
-    private Entry[] buffer;
+    // A linked list of recycled entries which is arranged such that:  flushedEntry -> ... -> unflushedEntry -> ... ->
+    // tailEntry.  The flushed messages are stored from flushedEntry up to (excluding) unflushedEntry, which is null if
+    // all messages were flushed.  flushedEntry is null if there are no flushed messages.
+    private Entry flushedEntry;
+    private Entry unflushedEntry;
+    private Entry tailEntry;
+    // The number of flushed entries that are not written yet.
     private int flushed;
-    private int unflushed;
-    private int tail;
+
+    // Entries which were removed are kept for reuse, up to INITIAL_CAPACITY of them. Any entry beyond that, which was
+    // needed for a burst of writes, is handed back to its Recycler so this buffer does not stay at its peak size.
+    private Entry freeEntries;
+    private int freeEntryCount;
 
     private boolean inFail;
 
@@ -80,6 +86,10 @@ public class ChannelOutboundBuffer {
 
     private static final AtomicIntegerFieldUpdater<ChannelOutboundBuffer> WRITABLE_UPDATER;
 
+    private static final AtomicIntegerFieldUpdater<ChannelOutboundBuffer> BUDGET_WRITABLE_UPDATER;
+
+    private static final AtomicLongFieldUpdater<ChannelOutboundBuffer> BUDGET_PENDING_SIZE_UPDATER;
+
     static {
         AtomicIntegerFieldUpdater<ChannelOutboundBuffer> writableUpdater =
                 PlatformDependent.newAtomicIntegerFieldUpdater(ChannelOutboundBuffer.class, "writable");
@@ -88,30 +98,67 @@ public class ChannelOutboundBuffer {
         }
         WRITABLE_UPDATER = writableUpdater;
 
+        AtomicIntegerFieldUpdater<ChannelOutboundBuffer> budgetWritableUpdater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(ChannelOutboundBuffer.class, "budgetWritable");
+        if (budgetWritableUpdater == null) {
+            budgetWritableUpdater =
+                    AtomicIntegerFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "budgetWritable");
+        }
+        BUDGET_WRITABLE_UPDATER = budgetWritableUpdater;
+
         AtomicLongFieldUpdater<ChannelOutboundBuffer> pendingSizeUpdater =
                 PlatformDependent.newAtomicLongFieldUpdater(ChannelOutboundBuffer.class, "totalPendingSize");
         if (pendingSizeUpdater == null) {
             pendingSizeUpdater = AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "totalPendingSize");
         }
         TOTAL_PENDING_SIZE_UPDATER = pendingSizeUpdater;
+
+        AtomicLongFieldUpdater<ChannelOutboundBuffer> budgetPendingSizeUpdater =
+                PlatformDependent.newAtomicLongFieldUpdater(ChannelOutboundBuffer.class, "budgetPendingSize");
+        if (budgetPendingSizeUpdater == null) {
+            budgetPendingSizeUpdater =
+                    AtomicLongFieldUpdater.newUpdater(ChannelOutboundBuffer.class, "budgetPendingSize");
+        }
+        BUDGET_PENDING_SIZE_UPDATER = budgetPendingSizeUpdater;
     }
 
     private volatile int writable = 1;
 
+    /**
+     * The {@link WriteBufferBudget.Pool} the pending bytes are accounted to, or {@code null} if the {@link Channel}
+     * has no {@link WriteBufferBudget} or did not write yet.
+     */
+    private volatile WriteBufferBudget.Pool budgetPool;
+
+    /**
+     * The part of {@link #totalPendingSize} which was accounted to the {@link #budgetPool}. Bytes which were pending
+     * before the pool was known are not, so only these may be given back to the pool.
+     */
+    private volatile long budgetPendingSize;
+
+    private volatile int budgetWritable = 1;
+
+    private Runnable setBudgetWritableTask;
+
     protected ChannelOutboundBuffer(Handle<? extends ChannelOutboundBuffer> handle) {
         this.handle = handle;
+    }
 
-        buffer = new Entry[INITIAL_CAPACITY];
-        for (int i = 0; i < buffer.length; i++) {
-            buffer[i] = newEntry();
-        }
+    /**
+     * Return the {@link Entry} of the first flushed message, or {@code null} if there is none. The following flushed
+     * entries can be obtained via {@link Entry#next()} as long as {@link #isFlushedEntry(Entry)} returns
+     * {@code true}.
+     */
+    protected final Entry flushedEntry() {
+        return flushedEntry;
     }
 
     /**
-     * Return the array of {@link Entry}'s which hold the pending write requests in an circular array.
+     * Return {@code true} if the given {@link Entry}, which was obtained via {@link #flushedEntry()} and
+     * {@link Entry#next()}, holds a flushed message.
      */
-    protected final Entry[] entries() {
-        return buffer;
+    protected final boolean isFlushedEntry(Entry e) {
+        return e != null && e != unflushedEntry;
     }
 
     /**
@@ -126,16 +173,28 @@ public class ChannelOutboundBuffer {
             size = 0;
         }
 
-        Entry e = buffer[tail++];
+        Entry e = freeEntries;
+        if (e == null) {
+            e = newEntry();
+        } else {
+            freeEntries = e.next;
+            freeEntryCount --;
+            e.next = null;
+        }
         e.msg = msg;
         e.pendingSize = size;
         e.promise = promise;
         e.total = total(msg);
 
-        tail &= buffer.length - 1;
-
-        if (tail == flushed) {
-            addCapacity();
+        Entry tail = tailEntry;
+        if (tail == null) {
+            flushedEntry = null;
+        } else {
+            tail.next = e;
+        }
+        tailEntry = e;
+        if (unflushedEntry == null) {
+            unflushedEntry = e;
         }
 
         // increment pending bytes after adding message to the unflushed arrays.
@@ -151,33 +210,6 @@ public class ChannelOutboundBuffer {
         return msg;
     }
 
-    /**
-     * Expand internal array which holds the {@link Entry}'s.
-     */
-    private void addCapacity() {
-        int p = flushed;
-        int n = buffer.length;
-        int r = n - p; // number of elements to the right of p
-        int s = size();
-
-        int newCapacity = n << 1;
-        if (newCapacity < 0) {
-            throw new IllegalStateException();
-        }
-
-        Entry[] e = new Entry[newCapacity];
-        System.arraycopy(buffer, p, e, 0, r);
-        System.arraycopy(buffer, 0, e, r, p);
-        for (int i = n; i < e.length; i++) {
-            e[i] = newEntry();
-        }
-
-        buffer = e;
-        flushed = 0;
-        unflushed = s;
-        tail = n;
-    }
-
     /**
      * Mark all messages in this {@link ChannelOutboundBuffer} as flushed.
      */
@@ -186,20 +218,24 @@ public class ChannelOutboundBuffer {
         // where added in the meantime.
         //
         // See https://github.com/netty/netty/issues/2577
-        if (unflushed != tail) {
-            unflushed = tail;
-
-            final int mask = buffer.length - 1;
-            int i = flushed;
-            while (i != unflushed && buffer[i].msg != null) {
-                Entry entry = buffer[i];
+        Entry entry = unflushedEntry;
+        if (entry != null) {
+            if (flushedEntry == null) {
+                // There is no flushed message left, so start with the first unflushed one.
+                flushedEntry = entry;
+            }
+            do {
+                flushed ++;
                 if (!entry.promise.setUncancellable()) {
                     // Was cancelled so make sure we free up memory and notify about the freed bytes
                     int pending = entry.cancel();
                     decrementPendingOutboundBytes(pending);
                 }
-                i = i + 1 & mask;
-            }
+                entry = entry.next;
+            } while (entry != null);
+
+            // All messages were flushed.
+            unflushedEntry = null;
         }
     }
 
@@ -221,6 +257,24 @@ public class ChannelOutboundBuffer {
                 channel.pipeline().fireChannelWritabilityChanged();
             }
         }
+
+        WriteBufferBudget.Pool budgetPool = this.budgetPool;
+        if (budgetPool == null) {
+            WriteBufferBudget budget = writeBufferBudget(channel.config());
+            if (budget == null || !channel.isRegistered()) {
+                return;
+            }
+            this.budgetPool = budgetPool = budget.pool(channel.eventLoop());
+        }
+        BUDGET_PENDING_SIZE_UPDATER.addAndGet(this, size);
+        budgetPool.increment(this, size);
+    }
+
+    private static WriteBufferBudget writeBufferBudget(ChannelConfig config) {
+        if (config instanceof DefaultChannelConfig) {
+            return ((DefaultChannelConfig) config).getWriteBufferBudget();
+        }
+        return config.getOption(ChannelOption.WRITE_BUFFER_BUDGET);
     }
 
     /**
@@ -237,10 +291,102 @@ public class ChannelOutboundBuffer {
 
         long newWriteBufferSize = TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
         if (newWriteBufferSize == 0 || newWriteBufferSize < channel.config().getWriteBufferLowWaterMark()) {
-            if (WRITABLE_UPDATER.compareAndSet(this, 0, 1)) {
+            if (WRITABLE_UPDATER.compareAndSet(this, 0, 1) && budgetWritable != 0) {
                 channel.pipeline().fireChannelWritabilityChanged();
             }
         }
+
+        decrementBudgetPendingBytes(size);
+    }
+
+    /**
+     * Give back up to {@code size} bytes to the {@link WriteBufferBudget.Pool} of this buffer, but never more than
+     * were accounted to it.
+     */
+    private void decrementBudgetPendingBytes(long size) {
+        WriteBufferBudget.Pool budgetPool = this.budgetPool;
+        if (budgetPool == null) {
+            return;
+        }
+        for (;;) {
+            long budgetPendingSize = this.budgetPendingSize;
+            long decrement = Math.min(size, budgetPendingSize);
+            if (decrement == 0) {
+                return;
+            }
+            if (BUDGET_PENDING_SIZE_UPDATER.compareAndSet(this, budgetPendingSize, budgetPendingSize - decrement)) {
+                budgetPool.decrement(decrement);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Called by the {@link WriteBufferBudget.Pool} of this buffer once it exceeded its high water mark.
+     */
+    final void setBudgetUnwritable(WriteBufferBudget.Pool budgetPool) {
+        if (!BUDGET_WRITABLE_UPDATER.compareAndSet(this, 1, 0)) {
+            return;
+        }
+
+        budgetPool.addUnwritable(this);
+        if (!budgetPool.isExceeded()) {
+            // The pool recovered before this buffer was added, so it may have missed it.
+            setBudgetWritable(budgetPool);
+            return;
+        }
+
+        Channel channel = this.channel;
+        if (channel != null && writable != 0) {
+            channel.pipeline().fireChannelWritabilityChanged();
+        }
+    }
+
+    /**
+     * Called by the {@link WriteBufferBudget.Pool} of this buffer once it dropped below its low water mark. This
+     * may happen in any thread, so the writability is changed in the {@link EventLoop} of the {@link Channel}.
+     */
+    final void budgetRecovered() {
+        Channel channel = this.channel;
+        if (channel == null) {
+            return;
+        }
+        EventLoop eventLoop = channel.eventLoop();
+        if (eventLoop.inEventLoop()) {
+            setBudgetWritable();
+        } else {
+            Runnable task = setBudgetWritableTask;
+            if (task == null) {
+                setBudgetWritableTask = task = new Runnable() {
+                    @Override
+                    public void run() {
+                        setBudgetWritable();
+                    }
+                };
+            }
+            eventLoop.execute(task);
+        }
+    }
+
+    private void setBudgetWritable() {
+        WriteBufferBudget.Pool budgetPool = this.budgetPool;
+        // The pool may have been exceeded again before the task ran, in which case this buffer stays unwritable
+        // until the next time it recovers.
+        if (budgetPool != null && !budgetPool.isExceeded()) {
+            setBudgetWritable(budgetPool);
+        }
+    }
+
+    private void setBudgetWritable(WriteBufferBudget.Pool budgetPool) {
+        if (!BUDGET_WRITABLE_UPDATER.compareAndSet(this, 0, 1)) {
+            return;
+        }
+
+        budgetPool.removeUnwritable(this);
+        Channel channel = this.channel;
+        if (channel != null && writable != 0) {
+            channel.pipeline().fireChannelWritabilityChanged();
+        }
     }
 
     private static long total(Object msg) {
@@ -260,17 +406,16 @@ public class ChannelOutboundBuffer {
      * Return current message or {@code null} if no flushed message is left to process.
      */
     public final Object current() {
-        if (isEmpty()) {
+        // TODO: Think of a smart way to handle ByteBufHolder messages
+        Entry entry = flushedEntry;
+        if (entry == null) {
             return null;
-        } else {
-            // TODO: Think of a smart way to handle ByteBufHolder messages
-            Entry entry = buffer[flushed];
-            return entry.msg;
         }
+        return entry.msg;
     }
 
     public final void progress(long amount) {
-        Entry e = buffer[flushed];
+        Entry e = flushedEntry;
         ChannelPromise p = e.promise;
         if (p instanceof ChannelProgressivePromise) {
             long progress = e.progress + amount;
@@ -284,24 +429,20 @@ public class ChannelOutboundBuffer {
      * This method will return {@code true} if there are more messages left to process,  {@code false} otherwise.
      */
     public final boolean remove() {
-        if (isEmpty()) {
+        Entry e = flushedEntry;
+        if (e == null) {
             return false;
         }
 
-        Entry e = buffer[flushed];
         Object msg = e.msg;
-        if (msg == null) {
-            return false;
-        }
-
         ChannelPromise promise = e.promise;
         int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
 
-        e.clear();
+        removeEntry(e);
+        releaseEntry(e);
 
-        flushed = flushed + 1 & buffer.length - 1;
-
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, notify and decrement if it was not canceled before.
             safeRelease(msg);
             safeSuccess(promise);
@@ -317,24 +458,20 @@ public class ChannelOutboundBuffer {
      * {@code false} otherwise.
      */
     public final boolean remove(Throwable cause) {
-        if (isEmpty()) {
+        Entry e = flushedEntry;
+        if (e == null) {
             return false;
         }
 
-        Entry e = buffer[flushed];
         Object msg = e.msg;
-        if (msg == null) {
-            return false;
-        }
-
         ChannelPromise promise = e.promise;
         int size = e.pendingSize;
+        boolean cancelled = e.cancelled;
 
-        e.clear();
+        removeEntry(e);
+        releaseEntry(e);
 
-        flushed = flushed + 1 & buffer.length - 1;
-
-        if (!e.cancelled) {
+        if (!cancelled) {
             // only release message, fail and decrement if it was not canceled before.
             safeRelease(msg);
 
@@ -345,22 +482,46 @@ public class ChannelOutboundBuffer {
         return true;
     }
 
+    private void removeEntry(Entry e) {
+        if (-- flushed == 0) {
+            // processed everything
+            flushedEntry = null;
+            if (e == tailEntry) {
+                tailEntry = null;
+                unflushedEntry = null;
+            }
+        } else {
+            flushedEntry = e.next;
+        }
+    }
+
+    private void releaseEntry(Entry e) {
+        if (freeEntryCount < INITIAL_CAPACITY) {
+            e.clear();
+            e.next = freeEntries;
+            freeEntries = e;
+            freeEntryCount ++;
+        } else {
+            e.recycle();
+        }
+    }
+
     final boolean getWritable() {
-        return writable != 0;
+        return writable != 0 && budgetWritable != 0;
     }
 
     /**
      * Return the number of messages that are ready to be written (flushed before).
      */
     public final int size() {
-        return unflushed - flushed & buffer.length - 1;
+        return flushed;
     }
 
     /**
      * Return {@code true} if this {@link ChannelOutboundBuffer} contains no flushed messages
      */
     public final boolean isEmpty() {
-        return unflushed == flushed;
+        return flushed == 0;
     }
 
     /**
@@ -413,25 +574,25 @@ public class ChannelOutboundBuffer {
         }
 
         // Release all unflushed messages.
-        final int unflushedCount = tail - unflushed & buffer.length - 1;
         try {
-            for (int i = 0; i < unflushedCount; i++) {
-                Entry e = buffer[unflushed + i & buffer.length - 1];
-
+            Entry e = unflushedEntry;
+            while (e != null) {
                 // Just decrease; do not trigger any events via decrementPendingOutboundBytes()
                 int size = e.pendingSize;
                 TOTAL_PENDING_SIZE_UPDATER.addAndGet(this, -size);
+                decrementBudgetPendingBytes(size);
 
-                e.pendingSize = 0;
                 if (!e.cancelled) {
                     safeRelease(e.msg);
                     safeFail(e.promise, cause);
                 }
-                e.msg = null;
-                e.promise = null;
+                Entry next = e.next;
+                releaseEntry(e);
+                e = next;
             }
         } finally {
-            tail = unflushed;
+            unflushedEntry = null;
+            tailEntry = null;
             inFail = false;
         }
 
@@ -473,23 +634,28 @@ public class ChannelOutboundBuffer {
      */
     @SuppressWarnings("unchecked")
     public void recycle() {
-        if (buffer.length > INITIAL_CAPACITY) {
-            Entry[] e = new Entry[INITIAL_CAPACITY];
-            System.arraycopy(buffer, 0, e, 0, INITIAL_CAPACITY);
-            buffer = e;
-        }
-
         // reset flushed, unflushed and tail
         // See https://github.com/netty/netty/issues/1772
+        flushedEntry = null;
+        unflushedEntry = null;
+        tailEntry = null;
         flushed = 0;
-        unflushed = 0;
-        tail = 0;
 
         // Set the channel to null so it can be GC'ed ASAP
         channel = null;
 
+        WriteBufferBudget.Pool budgetPool = this.budgetPool;
+        if (budgetPool != null) {
+            // Give back the bytes of writes which were still on their way to this buffer.
+            decrementBudgetPendingBytes(Long.MAX_VALUE);
+            budgetPool.removeUnwritable(this);
+            this.budgetPool = null;
+        }
+        budgetPendingSize = 0;
+
         totalPendingSize = 0;
         writable = 1;
+        budgetWritable = 1;
 
         RECYCLER.recycle(this, (Handle<ChannelOutboundBuffer>) handle);
     }
@@ -502,25 +668,11 @@ public class ChannelOutboundBuffer {
     }
 
     /**
-     * Create a new {@link Entry} to use for the internal datastructure. Sub-classes may override this use a special
-     * sub-class.
+     * Return a new or recycled {@link Entry} to use for the internal datastructure. Sub-classes may override this to
+     * use a special sub-class, which is recycled once its message was removed.
      */
     protected Entry newEntry() {
-        return new Entry();
-    }
-
-    /**
-     * Return the index of the first flushed message.
-     */
-    protected final int flushed() {
-        return flushed;
-    }
-
-    /**
-     * Return the index of the first unflushed messages.
-     */
-    protected final int unflushed() {
-        return unflushed;
+        return Entry.newInstance();
     }
 
     protected ByteBuf copyToDirectByteBuf(ByteBuf buf) {
@@ -542,6 +694,19 @@ public class ChannelOutboundBuffer {
     }
 
     protected static class Entry {
+        private static final Recycler<Entry> RECYCLER = new Recycler<Entry>() {
+            @Override
+            protected Entry newObject(Handle<Entry> handle) {
+                return new Entry(handle);
+            }
+        };
+
+        static Entry newInstance() {
+            return RECYCLER.get();
+        }
+
+        private final Handle<? extends Entry> handle;
+        Entry next;
         Object msg;
         ChannelPromise promise;
         long progress;
@@ -550,10 +715,22 @@ public class ChannelOutboundBuffer {
         int count = -1;
         boolean cancelled;
 
+        protected Entry(Handle<? extends Entry> handle) {
+            this.handle = handle;
+        }
+
         public Object msg() {
             return msg;
         }
 
+        /**
+         * Return the next {@link Entry}, which may not be flushed yet.
+         * See {@link ChannelOutboundBuffer#isFlushedEntry(Entry)}.
+         */
+        public Entry next() {
+            return next;
+        }
+
         /**
          * Return {@code true} if the {@link Entry} was cancelled via {@link #cancel()} before,
          * {@code false} otherwise.
@@ -595,5 +772,12 @@ public class ChannelOutboundBuffer {
             count = -1;
             cancelled = false;
         }
+
+        @SuppressWarnings("unchecked")
+        final void recycle() {
+            clear();
+            next = null;
+            ((Handle<Entry>) handle).recycle(this);
+        }
     }
 }
@@ -19,7 +19,9 @@ import io.netty.buffer.ByteBufAllocator;
 import io.netty.channel.nio.AbstractNioByteChannel;
 import io.netty.channel.socket.SocketChannelConfig;
 
+import java.util.Collections;
 import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Map.Entry;
 
@@ -47,6 +49,7 @@ public class DefaultChannelConfig implements ChannelConfig {
     private volatile boolean autoRead = true;
     private volatile int writeBufferHighWaterMark = 64 * 1024;
     private volatile int writeBufferLowWaterMark = 32 * 1024;
+    private volatile WriteBufferBudget writeBufferBudget;
 
     public DefaultChannelConfig(Channel channel) {
         if (channel == null) {
@@ -67,11 +70,18 @@ public class DefaultChannelConfig implements ChannelConfig {
 
     @Override
     public Map<ChannelOption<?>, Object> getOptions() {
-        return getOptions(
+        Map<ChannelOption<?>, Object> result = getOptions(
                 null,
                 CONNECT_TIMEOUT_MILLIS, MAX_MESSAGES_PER_READ, WRITE_SPIN_COUNT,
                 ALLOCATOR, AUTO_READ, RCVBUF_ALLOCATOR, WRITE_BUFFER_HIGH_WATER_MARK,
                 WRITE_BUFFER_LOW_WATER_MARK, MESSAGE_SIZE_ESTIMATOR);
+
+        // Only include the budget if it was set, so that the returned options can be passed to setOptions().
+        WriteBufferBudget writeBufferBudget = getWriteBufferBudget();
+        if (writeBufferBudget != null) {
+            result.put(WRITE_BUFFER_BUDGET, writeBufferBudget);
+        }
+        return result;
     }
 
     protected Map<ChannelOption<?>, Object> getOptions(
@@ -102,6 +112,59 @@ public class DefaultChannelConfig implements ChannelConfig {
         return setAllOptions;
     }
 
+    /**
+     * Set the given options like {@link #setOptions(Map)}, but go on with the next option if one of them is unknown
+     * or cannot be set, and tell which ones were not set.
+     *
+     * @return the options which were not set, mapped to the {@link Throwable} which was thrown while setting them
+     *         or to {@code null} if they are unknown
+     */
+    @SuppressWarnings("unchecked")
+    public Map<ChannelOption<?>, Throwable> trySetOptions(Map<ChannelOption<?>, ?> options) {
+        if (options == null) {
+            throw new NullPointerException("options");
+        }
+
+        Map<ChannelOption<?>, Throwable> failedOptions = null;
+        for (Entry<ChannelOption<?>, ?> e: options.entrySet()) {
+            failedOptions = trySetOption((ChannelOption<Object>) e.getKey(), e.getValue(), failedOptions);
+        }
+        return failedOptions(failedOptions);
+    }
+
+    /**
+     * Set the given option via {@link #setOption(ChannelOption, Object)} and add it to {@code failedOptions} if it
+     * was not set.
+     *
+     * @return {@code failedOptions}, or a new map if it was {@code null} and the option was not set
+     */
+    protected final Map<ChannelOption<?>, Throwable> trySetOption(
+            ChannelOption<Object> option, Object value, Map<ChannelOption<?>, Throwable> failedOptions) {
+        Throwable cause = null;
+        try {
+            if (setOption(option, value)) {
+                return failedOptions;
+            }
+        } catch (Throwable t) {
+            cause = t;
+        }
+        if (failedOptions == null) {
+            failedOptions = new LinkedHashMap<ChannelOption<?>, Throwable>();
+        }
+        failedOptions.put(option, cause);
+        return failedOptions;
+    }
+
+    /**
+     * Return the value of {@link #trySetOptions(Map)} for the given, possibly {@code null}, failed options.
+     */
+    protected static Map<ChannelOption<?>, Throwable> failedOptions(Map<ChannelOption<?>, Throwable> failedOptions) {
+        if (failedOptions == null) {
+            return Collections.emptyMap();
+        }
+        return failedOptions;
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <T> T getOption(ChannelOption<T> option) {
@@ -133,6 +196,9 @@ public class DefaultChannelConfig implements ChannelConfig {
         if (option == WRITE_BUFFER_LOW_WATER_MARK) {
             return (T) Integer.valueOf(getWriteBufferLowWaterMark());
         }
+        if (option == WRITE_BUFFER_BUDGET) {
+            return (T) getWriteBufferBudget();
+        }
         if (option == MESSAGE_SIZE_ESTIMATOR) {
             return (T) getMessageSizeEstimator();
         }
@@ -159,6 +225,8 @@ public class DefaultChannelConfig implements ChannelConfig {
             setWriteBufferHighWaterMark((Integer) value);
         } else if (option == WRITE_BUFFER_LOW_WATER_MARK) {
             setWriteBufferLowWaterMark((Integer) value);
+        } else if (option == WRITE_BUFFER_BUDGET) {
+            setWriteBufferBudget((WriteBufferBudget) value);
         } else if (option == MESSAGE_SIZE_ESTIMATOR) {
             setMessageSizeEstimator((MessageSizeEstimator) value);
         } else {
@@ -312,6 +380,23 @@ public class DefaultChannelConfig implements ChannelConfig {
         return this;
     }
 
+    /**
+     * Returns the {@link WriteBufferBudget} the pending bytes of the {@link Channel} are accounted to in addition to
+     * its own write buffer water marks, or {@code null} if it has none.
+     */
+    public WriteBufferBudget getWriteBufferBudget() {
+        return writeBufferBudget;
+    }
+
+    /**
+     * Sets the {@link WriteBufferBudget} the pending bytes of the {@link Channel} are accounted to in addition to
+     * its own write buffer water marks. It must be set before the {@link Channel} writes for the first time.
+     */
+    public ChannelConfig setWriteBufferBudget(WriteBufferBudget writeBufferBudget) {
+        this.writeBufferBudget = writeBufferBudget;
+        return this;
+    }
+
     @Override
     public MessageSizeEstimator getMessageSizeEstimator() {
         return msgSizeEstimator;
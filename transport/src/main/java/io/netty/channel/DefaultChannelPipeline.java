@@ -19,6 +19,7 @@ import io.netty.channel.Channel.Unsafe;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
 import io.netty.util.concurrent.EventExecutorGroup;
+import io.netty.util.internal.InternalThreadLocalMap;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
 import io.netty.util.internal.logging.InternalLogger;
@@ -26,14 +27,13 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.net.SocketAddress;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
-import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -45,23 +45,22 @@ final class DefaultChannelPipeline implements ChannelPipeline {
 
     static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultChannelPipeline.class);
 
-    @SuppressWarnings("unchecked")
-    private static final WeakHashMap<Class<?>, String>[] nameCaches =
-            new WeakHashMap[Runtime.getRuntime().availableProcessors()];
-
-    static {
-        for (int i = 0; i < nameCaches.length; i ++) {
-            nameCaches[i] = new WeakHashMap<Class<?>, String>();
-        }
-    }
-
     final AbstractChannel channel;
 
     final AbstractChannelHandlerContext head;
     final AbstractChannelHandlerContext tail;
 
-    private final Map<String, AbstractChannelHandlerContext> name2ctx =
-        new HashMap<String, AbstractChannelHandlerContext>(4);
+    /**
+     * Only modified while holding the lock on this pipeline, but read without it by {@link #context(String)}.
+     */
+    private final Map<String, AbstractChannelHandlerContext> name2ctx = PlatformDependent.newConcurrentHashMap(4);
+
+    /**
+     * Lazily created index used by {@link #context(Class)}. It is only populated and cleared while holding the lock
+     * on this pipeline and is cleared on every modification, so it never contains stale entries.  A handler type
+     * which is not in the pipeline is mapped to {@link #head}, which is never the result of a lookup.
+     */
+    private volatile ConcurrentMap<Class<?>, AbstractChannelHandlerContext> type2ctx;
 
     /**
      * @see #findInvoker(EventExecutorGroup)
@@ -79,6 +78,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
 
         head.next = tail;
         tail.prev = head;
+        AbstractChannelHandlerContext.updateDispatchTables(head, tail);
     }
 
     @Override
@@ -117,6 +117,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         newCtx.next = nextCtx;
         head.next = newCtx;
         nextCtx.prev = newCtx;
+        pipelineModified(head, nextCtx, ~newCtx.skipFlags);
 
         name2ctx.put(name, newCtx);
 
@@ -154,6 +155,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         newCtx.next = tail;
         prev.next = newCtx;
         tail.prev = newCtx;
+        pipelineModified(prev, tail, ~newCtx.skipFlags);
 
         name2ctx.put(name, newCtx);
 
@@ -194,6 +196,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         newCtx.next = ctx;
         ctx.prev.next = newCtx;
         ctx.prev = newCtx;
+        pipelineModified(newCtx.prev, ctx, ~newCtx.skipFlags);
 
         name2ctx.put(name, newCtx);
 
@@ -234,6 +237,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         newCtx.next = ctx.next;
         ctx.next.prev = newCtx;
         ctx.next = newCtx;
+        pipelineModified(ctx, newCtx.next, ~newCtx.skipFlags);
 
         name2ctx.put(name, newCtx);
 
@@ -358,22 +362,33 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         return invoker;
     }
 
+    /**
+     * Must be called after the linked list was modified between {@code prev} and {@code next} while holding the lock
+     * on this pipeline. {@code handledMask} has a bit set for every event handled by an added or removed handler.
+     */
+    private void pipelineModified(
+            AbstractChannelHandlerContext prev, AbstractChannelHandlerContext next, int handledMask) {
+        AbstractChannelHandlerContext.updateDispatchTables(prev, next, handledMask);
+        Map<Class<?>, AbstractChannelHandlerContext> type2ctx = this.type2ctx;
+        if (type2ctx != null && !type2ctx.isEmpty()) {
+            type2ctx.clear();
+        }
+    }
+
     String generateName(ChannelHandler handler) {
-        WeakHashMap<Class<?>, String> cache = nameCaches[(int) (Thread.currentThread().getId() % nameCaches.length)];
+        // The cache is thread-local so no synchronization is needed to look up the name of a handler type.
+        Map<Class<?>, String> cache = InternalThreadLocalMap.get().handlerNameCache();
         Class<?> handlerType = handler.getClass();
-        String name;
-        synchronized (cache) {
-            name = cache.get(handlerType);
-            if (name == null) {
-                name = generateName0(handlerType);
-                cache.put(handlerType, name);
-            }
+        String name = cache.get(handlerType);
+        if (name == null) {
+            name = generateName0(handlerType);
+            cache.put(handlerType, name);
         }
 
-        synchronized (this) {
-            // It's not very likely for a user to put more than one handler of the same type, but make sure to avoid
-            // any name conflicts.  Note that we don't cache the names generated here.
-            if (name2ctx.containsKey(name)) {
+        // It's not very likely for a user to put more than one handler of the same type, but make sure to avoid
+        // any name conflicts.  Note that we don't cache the names generated here.
+        if (name2ctx.containsKey(name)) {
+            synchronized (this) {
                 String baseName = name.substring(0, name.length() - 1); // Strip the trailing '0'.
                 for (int i = 1;; i ++) {
                     String newName = baseName + i;
@@ -445,6 +460,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         AbstractChannelHandlerContext next = ctx.next;
         prev.next = next;
         next.prev = prev;
+        pipelineModified(prev, next, ~ctx.skipFlags);
         name2ctx.remove(ctx.name());
         callHandlerRemoved(ctx);
     }
@@ -537,6 +553,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         // at the same time (we ensured that in replace().)
         prev.next = newCtx;
         next.prev = newCtx;
+        pipelineModified(prev, next, ~(oldCtx.skipFlags & newCtx.skipFlags));
 
         if (!oldCtx.name().equals(newName)) {
             name2ctx.remove(oldCtx.name());
@@ -546,6 +563,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
         // update the reference to the replacement so forward of buffered content will work correctly
         oldCtx.prev = newCtx;
         oldCtx.next = newCtx;
+        oldCtx.forwardTo(newCtx);
 
         // Invoke newHandler.handlerAdded() first (i.e. before oldHandler.handlerRemoved() is invoked)
         // because callHandlerRemoved() will trigger inboundBufferUpdated() or flush() on newHandler and those
@@ -728,9 +746,7 @@ final class DefaultChannelPipeline implements ChannelPipeline {
             throw new NullPointerException("name");
         }
 
-        synchronized (this) {
-            return name2ctx.get(name);
-        }
+        return name2ctx.get(name);
     }
 
     @Override
@@ -760,15 +776,34 @@ final class DefaultChannelPipeline implements ChannelPipeline {
             throw new NullPointerException("handlerType");
         }
 
-        AbstractChannelHandlerContext ctx = head.next;
-        for (;;) {
-            if (ctx == null) {
-                return null;
+        ConcurrentMap<Class<?>, AbstractChannelHandlerContext> type2ctx = this.type2ctx;
+        if (type2ctx != null) {
+            AbstractChannelHandlerContext ctx = type2ctx.get(handlerType);
+            if (ctx != null) {
+                return ctx != head ? ctx : null;
             }
-            if (handlerType.isAssignableFrom(ctx.handler().getClass())) {
-                return ctx;
+        }
+
+        // Search while holding the lock so that the index is never populated with a context of an outdated pipeline.
+        synchronized (this) {
+            type2ctx = this.type2ctx;
+            if (type2ctx == null) {
+                this.type2ctx = type2ctx = PlatformDependent.newConcurrentHashMap(4);
+            }
+
+            AbstractChannelHandlerContext ctx = head.next;
+            for (;;) {
+                if (ctx == null) {
+                    // Remember the miss so that probing for an absent handler does not scan the pipeline again.
+                    type2ctx.put(handlerType, head);
+                    return null;
+                }
+                if (handlerType.isAssignableFrom(ctx.handler().getClass())) {
+                    type2ctx.put(handlerType, ctx);
+                    return ctx;
+                }
+                ctx = ctx.next;
             }
-            ctx = ctx.next;
         }
     }
 
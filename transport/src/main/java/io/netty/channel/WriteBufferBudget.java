@@ -0,0 +1,276 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.util.internal.ConcurrentSet;
+import io.netty.util.internal.PlatformDependent;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits the number of bytes which are pending to be written by all the {@link Channel}s sharing this budget, in
+ * addition to the per-channel {@link ChannelOption#WRITE_BUFFER_HIGH_WATER_MARK} and
+ * {@link ChannelOption#WRITE_BUFFER_LOW_WATER_MARK}. A budget is assigned to {@link Channel}s via
+ * {@link ChannelOption#WRITE_BUFFER_BUDGET}, usually as a child option of the server bootstrap.
+ *
+ * <p>
+ * The pending bytes are either accounted for all {@link Channel}s together ({@link #newGlobalBudget(long, long)}) or
+ * separately for the {@link Channel}s of each {@link EventLoop} ({@link #newPerEventLoopBudget(long, long)}). Once the
+ * pending bytes exceed the high water mark, every {@link Channel} of the budget which writes is not
+ * {@linkplain Channel#isWritable() writable} anymore until the pending bytes drop below the low water mark again.
+ * Such a {@link Channel} is notified via {@link ChannelHandler#channelWritabilityChanged(ChannelHandlerContext)} when
+ * it becomes unwritable and, in its {@link EventLoop}, once the budget recovers.
+ * </p>
+ *
+ * <p>
+ * In addition the auto read of {@link Channel}s which produce the data, for example the upstream connections of a
+ * proxy, can be paused while the budget is exceeded. See {@link #addAutoReadChannel(Channel)}.
+ * </p>
+ */
+public final class WriteBufferBudget {
+
+    private final long lowWaterMark;
+    private final long highWaterMark;
+    private final Pool globalPool;
+    private final ConcurrentMap<EventLoop, Pool> pools;
+    private final AtomicInteger exceededPools = new AtomicInteger();
+    private final Set<Channel> autoReadChannels = new ConcurrentSet<Channel>();
+
+    private final ChannelFutureListener removeAutoReadChannelListener = new ChannelFutureListener() {
+        @Override
+        public void operationComplete(ChannelFuture future) throws Exception {
+            autoReadChannels.remove(future.channel());
+        }
+    };
+
+    /**
+     * Creates a new budget which accounts the pending bytes of all its {@link Channel}s together.
+     */
+    public static WriteBufferBudget newGlobalBudget(long lowWaterMark, long highWaterMark) {
+        return new WriteBufferBudget(lowWaterMark, highWaterMark, false);
+    }
+
+    /**
+     * Creates a new budget which accounts the pending bytes of its {@link Channel}s separately for each
+     * {@link EventLoop}. A {@link Channel} is accounted to the {@link EventLoop} it was registered to when it wrote
+     * the first time.
+     */
+    public static WriteBufferBudget newPerEventLoopBudget(long lowWaterMark, long highWaterMark) {
+        return new WriteBufferBudget(lowWaterMark, highWaterMark, true);
+    }
+
+    private WriteBufferBudget(long lowWaterMark, long highWaterMark, boolean perEventLoop) {
+        if (lowWaterMark < 0) {
+            throw new IllegalArgumentException("lowWaterMark: " + lowWaterMark + " (expected: >= 0)");
+        }
+        if (highWaterMark < lowWaterMark) {
+            throw new IllegalArgumentException(
+                    "highWaterMark: " + highWaterMark + " (expected: >= lowWaterMark (" + lowWaterMark + "))");
+        }
+        this.lowWaterMark = lowWaterMark;
+        this.highWaterMark = highWaterMark;
+        if (perEventLoop) {
+            globalPool = null;
+            pools = PlatformDependent.newConcurrentHashMap();
+        } else {
+            globalPool = new Pool();
+            pools = null;
+        }
+    }
+
+    /**
+     * Returns the number of pending bytes below which the {@link Channel}s of this budget become writable again.
+     */
+    public long lowWaterMark() {
+        return lowWaterMark;
+    }
+
+    /**
+     * Returns the number of pending bytes above which the {@link Channel}s of this budget are not writable anymore.
+     */
+    public long highWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * Returns {@code true} if the pending bytes are accounted separately for each {@link EventLoop}.
+     */
+    public boolean isPerEventLoop() {
+        return globalPool == null;
+    }
+
+    /**
+     * Returns the number of bytes which are pending to be written by all the {@link Channel}s of this budget.
+     */
+    public long pendingBytes() {
+        if (globalPool != null) {
+            return globalPool.pendingBytes.get();
+        }
+        long pendingBytes = 0;
+        for (Pool pool: pools.values()) {
+            pendingBytes += pool.pendingBytes.get();
+        }
+        return pendingBytes;
+    }
+
+    /**
+     * Returns the number of bytes which are pending to be written by the {@link Channel}s of this budget which are
+     * accounted to the given {@link EventLoop}. If this budget is not {@linkplain #isPerEventLoop() per event loop}
+     * this is the same as {@link #pendingBytes()}.
+     */
+    public long pendingBytes(EventLoop eventLoop) {
+        if (eventLoop == null) {
+            throw new NullPointerException("eventLoop");
+        }
+        if (globalPool != null) {
+            return globalPool.pendingBytes.get();
+        }
+        Pool pool = pools.get(eventLoop);
+        return pool == null ? 0 : pool.pendingBytes.get();
+    }
+
+    /**
+     * Returns {@code true} if the pending bytes exceed the high water mark, for at least one {@link EventLoop} if
+     * this budget is {@linkplain #isPerEventLoop() per event loop}.
+     */
+    public boolean isExceeded() {
+        return exceededPools.get() != 0;
+    }
+
+    /**
+     * Returns {@code true} if the pending bytes which are accounted to the given {@link EventLoop} exceed the high
+     * water mark. If this budget is not {@linkplain #isPerEventLoop() per event loop} this is the same as
+     * {@link #isExceeded()}.
+     */
+    public boolean isExceeded(EventLoop eventLoop) {
+        if (eventLoop == null) {
+            throw new NullPointerException("eventLoop");
+        }
+        if (globalPool != null) {
+            return globalPool.exceeded.get();
+        }
+        Pool pool = pools.get(eventLoop);
+        return pool != null && pool.exceeded.get();
+    }
+
+    /**
+     * Adds a {@link Channel} whose {@link ChannelConfig#setAutoRead(boolean) auto read} is turned off while this
+     * budget {@linkplain #isExceeded() is exceeded} and turned on again once it recovers. The {@link Channel} is
+     * removed automatically once it is closed.
+     */
+    public void addAutoReadChannel(Channel channel) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (autoReadChannels.add(channel)) {
+            channel.closeFuture().addListener(removeAutoReadChannelListener);
+            if (isExceeded()) {
+                channel.config().setAutoRead(false);
+            }
+        }
+    }
+
+    /**
+     * Removes a {@link Channel} which was added via {@link #addAutoReadChannel(Channel)} and turns on its
+     * {@link ChannelConfig#setAutoRead(boolean) auto read} again if it was turned off by this budget.
+     */
+    public boolean removeAutoReadChannel(Channel channel) {
+        if (channel == null) {
+            throw new NullPointerException("channel");
+        }
+        if (autoReadChannels.remove(channel)) {
+            channel.closeFuture().removeListener(removeAutoReadChannelListener);
+            if (isExceeded()) {
+                channel.config().setAutoRead(true);
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Returns the {@link Pool} the pending bytes of a {@link Channel} registered to the given {@link EventLoop} are
+     * accounted to.
+     */
+    Pool pool(EventLoop eventLoop) {
+        if (globalPool != null) {
+            return globalPool;
+        }
+        Pool pool = pools.get(eventLoop);
+        if (pool == null) {
+            Pool newPool = new Pool();
+            pool = pools.putIfAbsent(eventLoop, newPool);
+            if (pool == null) {
+                pool = newPool;
+            }
+        }
+        return pool;
+    }
+
+    private void setAutoRead(boolean autoRead) {
+        for (Channel channel: autoReadChannels) {
+            channel.config().setAutoRead(autoRead);
+        }
+    }
+
+    /**
+     * The pending bytes of the {@link Channel}s which are accounted together.
+     */
+    final class Pool {
+        private final AtomicLong pendingBytes = new AtomicLong();
+        private final AtomicBoolean exceeded = new AtomicBoolean();
+        private final Set<ChannelOutboundBuffer> unwritableBuffers = new ConcurrentSet<ChannelOutboundBuffer>();
+
+        boolean isExceeded() {
+            return exceeded.get();
+        }
+
+        void increment(ChannelOutboundBuffer buffer, long size) {
+            if (pendingBytes.addAndGet(size) > highWaterMark && exceeded.compareAndSet(false, true)) {
+                if (exceededPools.getAndIncrement() == 0) {
+                    setAutoRead(false);
+                }
+            }
+            if (exceeded.get()) {
+                buffer.setBudgetUnwritable(this);
+            }
+        }
+
+        void decrement(long size) {
+            long newPendingBytes = pendingBytes.addAndGet(-size);
+            if ((newPendingBytes == 0 || newPendingBytes < lowWaterMark) && exceeded.compareAndSet(true, false)) {
+                for (ChannelOutboundBuffer buffer: unwritableBuffers) {
+                    buffer.budgetRecovered();
+                }
+                if (exceededPools.decrementAndGet() == 0) {
+                    setAutoRead(true);
+                }
+            }
+        }
+
+        void addUnwritable(ChannelOutboundBuffer buffer) {
+            unwritableBuffers.add(buffer);
+        }
+
+        void removeUnwritable(ChannelOutboundBuffer buffer) {
+            unwritableBuffers.remove(buffer);
+        }
+    }
+}
@@ -21,31 +21,45 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelId;
+import io.netty.channel.ChannelPromise;
+import io.netty.channel.EventLoop;
 import io.netty.channel.ServerChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.internal.OneTimeTask;
 import io.netty.util.internal.PlatformDependent;
 import io.netty.util.internal.StringUtil;
+import io.netty.util.internal.logging.InternalLogger;
+import io.netty.util.internal.logging.InternalLoggerFactory;
 
 import java.util.AbstractSet;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * The default {@link ChannelGroup} implementation.
+ *
+ * Write and flush operations are dispatched as one task per {@link EventLoop} which then operates on all the
+ * {@link Channel}s of the group that are registered to it.
  */
 public class DefaultChannelGroup extends AbstractSet<Channel> implements ChannelGroup {
 
+    private static final InternalLogger logger = InternalLoggerFactory.getInstance(DefaultChannelGroup.class);
     private static final AtomicInteger nextId = new AtomicInteger();
+    private static final Map<Channel, ChannelFuture> EMPTY_FUTURES = Collections.emptyMap();
     private final String name;
     private final EventExecutor executor;
     private final ConcurrentMap<ChannelId, Channel> serverChannels = PlatformDependent.newConcurrentHashMap();
     private final ConcurrentMap<ChannelId, Channel> nonServerChannels = PlatformDependent.newConcurrentHashMap();
+    private final ChannelGroupFuture voidFuture = new VoidChannelGroupFuture(this);
     private final ChannelFutureListener remover = new ChannelFutureListener() {
         @Override
         public void operationComplete(ChannelFuture future) throws Exception {
@@ -199,36 +213,23 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
         return write(message, ChannelMatchers.all());
     }
 
-    // Create a safe duplicate of the message to write it to a channel but not affect other writes.
-    // See https://github.com/netty/netty/issues/1461
-    private static Object safeDuplicate(Object message) {
-        if (message instanceof ByteBuf) {
-            return ((ByteBuf) message).duplicate().retain();
-        } else if (message instanceof ByteBufHolder) {
-            return ((ByteBufHolder) message).duplicate().retain();
-        } else {
-            return ReferenceCountUtil.retain(message);
-        }
-    }
-
     @Override
     public ChannelGroupFuture write(Object message, ChannelMatcher matcher) {
-        if (message == null) {
-            throw new NullPointerException("message");
-        }
-        if (matcher == null) {
-            throw new NullPointerException("matcher");
-        }
-
-        Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
-        for (Channel c: nonServerChannels.values()) {
-            if (matcher.matches(c)) {
-                futures.put(c, c.write(safeDuplicate(message)));
-            }
-        }
+        return write(message, matcher, false);
+    }
 
-        ReferenceCountUtil.release(message);
-        return new DefaultChannelGroupFuture(this, futures, executor);
+    /**
+     * Writes the specified {@code message} to all {@link Channel}s in this
+     * group that match the given {@link ChannelMatcher}. If {@code voidPromise} is {@code true}
+     * the {@linkplain Channel#voidPromise() void promise} of each {@link Channel} is used, so no
+     * {@link ChannelFuture} is created per {@link Channel}. In this case the returned {@link ChannelGroupFuture}
+     * does not support adding listeners or waiting for the operation to complete.
+     *
+     * @return the {@link ChannelGroupFuture} instance that notifies when
+     *         the operation is done for all channels
+     */
+    public ChannelGroupFuture write(Object message, ChannelMatcher matcher, boolean voidPromise) {
+        return broadcast(message, matcher, voidPromise, false);
     }
 
     @Override
@@ -312,31 +313,124 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
 
     @Override
     public ChannelGroup flush(ChannelMatcher matcher) {
-        for (Channel c: nonServerChannels.values()) {
-            if (matcher.matches(c)) {
-                c.flush();
-            }
+        if (matcher == null) {
+            throw new NullPointerException("matcher");
+        }
+
+        for (Map.Entry<EventLoop, List<Channel>> e: groupByEventLoop(matcher).entrySet()) {
+            execute(e.getKey(), new FlushTask(e.getValue()));
         }
         return this;
     }
 
     @Override
     public ChannelGroupFuture writeAndFlush(Object message, ChannelMatcher matcher) {
+        return writeAndFlush(message, matcher, false);
+    }
+
+    /**
+     * Shortcut for calling {@link #write(Object, ChannelMatcher, boolean)} and {@link #flush()} and only act on
+     * {@link Channel}s that match the {@link ChannelMatcher}.
+     */
+    public ChannelGroupFuture writeAndFlush(Object message, ChannelMatcher matcher, boolean voidPromise) {
+        return broadcast(message, matcher, voidPromise, true);
+    }
+
+    /**
+     * Writes the {@code message} to all matching non-{@link ServerChannel}s. The {@link Channel}s are grouped by their
+     * {@link EventLoop} and every {@link EventLoop} receives a single task which writes to all of its
+     * {@link Channel}s, so the caller does not have to submit a task per {@link Channel}. The reference count of the
+     * {@code message} is increased once for all {@link Channel}s instead of once per {@link Channel}.
+     */
+    private ChannelGroupFuture broadcast(Object message, ChannelMatcher matcher, boolean voidPromise, boolean flush) {
         if (message == null) {
             throw new NullPointerException("message");
         }
+        if (matcher == null) {
+            throw new NullPointerException("matcher");
+        }
+
+        Map<EventLoop, List<Channel>> channels = groupByEventLoop(matcher);
+        int count = 0;
+        for (List<Channel> list: channels.values()) {
+            count += list.size();
+        }
+
+        if (count == 0) {
+            ReferenceCountUtil.release(message);
+            return voidPromise ? voidFuture : new DefaultChannelGroupFuture(this, EMPTY_FUTURES, executor);
+        }
+        if (count > 1) {
+            // The reference the caller passed to us is handed over to one of the Channels.
+            ReferenceCountUtil.retain(message, count - 1);
+        }
+
+        Map<Channel, ChannelFuture> futures = voidPromise ? null : new LinkedHashMap<Channel, ChannelFuture>(count);
+        Object shared = safeDuplicate(message);
+        for (Map.Entry<EventLoop, List<Channel>> e: channels.entrySet()) {
+            List<Channel> list = e.getValue();
+            ChannelPromise[] promises = null;
+            if (!voidPromise) {
+                promises = new ChannelPromise[list.size()];
+                for (int i = 0; i < promises.length; i ++) {
+                    Channel c = list.get(i);
+                    ChannelPromise promise = c.newPromise();
+                    promises[i] = promise;
+                    futures.put(c, promise);
+                }
+            }
+            execute(e.getKey(), new WriteTask(shared, list, promises, flush));
+        }
+
+        if (voidPromise) {
+            return voidFuture;
+        }
+        return new DefaultChannelGroupFuture(this, futures, executor);
+    }
 
-        Map<Channel, ChannelFuture> futures = new LinkedHashMap<Channel, ChannelFuture>(size());
+    // Create a safe duplicate of the message which is shared by all writes. Each Channel receives its own duplicate
+    // of it, so the writes do not affect each other.
+    // See https://github.com/netty/netty/issues/1461
+    private static Object safeDuplicate(Object message) {
+        if (message instanceof ByteBuf) {
+            return ((ByteBuf) message).duplicate();
+        } else if (message instanceof ByteBufHolder) {
+            return ((ByteBufHolder) message).duplicate();
+        } else {
+            return message;
+        }
+    }
 
+    /**
+     * Returns the matching non-{@link ServerChannel}s grouped by their {@link EventLoop}. {@link Channel}s which are
+     * not registered are stored with a {@code null} key.
+     */
+    private Map<EventLoop, List<Channel>> groupByEventLoop(ChannelMatcher matcher) {
+        Map<EventLoop, List<Channel>> channels = new IdentityHashMap<EventLoop, List<Channel>>();
         for (Channel c: nonServerChannels.values()) {
             if (matcher.matches(c)) {
-                futures.put(c, c.writeAndFlush(safeDuplicate(message)));
+                EventLoop loop = c.isRegistered() ? c.eventLoop() : null;
+                List<Channel> list = channels.get(loop);
+                if (list == null) {
+                    list = new ArrayList<Channel>();
+                    channels.put(loop, list);
+                }
+                list.add(c);
             }
         }
+        return channels;
+    }
 
-        ReferenceCountUtil.release(message);
-
-        return new DefaultChannelGroupFuture(this, futures, executor);
+    private static void execute(EventLoop loop, GroupTask task) {
+        if (loop == null || loop.inEventLoop()) {
+            task.run();
+        } else {
+            try {
+                loop.execute(task);
+            } catch (Throwable cause) {
+                task.fail(cause);
+            }
+        }
     }
 
     @Override
@@ -363,4 +457,72 @@ public class DefaultChannelGroup extends AbstractSet<Channel> implements Channel
     public String toString() {
         return StringUtil.simpleClassName(this) + "(name: " + name() + ", size: " + size() + ')';
     }
+
+    private abstract static class GroupTask extends OneTimeTask {
+        final List<Channel> channels;
+
+        GroupTask(List<Channel> channels) {
+            this.channels = channels;
+        }
+
+        /**
+         * Called if the task could not be submitted to the {@link EventLoop}.
+         */
+        abstract void fail(Throwable cause);
+    }
+
+    private static final class WriteTask extends GroupTask {
+        private final Object message;
+        private final ChannelPromise[] promises;
+        private final boolean flush;
+
+        WriteTask(Object message, List<Channel> channels, ChannelPromise[] promises, boolean flush) {
+            super(channels);
+            this.message = message;
+            this.promises = promises;
+            this.flush = flush;
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < channels.size(); i ++) {
+                Channel c = channels.get(i);
+                ChannelPromise promise = promises == null ? c.voidPromise() : promises[i];
+                Object msg = safeDuplicate(message);
+                if (flush) {
+                    c.writeAndFlush(msg, promise);
+                } else {
+                    c.write(msg, promise);
+                }
+            }
+        }
+
+        @Override
+        void fail(Throwable cause) {
+            ReferenceCountUtil.release(message, channels.size());
+            if (promises != null) {
+                for (ChannelPromise promise: promises) {
+                    promise.tryFailure(cause);
+                }
+            }
+        }
+    }
+
+    private static final class FlushTask extends GroupTask {
+        FlushTask(List<Channel> channels) {
+            super(channels);
+        }
+
+        @Override
+        public void run() {
+            for (int i = 0; i < channels.size(); i ++) {
+                channels.get(i).flush();
+            }
+        }
+
+        @Override
+        void fail(Throwable cause) {
+            logger.warn("Failed to submit a flush task to the EventLoop of: {}", channels, cause);
+        }
+    }
 }
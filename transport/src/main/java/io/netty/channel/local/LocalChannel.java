@@ -29,15 +29,15 @@ import io.netty.channel.SingleThreadEventLoop;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.SingleThreadEventExecutor;
 import io.netty.util.internal.InternalThreadLocalMap;
+import io.netty.util.internal.PlatformDependent;
 
 import java.net.SocketAddress;
 import java.nio.channels.AlreadyConnectedException;
 import java.nio.channels.ClosedChannelException;
 import java.nio.channels.ConnectionPendingException;
 import java.nio.channels.NotYetConnectedException;
-import java.util.ArrayDeque;
-import java.util.Collections;
 import java.util.Queue;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
 
 /**
  * A {@link Channel} for the local transport.
@@ -50,8 +50,23 @@ public class LocalChannel extends AbstractChannel {
 
     private static final int MAX_READER_STACK_DEPTH = 8;
 
+    private static final AtomicIntegerFieldUpdater<LocalChannel> WAKEUP_PENDING_UPDATER;
+
+    static {
+        AtomicIntegerFieldUpdater<LocalChannel> wakeupPendingUpdater =
+                PlatformDependent.newAtomicIntegerFieldUpdater(LocalChannel.class, "wakeupPending");
+        if (wakeupPendingUpdater == null) {
+            wakeupPendingUpdater = AtomicIntegerFieldUpdater.newUpdater(LocalChannel.class, "wakeupPending");
+        }
+        WAKEUP_PENDING_UPDATER = wakeupPendingUpdater;
+    }
+
     private final ChannelConfig config = new DefaultChannelConfig(this);
-    private final Queue<Object> inboundBuffer = new ArrayDeque<Object>();
+
+    /**
+     * Only written by the {@link EventLoop} of the peer and only read by the {@link EventLoop} of this channel.
+     */
+    private final Queue<Object> inboundBuffer = PlatformDependent.newSpscQueue();
     private final Runnable readTask = new Runnable() {
         @Override
         public void run() {
@@ -67,6 +82,19 @@ public class LocalChannel extends AbstractChannel {
         }
     };
 
+    /**
+     * Delivers the messages the peer added to the {@link #inboundBuffer} from another {@link EventLoop}. At most one
+     * of these is pending at any time, no matter how many writes the peer does in the meantime.
+     */
+    private final Runnable wakeupTask = new Runnable() {
+        @Override
+        public void run() {
+            // Reset the flag before draining, so messages added after this point schedule a new wakeup.
+            wakeupPending = 0;
+            finishPeerRead(LocalChannel.this, pipeline());
+        }
+    };
+
     private final Runnable shutdownHook = new Runnable() {
         @Override
         public void run() {
@@ -81,6 +109,7 @@ public class LocalChannel extends AbstractChannel {
     private volatile ChannelPromise connectPromise;
     private volatile boolean readInProgress;
     private volatile boolean registerInProgress;
+    private volatile int wakeupPending;
 
     public LocalChannel() {
         super(null);
@@ -301,25 +330,25 @@ public class LocalChannel extends AbstractChannel {
             }
             finishPeerRead(peer, peerPipeline);
         } else {
-            // Use a copy because the original msgs will be recycled by AbstractChannel.
-            final Object[] msgsCopy = new Object[in.size()];
-            for (int i = 0; i < msgsCopy.length; i ++) {
-                msgsCopy[i] = ReferenceCountUtil.retain(in.current());
+            // Hand the messages over to the peer directly. They are retained and passed on as they are, so no copy
+            // of the content is made.
+            for (;;) {
+                Object msg = in.current();
+                if (msg == null) {
+                    break;
+                }
+                peer.inboundBuffer.add(ReferenceCountUtil.retain(msg));
                 in.remove();
             }
 
-            peerLoop.execute(new Runnable() {
-                @Override
-                public void run() {
-                    Collections.addAll(peer.inboundBuffer, msgsCopy);
-                    finishPeerRead(peer, peerPipeline);
-                }
-            });
+            if (WAKEUP_PENDING_UPDATER.compareAndSet(peer, 0, 1)) {
+                peerLoop.execute(peer.wakeupTask);
+            }
         }
     }
 
     private static void finishPeerRead(LocalChannel peer, ChannelPipeline peerPipeline) {
-        if (peer.readInProgress) {
+        if (peer.readInProgress && !peer.inboundBuffer.isEmpty()) {
             peer.readInProgress = false;
             for (;;) {
                 Object received = peer.inboundBuffer.poll();
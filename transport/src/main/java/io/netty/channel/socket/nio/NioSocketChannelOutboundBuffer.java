@@ -88,20 +88,17 @@ public final class NioSocketChannelOutboundBuffer extends ChannelOutboundBuffer
     public ByteBuffer[] nioBuffers() {
         long nioBufferSize = 0;
         int nioBufferCount = 0;
-        final Entry[] buffer = entries();
-        final int mask = buffer.length - 1;
         ByteBuffer[] nioBuffers = this.nioBuffers;
-        Object m;
-        int unflushed = unflushed();
-        int i = flushed();
-        while (i != unflushed && (m = buffer[i].msg()) != null) {
+        Entry e = flushedEntry();
+        while (isFlushedEntry(e)) {
+            Object m = e.msg();
             if (!(m instanceof ByteBuf)) {
                 this.nioBufferCount = 0;
                 this.nioBufferSize = 0;
                 return null;
             }
 
-            NioEntry entry = (NioEntry) buffer[i];
+            NioEntry entry = (NioEntry) e;
 
             if (!entry.isCancelled()) {
                 ByteBuf buf = (ByteBuf) m;
@@ -140,7 +137,7 @@ public final class NioSocketChannelOutboundBuffer extends ChannelOutboundBuffer
                 }
             }
 
-            i = i + 1 & mask;
+            e = e.next();
         }
         this.nioBufferCount = nioBufferCount;
         this.nioBufferSize = nioBufferSize;
@@ -206,14 +203,25 @@ public final class NioSocketChannelOutboundBuffer extends ChannelOutboundBuffer
 
     @Override
     protected NioEntry newEntry() {
-        return new NioEntry();
+        return NioEntry.RECYCLER.get();
     }
 
     protected static final class NioEntry extends Entry {
+        private static final Recycler<NioEntry> RECYCLER = new Recycler<NioEntry>() {
+            @Override
+            protected NioEntry newObject(Handle<NioEntry> handle) {
+                return new NioEntry(handle);
+            }
+        };
+
         ByteBuffer[] buffers;
         ByteBuffer buf;
         int count = -1;
 
+        private NioEntry(Recycler.Handle<NioEntry> handle) {
+            super(handle);
+        }
+
         @Override
         public void clear() {
             buffers = null;
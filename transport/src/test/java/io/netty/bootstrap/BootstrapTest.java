@@ -18,6 +18,7 @@ package io.netty.bootstrap;
 
 import io.netty.channel.ChannelHandler;
 import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelFutureListener;
 import io.netty.channel.ChannelHandler.Sharable;
@@ -209,6 +210,64 @@ public class BootstrapTest {
         }
     }
 
+    @Test(timeout = 10000)
+    public void testAcceptorsBindFailedClosesAll() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(2);
+        try {
+            ServerBootstrap bootstrap = new ServerBootstrap();
+            bootstrap.group(group);
+            bootstrap.channel(LocalServerChannel.class);
+            bootstrap.childHandler(new DummyHandler());
+            // LocalServerChannel can not be bound to the same address more than once.
+            bootstrap.acceptors(2);
+            ChannelFuture future = bootstrap.bind(LocalAddress.ANY).await();
+            Assert.assertFalse(future.isSuccess());
+            future.channel().closeFuture().sync();
+        } finally {
+            group.shutdownGracefully();
+            group.terminationFuture().sync();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAcceptors() {
+        new ServerBootstrap().acceptors(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testChannelClassWithoutNoArgsConstructor() {
+        new Bootstrap().channel(ChannelWithoutNoArgsConstructor.class);
+    }
+
+    @Test
+    public void testChannelClassConstructorFailure() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup(1);
+        try {
+            Bootstrap bootstrap = new Bootstrap()
+                    .group(group)
+                    .channel(FailingChannel.class)
+                    .handler(new DummyHandler());
+            try {
+                bootstrap.register();
+                Assert.fail();
+            } catch (ChannelException e) {
+                Assert.assertTrue(e.getCause() instanceof IllegalStateException);
+            }
+        } finally {
+            group.shutdownGracefully().sync();
+        }
+    }
+
+    public static final class ChannelWithoutNoArgsConstructor extends LocalChannel {
+        public ChannelWithoutNoArgsConstructor(@SuppressWarnings("unused") int ignored) { }
+    }
+
+    public static final class FailingChannel extends LocalChannel {
+        public FailingChannel() {
+            throw new IllegalStateException();
+        }
+    }
+
     private static final class TestEventLoopGroup extends DefaultEventLoopGroup {
         ChannelPromise promise;
         TestEventLoopGroup() {
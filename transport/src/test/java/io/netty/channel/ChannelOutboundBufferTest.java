@@ -0,0 +1,135 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import org.junit.Test;
+
+import java.nio.channels.ClosedChannelException;
+
+import static org.junit.Assert.*;
+
+public class ChannelOutboundBufferTest {
+
+    @Test
+    public void testFlushedAndUnflushedMessages() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = ChannelOutboundBuffer.newInstance(channel);
+        ByteBuf first = Unpooled.buffer().writeZero(1);
+        ByteBuf second = Unpooled.buffer().writeZero(2);
+        ByteBuf third = Unpooled.buffer().writeZero(4);
+        ChannelPromise firstPromise = channel.newPromise();
+
+        buffer.addMessage(first, firstPromise);
+        buffer.addMessage(second, channel.voidPromise());
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.current());
+        assertEquals(3, buffer.totalPendingWriteBytes());
+
+        buffer.addFlush();
+        buffer.addMessage(third, channel.voidPromise());
+        assertEquals(2, buffer.size());
+        assertSame(first, buffer.current());
+
+        assertTrue(buffer.remove());
+        assertTrue(firstPromise.isSuccess());
+        assertEquals(0, first.refCnt());
+        assertSame(second, buffer.current());
+        assertTrue(buffer.remove());
+
+        // Only the unflushed message is left.
+        assertTrue(buffer.isEmpty());
+        assertNull(buffer.current());
+        assertFalse(buffer.remove());
+        assertEquals(4, buffer.totalPendingWriteBytes());
+
+        buffer.addFlush();
+        assertEquals(1, buffer.size());
+        assertSame(third, buffer.current());
+        assertTrue(buffer.remove());
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        assertEquals(0, third.refCnt());
+
+        buffer.recycle();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testCancelledMessageIsSkipped() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = ChannelOutboundBuffer.newInstance(channel);
+        ByteBuf msg = Unpooled.buffer().writeZero(8);
+        ChannelPromise promise = channel.newPromise();
+
+        buffer.addMessage(msg, promise);
+        assertTrue(promise.cancel(false));
+        buffer.addFlush();
+        assertEquals(0, msg.refCnt());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+        assertSame(Unpooled.EMPTY_BUFFER, buffer.current());
+        assertTrue(buffer.remove());
+        assertTrue(buffer.isEmpty());
+
+        buffer.recycle();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testBursts() {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = ChannelOutboundBuffer.newInstance(channel);
+        for (int burst = 1; burst <= 4096; burst <<= 2) {
+            ByteBuf[] messages = new ByteBuf[burst];
+            for (int i = 0; i < burst; i ++) {
+                messages[i] = Unpooled.buffer().writeInt(i);
+                buffer.addMessage(messages[i], channel.voidPromise());
+            }
+            buffer.addFlush();
+            assertEquals(burst, buffer.size());
+            assertEquals(burst * 4, buffer.totalPendingWriteBytes());
+
+            for (int i = 0; i < burst; i ++) {
+                assertSame(messages[i], buffer.current());
+                assertTrue(buffer.remove());
+                assertEquals(0, messages[i].refCnt());
+            }
+            assertTrue(buffer.isEmpty());
+            assertEquals(0, buffer.totalPendingWriteBytes());
+        }
+
+        buffer.recycle();
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testCloseFailsUnflushedMessages() throws Exception {
+        EmbeddedChannel channel = new EmbeddedChannel();
+        ChannelOutboundBuffer buffer = ChannelOutboundBuffer.newInstance(channel);
+        ByteBuf msg = Unpooled.buffer().writeZero(8);
+        ChannelPromise promise = channel.newPromise();
+        buffer.addMessage(msg, promise);
+
+        channel.close().sync();
+        ClosedChannelException cause = new ClosedChannelException();
+        buffer.close(cause);
+        assertSame(cause, promise.cause());
+        assertEquals(0, msg.refCnt());
+        assertEquals(0, buffer.totalPendingWriteBytes());
+    }
+}
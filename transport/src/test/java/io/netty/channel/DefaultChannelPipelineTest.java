@@ -21,6 +21,8 @@ import io.netty.bootstrap.ServerBootstrap;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.channel.ChannelHandler.Sharable;
+import io.netty.channel.ChannelHandler.Skip;
+import io.netty.channel.embedded.EmbeddedChannel;
 import io.netty.channel.local.LocalAddress;
 import io.netty.channel.local.LocalChannel;
 import io.netty.channel.local.LocalServerChannel;
@@ -33,6 +35,7 @@ import org.junit.Test;
 
 import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.Queue;
@@ -548,6 +551,119 @@ public class DefaultChannelPipelineTest {
         assertNull(pipeline.last());
     }
 
+    @Test
+    public void testSkippedEventsBypassHandler() {
+        final List<String> events = new ArrayList<String>();
+        EmbeddedChannel channel = new EmbeddedChannel(new ChannelHandlerAdapter() {
+            @Skip
+            @Override
+            public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+                events.add("skipped");
+                ctx.fireChannelRead(msg);
+            }
+
+            @Override
+            public void channelReadComplete(ChannelHandlerContext ctx) throws Exception {
+                events.add("channelReadComplete");
+                ctx.fireChannelReadComplete();
+            }
+        }, new EventRecorder("recorder", events));
+
+        assertTrue(channel.writeInbound("msg"));
+        assertEquals(Arrays.asList("recorder", "channelReadComplete"), events);
+        assertEquals("msg", channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testDispatchAfterPipelineModification() {
+        final List<String> events = new ArrayList<String>();
+        EmbeddedChannel channel = new EmbeddedChannel(new EventRecorder("last", events));
+        ChannelPipeline pipeline = channel.pipeline();
+
+        pipeline.addFirst("first", new EventRecorder("first", events));
+        pipeline.addAfter("first", "middle", new TestHandler());
+        assertTrue(channel.writeInbound("msg1"));
+        assertEquals(Arrays.asList("first", "last"), events);
+
+        events.clear();
+        pipeline.replace("middle", "middle", new EventRecorder("middle", events));
+        assertTrue(channel.writeInbound("msg2"));
+        assertEquals(Arrays.asList("first", "middle", "last"), events);
+
+        events.clear();
+        pipeline.remove("first");
+        assertTrue(channel.writeInbound("msg3"));
+        assertEquals(Arrays.asList("middle", "last"), events);
+
+        assertEquals("msg1", channel.readInbound());
+        assertEquals("msg2", channel.readInbound());
+        assertEquals("msg3", channel.readInbound());
+        assertFalse(channel.finish());
+    }
+
+    @Test
+    public void testContextByTypeAfterPipelineModification() {
+        ChannelPipeline pipeline = new LocalChannel().pipeline();
+        assertNull(pipeline.context(TestHandler.class));
+
+        ChannelHandler handler1 = new TestHandler();
+        pipeline.addLast("handler1", handler1);
+        assertSame(handler1, pipeline.context(TestHandler.class).handler());
+        assertSame(handler1, pipeline.context(ChannelHandlerAdapter.class).handler());
+
+        ChannelHandler handler2 = new TestHandler();
+        pipeline.addFirst("handler2", handler2);
+        assertSame(handler2, pipeline.context(TestHandler.class).handler());
+
+        pipeline.remove(handler2);
+        assertSame(handler1, pipeline.context(TestHandler.class).handler());
+
+        ChannelHandler handler3 = new BufferedTestHandler();
+        pipeline.replace(handler1, "handler3", handler3);
+        assertNull(pipeline.context(TestHandler.class));
+        assertSame(handler3, pipeline.context(ChannelHandlerAdapter.class).handler());
+        assertSame(handler3, pipeline.context("handler3").handler());
+        assertNull(pipeline.context("handler1"));
+
+        // A cached miss must not hide a handler which was added later.
+        assertNull(pipeline.context(TestHandler.class));
+        ChannelHandler handler4 = new TestHandler();
+        pipeline.addLast("handler4", handler4);
+        assertSame(handler4, pipeline.context(TestHandler.class).handler());
+    }
+
+    @Test
+    public void testGeneratedNamesAreUnique() {
+        ChannelPipeline pipeline = new LocalChannel().pipeline();
+        pipeline.addLast(new TestHandler(), new TestHandler(), new TestHandler());
+        assertEquals(Arrays.asList(
+                "DefaultChannelPipelineTest$TestHandler#0",
+                "DefaultChannelPipelineTest$TestHandler#1",
+                "DefaultChannelPipelineTest$TestHandler#2",
+                "DefaultChannelPipeline$TailContext#0"), pipeline.names());
+
+        pipeline.remove("DefaultChannelPipelineTest$TestHandler#0");
+        pipeline.addFirst(new TestHandler());
+        assertEquals("DefaultChannelPipelineTest$TestHandler#0", pipeline.names().get(0));
+    }
+
+    private static final class EventRecorder extends ChannelHandlerAdapter {
+        private final String name;
+        private final List<String> events;
+
+        EventRecorder(String name, List<String> events) {
+            this.name = name;
+            this.events = events;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
+            events.add(name);
+            ctx.fireChannelRead(msg);
+        }
+    }
+
     private static int next(AbstractChannelHandlerContext ctx) {
         AbstractChannelHandlerContext next = ctx.next;
         if (next == null) {
@@ -0,0 +1,198 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel;
+
+import io.netty.buffer.Unpooled;
+import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.util.ReferenceCountUtil;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WriteBufferBudgetTest {
+
+    @Test
+    public void testGlobalBudget() {
+        WriteBufferBudget budget = WriteBufferBudget.newGlobalBudget(50, 100);
+        WritabilityCounter counter1 = new WritabilityCounter();
+        WritabilityCounter counter2 = new WritabilityCounter();
+        EmbeddedChannel ch1 = newChannel(budget, counter1);
+        EmbeddedChannel ch2 = newChannel(budget, counter2);
+
+        ch1.write(Unpooled.buffer().writeZero(60));
+        assertTrue(ch1.isWritable());
+        assertEquals(60, budget.pendingBytes());
+        assertFalse(budget.isExceeded());
+
+        // The channel which exceeds the budget is notified, the other one once it writes.
+        ch2.write(Unpooled.buffer().writeZero(60));
+        assertEquals(120, budget.pendingBytes());
+        assertTrue(budget.isExceeded());
+        assertEquals(1, counter2.changes);
+        assertFalse(ch2.isWritable());
+        assertEquals(0, counter1.changes);
+        assertTrue(ch1.isWritable());
+
+        ch1.write(Unpooled.buffer().writeZero(10));
+        assertEquals(1, counter1.changes);
+        assertFalse(ch1.isWritable());
+
+        ch1.flush();
+        assertEquals(60, budget.pendingBytes());
+        assertTrue(budget.isExceeded());
+        assertFalse(ch1.isWritable());
+
+        // Both channels are told once the budget drops below the low water mark.
+        ch2.flush();
+        assertEquals(0, budget.pendingBytes());
+        assertFalse(budget.isExceeded());
+        assertTrue(ch1.isWritable());
+        assertTrue(ch2.isWritable());
+        assertEquals(2, counter1.changes);
+        assertEquals(2, counter2.changes);
+
+        releaseOutbound(ch1);
+        releaseOutbound(ch2);
+    }
+
+    @Test
+    public void testPerEventLoopBudget() {
+        WriteBufferBudget budget = WriteBufferBudget.newPerEventLoopBudget(50, 100);
+        EmbeddedChannel ch1 = newChannel(budget, new WritabilityCounter());
+        EmbeddedChannel ch2 = newChannel(budget, new WritabilityCounter());
+
+        ch1.write(Unpooled.buffer().writeZero(120));
+        ch2.write(Unpooled.buffer().writeZero(60));
+        assertEquals(180, budget.pendingBytes());
+        assertEquals(120, budget.pendingBytes(ch1.eventLoop()));
+        assertEquals(60, budget.pendingBytes(ch2.eventLoop()));
+        assertTrue(budget.isExceeded());
+        assertTrue(budget.isExceeded(ch1.eventLoop()));
+        assertFalse(budget.isExceeded(ch2.eventLoop()));
+        assertFalse(ch1.isWritable());
+        assertTrue(ch2.isWritable());
+
+        ch1.flush();
+        assertFalse(budget.isExceeded());
+        assertTrue(ch1.isWritable());
+
+        ch2.flush();
+        assertEquals(0, budget.pendingBytes());
+        releaseOutbound(ch1);
+        releaseOutbound(ch2);
+    }
+
+    @Test
+    public void testAutoReadChannel() {
+        WriteBufferBudget budget = WriteBufferBudget.newGlobalBudget(50, 100);
+        EmbeddedChannel upstream = new EmbeddedChannel();
+        EmbeddedChannel downstream = newChannel(budget, new WritabilityCounter());
+        budget.addAutoReadChannel(upstream);
+        assertTrue(upstream.config().isAutoRead());
+
+        downstream.write(Unpooled.buffer().writeZero(120));
+        assertFalse(upstream.config().isAutoRead());
+
+        downstream.flush();
+        assertTrue(upstream.config().isAutoRead());
+
+        // Closed channels are removed from the budget.
+        assertFalse(upstream.finish());
+        assertFalse(budget.removeAutoReadChannel(upstream));
+        releaseOutbound(downstream);
+    }
+
+    @Test
+    public void testCloseReleasesBudget() {
+        WriteBufferBudget budget = WriteBufferBudget.newGlobalBudget(50, 100);
+        EmbeddedChannel ch = newChannel(budget, new WritabilityCounter());
+        ch.write(Unpooled.buffer().writeZero(120));
+        assertTrue(budget.isExceeded());
+
+        // The unflushed message is released on close.
+        assertFalse(ch.finish());
+        assertEquals(0, budget.pendingBytes());
+        assertFalse(budget.isExceeded());
+    }
+
+    @Test
+    public void testBytesPendingBeforeBudgetWasSet() {
+        EmbeddedChannel ch = new EmbeddedChannel();
+        ch.write(Unpooled.buffer().writeZero(60));
+
+        // Only the bytes which were written after the budget was set are accounted to it.
+        WriteBufferBudget budget = WriteBufferBudget.newGlobalBudget(50, 100);
+        assertTrue(ch.config().setOption(ChannelOption.WRITE_BUFFER_BUDGET, budget));
+        ch.write(Unpooled.buffer().writeZero(10));
+        assertEquals(10, budget.pendingBytes());
+
+        ch.flush();
+        assertEquals(0, budget.pendingBytes());
+        releaseOutbound(ch);
+    }
+
+    @Test
+    public void testGetOptions() {
+        EmbeddedChannel ch = new EmbeddedChannel();
+        assertFalse(ch.config().getOptions().containsKey(ChannelOption.WRITE_BUFFER_BUDGET));
+        assertTrue(ch.config().setOptions(ch.config().getOptions()));
+
+        WriteBufferBudget budget = WriteBufferBudget.newGlobalBudget(50, 100);
+        assertTrue(ch.config().setOption(ChannelOption.WRITE_BUFFER_BUDGET, budget));
+        Map<ChannelOption<?>, Object> options = ch.config().getOptions();
+        assertSame(budget, options.get(ChannelOption.WRITE_BUFFER_BUDGET));
+
+        EmbeddedChannel ch2 = new EmbeddedChannel();
+        assertTrue(ch2.config().setOptions(options));
+        assertSame(budget, ch2.config().getOption(ChannelOption.WRITE_BUFFER_BUDGET));
+        assertFalse(ch.finish());
+        assertFalse(ch2.finish());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWaterMarks() {
+        WriteBufferBudget.newGlobalBudget(100, 50);
+    }
+
+    private static EmbeddedChannel newChannel(WriteBufferBudget budget, WritabilityCounter counter) {
+        EmbeddedChannel ch = new EmbeddedChannel(counter);
+        assertTrue(ch.config().setOption(ChannelOption.WRITE_BUFFER_BUDGET, budget));
+        assertSame(budget, ch.config().getOption(ChannelOption.WRITE_BUFFER_BUDGET));
+        return ch;
+    }
+
+    private static void releaseOutbound(EmbeddedChannel ch) {
+        for (;;) {
+            Object msg = ch.readOutbound();
+            if (msg == null) {
+                break;
+            }
+            ReferenceCountUtil.release(msg);
+        }
+        assertFalse(ch.finish());
+    }
+
+    private static final class WritabilityCounter extends ChannelHandlerAdapter {
+        int changes;
+
+        @Override
+        public void channelWritabilityChanged(ChannelHandlerContext ctx) {
+            changes ++;
+        }
+    }
+}
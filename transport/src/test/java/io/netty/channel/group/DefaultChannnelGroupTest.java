@@ -15,16 +15,32 @@
  */
 package io.netty.channel.group;
 
+import io.netty.bootstrap.Bootstrap;
 import io.netty.bootstrap.ServerBootstrap;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
+import io.netty.channel.ChannelHandler.Sharable;
 import io.netty.channel.ChannelHandlerAdapter;
 import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInitializer;
+import io.netty.channel.DefaultEventLoopGroup;
 import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import io.netty.channel.local.LocalServerChannel;
 import io.netty.channel.nio.NioEventLoopGroup;
 import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.GlobalEventExecutor;
 import org.junit.Test;
 
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
 public class DefaultChannnelGroupTest {
 
     // Test for #1183
@@ -57,4 +73,93 @@ public class DefaultChannnelGroupTest {
         bossGroup.terminationFuture().sync();
         workerGroup.terminationFuture().sync();
     }
+
+    @Test
+    public void testWriteAndFlushToAllEventLoops() throws Exception {
+        testBroadcast(false);
+    }
+
+    @Test
+    public void testWriteAndFlushWithVoidPromise() throws Exception {
+        testBroadcast(true);
+    }
+
+    private static void testBroadcast(boolean voidPromise) throws Exception {
+        final int channels = 16;
+        EventLoopGroup group = new DefaultEventLoopGroup(4);
+        ReceiveHandler handler = new ReceiveHandler(channels);
+        LocalAddress addr = new LocalAddress("DefaultChannelGroupTest");
+        Channel sc = new ServerBootstrap()
+                .group(group)
+                .channel(LocalServerChannel.class)
+                .childHandler(handler)
+                .bind(addr).syncUninterruptibly().channel();
+
+        DefaultChannelGroup allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        Bootstrap cb = new Bootstrap()
+                .group(group)
+                .channel(LocalChannel.class)
+                .handler(new ChannelInitializer<Channel>() {
+                    @Override
+                    protected void initChannel(Channel ch) {
+                        // NOOP
+                    }
+                });
+        for (int i = 0; i < channels; i ++) {
+            assertTrue(allChannels.add(cb.connect(addr).syncUninterruptibly().channel()));
+        }
+
+        ByteBuf payload = Unpooled.copyInt(42);
+        try {
+            ChannelGroupFuture future = allChannels.writeAndFlush(payload, ChannelMatchers.all(), voidPromise);
+            if (!voidPromise) {
+                assertTrue(future.syncUninterruptibly().isSuccess());
+                int count = 0;
+                for (ChannelFuture f: future) {
+                    assertTrue(f.isSuccess());
+                    count ++;
+                }
+                assertEquals(channels, count);
+            }
+            assertTrue(handler.latch.await(10, TimeUnit.SECONDS));
+            assertNull(handler.error);
+            assertEquals(0, payload.refCnt());
+        } finally {
+            allChannels.close().syncUninterruptibly();
+            sc.close().syncUninterruptibly();
+            group.shutdownGracefully();
+        }
+    }
+
+    @Test
+    public void testWriteToEmptyGroupReleasesMessage() {
+        ChannelGroup allChannels = new DefaultChannelGroup(GlobalEventExecutor.INSTANCE);
+        ByteBuf payload = Unpooled.copyInt(42);
+        assertTrue(allChannels.writeAndFlush(payload).isSuccess());
+        assertEquals(0, payload.refCnt());
+    }
+
+    @Sharable
+    private static final class ReceiveHandler extends ChannelHandlerAdapter {
+        final CountDownLatch latch;
+        volatile Throwable error;
+
+        ReceiveHandler(int channels) {
+            latch = new CountDownLatch(channels);
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            try {
+                if (((ByteBuf) msg).readInt() != 42) {
+                    error = new AssertionError("unexpected content");
+                }
+            } catch (Throwable cause) {
+                error = cause;
+            } finally {
+                ReferenceCountUtil.release(msg);
+            }
+            latch.countDown();
+        }
+    }
 }
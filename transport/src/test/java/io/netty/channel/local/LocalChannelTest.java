@@ -33,6 +33,8 @@ import io.netty.util.internal.logging.InternalLoggerFactory;
 import org.junit.Test;
 
 import java.nio.channels.ClosedChannelException;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
@@ -282,6 +284,58 @@ public class LocalChannelTest {
         sc.close().syncUninterruptibly();
     }
 
+    @Test(timeout = 10000)
+    public void testWriteToPeerOnOtherEventLoopKeepsOrder() throws Exception {
+        EventLoopGroup clientGroup = new DefaultEventLoopGroup(1);
+        EventLoopGroup serverGroup = new DefaultEventLoopGroup(1);
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        final int messages = 10000;
+        final List<Integer> received = new ArrayList<Integer>();
+        final CountDownLatch latch = new CountDownLatch(1);
+        try {
+            ServerBootstrap sb = new ServerBootstrap()
+                    .group(serverGroup)
+                    .channel(LocalServerChannel.class)
+                    .childHandler(new SimpleChannelInboundHandler<Integer>() {
+                        @Override
+                        protected void messageReceived(ChannelHandlerContext ctx, Integer msg) {
+                            received.add(msg);
+                            if (received.size() == messages) {
+                                latch.countDown();
+                            }
+                        }
+                    });
+            Bootstrap cb = new Bootstrap()
+                    .group(clientGroup)
+                    .channel(LocalChannel.class)
+                    .handler(new TestHandler());
+
+            Channel sc = sb.bind(addr).sync().channel();
+            Channel cc = cb.connect(addr).sync().channel();
+
+            for (int i = 0; i < messages; i ++) {
+                // Flush in batches of different sizes, so that the messages span multiple wakeups of the peer.
+                if (i % 7 == 0) {
+                    cc.writeAndFlush(i);
+                } else {
+                    cc.write(i);
+                }
+            }
+            cc.flush();
+
+            latch.await();
+            for (int i = 0; i < messages; i ++) {
+                assertEquals(i, received.get(i).intValue());
+            }
+
+            cc.close().sync();
+            sc.close().sync();
+        } finally {
+            clientGroup.shutdownGracefully();
+            serverGroup.shutdownGracefully();
+        }
+    }
+
     static class TestHandler extends ChannelHandlerAdapter {
         @Override
         public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
@@ -0,0 +1,79 @@
+/*
+ * Copyright 2014 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.channel.pool;
+
+import io.netty.bootstrap.Bootstrap;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelException;
+import io.netty.channel.DefaultEventLoopGroup;
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.local.LocalAddress;
+import io.netty.channel.local.LocalChannel;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AbstractChannelPoolMapTest {
+    private static final String LOCAL_ADDR_ID = "test.id";
+
+    @Test(expected = ChannelException.class)
+    public void testMap() throws Exception {
+        EventLoopGroup group = new DefaultEventLoopGroup();
+        LocalAddress addr = new LocalAddress(LOCAL_ADDR_ID);
+        final Bootstrap cb = new Bootstrap();
+        cb.group(group)
+          .channel(LocalChannel.class);
+
+        AbstractChannelPoolMap<LocalAddress, SimpleChannelPool> poolMap =
+                new AbstractChannelPoolMap<LocalAddress, SimpleChannelPool>() {
+            @Override
+            protected SimpleChannelPool newPool(LocalAddress key) {
+                return new SimpleChannelPool(cb.clone().remoteAddress(key), new TestChannelPoolHandler());
+            }
+        };
+
+        assertFalse(poolMap.iterator().hasNext());
+        assertEquals(0, poolMap.size());
+
+        SimpleChannelPool pool = poolMap.get(addr);
+        assertEquals(1, poolMap.size());
+        assertTrue(poolMap.iterator().hasNext());
+        assertTrue(poolMap.contains(addr));
+
+        assertSame(pool, poolMap.get(addr));
+        assertNotSame(pool, poolMap.get(new LocalAddress(LOCAL_ADDR_ID + ".other")));
+        assertEquals(2, poolMap.size());
+        assertTrue(poolMap.remove(addr));
+        assertFalse(poolMap.remove(addr));
+        assertFalse(poolMap.contains(addr));
+
+        assertEquals(1, poolMap.size());
+
+        try {
+            pool.acquire().syncUninterruptibly();
+        } finally {
+            poolMap.close();
+            group.shutdownGracefully();
+        }
+    }
+
+    private static final class TestChannelPoolHandler extends AbstractChannelPoolHandler {
+        @Override
+        public void channelCreated(Channel ch) throws Exception {
+            // NOOP
+        }
+    }
+}